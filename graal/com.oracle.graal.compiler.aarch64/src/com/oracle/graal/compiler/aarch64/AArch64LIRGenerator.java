@@ -32,6 +32,7 @@ import com.oracle.graal.asm.aarch64.AArch64Assembler.ConditionFlag;
 import com.oracle.graal.asm.aarch64.AArch64MacroAssembler;
 import com.oracle.graal.compiler.common.LIRKind;
 import com.oracle.graal.compiler.common.calc.Condition;
+import com.oracle.graal.compiler.common.calc.VectorOperation;
 import com.oracle.graal.compiler.common.spi.LIRKindTool;
 import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.lir.LIRFrameState;
@@ -397,6 +398,11 @@ public abstract class AArch64LIRGenerator extends LIRGenerator {
         throw GraalError.unimplemented("Do not generate until we support vector instructions");
     }
 
+    @Override
+    public Variable emitVectorizedArrayOp(VectorOperation op, JavaKind kind, Value dst, Value src1, Value src2, Value scalar, Value start, Value end) {
+        throw GraalError.unimplemented("Do not generate until we support vector instructions");
+    }
+
     @Override
     public Variable emitArrayEquals(JavaKind kind, Value array1, Value array2, Value length) {
         // TODO (das) Do not generate until we support vector instructions
@@ -67,7 +67,12 @@ public abstract class AMD64MoveFactoryBase implements MoveFactory {
             this.frameMapBuilder = frameMapBuilder;
         }
 
-        protected RegisterBackupPair getScratchRegister(PlatformKind kind) {
+        /**
+         * Synchronized since the trace register allocator may create stack moves concurrently.
+         * The backup slot is allocated while holding the lock of the frame map builder, which
+         * guards the allocation of spill slots in that case.
+         */
+        protected synchronized RegisterBackupPair getScratchRegister(PlatformKind kind) {
             PlatformKind.Key key = kind.getKey();
             if (categorized == null) {
                 categorized = new HashMap<>();
@@ -83,7 +88,10 @@ public abstract class AMD64MoveFactoryBase implements MoveFactory {
 
             Architecture arch = frameMapBuilder.getCodeCache().getTarget().arch;
             LIRKind largestKind = LIRKind.value(arch.getLargestStorableKind(scratchRegister.getRegisterCategory()));
-            VirtualStackSlot backupSlot = frameMapBuilder.allocateSpillSlot(largestKind);
+            VirtualStackSlot backupSlot;
+            synchronized (frameMapBuilder) {
+                backupSlot = frameMapBuilder.allocateSpillSlot(largestKind);
+            }
 
             RegisterBackupPair value = new RegisterBackupPair(scratchRegister, backupSlot);
             categorized.put(key, value);
@@ -22,21 +22,56 @@
  */
 package com.oracle.graal.compiler.amd64;
 
+import static com.oracle.graal.compiler.common.GraalOptions.LoopVectorization;
+import static com.oracle.graal.compiler.common.GraalOptions.OptLoopTransform;
+
+import java.util.ListIterator;
+
 import com.oracle.graal.java.DefaultSuitesProvider;
+import com.oracle.graal.lir.amd64.AMD64VectorizedArrayOp;
 import com.oracle.graal.lir.amd64.phases.StackMoveOptimizationPhase;
 import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.loop.phases.LoopPartialUnrollPhase;
+import com.oracle.graal.loop.phases.LoopVectorizationPhase;
 import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.common.RemoveValueProxyPhase;
 import com.oracle.graal.phases.tiers.CompilerConfiguration;
+import com.oracle.graal.phases.tiers.HighTierContext;
+import com.oracle.graal.phases.tiers.Suites;
+
+import jdk.vm.ci.code.TargetDescription;
 
 public class AMD64SuitesProvider extends DefaultSuitesProvider {
 
-    public AMD64SuitesProvider(CompilerConfiguration compilerConfiguration, Plugins plugins) {
+    private final TargetDescription target;
+
+    public AMD64SuitesProvider(CompilerConfiguration compilerConfiguration, Plugins plugins, TargetDescription target) {
         super(compilerConfiguration, plugins);
+        this.target = target;
+    }
+
+    @Override
+    public Suites createSuites(CompilerConfiguration config) {
+        Suites suites = super.createSuites(config);
+        int vectorSize = AMD64VectorizedArrayOp.getVectorSize(target);
+        if (OptLoopTransform.getValue() && LoopVectorization.getValue() && vectorSize > 0) {
+            /* Vectorize before partial unrolling, which would hide the simple loop body. */
+            ListIterator<BasePhase<? super HighTierContext>> position = suites.getHighTier().findPhase(LoopPartialUnrollPhase.class);
+            if (position == null) {
+                position = suites.getHighTier().findPhase(RemoveValueProxyPhase.class);
+            }
+            if (position != null) {
+                position.previous();
+                position.add(new LoopVectorizationPhase(vectorSize));
+            }
+        }
+        return suites;
     }
 
     @Override
-    public LIRSuites createLIRSuites() {
-        LIRSuites lirSuites = super.createLIRSuites();
+    public LIRSuites createLIRSuites(CompilerConfiguration config) {
+        LIRSuites lirSuites = super.createLIRSuites(config);
         if (StackMoveOptimizationPhase.Options.LIROptStackMoveOptimizer.getValue()) {
             /* Note: this phase must be inserted <b>after</b> RedundantMoveElimination */
             lirSuites.getPostAllocationOptimizationStage().appendPhase(new StackMoveOptimizationPhase());
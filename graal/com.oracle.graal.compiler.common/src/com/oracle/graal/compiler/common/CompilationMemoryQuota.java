@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common;
+
+import com.oracle.graal.debug.Management;
+
+import jdk.vm.ci.code.BailoutException;
+
+/**
+ * Limits the memory allocated by the current thread during a compilation. The quota is
+ * {@linkplain #check() checked} at phase boundaries, i.e., before each
+ * {@code com.oracle.graal.phases.BasePhase} and {@code com.oracle.graal.lir.phases.LIRPhase}, and a
+ * compilation that exceeds it bails out with a non-permanent {@link ExceededException}.
+ *
+ * <pre>
+ * try (CompilationMemoryQuota quota = CompilationMemoryQuota.open(bytes)) {
+ *     // compile
+ * }
+ * </pre>
+ */
+public final class CompilationMemoryQuota implements AutoCloseable {
+
+    /**
+     * Thrown if a compilation exceeds its memory quota.
+     */
+    public static final class ExceededException extends BailoutException {
+
+        private static final long serialVersionUID = -1781543066263421447L;
+
+        ExceededException(long allocated, long quota) {
+            super(false, "Compilation allocated %d bytes, which exceeds its memory quota of %d bytes", allocated, quota);
+        }
+    }
+
+    private static final ThreadLocal<CompilationMemoryQuota> current = new ThreadLocal<>();
+
+    private final CompilationMemoryQuota outer;
+    private final long start;
+    private final long quota;
+
+    private CompilationMemoryQuota(long quota) {
+        this.outer = current.get();
+        this.start = Management.getCurrentThreadAllocatedBytes();
+        this.quota = quota;
+    }
+
+    /**
+     * Starts limiting the memory allocated by the current thread to {@code quota} bytes until the
+     * returned object is closed. Quotas can be nested, in which case all of them are checked.
+     *
+     * @return {@code null} if {@code quota} is not positive, i.e., the memory is not limited
+     */
+    public static CompilationMemoryQuota open(long quota) {
+        if (quota <= 0) {
+            return null;
+        }
+        CompilationMemoryQuota result = new CompilationMemoryQuota(quota);
+        current.set(result);
+        return result;
+    }
+
+    /**
+     * Throws an {@link ExceededException} if the current thread allocated more memory than allowed
+     * by a quota opened on it.
+     */
+    public static void check() {
+        CompilationMemoryQuota q = current.get();
+        if (q != null) {
+            long allocatedBytes = Management.getCurrentThreadAllocatedBytes();
+            do {
+                long allocated = allocatedBytes - q.start;
+                if (allocated > q.quota) {
+                    throw new ExceededException(allocated, q.quota);
+                }
+                q = q.outer;
+            } while (q != null);
+        }
+    }
+
+    @Override
+    public void close() {
+        assert current.get() == this : "quotas must be closed in reverse order of opening";
+        current.set(outer);
+    }
+}
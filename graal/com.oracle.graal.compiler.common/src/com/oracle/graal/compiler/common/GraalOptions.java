@@ -69,6 +69,12 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Expert)
     public static final OptionValue<Boolean> InlineEverything = new OptionValue<>(false);
 
+    @Option(help = "Maximum size in MB of the cache of parsed graphs of inlining candidates shared by all compilations (0 to disable).", type = OptionType.Expert)
+    public static final OptionValue<Integer> InlineGraphCacheSize = new OptionValue<>(16);
+
+    @Option(help = "Print the hit rate and memory use of the cache of parsed graphs of inlining candidates at shutdown.", type = OptionType.Debug)
+    public static final OptionValue<Boolean> PrintInlineGraphCacheStatistics = new OptionValue<>(false);
+
     // escape analysis settings
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> PartialEscapeAnalysis = new OptionValue<>(true);
@@ -106,6 +112,15 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> LoopUnswitch = new OptionValue<>(true);
 
+    @Option(help = "Unroll counted loops by a factor chosen from the loop size and profile", type = OptionType.Debug)
+    public static final OptionValue<Boolean> LoopPartialUnroll = new OptionValue<>(true);
+
+    @Option(help = "Replace bounds checks on induction variables of counted loops by a single check before the loop", type = OptionType.Debug)
+    public static final OptionValue<Boolean> LoopPredication = new OptionValue<>(true);
+
+    @Option(help = "Process simple counted array loops with vector instructions if the target supports them", type = OptionType.Debug)
+    public static final OptionValue<Boolean> LoopVectorization = new OptionValue<>(true);
+
     @Option(help = "", type = OptionType.Expert)
     public static final OptionValue<Float> MinimumPeelProbability = new OptionValue<>(0.35f);
 
@@ -24,8 +24,8 @@ package com.oracle.graal.compiler.common.alloc;
 
 import static com.oracle.graal.compiler.common.GraalOptions.RegisterPressure;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jdk.vm.ci.code.Register;
 import jdk.vm.ci.code.RegisterArray;
@@ -95,7 +95,10 @@ public class RegisterAllocationConfig {
     }
 
     protected final RegisterConfig registerConfig;
-    private final Map<PlatformKind.Key, AllocatableRegisters> categorized = new HashMap<>();
+    /**
+     * Concurrent since the register allocator may allocate the traces of a method concurrently.
+     */
+    private final Map<PlatformKind.Key, AllocatableRegisters> categorized = new ConcurrentHashMap<>();
     private RegisterArray cachedRegisters;
 
     public RegisterAllocationConfig(RegisterConfig registerConfig) {
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common.calc;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * The element-wise operations that can be applied to whole ranges of primitive arrays with vector
+ * instructions.
+ */
+public enum VectorOperation {
+    /**
+     * Copies the elements of one array, or stores an invariant scalar if there is no source array.
+     */
+    MOVE,
+    ADD,
+    SUB,
+    MUL,
+    AND,
+    OR,
+    XOR;
+
+    /**
+     * Determines if this operation can be applied to arrays with elements of the given kind.
+     */
+    public boolean isSupported(JavaKind kind) {
+        switch (kind) {
+            case Int:
+            case Long:
+                return this != MUL;
+            case Float:
+            case Double:
+                return this == MOVE || this == ADD || this == SUB || this == MUL;
+            default:
+                return false;
+        }
+    }
+}
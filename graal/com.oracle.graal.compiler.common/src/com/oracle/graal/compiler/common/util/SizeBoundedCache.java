@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe cache that is bounded by the estimated size of its values in bytes and optionally
+ * by the number of its entries. Lookups do not lock. When a bound is exceeded, the least recently
+ * used entries are evicted until the cache is filled to at most three quarters of its bounds.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class SizeBoundedCache<K, V> {
+
+    private final long maxBytes;
+    private final int maxCount;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes the maximum estimated size of all cached values
+     */
+    public SizeBoundedCache(long maxBytes) {
+        this(maxBytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxBytes the maximum estimated size of all cached values
+     * @param maxCount the maximum number of cached values
+     */
+    public SizeBoundedCache(long maxBytes, int maxCount) {
+        this.maxBytes = maxBytes;
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * Returns the value cached for a key and marks it as recently used, or returns {@code null} if
+     * there is none.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = accessClock.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Adds a value to the cache unless a value is already cached for the key. Values larger than
+     * the bound of the cache are not cached.
+     *
+     * @param size the estimated size of the value in bytes
+     * @return the value that is cached for the key after this call, or {@code value} if it was too
+     *         large to be cached
+     */
+    public V putIfAbsent(K key, V value, long size) {
+        if (size > maxBytes) {
+            return value;
+        }
+        Entry<V> existing = entries.putIfAbsent(key, new Entry<>(value, size, accessClock.incrementAndGet()));
+        if (existing != null) {
+            return existing.value;
+        }
+        if (totalBytes.addAndGet(size) > maxBytes || entries.size() > maxCount) {
+            evict();
+        }
+        return value;
+    }
+
+    /**
+     * Adds a value to the cache, replacing a value already cached for the key. Values larger than
+     * the bound of the cache are not cached.
+     *
+     * @param size the estimated size of the value in bytes
+     */
+    public void put(K key, V value, long size) {
+        if (size > maxBytes) {
+            return;
+        }
+        Entry<V> existing = entries.put(key, new Entry<>(value, size, accessClock.incrementAndGet()));
+        long delta = size - (existing != null ? existing.size : 0);
+        if (totalBytes.addAndGet(delta) > maxBytes || entries.size() > maxCount) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the entry of a key if it still caches a given value.
+     *
+     * @return whether the entry was removed
+     */
+    public boolean remove(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.value == value && entries.remove(key, entry)) {
+            totalBytes.addAndGet(-entry.size);
+            return true;
+        }
+        return false;
+    }
+
+    public void clear() {
+        for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+            if (entries.remove(e.getKey(), e.getValue())) {
+                totalBytes.addAndGet(-e.getValue().size);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated size in bytes of all cached values.
+     */
+    public long getSize() {
+        return totalBytes.get();
+    }
+
+    public long getMaxSize() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of cached values.
+     */
+    public int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of values evicted so far.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Called after a value was evicted from the cache.
+     *
+     * @param key the key of the evicted value
+     * @param value the evicted value
+     * @param size the estimated size of the evicted value in bytes
+     */
+    protected void evicted(K key, V value, long size) {
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is filled to at most three quarters
+     * of its maximum size and number of entries. Eviction is rare, so it is fine to do it under a
+     * lock and to sort all entries.
+     */
+    private synchronized void evict() {
+        if (totalBytes.get() <= maxBytes && entries.size() <= maxCount) {
+            return;
+        }
+        /* Snapshot the access times so that concurrent lookups do not disturb the sorting. */
+        List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+        for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+            candidates.add(new Candidate<>(e.getKey(), e.getValue()));
+        }
+        candidates.sort((c1, c2) -> Long.compare(c1.lastAccess, c2.lastAccess));
+        long targetBytes = maxBytes / 4 * 3;
+        int targetCount = maxCount - maxCount / 4;
+        for (Candidate<K, V> candidate : candidates) {
+            if (totalBytes.get() <= targetBytes && entries.size() <= targetCount) {
+                break;
+            }
+            Entry<V> entry = candidate.entry;
+            if (entries.remove(candidate.key, entry)) {
+                totalBytes.addAndGet(-entry.size);
+                evictions.incrementAndGet();
+                evicted(candidate.key, entry.value, entry.size);
+            }
+        }
+    }
+
+    private static final class Candidate<K, V> {
+        final K key;
+        final Entry<V> entry;
+        final long lastAccess;
+
+        Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long size;
+        volatile long lastAccess;
+
+        Entry(V value, long size, long lastAccess) {
+            this.value = value;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.CompilationMemoryQuota;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Tests that compilations bail out when they exceed a {@link CompilationMemoryQuota}.
+ */
+public class CompilationMemoryQuotaTest extends GraalCompilerTest {
+
+    public static int snippet(int[] array) {
+        int sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testExceeded() {
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet");
+        try (CompilationMemoryQuota quota = CompilationMemoryQuota.open(1)) {
+            StructuredGraph graph = parseEager(method, AllowAssumptions.YES);
+            compile(method, graph);
+            Assert.fail("expected the compilation to exceed its memory quota");
+        } catch (CompilationMemoryQuota.ExceededException e) {
+            Assert.assertFalse(e.isPermanent());
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testWithinQuota() {
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet");
+        try (CompilationMemoryQuota quota = CompilationMemoryQuota.open(1L << 32)) {
+            StructuredGraph graph = parseEager(method, AllowAssumptions.YES);
+            Assert.assertNotNull(compile(method, graph));
+        }
+    }
+}
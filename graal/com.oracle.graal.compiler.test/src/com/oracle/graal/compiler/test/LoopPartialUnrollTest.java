@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+import com.oracle.graal.loop.DefaultLoopPolicies;
+import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.phases.LoopPartialUnrollPhase;
+import com.oracle.graal.nodes.LoopBeginNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.Phase;
+import com.oracle.graal.phases.common.CanonicalizerPhase;
+import com.oracle.graal.phases.tiers.HighTierContext;
+import com.oracle.graal.phases.tiers.Suites;
+
+public class LoopPartialUnrollTest extends GraalCompilerTest {
+
+    /**
+     * Unrolls every loop that can be unrolled by a factor of 4, independent of its profile.
+     */
+    private static class UnrollAllPolicies extends DefaultLoopPolicies {
+
+        @Override
+        public int partialUnrollFactor(LoopEx loop) {
+            return 4;
+        }
+    }
+
+    @Override
+    protected Suites createSuites() {
+        Suites ret = super.createSuites();
+        ListIterator<BasePhase<? super HighTierContext>> iter = ret.getHighTier().findPhase(LoopPartialUnrollPhase.class);
+        if (iter != null) {
+            iter.set(new LoopPartialUnrollPhase(new CanonicalizerPhase(), new UnrollAllPolicies()));
+            iter.add(new Phase("CheckGraphPhase") {
+
+                @Override
+                protected void run(StructuredGraph graph) {
+                    assertTrue(graph.getNodes(LoopBeginNode.TYPE).filter(loopBegin -> ((LoopBeginNode) loopBegin).isPartiallyUnrolled()).isNotEmpty());
+                }
+            });
+        }
+        return ret;
+    }
+
+    public static int sumSnippet(int[] array, int start, int end) {
+        int sum = 0;
+        for (int i = start; i < end; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void sum() {
+        int[] array = new int[37];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * 7 + 1;
+        }
+        for (int end = 0; end <= array.length; end++) {
+            test("sumSnippet", array, 0, end);
+            test("sumSnippet", array, end / 2, end);
+        }
+    }
+
+    public static long sumDownSnippet(int[] array, int start) {
+        long sum = 0;
+        for (int i = array.length - 1; i >= start; i--) {
+            sum = sum * 3 + array[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void sumDown() {
+        int[] array = new int[19];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i - 5;
+        }
+        for (int start = -1; start <= array.length; start++) {
+            test("sumDownSnippet", array, Math.max(start, 0));
+        }
+    }
+
+    public static int strideSnippet(int limit) {
+        int sum = 0;
+        for (int i = 0; i <= limit; i += 3) {
+            sum += i ^ sum;
+        }
+        return sum;
+    }
+
+    @Test
+    public void stride() {
+        for (int limit = -2; limit < 40; limit++) {
+            test("strideSnippet", limit);
+        }
+    }
+
+    public static int nearLimitSnippet(int start, int limit) {
+        int count = 0;
+        for (int i = start; i < limit; i++) {
+            count += 2;
+        }
+        return count;
+    }
+
+    @Test
+    public void nearLimit() {
+        test("nearLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 2);
+        test("nearLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 11);
+        test("nearLimitSnippet", Integer.MAX_VALUE - 10, Integer.MAX_VALUE);
+    }
+
+    public static int earlyExitSnippet(int[] array, int key) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void earlyExit() {
+        int[] array = new int[13];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * i;
+        }
+        for (int key = -1; key < 150; key += 7) {
+            test("earlyExitSnippet", array, key);
+        }
+    }
+}
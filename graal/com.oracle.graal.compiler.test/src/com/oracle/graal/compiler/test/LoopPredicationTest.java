@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.lang.reflect.Proxy;
+import java.util.ListIterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.GraalOptions;
+import com.oracle.graal.compiler.phases.MidTier;
+import com.oracle.graal.loop.phases.LoopPredicationPhase;
+import com.oracle.graal.nodes.GuardNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.tiers.MidTierContext;
+import com.oracle.graal.phases.tiers.Suites;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ProfilingInfo;
+
+public class LoopPredicationTest extends GraalCompilerTest {
+
+    @Override
+    protected Suites createSuites() {
+        Suites ret = super.createSuites();
+        ListIterator<BasePhase<? super MidTierContext>> iter = ret.getMidTier().findPhase(LoopPredicationPhase.class, true);
+        if (iter != null) {
+            iter.add(new BasePhase<MidTierContext>() {
+
+                @Override
+                protected void run(StructuredGraph graph, MidTierContext context) {
+                    if (context.getOptimisticOptimizations().useLoopPredication()) {
+                        assertTrue(graph.getNodes().filter(GuardNode.class).filter(
+                                        guard -> ((GuardNode) guard).getReason() == LoopPredicationPhase.PREDICATE_DEOPT_REASON &&
+                                                        ((GuardNode) guard).getAction() == DeoptimizationAction.InvalidateRecompile).isNotEmpty());
+                    }
+                }
+            });
+        }
+        return ret;
+    }
+
+    public static int sumSnippet(int[] array, int start, int end) {
+        int sum = 0;
+        for (int i = start; i < end; i++) {
+            sum += array[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void sum() {
+        int[] array = new int[23];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * 3 - 7;
+        }
+        test("sumSnippet", array, 0, array.length);
+        test("sumSnippet", array, 5, 5);
+        test("sumSnippet", new int[0], 0, 0);
+        test("sumSnippet", array, 0, array.length + 1);
+        test("sumSnippet", array, -1, 3);
+    }
+
+    public static int sumDownSnippet(int[] array, int end) {
+        int sum = 0;
+        for (int i = array.length - 1; i >= end; i--) {
+            sum = sum * 5 + array[i];
+        }
+        return sum;
+    }
+
+    @Test
+    public void sumDown() {
+        int[] array = new int[17];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i ^ 0x55;
+        }
+        test("sumDownSnippet", array, 0);
+        test("sumDownSnippet", array, 9);
+        test("sumDownSnippet", new int[0], 0);
+        test("sumDownSnippet", array, -1);
+    }
+
+    public static int linearSnippet(int[] array, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += array[2 * i + 1] - array[i + 3];
+        }
+        return sum;
+    }
+
+    @Test
+    public void linear() {
+        int[] array = new int[31];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * i;
+        }
+        test("linearSnippet", array, 0);
+        test("linearSnippet", array, 15);
+        test("linearSnippet", array, 16);
+    }
+
+    public static void copySnippet(int[] dst, int[] src, int offset) {
+        for (int i = 0; i < src.length; i++) {
+            dst[i + offset] = src[i];
+        }
+    }
+
+    @Test
+    public void copy() {
+        int[] src = new int[]{1, 2, 3, 4, 5, 6, 7};
+        test("copySnippet", new int[10], src, 3);
+        test("copySnippet", new int[10], src, 4);
+        test("copySnippet", new int[10], src, -1);
+    }
+
+    @Test
+    public void disabled() {
+        Assert.assertNotNull(new MidTier().findPhase(LoopPredicationPhase.class, true));
+        try (OverrideScope s = OptionValue.override(GraalOptions.LoopPredication, false)) {
+            Assert.assertNull(new MidTier().findPhase(LoopPredicationPhase.class, true));
+        }
+    }
+
+    /**
+     * Returns a profile that only records deoptimizations with {@code reason}, as many as needed to
+     * disable an optimistic optimization.
+     */
+    private static ProfilingInfo deoptimizedWith(DeoptimizationReason reason) {
+        int count = GraalOptions.DeoptsToDisableOptimisticOptimization.getValue();
+        return (ProfilingInfo) Proxy.newProxyInstance(ProfilingInfo.class.getClassLoader(), new Class<?>[]{ProfilingInfo.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getDeoptimizationCount")) {
+                return args[0] == reason ? count : 0;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    @Test
+    public void failedBoundsChecksKeepPredication() {
+        Assert.assertTrue(new OptimisticOptimizations(deoptimizedWith(DeoptimizationReason.BoundsCheckException)).useLoopPredication());
+        Assert.assertFalse(new OptimisticOptimizations(deoptimizedWith(LoopPredicationPhase.PREDICATE_DEOPT_REASON)).useLoopPredication());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import org.junit.Test;
+
+import com.oracle.graal.loop.phases.LoopVectorizationPhase;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.java.VectorizedArrayOpNode;
+
+public class LoopVectorizationTest extends GraalCompilerTest {
+
+    /**
+     * Checks that the loop of the snippet is vectorized. This is done on a freshly parsed graph
+     * because the graphs compiled after an exception was thrown in a snippet contain explicit
+     * exception paths that prevent vectorization.
+     */
+    private void assertVectorized(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES);
+        new LoopVectorizationPhase(16).apply(graph, getDefaultHighTierContext());
+        assertTrue(graph.getNodes().filter(VectorizedArrayOpNode.class).isNotEmpty());
+    }
+
+    private static int[] intArray(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 7 - 100;
+        }
+        return array;
+    }
+
+    public static int[] addSnippet(int[] a, int[] b, int n) {
+        int[] result = new int[a.length];
+        for (int i = 0; i < n; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void add() {
+        assertVectorized("addSnippet");
+        int[] a = intArray(37);
+        int[] b = intArray(41);
+        test("addSnippet", a, b, a.length);
+        test("addSnippet", a, b, 3);
+        test("addSnippet", a, b, 0);
+        test("addSnippet", a, intArray(19), a.length);
+        test("addSnippet", a, b, a.length + 1);
+        test("addSnippet", a, null, a.length);
+    }
+
+    public static int[] xorSnippet(int[] a, int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = 0x5555 ^ a[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void xor() {
+        assertVectorized("xorSnippet");
+        int[] a = intArray(29);
+        test("xorSnippet", a, a.length);
+        test("xorSnippet", a, 17);
+    }
+
+    public static long[] subSnippet(long[] a, long[] b, int start, int end) {
+        long[] result = new long[end];
+        for (int i = start; i < end; i++) {
+            result[i] = a[i] - b[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void sub() {
+        assertVectorized("subSnippet");
+        long[] a = new long[23];
+        long[] b = new long[23];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = Long.MAX_VALUE - i;
+            b[i] = i * 0x1234567890L;
+        }
+        test("subSnippet", a, b, 0, a.length);
+        test("subSnippet", a, b, 5, a.length);
+        test("subSnippet", a, b, -1, a.length);
+    }
+
+    public static float[] scaleSnippet(float[] a, float factor, int n) {
+        float[] result = new float[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = a[i] * factor;
+        }
+        return result;
+    }
+
+    @Test
+    public void scale() {
+        assertVectorized("scaleSnippet");
+        float[] a = new float[19];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i / 3.0f;
+        }
+        a[4] = Float.NaN;
+        a[5] = Float.NEGATIVE_INFINITY;
+        test("scaleSnippet", a, 1.5f, a.length);
+        test("scaleSnippet", a, -0.0f, 11);
+    }
+
+    public static double[] fillSnippet(double value, int n) {
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = value;
+        }
+        return result;
+    }
+
+    @Test
+    public void fill() {
+        assertVectorized("fillSnippet");
+        test("fillSnippet", 2.5, 13);
+        test("fillSnippet", -0.0, 1);
+    }
+
+    public static long[] copySnippet(long[] src, int n) {
+        long[] result = new long[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = src[i];
+        }
+        return result;
+    }
+
+    @Test
+    public void copy() {
+        assertVectorized("copySnippet");
+        long[] src = new long[]{1, -2, 3, Long.MIN_VALUE, 5, 6, 7, Long.MAX_VALUE, 9};
+        test("copySnippet", src, src.length);
+        test("copySnippet", src, 4);
+        test("copySnippet", src, src.length + 2);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.util.SizeBoundedCache;
+
+public class SizeBoundedCacheTest {
+
+    private static final class RecordingCache extends SizeBoundedCache<Integer, String> {
+        final List<Integer> evictedKeys = new ArrayList<>();
+
+        RecordingCache(long maxBytes, int maxCount) {
+            super(maxBytes, maxCount);
+        }
+
+        @Override
+        protected void evicted(Integer key, String value, long size) {
+            evictedKeys.add(key);
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() {
+        RecordingCache cache = new RecordingCache(100, Integer.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            cache.putIfAbsent(i, "v" + i, 10);
+        }
+        Assert.assertEquals(100, cache.getSize());
+        Assert.assertEquals(10, cache.getCount());
+        Assert.assertEquals(0, cache.getEvictions());
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("v" + i, cache.get(i));
+        }
+        cache.putIfAbsent(10, "v10", 10);
+
+        /* Eviction shrinks the cache to three quarters of its bound, oldest entries first. */
+        Assert.assertEquals(70, cache.getSize());
+        Assert.assertEquals(7, cache.getCount());
+        Assert.assertEquals(4, cache.getEvictions());
+        Assert.assertEquals(Arrays.asList(5, 6, 7, 8), cache.evictedKeys);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("v" + i, cache.get(i));
+        }
+        Assert.assertEquals("v9", cache.get(9));
+        Assert.assertEquals("v10", cache.get(10));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByCount() {
+        RecordingCache cache = new RecordingCache(Long.MAX_VALUE, 4);
+        for (int i = 0; i < 4; i++) {
+            cache.putIfAbsent(i, "v" + i, 1);
+        }
+        Assert.assertEquals(0, cache.getEvictions());
+        cache.get(0);
+        cache.putIfAbsent(4, "v4", 1);
+
+        Assert.assertEquals(3, cache.getCount());
+        Assert.assertEquals(Arrays.asList(1, 2), cache.evictedKeys);
+        Assert.assertEquals("v0", cache.get(0));
+        Assert.assertNull(cache.get(1));
+        Assert.assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsExisting() {
+        SizeBoundedCache<Integer, String> cache = new SizeBoundedCache<>(100);
+        String first = "first";
+        Assert.assertSame(first, cache.putIfAbsent(1, first, 10));
+        Assert.assertSame(first, cache.putIfAbsent(1, "second", 20));
+        Assert.assertEquals(10, cache.getSize());
+        Assert.assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void testPutReplaces() {
+        SizeBoundedCache<Integer, String> cache = new SizeBoundedCache<>(100);
+        cache.put(1, "first", 10);
+        cache.put(1, "second", 30);
+        Assert.assertEquals("second", cache.get(1));
+        Assert.assertEquals(30, cache.getSize());
+        Assert.assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void testOversizedValueNotCached() {
+        SizeBoundedCache<Integer, String> cache = new SizeBoundedCache<>(100);
+        String value = "large";
+        Assert.assertSame(value, cache.putIfAbsent(1, value, 101));
+        Assert.assertNull(cache.get(1));
+        cache.put(2, value, 101);
+        Assert.assertNull(cache.get(2));
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        SizeBoundedCache<Integer, String> cache = new SizeBoundedCache<>(100);
+        String value = "value";
+        cache.putIfAbsent(1, value, 10);
+        cache.putIfAbsent(2, "other", 20);
+
+        Assert.assertFalse(cache.remove(1, new String(value)));
+        Assert.assertTrue(cache.remove(1, value));
+        Assert.assertFalse(cache.remove(1, value));
+        Assert.assertNull(cache.get(1));
+        Assert.assertEquals(20, cache.getSize());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertEquals(0, cache.getCount());
+        Assert.assertEquals(0, cache.getEvictions());
+    }
+}
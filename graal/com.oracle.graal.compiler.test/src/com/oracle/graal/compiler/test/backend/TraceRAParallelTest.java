@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test.backend;
+
+import static com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase.Options.TraceRAParallel;
+import static com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase.Options.TraceRAParallelMinTraces;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.GraalOptions;
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase;
+import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests that the {@link TraceRegisterAllocationPhase trace register allocator} produces the same
+ * LIR whether the traces are allocated sequentially or
+ * {@linkplain TraceRegisterAllocationPhase.Options#TraceRAParallel concurrently}.
+ */
+public class TraceRAParallelTest extends BackendTest {
+
+    @SuppressWarnings("try")
+    @Override
+    protected LIRSuites createLIRSuites() {
+        try (OverrideScope os = OptionValue.override(GraalOptions.TraceRA, true)) {
+            return super.createLIRSuites();
+        }
+    }
+
+    public static int switchSnippet(int[] values, int mode) {
+        int result = 0;
+        for (int i = 0; i < values.length; i++) {
+            int value = values[i];
+            switch ((value ^ mode) & 7) {
+                case 0:
+                    result += value;
+                    break;
+                case 1:
+                    result -= value * 3;
+                    break;
+                case 2:
+                    result ^= value >>> 2;
+                    break;
+                case 3:
+                    if (value > mode) {
+                        result = result * 31 + value;
+                    } else {
+                        result = result * 17 - mode;
+                    }
+                    break;
+                case 4:
+                    result |= value << (mode & 3);
+                    break;
+                case 5:
+                    for (int j = 0; j < (value & 3); j++) {
+                        result += j * mode;
+                    }
+                    break;
+                default:
+                    result = Math.max(result, value);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    public static long spillSnippet(long a, long b, long c, long d, long e, long f, long g, long h) {
+        long r1 = a * b + c;
+        long r2 = b * c + d;
+        long r3 = c * d + e;
+        long r4 = d * e + f;
+        long r5 = e * f + g;
+        long r6 = f * g + h;
+        long r7 = g * h + a;
+        long r8 = h * a + b;
+        long sum = 0;
+        for (long i = 0; i < a; i++) {
+            if ((i & 1) == 0) {
+                sum += r1 * i + r2;
+            } else if ((i & 2) == 0) {
+                sum -= r3 * i + r4;
+            } else {
+                sum ^= r5 * i + r6;
+            }
+        }
+        return sum + r1 + r2 + r3 + r4 + r5 + r6 + r7 + r8;
+    }
+
+    @Test
+    public void testSwitch() {
+        testDeterministic("switchSnippet");
+    }
+
+    @Test
+    public void testSpill() {
+        testDeterministic("spillSnippet");
+    }
+
+    private void testDeterministic(String snippet) {
+        List<String> sequential = allocate(snippet, false);
+        List<String> parallel = allocate(snippet, true);
+        Assert.assertEquals(sequential, parallel);
+    }
+
+    @SuppressWarnings("try")
+    private List<String> allocate(String snippet, boolean parallel) {
+        try (OverrideScope os = OptionValue.override(TraceRAParallel, parallel, TraceRAParallelMinTraces, 0)) {
+            LIR lir = getLIRGenerationResult(parseEager(snippet, AllowAssumptions.YES)).getLIR();
+            List<String> result = new ArrayList<>();
+            for (AbstractBlockBase<?> block : lir.codeEmittingOrder()) {
+                if (block != null) {
+                    result.add(block.toString());
+                    for (LIRInstruction op : lir.getLIRforBlock(block)) {
+                        result.add(op.toString());
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test.inlining;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.oracle.graal.bytecode.BytecodeStream;
+import com.oracle.graal.bytecode.Bytecodes;
+import com.oracle.graal.compiler.test.GraalCompilerTest;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.common.inlining.InlineGraphCache;
+import com.oracle.graal.phases.tiers.HighTierContext;
+
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class InlineGraphCacheTest extends GraalCompilerTest {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+
+    public static int branchSnippet(int value) {
+        if (value == 0) {
+            return value + 1;
+        }
+        return value * 2;
+    }
+
+    @Test
+    public void testCopiedSuiteShared() throws Throwable {
+        ResolvedJavaMethod method = warmUp("branchSnippet");
+        InlineGraphCache cache = new InlineGraphCache(1024 * 1024);
+        StructuredGraph caller = new StructuredGraph(method, AllowAssumptions.NO);
+
+        /* Every call creates a new copy of the default graph builder suite. */
+        cache.put(method, getDefaultHighTierContext(), caller, parseProfiled(method, AllowAssumptions.NO));
+        Assert.assertEquals(1, cache.getCount());
+        Assert.assertNotNull(cache.get(method, getDefaultHighTierContext(), caller));
+    }
+
+    @Test
+    public void testDifferentSuiteNotShared() throws Throwable {
+        ResolvedJavaMethod method = warmUp("branchSnippet");
+        InlineGraphCache cache = new InlineGraphCache(1024 * 1024);
+        StructuredGraph caller = new StructuredGraph(method, AllowAssumptions.NO);
+
+        cache.put(method, getDefaultHighTierContext(), caller, parseProfiled(method, AllowAssumptions.NO));
+        GraphBuilderConfiguration eagerConfig = GraphBuilderConfiguration.getDefault(getDefaultGraphBuilderPlugins()).withEagerResolving(true);
+        HighTierContext eagerContext = new HighTierContext(getProviders(), getCustomGraphBuilderSuite(eagerConfig), OptimisticOptimizations.ALL);
+        Assert.assertNull(cache.get(method, eagerContext, caller));
+    }
+
+    @Test
+    public void testChangedBranchProbabilityInvalidates() throws Throwable {
+        ResolvedJavaMethod method = warmUp("branchSnippet");
+        Assume.assumeTrue("branch was not profiled", method.getProfilingInfo().getBranchTakenProbability(firstBranchBci(method)) >= 0.0);
+        InlineGraphCache cache = new InlineGraphCache(1024 * 1024);
+        StructuredGraph caller = new StructuredGraph(method, AllowAssumptions.NO);
+
+        cache.put(method, getDefaultHighTierContext(), caller, parseProfiled(method, AllowAssumptions.NO));
+        Assert.assertNotNull(cache.get(method, getDefaultHighTierContext(), caller));
+
+        /* Without a profile, the probability of the branch is unknown. */
+        method.reprofile();
+        Assert.assertNull(cache.get(method, getDefaultHighTierContext(), caller));
+        Assert.assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void testRedefinitionWithSameCodeSizeInvalidates() throws Throwable {
+        ResolvedJavaMethod method = warmUp("branchSnippet");
+        byte[] original = method.getCode();
+        byte[] redefined = original.clone();
+        int constant = indexOf(redefined, Bytecodes.ICONST_1);
+        redefined[constant] = (byte) Bytecodes.ICONST_2;
+        byte[][] code = {original};
+        /* A redefinition of the method's class that keeps the size of the method's bytecodes. */
+        ResolvedJavaMethod redefinable = (ResolvedJavaMethod) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResolvedJavaMethod.class}, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getCode":
+                    return code[0].clone();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return m.invoke(method, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        });
+        InlineGraphCache cache = new InlineGraphCache(1024 * 1024);
+        StructuredGraph caller = new StructuredGraph(method, AllowAssumptions.NO);
+
+        cache.put(redefinable, getDefaultHighTierContext(), caller, parseProfiled(method, AllowAssumptions.NO));
+        Assert.assertNotNull(cache.get(redefinable, getDefaultHighTierContext(), caller));
+
+        code[0] = redefined;
+        Assert.assertEquals(original.length, redefinable.getCodeSize());
+        Assert.assertNull(cache.get(redefinable, getDefaultHighTierContext(), caller));
+        Assert.assertEquals(0, cache.getCount());
+    }
+
+    private static int indexOf(byte[] code, int opcode) {
+        BytecodeStream stream = new BytecodeStream(code);
+        while (stream.currentBC() != Bytecodes.END) {
+            if (stream.currentBC() == opcode) {
+                return stream.currentBCI();
+            }
+            stream.next();
+        }
+        throw new AssertionError("no " + Bytecodes.nameOf(opcode));
+    }
+
+    private ResolvedJavaMethod warmUp(String methodName) throws Throwable {
+        ResolvedJavaMethod method = getResolvedJavaMethod(methodName);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            invoke(method, null, 0);
+        }
+        ProfilingInfo profile = method.getProfilingInfo();
+        Assume.assumeTrue("profile is not mature", profile.isMature());
+        return method;
+    }
+
+    private static int firstBranchBci(ResolvedJavaMethod method) {
+        BytecodeStream stream = new BytecodeStream(method.getCode());
+        while (stream.currentBC() != Bytecodes.END) {
+            if (Bytecodes.isConditionalBranch(stream.currentBC())) {
+                return stream.currentBCI();
+            }
+            stream.next();
+        }
+        throw new AssertionError("no branch in " + method);
+    }
+}
@@ -48,6 +48,8 @@ public class GraalCompilerOptions {
     public static final OptionValue<Boolean> ExitVMOnException = new OptionValue<>(false);
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> PrintStackTraceOnException = new OptionValue<>(false);
+    @Option(help = "Maximum memory in MB that a single compilation may allocate before it bails out (0 for no limit).", type = OptionType.Expert)
+    public static final OptionValue<Integer> MaxCompilationMemory = new OptionValue<>(0);
     // @formatter:on
 
 }
@@ -25,6 +25,7 @@ package com.oracle.graal.compiler.phases;
 import static com.oracle.graal.compiler.common.GraalOptions.ConditionalElimination;
 import static com.oracle.graal.compiler.common.GraalOptions.FullUnroll;
 import static com.oracle.graal.compiler.common.GraalOptions.ImmutableCode;
+import static com.oracle.graal.compiler.common.GraalOptions.LoopPartialUnroll;
 import static com.oracle.graal.compiler.common.GraalOptions.LoopPeeling;
 import static com.oracle.graal.compiler.common.GraalOptions.LoopUnswitch;
 import static com.oracle.graal.compiler.common.GraalOptions.OptConvertDeoptsToGuards;
@@ -36,6 +37,7 @@ import static com.oracle.graal.phases.common.DeadCodeEliminationPhase.Optionalit
 import com.oracle.graal.loop.DefaultLoopPolicies;
 import com.oracle.graal.loop.LoopPolicies;
 import com.oracle.graal.loop.phases.LoopFullUnrollPhase;
+import com.oracle.graal.loop.phases.LoopPartialUnrollPhase;
 import com.oracle.graal.loop.phases.LoopPeelingPhase;
 import com.oracle.graal.loop.phases.LoopUnswitchingPhase;
 import com.oracle.graal.nodes.spi.LoweringTool;
@@ -99,6 +101,9 @@ public class HighTier extends PhaseSuite<HighTierContext> {
             if (LoopUnswitch.getValue()) {
                 appendPhase(new LoopUnswitchingPhase(loopPolicies));
             }
+            if (LoopPartialUnroll.getValue()) {
+                appendPhase(new LoopPartialUnrollPhase(canonicalizer, loopPolicies));
+            }
         }
 
         appendPhase(canonicalizer);
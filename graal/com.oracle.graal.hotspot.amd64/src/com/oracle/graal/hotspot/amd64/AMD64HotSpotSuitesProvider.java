@@ -29,15 +29,17 @@ import com.oracle.graal.lir.phases.LIRSuites;
 import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
 import com.oracle.graal.phases.tiers.CompilerConfiguration;
 
+import jdk.vm.ci.code.TargetDescription;
+
 public class AMD64HotSpotSuitesProvider extends AMD64SuitesProvider {
 
-    public AMD64HotSpotSuitesProvider(CompilerConfiguration compilerConfiguration, Plugins plugins) {
-        super(compilerConfiguration, plugins);
+    public AMD64HotSpotSuitesProvider(CompilerConfiguration compilerConfiguration, Plugins plugins, TargetDescription target) {
+        super(compilerConfiguration, plugins, target);
     }
 
     @Override
-    public LIRSuites createLIRSuites() {
-        LIRSuites lirSuites = super.createLIRSuites();
+    public LIRSuites createLIRSuites(CompilerConfiguration config) {
+        LIRSuites lirSuites = super.createLIRSuites(config);
         if (GraalOptions.DetailedAsserts.getValue()) {
             lirSuites.getPostAllocationOptimizationStage().appendPhase(new HotSpotZapRegistersPhase());
         }
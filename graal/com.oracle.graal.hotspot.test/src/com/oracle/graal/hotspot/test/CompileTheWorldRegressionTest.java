@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.hotspot.CompileTheWorldRegression;
+
+/**
+ * Tests the comparison of {@link CompileTheWorldRegression} metrics with a baseline.
+ */
+public class CompileTheWorldRegressionTest {
+
+    private static Map<String, Long> metrics(long classes, long methods, long highTierTime, long codeSize) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("corpus.classes", classes);
+        values.put("corpus.methods", methods);
+        values.put("HighTier.time", highTierTime);
+        values.put("CodeSize.bytes", codeSize);
+        return values;
+    }
+
+    private static List<String> compare(Map<String, Long> baseline, Map<String, Long> current, double thresholdPercent) {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        List<String> problems = CompileTheWorldRegression.compare(baseline, current, thresholdPercent, new PrintStream(table));
+        for (String metric : current.keySet()) {
+            Assert.assertTrue(table.toString(), table.toString().contains(metric));
+        }
+        return problems;
+    }
+
+    @Test
+    public void testWithinThreshold() {
+        Map<String, Long> baseline = metrics(10, 100, 1000, 50000);
+        Assert.assertEquals(0, compare(baseline, metrics(10, 100, 1049, 40000), 5).size());
+    }
+
+    @Test
+    public void testRegression() {
+        Map<String, Long> baseline = metrics(10, 100, 1000, 50000);
+        List<String> problems = compare(baseline, metrics(10, 100, 1100, 50000), 5);
+        Assert.assertEquals(problems.toString(), 1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).startsWith("HighTier.time regressed by 10.0%"));
+    }
+
+    @Test
+    public void testGrowthFromZero() {
+        Map<String, Long> baseline = metrics(10, 100, 0, 50000);
+        Assert.assertEquals(1, compare(baseline, metrics(10, 100, 1, 50000), 5).size());
+        Assert.assertEquals(0, compare(baseline, metrics(10, 100, 0, 50000), 5).size());
+    }
+
+    @Test
+    public void testCorpusMismatch() {
+        Map<String, Long> baseline = metrics(10, 100, 1000, 50000);
+        List<String> problems = compare(baseline, metrics(10, 99, 900, 40000), 5);
+        Assert.assertEquals(problems.toString(), 1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).startsWith("corpus.methods differs"));
+    }
+
+    @Test
+    public void testMetricMissingFromBaseline() {
+        Map<String, Long> baseline = metrics(10, 100, 1000, 50000);
+        baseline.remove("CodeSize.bytes");
+        Assert.assertEquals(0, compare(baseline, metrics(10, 100, 1000, 90000), 5).size());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path file = Files.createTempFile("CompileTheWorldRegressionTest", ".properties");
+        try {
+            Map<String, Long> values = metrics(10, 100, 1000, 50000);
+            CompileTheWorldRegression.write(values, file);
+            Assert.assertEquals(values, CompileTheWorldRegression.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.hotspot.CompileTheWorldResults;
+import com.oracle.graal.hotspot.CompileTheWorldResults.MethodResult;
+
+/**
+ * Tests writing and merging of {@link CompileTheWorldResults}.
+ */
+public class CompileTheWorldResultsTest {
+
+    @Test
+    public void testMerge() throws IOException {
+        Path dir = Files.createTempDirectory("CompileTheWorldResultsTest");
+        Path shard0 = dir.resolve("results.csv.0");
+        Path shard1 = dir.resolve("results.csv.1");
+        Path merged = dir.resolve("results.csv");
+        try {
+            try (CompileTheWorldResults results = new CompileTheWorldResults(shard0)) {
+                results.record(new MethodResult(2, "B.m(int, long):void", 2000000, 4096, 120, null));
+                results.record(new MethodResult(1, "A.m(Object):Object", 1000000, 2048, 80, null));
+            }
+            try (CompileTheWorldResults results = new CompileTheWorldResults(shard1)) {
+                results.record(new MethodResult(3, "C.m():int", 3000000, 1024, 0, "bailout: \"unsupported\", retry"));
+            }
+
+            ByteArrayOutputStream summary = new ByteArrayOutputStream();
+            List<MethodResult> all = CompileTheWorldResults.merge(Arrays.asList(shard0, shard1), merged, new PrintStream(summary));
+            Assert.assertEquals(3, all.size());
+            Assert.assertTrue(summary.toString(), summary.toString().contains("3 methods, 1 failures"));
+
+            List<MethodResult> reread = CompileTheWorldResults.read(merged);
+            Assert.assertEquals(3, reread.size());
+            Assert.assertEquals("A.m(Object):Object", reread.get(0).method);
+            Assert.assertEquals("B.m(int, long):void", reread.get(1).method);
+            Assert.assertEquals(4096, reread.get(1).allocatedBytes);
+            Assert.assertNull(reread.get(1).failure);
+            Assert.assertEquals("bailout: \"unsupported\", retry", reread.get(2).failure);
+            Assert.assertEquals(3000000, reread.get(2).compileTimeNs);
+        } finally {
+            for (Path p : Arrays.asList(shard0, shard1, merged, dir)) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
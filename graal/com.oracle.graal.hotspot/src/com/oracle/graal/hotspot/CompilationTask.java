@@ -24,6 +24,7 @@ package com.oracle.graal.hotspot;
 
 import static com.oracle.graal.compiler.GraalCompilerOptions.ExitVMOnBailout;
 import static com.oracle.graal.compiler.GraalCompilerOptions.ExitVMOnException;
+import static com.oracle.graal.compiler.GraalCompilerOptions.MaxCompilationMemory;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintAfterCompilation;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintBailout;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintCompilation;
@@ -31,7 +32,12 @@ import static com.oracle.graal.compiler.GraalCompilerOptions.PrintFilter;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintStackTraceOnException;
 import static com.oracle.graal.compiler.phases.HighTier.Options.Inline;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.common.CompilationMemoryQuota;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -62,6 +68,14 @@ import jdk.vm.ci.services.Services;
 public class CompilationTask {
 
     private static final DebugCounter BAILOUTS = Debug.counter("Bailouts");
+    private static final DebugCounter MEMORY_QUOTA_BAILOUTS = Debug.counter("MemoryQuotaBailouts");
+
+    /**
+     * The methods whose compilation exceeded the memory quota set by {@code MaxCompilationMemory}.
+     * They are compiled without inlining from then on. The methods are weakly referenced so that
+     * they do not keep their classes from being unloaded.
+     */
+    private static final Set<HotSpotResolvedJavaMethod> methodsExceedingMemoryQuota = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     private static final EventProvider eventProvider;
 
@@ -207,8 +221,9 @@ public class CompilationTask {
                  * Disable inlining if HotSpot has it disabled unless it's been explicitly set in
                  * Graal.
                  */
-                boolean disableInlining = !config.inline && !Inline.hasBeenSet();
-                try (OverrideScope s1 = disableInlining ? OptionValue.override(Inline, false) : null) {
+                boolean disableInlining = (!config.inline && !Inline.hasBeenSet()) || methodsExceedingMemoryQuota.contains(method);
+                try (OverrideScope s1 = disableInlining ? OptionValue.override(Inline, false) : null;
+                                CompilationMemoryQuota quota = CompilationMemoryQuota.open(MaxCompilationMemory.getValue() * 1024L * 1024L)) {
                     result = compiler.compile(method, entryBCI, useProfilingInfo);
                 }
             } catch (Throwable e) {
@@ -247,6 +262,10 @@ public class CompilationTask {
             return null;
         } catch (BailoutException bailout) {
             BAILOUTS.increment();
+            if (bailout instanceof CompilationMemoryQuota.ExceededException) {
+                MEMORY_QUOTA_BAILOUTS.increment();
+                methodsExceedingMemoryQuota.add(method);
+            }
             if (ExitVMOnBailout.getValue()) {
                 TTY.out.println(method.format("Bailout in %H.%n(%p)"));
                 bailout.printStackTrace(TTY.out);
@@ -30,6 +30,9 @@ import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldCla
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldConfig;
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldExcludeMethodFilter;
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldMethodFilter;
+import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldResultsFile;
+import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldShardCount;
+import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldShardIndex;
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldStartAt;
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldStopAt;
 import static com.oracle.graal.hotspot.CompileTheWorldOptions.CompileTheWorldVerbose;
@@ -84,6 +87,7 @@ import com.oracle.graal.debug.MethodFilter;
 import com.oracle.graal.debug.TTY;
 import com.oracle.graal.debug.internal.DebugScope;
 import com.oracle.graal.debug.internal.MemUseTrackerImpl;
+import com.oracle.graal.hotspot.CompileTheWorldResults.MethodResult;
 import com.oracle.graal.options.OptionDescriptor;
 import com.oracle.graal.options.OptionDescriptors;
 import com.oracle.graal.options.OptionValue;
@@ -92,6 +96,7 @@ import com.oracle.graal.options.OptionsParser;
 import com.oracle.graal.options.OptionsParser.OptionConsumer;
 
 import jdk.vm.ci.hotspot.HotSpotCompilationRequest;
+import jdk.vm.ci.hotspot.HotSpotCompilationRequestResult;
 import jdk.vm.ci.hotspot.HotSpotInstalledCode;
 import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
 import jdk.vm.ci.hotspot.HotSpotJVMCIRuntimeProvider;
@@ -185,6 +190,29 @@ public final class CompileTheWorld {
      */
     private final int stopAt;
 
+    /**
+     * Number of shards the classes between {@link #startAt} and {@link #stopAt} are split into.
+     *
+     * @see CompileTheWorldOptions#CompileTheWorldShardCount
+     */
+    private final int shardCount;
+
+    /**
+     * Index of the shard compiled by this instance.
+     *
+     * @see CompileTheWorldOptions#CompileTheWorldShardIndex
+     */
+    private final int shardIndex;
+
+    /**
+     * File to write per-method results to, or {@code null}.
+     *
+     * @see CompileTheWorldOptions#CompileTheWorldResultsFile
+     */
+    private final String resultsFileName;
+
+    private CompileTheWorldResults results;
+
     /** Only compile methods matching one of the filters in this array if the array is non-null. */
     private final MethodFilter[] methodFilters;
 
@@ -196,6 +224,7 @@ public final class CompileTheWorld {
     private AtomicLong compiledMethodsCounter = new AtomicLong();
     private AtomicLong compileTime = new AtomicLong();
     private AtomicLong memoryUsed = new AtomicLong();
+    private AtomicLong codeSize = new AtomicLong();
 
     private boolean verbose;
     private final Config config;
@@ -227,6 +256,12 @@ public final class CompileTheWorld {
         this.excludeMethodFilters = excludeMethodFilters == null || excludeMethodFilters.isEmpty() ? null : MethodFilter.parse(excludeMethodFilters);
         this.verbose = verbose;
         this.config = config;
+        this.shardCount = Math.max(1, CompileTheWorldShardCount.getValue());
+        this.shardIndex = CompileTheWorldShardIndex.getValue();
+        this.resultsFileName = CompileTheWorldResultsFile.getValue();
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("CompileTheWorldShardIndex must be between 0 and " + (shardCount - 1) + ": " + shardIndex);
+        }
 
         // We don't want the VM to exit when a method fails to compile...
         config.putIfAbsent(ExitVMOnException, false);
@@ -271,6 +306,27 @@ public final class CompileTheWorld {
         }
     }
 
+    /**
+     * Gets the number of classes considered by the last {@link #compile()} run.
+     */
+    public int getClassCount() {
+        return classFileCounter;
+    }
+
+    /**
+     * Gets the number of methods compiled by the last {@link #compile()} run.
+     */
+    public long getCompiledMethodCount() {
+        return compiledMethodsCounter.get();
+    }
+
+    /**
+     * Gets the total size in bytes of the code installed by the last {@link #compile()} run.
+     */
+    public long getCodeSize() {
+        return codeSize.get();
+    }
+
     public void println() {
         println("");
     }
@@ -501,6 +557,42 @@ public final class CompileTheWorld {
         return false;
     }
 
+    /**
+     * Creates the {@link ClassPathEntry} for an entry of the class path or returns {@code null} if
+     * the entry is to be skipped.
+     */
+    private ClassPathEntry createClassPathEntry(String entry) throws IOException {
+        if (entry.endsWith(".zip") || entry.endsWith(".jar")) {
+            return new JarClassPathEntry(entry);
+        } else if (isJImage(entry)) {
+            assert !Java8OrEarlier;
+            return new ImageClassPathEntry(entry);
+        } else if (new File(entry).isDirectory()) {
+            return new DirClassPathEntry(entry);
+        }
+        return null;
+    }
+
+    /**
+     * Computes the index of the last class to compile in the shard of this instance. Each shard is
+     * assigned a contiguous range of roughly the same number of classes between {@link #startAt}
+     * and {@link #stopAt}. The first class of the shard is the one after the last class of the
+     * previous shard.
+     */
+    private int shardStopAt(String[] entries, int index) throws IOException {
+        int classCount = 0;
+        for (String entry : entries) {
+            try (ClassPathEntry cpe = createClassPathEntry(entry)) {
+                if (cpe != null) {
+                    classCount += cpe.getClassNames().size();
+                }
+            }
+        }
+        int last = Math.min(stopAt, classCount);
+        int shardSize = (Math.max(0, last - startAt + 1) + shardCount - 1) / shardCount;
+        return Math.min(last, startAt - 1 + shardSize * (index + 1));
+    }
+
     /**
      * Compiles all methods in all classes in a given class path.
      *
@@ -512,6 +604,17 @@ public final class CompileTheWorld {
         final String[] entries = classPath.split(File.pathSeparator);
         long start = System.currentTimeMillis();
 
+        int firstClass = startAt;
+        int lastClass = stopAt;
+        if (shardCount > 1) {
+            firstClass = shardIndex == 0 ? startAt : shardStopAt(entries, shardIndex - 1) + 1;
+            lastClass = shardStopAt(entries, shardIndex);
+            println("CompileTheWorld : Shard %d of %d compiles classes %d to %d", shardIndex, shardCount, firstClass, lastClass);
+        }
+        if (resultsFileName != null) {
+            results = new CompileTheWorldResults(Paths.get(shardCount > 1 ? resultsFileName + "." + shardIndex : resultsFileName));
+        }
+
         CompilerThreadFactory factory = new CompilerThreadFactory("CompileTheWorld", new DebugConfigAccess() {
             @Override
             public GraalDebugConfig getDebugConfig() {
@@ -555,19 +658,11 @@ public final class CompileTheWorld {
             for (int i = 0; i < entries.length; i++) {
                 final String entry = entries[i];
 
-                ClassPathEntry cpe;
-                if (entry.endsWith(".zip") || entry.endsWith(".jar")) {
-                    cpe = new JarClassPathEntry(entry);
-                } else if (isJImage(entry)) {
-                    assert !Java8OrEarlier;
-                    cpe = new ImageClassPathEntry(entry);
-                } else {
-                    if (!new File(entry).isDirectory()) {
-                        println("CompileTheWorld : Skipped classes in " + entry);
-                        println();
-                        continue;
-                    }
-                    cpe = new DirClassPathEntry(entry);
+                ClassPathEntry cpe = createClassPathEntry(entry);
+                if (cpe == null) {
+                    println("CompileTheWorld : Skipped classes in " + entry);
+                    println();
+                    continue;
                 }
 
                 if (methodFilters == null || methodFilters.length == 0) {
@@ -587,7 +682,7 @@ public final class CompileTheWorld {
                 for (String className : cpe.getClassNames()) {
 
                     // Are we done?
-                    if (classFileCounter >= stopAt) {
+                    if (classFileCounter >= lastClass) {
                         break;
                     }
 
@@ -626,7 +721,7 @@ public final class CompileTheWorld {
 
                         // Are we compiling this class?
                         MetaAccessProvider metaAccess = JVMCI.getRuntime().getHostJVMCIBackend().getMetaAccess();
-                        if (classFileCounter >= startAt) {
+                        if (classFileCounter >= firstClass) {
                             println("CompileTheWorld (%d) : %s", classFileCounter, className);
 
                             // Compile each constructor/method in the class.
@@ -673,6 +768,10 @@ public final class CompileTheWorld {
             }
         }
         threadPool = null;
+        if (results != null) {
+            results.close();
+            results = null;
+        }
 
         long elapsedTime = System.currentTimeMillis() - start;
 
@@ -708,12 +807,13 @@ public final class CompileTheWorld {
         if (excludeMethodFilters != null && MethodFilter.matches(excludeMethodFilters, method)) {
             return;
         }
+        int classIndex = classFileCounter;
         Future<?> task = threadPool.submit(new Runnable() {
             @Override
             public void run() {
                 waitToRun();
                 try (OverrideScope s = config.apply()) {
-                    compileMethod(method, classFileCounter);
+                    compileMethod(method, classIndex);
                 }
             }
         });
@@ -726,30 +826,43 @@ public final class CompileTheWorld {
      * Compiles a method and gathers some statistics.
      */
     private void compileMethod(HotSpotResolvedJavaMethod method, int counter) {
+        long startNanos = System.nanoTime();
+        long allocatedAtStart = MemUseTrackerImpl.getCurrentThreadAllocatedBytes();
         try {
             long start = System.currentTimeMillis();
-            long allocatedAtStart = MemUseTrackerImpl.getCurrentThreadAllocatedBytes();
             int entryBCI = JVMCICompiler.INVOCATION_ENTRY_BCI;
             HotSpotCompilationRequest request = new HotSpotCompilationRequest(method, entryBCI, 0L);
             // For more stable CTW execution, disable use of profiling information
             boolean useProfilingInfo = false;
             boolean installAsDefault = false;
             CompilationTask task = new CompilationTask(jvmciRuntime, compiler, request, useProfilingInfo, installAsDefault);
-            task.runCompilation();
+            HotSpotCompilationRequestResult result = task.runCompilation();
 
             // Invalidate the generated code so the code cache doesn't fill up
             HotSpotInstalledCode installedCode = task.getInstalledCode();
+            int codeSize = 0;
             if (installedCode != null) {
+                codeSize = installedCode.getSize();
                 installedCode.invalidate();
             }
 
-            memoryUsed.getAndAdd(MemUseTrackerImpl.getCurrentThreadAllocatedBytes() - allocatedAtStart);
+            long allocated = MemUseTrackerImpl.getCurrentThreadAllocatedBytes() - allocatedAtStart;
+            memoryUsed.getAndAdd(allocated);
             compileTime.getAndAdd(System.currentTimeMillis() - start);
             compiledMethodsCounter.incrementAndGet();
+            this.codeSize.getAndAdd(codeSize);
+            recordResult(counter, method, startNanos, allocated, codeSize, result == null ? null : result.getFailureMessage());
         } catch (Throwable t) {
             // Catch everything and print a message
             println("CompileTheWorld (%d) : Error compiling method: %s", counter, method.format("%H.%n(%p):%r"));
             printStackTrace(t);
+            recordResult(counter, method, startNanos, MemUseTrackerImpl.getCurrentThreadAllocatedBytes() - allocatedAtStart, 0, t.toString());
+        }
+    }
+
+    private void recordResult(int counter, HotSpotResolvedJavaMethod method, long startNanos, long allocated, int codeSize, String failure) {
+        if (results != null) {
+            results.record(new MethodResult(counter, method.format("%H.%n(%p):%r"), System.nanoTime() - startNanos, allocated, codeSize, failure));
         }
     }
 
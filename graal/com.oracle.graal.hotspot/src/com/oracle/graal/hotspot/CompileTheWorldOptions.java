@@ -57,6 +57,23 @@ public class CompileTheWorldOptions {
     public static final OptionValue<Boolean> CompileTheWorldMultiThreaded = new OptionValue<>(false);
     @Option(help = "Number of threads to use for multithreaded CTW.  Defaults to Runtime.getRuntime().availableProcessors()", type = OptionType.Debug)
     public static final OptionValue<Integer> CompileTheWorldThreads = new OptionValue<>(0);
+    @Option(help = "Number of shards the classes selected by CompileTheWorldStartAt and CompileTheWorldStopAt are split into. " +
+                   "Each shard compiles a contiguous range of classes and is meant to be run in its own VM.", type = OptionType.Debug)
+    public static final OptionValue<Integer> CompileTheWorldShardCount = new OptionValue<>(1);
+    @Option(help = "Index (starting at 0) of the shard compiled by this VM (see CompileTheWorldShardCount)", type = OptionType.Debug)
+    public static final OptionValue<Integer> CompileTheWorldShardIndex = new OptionValue<>(0);
+    @Option(help = "File to which a CSV record with compile time, allocated bytes, code size and failure is written for each compiled method. " +
+                   "If CompileTheWorldShardCount is greater than 1, the shard index is appended to the file name. " +
+                   "Use com.oracle.graal.hotspot.CompileTheWorldResults to merge the files of all shards.", type = OptionType.Debug)
+    public static final OptionValue<String> CompileTheWorldResultsFile = new OptionValue<>(null);
+    @Option(help = "Baseline file (as written by CompileTheWorldBaselineOutput) to compare per-phase compile time, memory use and code size with. " +
+                   "The VM exits with a non-zero status if a metric regressed by more than CompileTheWorldRegressionThreshold. " +
+                   "All but the last CompileTheWorldIterations are warm-up iterations. Requires -Dgraal.Time= and -Dgraal.TrackMemUse=.", type = OptionType.Debug)
+    public static final OptionValue<String> CompileTheWorldBaseline = new OptionValue<>(null);
+    @Option(help = "File to which the per-phase compile time, memory use and code size of the last CompileTheWorld iteration are written", type = OptionType.Debug)
+    public static final OptionValue<String> CompileTheWorldBaselineOutput = new OptionValue<>(null);
+    @Option(help = "Increase in percent of a metric compared to CompileTheWorldBaseline that is reported as a regression", type = OptionType.Debug)
+    public static final OptionValue<Double> CompileTheWorldRegressionThreshold = new OptionValue<>(5.0D);
     // @formatter:on
 
     /**
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import com.oracle.graal.debug.GraalDebugConfig;
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.debug.internal.DebugValue;
+import com.oracle.graal.debug.internal.DebugValueMap;
+import com.oracle.graal.debug.internal.KeyRegistry;
+
+/**
+ * Compares the compile time, memory use and code size measured by a {@link CompileTheWorld} run
+ * with a baseline. Times and memory use are taken from the {@link com.oracle.graal.debug.DebugTimer
+ * timers} and {@link com.oracle.graal.debug.DebugMemUseTracker memory use trackers} of the
+ * compiler phases, which must therefore be enabled with {@code -Dgraal.Time=} and
+ * {@code -Dgraal.TrackMemUse=}.
+ *
+ * The baseline is a properties file mapping a metric such as {@code HighTier.time} to its value.
+ * Metrics with a {@code corpus.} prefix describe the compiled corpus and must match exactly.
+ */
+public final class CompileTheWorldRegression {
+
+    /**
+     * The measured phases and the names of the debug values for their time and memory use. A
+     * {@code null} name means that the metric is not measured for the phase.
+     */
+    private static final String[][] PHASES = {
+                    {"HighTier", "PhaseTime_HighTier", "PhaseMemUse_HighTier"},
+                    {"MidTier", "PhaseTime_MidTier", "PhaseMemUse_MidTier"},
+                    {"LowTier", "PhaseTime_LowTier", "PhaseMemUse_LowTier"},
+                    {"RegisterAllocation", "LIRPhaseTime_AllocationStage", "LIRPhaseMemUse_AllocationStage"},
+                    {"CodeEmission", "EmitCode", null},
+                    {"Total", "GraalCompiler", null}
+    };
+
+    private static final String CORPUS_PREFIX = "corpus.";
+
+    private CompileTheWorldRegression() {
+    }
+
+    /**
+     * Determines if the timers and memory use trackers needed for measuring the phases are enabled
+     * unconditionally.
+     */
+    public static boolean isMeasurementEnabled() {
+        return "".equals(GraalDebugConfig.Options.Time.getValue()) && "".equals(GraalDebugConfig.Options.TrackMemUse.getValue());
+    }
+
+    /**
+     * Resets the debug values of all threads so that the next {@link CompileTheWorld} run is
+     * measured in isolation, e.g., after warm-up iterations.
+     */
+    public static void resetMeasurements() {
+        for (DebugValueMap map : DebugValueMap.getTopLevelMaps()) {
+            map.reset();
+        }
+    }
+
+    /**
+     * Collects the metrics of the last {@link CompileTheWorld} run. Times are in milliseconds,
+     * memory use and code size in bytes.
+     */
+    public static Map<String, Long> collect(CompileTheWorld ctw) {
+        List<DebugValueMap> maps = DebugValueMap.getTopLevelMaps();
+        String threadFilter = GraalDebugConfig.Options.DebugValueThreadFilter.getValue();
+        if (threadFilter != null) {
+            Pattern pattern = Pattern.compile(threadFilter);
+            List<DebugValueMap> filtered = new ArrayList<>();
+            for (DebugValueMap map : maps) {
+                if (pattern.matcher(map.getName()).find()) {
+                    filtered.add(map);
+                }
+            }
+            maps = filtered;
+        }
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put(CORPUS_PREFIX + "classes", (long) ctw.getClassCount());
+        values.put(CORPUS_PREFIX + "methods", ctw.getCompiledMethodCount());
+        for (String[] phase : PHASES) {
+            if (phase[1] != null) {
+                values.put(phase[0] + ".time", total(maps, phase[1]) / 1000000);
+            }
+            if (phase[2] != null) {
+                values.put(phase[0] + ".memory", total(maps, phase[2]));
+            }
+        }
+        values.put("CodeSize.bytes", ctw.getCodeSize());
+        return values;
+    }
+
+    private static long total(List<DebugValueMap> maps, String name) {
+        for (DebugValue value : KeyRegistry.getDebugValues()) {
+            if (value.getName().equals(name)) {
+                return total(maps, value.getIndex());
+            }
+        }
+        return 0;
+    }
+
+    private static long total(List<DebugValueMap> maps, int index) {
+        long total = 0;
+        for (DebugValueMap map : maps) {
+            total += map.getCurrentValue(index);
+            total += total(map.getChildren(), index);
+        }
+        return total;
+    }
+
+    public static void write(Map<String, Long> values, Path file) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> e : values.entrySet()) {
+            properties.setProperty(e.getKey(), String.valueOf(e.getValue()));
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "CompileTheWorld baseline");
+        }
+    }
+
+    public static Map<String, Long> read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        Map<String, Long> values = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, Long.parseLong(properties.getProperty(key).trim()));
+        }
+        return values;
+    }
+
+    /**
+     * Compares measured metrics with a baseline and prints a table of all metrics.
+     *
+     * @param thresholdPercent the increase of a metric, in percent of the baseline value, above
+     *            which the metric is reported as a regression
+     * @return descriptions of all regressions and corpus mismatches
+     */
+    public static List<String> compare(Map<String, Long> baseline, Map<String, Long> current, double thresholdPercent, PrintStream out) {
+        List<String> problems = new ArrayList<>();
+        out.printf("%-28s %14s %14s %9s%n", "Metric", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Long> e : current.entrySet()) {
+            String metric = e.getKey();
+            long value = e.getValue();
+            Long baselineValue = baseline.get(metric);
+            if (baselineValue == null) {
+                out.printf("%-28s %14s %14d %9s%n", metric, "-", value, "");
+                continue;
+            }
+            double change = baselineValue == 0 ? (value == 0 ? 0 : Double.POSITIVE_INFINITY) : (value - baselineValue) * 100.0 / baselineValue;
+            out.printf("%-28s %14d %14d %+8.1f%%%n", metric, baselineValue, value, change);
+            if (metric.startsWith(CORPUS_PREFIX)) {
+                if (value != baselineValue) {
+                    problems.add(String.format("%s differs from the baseline (%d instead of %d): the corpus or the compiled methods changed", metric, value, baselineValue));
+                }
+            } else if (change > thresholdPercent) {
+                problems.add(String.format("%s regressed by %.1f%% (%d instead of %d, threshold %.1f%%)", metric, change, value, baselineValue, thresholdPercent));
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Writes and/or checks the metrics of the last {@link CompileTheWorld} run as requested by the
+     * {@link CompileTheWorldOptions}.
+     *
+     * @return the exit status of the VM: 0 if there are no regressions
+     */
+    static int check(CompileTheWorld ctw) throws IOException {
+        Map<String, Long> current = collect(ctw);
+        String output = CompileTheWorldOptions.CompileTheWorldBaselineOutput.getValue();
+        if (output != null) {
+            write(current, Paths.get(output));
+        }
+        String baselineFile = CompileTheWorldOptions.CompileTheWorldBaseline.getValue();
+        if (baselineFile == null) {
+            return 0;
+        }
+        List<String> problems = compare(read(Paths.get(baselineFile)), current, CompileTheWorldOptions.CompileTheWorldRegressionThreshold.getValue(), TTY.out);
+        if (problems.isEmpty()) {
+            TTY.println("CompileTheWorld : No regressions compared to " + baselineFile);
+            return 0;
+        }
+        for (String problem : problems) {
+            TTY.println("CompileTheWorld : " + problem);
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-method results of a {@link CompileTheWorld} run in CSV format. Each (shard of a) run writes
+ * one file with a record per compiled method. {@link #main} merges the files of all shards of a
+ * run into a single file sorted by method and prints a summary.
+ *
+ * The columns are the index of the class in the class path, the method, the compilation time in
+ * nanoseconds, the number of bytes allocated by the compilation, the size of the installed code
+ * in bytes and the bailout or failure message (empty if the compilation succeeded).
+ */
+public final class CompileTheWorldResults implements Closeable {
+
+    public static final String HEADER = "class_index,method,compile_time_ns,allocated_bytes,code_size,failure";
+
+    /**
+     * The result of compiling a single method.
+     */
+    public static final class MethodResult {
+        public final int classIndex;
+        public final String method;
+        public final long compileTimeNs;
+        public final long allocatedBytes;
+        public final int codeSize;
+        /** The bailout or failure message, or {@code null} if the compilation succeeded. */
+        public final String failure;
+
+        public MethodResult(int classIndex, String method, long compileTimeNs, long allocatedBytes, int codeSize, String failure) {
+            this.classIndex = classIndex;
+            this.method = method;
+            this.compileTimeNs = compileTimeNs;
+            this.allocatedBytes = allocatedBytes;
+            this.codeSize = codeSize;
+            this.failure = failure;
+        }
+
+        String toCSV() {
+            return classIndex + "," + quote(method) + "," + compileTimeNs + "," + allocatedBytes + "," + codeSize + "," + (failure == null ? "" : quote(failure));
+        }
+
+        static MethodResult fromCSV(String line) {
+            List<String> fields = split(line);
+            if (fields.size() != 6) {
+                throw new IllegalArgumentException("malformed CompileTheWorld result: " + line);
+            }
+            String failure = fields.get(5);
+            return new MethodResult(Integer.parseInt(fields.get(0)), fields.get(1), Long.parseLong(fields.get(2)), Long.parseLong(fields.get(3)), Integer.parseInt(fields.get(4)),
+                            failure.isEmpty() ? null : failure);
+        }
+    }
+
+    private final PrintWriter out;
+
+    /**
+     * Creates (or overwrites) a results file.
+     */
+    public CompileTheWorldResults(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        out = new PrintWriter(Files.newBufferedWriter(file));
+        out.println(HEADER);
+    }
+
+    /**
+     * Appends the record of a method. Can be called by multiple compiler threads concurrently.
+     */
+    public synchronized void record(MethodResult result) {
+        out.println(result.toCSV());
+    }
+
+    @Override
+    public synchronized void close() {
+        out.close();
+    }
+
+    /**
+     * Reads all records of a results file.
+     */
+    public static List<MethodResult> read(Path file) throws IOException {
+        List<MethodResult> results = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            String line = in.readLine();
+            if (line == null || !line.equals(HEADER)) {
+                throw new IOException(file + " is not a CompileTheWorld results file");
+            }
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    results.add(MethodResult.fromCSV(line));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Merges the results of multiple shards into a single file sorted by method name and prints a
+     * summary of the merged results.
+     *
+     * @param output the merged file or {@code null} if only the summary is wanted
+     * @return the merged results
+     */
+    public static List<MethodResult> merge(List<Path> inputs, Path output, PrintStream summary) throws IOException {
+        List<MethodResult> results = new ArrayList<>();
+        for (Path input : inputs) {
+            results.addAll(read(input));
+        }
+        results.sort(Comparator.comparing((MethodResult r) -> r.method).thenComparingInt(r -> r.classIndex));
+        if (output != null) {
+            try (CompileTheWorldResults merged = new CompileTheWorldResults(output)) {
+                for (MethodResult result : results) {
+                    merged.record(result);
+                }
+            }
+        }
+        if (summary != null) {
+            printSummary(inputs.size(), results, summary);
+        }
+        return results;
+    }
+
+    private static final int TOP_COUNT = 10;
+
+    static void printSummary(int shards, List<MethodResult> results, PrintStream out) {
+        long compileTime = 0;
+        long allocatedBytes = 0;
+        long codeSize = 0;
+        int failures = 0;
+        Map<String, Integer> failureCounts = new TreeMap<>();
+        for (MethodResult result : results) {
+            compileTime += result.compileTimeNs;
+            allocatedBytes += result.allocatedBytes;
+            codeSize += result.codeSize;
+            if (result.failure != null) {
+                failures++;
+                failureCounts.merge(result.failure, 1, Integer::sum);
+            }
+        }
+        out.printf("CompileTheWorld results: %d shards, %d methods, %d failures%n", shards, results.size(), failures);
+        out.printf("  compile time:    %d ms%n", compileTime / 1000000);
+        out.printf("  allocated bytes: %d%n", allocatedBytes);
+        out.printf("  code size:       %d bytes%n", codeSize);
+
+        List<MethodResult> slowest = new ArrayList<>(results);
+        slowest.sort(Comparator.comparingLong((MethodResult r) -> r.compileTimeNs).reversed());
+        out.printf("Slowest methods:%n");
+        for (MethodResult result : slowest.subList(0, Math.min(TOP_COUNT, slowest.size()))) {
+            out.printf("  %8.2f ms %12d bytes  %s%n", result.compileTimeNs / 1000000.0, result.allocatedBytes, result.method);
+        }
+        if (!failureCounts.isEmpty()) {
+            out.printf("Failures:%n");
+            failureCounts.entrySet().stream().sorted(Map.Entry.<String, Integer> comparingByValue().reversed()).limit(TOP_COUNT).forEach(e -> out.printf("  %6d  %s%n", e.getValue(), e.getKey()));
+        }
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\"", "\"\"").replace('\n', ' ').replace('\r', ' ') + '"';
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Merges the results files of the shards of a CompileTheWorld run.
+     *
+     * Usage: {@code CompileTheWorldResults <merged file> <shard file>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompileTheWorldResults <merged file> <shard file>...");
+            System.exit(1);
+        }
+        List<Path> inputs = new ArrayList<>();
+        for (String arg : Arrays.asList(args).subList(1, args.length)) {
+            inputs.add(Paths.get(arg));
+        }
+        merge(inputs, Paths.get(args[0]), System.out);
+    }
+}
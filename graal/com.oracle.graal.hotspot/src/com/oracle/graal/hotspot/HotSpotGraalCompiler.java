@@ -56,6 +56,7 @@ import com.oracle.graal.nodes.spi.Replacements;
 import com.oracle.graal.phases.OptimisticOptimizations;
 import com.oracle.graal.phases.OptimisticOptimizations.Optimization;
 import com.oracle.graal.phases.PhaseSuite;
+import com.oracle.graal.phases.common.inlining.InlineGraphCache;
 import com.oracle.graal.phases.tiers.HighTierContext;
 import com.oracle.graal.phases.tiers.Suites;
 
@@ -75,6 +76,13 @@ import jdk.vm.ci.runtime.JVMCICompiler;
 
 public class HotSpotGraalCompiler implements GraalJVMCICompiler {
 
+    /**
+     * The phase appended to the graph builder suite of OSR compilations. It is stateless and shared
+     * so that the graph builder suites of all OSR compilations consist of the same phases, which
+     * lets them share the graphs in the {@link InlineGraphCache}.
+     */
+    private static final OnStackReplacementPhase OSR_PHASE = new OnStackReplacementPhase();
+
     private final HotSpotJVMCIRuntimeProvider jvmciRuntime;
     private final HotSpotGraalRuntimeProvider graalRuntime;
     private final CompilationCounters compilationCounters;
@@ -125,13 +133,23 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
     public void compileTheWorld() throws Throwable {
         HotSpotCodeCacheProvider codeCache = (HotSpotCodeCacheProvider) jvmciRuntime.getHostJVMCIBackend().getCodeCache();
         int iterations = CompileTheWorldOptions.CompileTheWorldIterations.getValue();
+        boolean checkRegressions = CompileTheWorldOptions.CompileTheWorldBaseline.getValue() != null || CompileTheWorldOptions.CompileTheWorldBaselineOutput.getValue() != null;
+        if (checkRegressions && !CompileTheWorldRegression.isMeasurementEnabled()) {
+            TTY.println("CompileTheWorld : Comparing with a baseline requires -Dgraal.Time= and -Dgraal.TrackMemUse=");
+            System.exit(1);
+        }
+        CompileTheWorld ctw = null;
         for (int i = 0; i < iterations; i++) {
             codeCache.resetCompilationStatistics();
+            if (checkRegressions && i == iterations - 1) {
+                // Only measure the last iteration; the previous ones warm up the compiler.
+                CompileTheWorldRegression.resetMeasurements();
+            }
             TTY.println("CompileTheWorld : iteration " + i);
-            CompileTheWorld ctw = new CompileTheWorld(jvmciRuntime, this);
+            ctw = new CompileTheWorld(jvmciRuntime, this);
             ctw.compile();
         }
-        System.exit(0);
+        System.exit(checkRegressions && ctw != null ? CompileTheWorldRegression.check(ctw) : 0);
     }
 
     public CompilationResult compile(ResolvedJavaMethod method, int entryBCI, boolean useProfilingInfo) {
@@ -230,7 +248,7 @@ public class HotSpotGraalCompiler implements GraalJVMCICompiler {
                 newGbs.findPhase(GraphBuilderPhase.class).set(newGraphBuilderPhase);
             }
             if (isOSR) {
-                newGbs.appendPhase(new OnStackReplacementPhase());
+                newGbs.appendPhase(OSR_PHASE);
             }
             return newGbs;
         }
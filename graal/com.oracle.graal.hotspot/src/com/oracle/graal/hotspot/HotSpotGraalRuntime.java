@@ -53,6 +53,7 @@ import com.oracle.graal.hotspot.CompilerConfigurationFactory.BackendMap;
 import com.oracle.graal.hotspot.debug.BenchmarkCounters;
 import com.oracle.graal.hotspot.meta.HotSpotProviders;
 import com.oracle.graal.nodes.spi.StampProvider;
+import com.oracle.graal.phases.common.inlining.InlineGraphCache;
 import com.oracle.graal.phases.tiers.CompilerConfiguration;
 import com.oracle.graal.replacements.SnippetCounter;
 import com.oracle.graal.runtime.RuntimeProvider;
@@ -279,6 +280,9 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
         phaseTransition("final");
 
         SnippetCounter.printGroups(TTY.out().out());
+        if (GraalOptions.PrintInlineGraphCacheStatistics.getValue()) {
+            InlineGraphCache.printStatistics(TTY.out().out());
+        }
         BenchmarkCounters.shutdown(runtime(), runtimeStartTime);
     }
 
@@ -42,7 +42,12 @@ public class DefaultSuitesProvider extends SuitesProviderBase {
 
     @Override
     public Suites createSuites() {
-        return Suites.createSuites(compilerConfiguration);
+        return createSuites(compilerConfiguration);
+    }
+
+    @Override
+    public Suites createSuites(CompilerConfiguration config) {
+        return Suites.createSuites(config);
     }
 
     protected PhaseSuite<HighTierContext> createGraphBuilderSuite(Plugins plugins) {
@@ -53,6 +58,11 @@ public class DefaultSuitesProvider extends SuitesProviderBase {
 
     @Override
     public LIRSuites createLIRSuites() {
-        return Suites.createLIRSuites(compilerConfiguration);
+        return createLIRSuites(compilerConfiguration);
+    }
+
+    @Override
+    public LIRSuites createLIRSuites(CompilerConfiguration config) {
+        return Suites.createLIRSuites(config);
     }
 }
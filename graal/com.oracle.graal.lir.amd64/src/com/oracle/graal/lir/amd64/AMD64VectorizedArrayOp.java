@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.ILLEGAL;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.REG;
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static jdk.vm.ci.code.ValueUtil.isIllegal;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.EnumSet;
+
+import com.oracle.graal.asm.Label;
+import com.oracle.graal.asm.amd64.AMD64Address;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.asm.amd64.AMD64MacroAssembler;
+import com.oracle.graal.compiler.common.LIRKind;
+import com.oracle.graal.compiler.common.calc.VectorOperation;
+import com.oracle.graal.debug.GraalError;
+import com.oracle.graal.lir.LIRInstructionClass;
+import com.oracle.graal.lir.Opcode;
+import com.oracle.graal.lir.asm.CompilationResultBuilder;
+import com.oracle.graal.lir.gen.LIRGeneratorTool;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.amd64.AMD64.CPUFeature;
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.code.Register;
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+import sun.misc.Unsafe;
+
+/**
+ * Emits a loop that applies a {@link VectorOperation} to the elements {@code [start, end)} of
+ * primitive arrays with 128-bit SSE2 or, if the CPU supports AVX2, 256-bit AVX2 instructions. Only
+ * whole vectors are processed and the first index that was not processed is returned, so that the
+ * remaining elements can be processed by scalar code.
+ */
+@Opcode("VECTORIZED_ARRAY_OP")
+public final class AMD64VectorizedArrayOp extends AMD64LIRInstruction {
+    public static final LIRInstructionClass<AMD64VectorizedArrayOp> TYPE = LIRInstructionClass.create(AMD64VectorizedArrayOp.class);
+
+    private final VectorOperation op;
+    private final JavaKind kind;
+    private final int arrayBaseOffset;
+    private final Scale arrayIndexScale;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value dstValue;
+    @Alive({REG, ILLEGAL}) protected Value src1Value;
+    @Alive({REG, ILLEGAL}) protected Value src2Value;
+    @Alive({REG, ILLEGAL}) protected Value scalarValue;
+    @Alive({REG}) protected Value startValue;
+    @Alive({REG}) protected Value endValue;
+    @Temp({REG}) protected Value indexTemp;
+    @Temp({REG}) protected Value limitTemp;
+    @Temp({REG}) protected Value vectorTemp1;
+    @Temp({REG}) protected Value vectorTemp2;
+
+    public AMD64VectorizedArrayOp(LIRGeneratorTool tool, VectorOperation op, JavaKind kind, Value result, Value dst, Value src1, Value src2, Value scalar, Value start, Value end) {
+        super(TYPE);
+        assert getVectorSize(tool.target()) > 0;
+        assert op.isSupported(kind) : op + " " + kind;
+        this.op = op;
+        this.kind = kind;
+
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        this.arrayBaseOffset = UNSAFE.arrayBaseOffset(arrayClass);
+        this.arrayIndexScale = Scale.fromInt(UNSAFE.arrayIndexScale(arrayClass));
+
+        this.resultValue = result;
+        this.dstValue = dst;
+        this.src1Value = src1;
+        this.src2Value = src2;
+        this.scalarValue = scalar;
+        this.startValue = start;
+        this.endValue = end;
+
+        this.indexTemp = tool.newVariable(LIRKind.value(tool.target().arch.getWordKind()));
+        this.limitTemp = tool.newVariable(LIRKind.value(tool.target().arch.getWordKind()));
+        this.vectorTemp1 = tool.newVariable(LIRKind.value(AMD64Kind.DOUBLE));
+        this.vectorTemp2 = tool.newVariable(LIRKind.value(AMD64Kind.DOUBLE));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register dst = asRegister(dstValue);
+        Register start = asRegister(startValue);
+        Register end = asRegister(endValue);
+        Register index = asRegister(indexTemp);
+        Register limit = asRegister(limitTemp);
+        Register vector1 = asRegister(vectorTemp1, AMD64Kind.DOUBLE);
+        Register vector2 = asRegister(vectorTemp2, AMD64Kind.DOUBLE);
+
+        int vectorSize = getVectorSize(crb.target);
+        boolean avx2 = vectorSize == AVX2_VECTOR_SIZE;
+        int elementsPerVector = vectorSize / kind.getByteCount();
+
+        Label loop = new Label();
+        Label done = new Label();
+
+        masm.movl(result, start);
+        masm.cmpl(end, start);
+        masm.jcc(ConditionFlag.LessEqual, done);
+
+        // Round the number of elements down to whole vectors
+        masm.movl(limit, end);
+        masm.subl(limit, start);
+        masm.andl(limit, ~(elementsPerVector - 1));
+        masm.jcc(ConditionFlag.Zero, done);
+        masm.addl(limit, start);
+        masm.movl(result, limit);
+        // start is not negative, so the zero extension of movl yields the 64-bit index
+        masm.movl(index, start);
+
+        if (!isIllegal(scalarValue)) {
+            emitBroadcast(masm, vector2, asRegister(scalarValue), avx2);
+        }
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        Register value;
+        if (isIllegal(src1Value)) {
+            value = vector2;
+        } else {
+            value = vector1;
+            emitLoad(masm, vector1, elementAddress(asRegister(src1Value), index), avx2);
+            if (op != VectorOperation.MOVE) {
+                if (!isIllegal(src2Value)) {
+                    emitLoad(masm, vector2, elementAddress(asRegister(src2Value), index), avx2);
+                }
+                emitOperation(masm, vector1, vector2, avx2);
+            }
+        }
+        emitStore(masm, elementAddress(dst, index), value, avx2);
+        masm.addq(index, elementsPerVector);
+        masm.cmpq(index, limit);
+        masm.jcc(ConditionFlag.Less, loop);
+
+        if (avx2) {
+            // Avoid the penalty of transitions between AVX and legacy SSE code
+            masm.vzeroupper();
+        }
+        masm.bind(done);
+    }
+
+    private AMD64Address elementAddress(Register array, Register index) {
+        return new AMD64Address(array, index, arrayIndexScale, arrayBaseOffset);
+    }
+
+    private static void emitLoad(AMD64MacroAssembler masm, Register dst, AMD64Address src, boolean avx2) {
+        if (avx2) {
+            masm.vmovdqu(dst, src);
+        } else {
+            masm.movdqu(dst, src);
+        }
+    }
+
+    private static void emitStore(AMD64MacroAssembler masm, AMD64Address dst, Register src, boolean avx2) {
+        if (avx2) {
+            masm.vmovdqu(dst, src);
+        } else {
+            masm.movdqu(dst, src);
+        }
+    }
+
+    /**
+     * Fills all elements of {@code dst} with {@code scalar}, which is a general purpose register for
+     * integral and an XMM register for floating point elements.
+     */
+    private void emitBroadcast(AMD64MacroAssembler masm, Register dst, Register scalar, boolean avx2) {
+        Register src = scalar;
+        if (!scalar.getRegisterCategory().equals(AMD64.XMM)) {
+            if (kind.getByteCount() == 8) {
+                masm.movdq(dst, scalar);
+            } else {
+                masm.movdl(dst, scalar);
+            }
+            src = dst;
+        }
+        if (avx2) {
+            if (kind.getByteCount() == 8) {
+                masm.vpbroadcastq(dst, src);
+            } else {
+                masm.vpbroadcastd(dst, src);
+            }
+        } else {
+            masm.pshufd(dst, src, kind.getByteCount() == 8 ? 0x44 : 0x00);
+        }
+    }
+
+    /**
+     * Emits {@code dst = dst op src}.
+     */
+    private void emitOperation(AMD64MacroAssembler masm, Register dst, Register src, boolean avx2) {
+        switch (op) {
+            case ADD:
+                switch (kind) {
+                    case Int:
+                        if (avx2) {
+                            masm.vpaddd(dst, dst, src);
+                        } else {
+                            masm.paddd(dst, src);
+                        }
+                        return;
+                    case Long:
+                        if (avx2) {
+                            masm.vpaddq(dst, dst, src);
+                        } else {
+                            masm.paddq(dst, src);
+                        }
+                        return;
+                    case Float:
+                        if (avx2) {
+                            masm.vaddps(dst, dst, src);
+                        } else {
+                            masm.addps(dst, src);
+                        }
+                        return;
+                    case Double:
+                        if (avx2) {
+                            masm.vaddpd(dst, dst, src);
+                        } else {
+                            masm.addpd(dst, src);
+                        }
+                        return;
+                }
+                break;
+            case SUB:
+                switch (kind) {
+                    case Int:
+                        if (avx2) {
+                            masm.vpsubd(dst, dst, src);
+                        } else {
+                            masm.psubd(dst, src);
+                        }
+                        return;
+                    case Long:
+                        if (avx2) {
+                            masm.vpsubq(dst, dst, src);
+                        } else {
+                            masm.psubq(dst, src);
+                        }
+                        return;
+                    case Float:
+                        if (avx2) {
+                            masm.vsubps(dst, dst, src);
+                        } else {
+                            masm.subps(dst, src);
+                        }
+                        return;
+                    case Double:
+                        if (avx2) {
+                            masm.vsubpd(dst, dst, src);
+                        } else {
+                            masm.subpd(dst, src);
+                        }
+                        return;
+                }
+                break;
+            case MUL:
+                switch (kind) {
+                    case Float:
+                        if (avx2) {
+                            masm.vmulps(dst, dst, src);
+                        } else {
+                            masm.mulps(dst, src);
+                        }
+                        return;
+                    case Double:
+                        if (avx2) {
+                            masm.vmulpd(dst, dst, src);
+                        } else {
+                            masm.mulpd(dst, src);
+                        }
+                        return;
+                }
+                break;
+            case AND:
+                if (avx2) {
+                    masm.vpand(dst, dst, src);
+                } else {
+                    masm.pand(dst, src);
+                }
+                return;
+            case OR:
+                if (avx2) {
+                    masm.vpor(dst, dst, src);
+                } else {
+                    masm.por(dst, src);
+                }
+                return;
+            case XOR:
+                if (avx2) {
+                    masm.vpxor(dst, dst, src);
+                } else {
+                    masm.pxor(dst, src);
+                }
+                return;
+        }
+        throw GraalError.shouldNotReachHere(op + " " + kind);
+    }
+
+    /**
+     * Vector size in bytes of the SSE2 code.
+     */
+    private static final int SSE2_VECTOR_SIZE = 16;
+
+    /**
+     * Vector size in bytes of the AVX2 code.
+     */
+    private static final int AVX2_VECTOR_SIZE = 32;
+
+    /**
+     * Returns the size in bytes of the vectors used on the underlying AMD64 architecture, or 0 if
+     * it does not support the required instructions.
+     *
+     * @param target target description of the underlying architecture
+     */
+    public static int getVectorSize(TargetDescription target) {
+        EnumSet<CPUFeature> features = ((AMD64) target.arch).getFeatures();
+        if (features.contains(CPUFeature.AVX2)) {
+            return AVX2_VECTOR_SIZE;
+        } else if (features.contains(CPUFeature.SSE2)) {
+            return SSE2_VECTOR_SIZE;
+        }
+        return 0;
+    }
+
+    private static final Unsafe UNSAFE = initUnsafe();
+
+    private static Unsafe initUnsafe() {
+        try {
+            return Unsafe.getUnsafe();
+        } catch (SecurityException se) {
+            try {
+                Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return (Unsafe) theUnsafe.get(Unsafe.class);
+            } catch (Exception e) {
+                throw new RuntimeException("exception while trying to get Unsafe", e);
+            }
+        }
+    }
+}
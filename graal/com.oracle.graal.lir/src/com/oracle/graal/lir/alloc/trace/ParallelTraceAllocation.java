@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.alloc.trace;
+
+import static com.oracle.graal.lir.LIRValueUtil.isVariable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import com.oracle.graal.compiler.common.alloc.Trace;
+import com.oracle.graal.compiler.common.alloc.TraceBuilderResult;
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.debug.DebugConfig;
+import com.oracle.graal.debug.DebugConfigScope;
+import com.oracle.graal.debug.GraalError;
+import com.oracle.graal.debug.Indent;
+import com.oracle.graal.debug.internal.DebugScope;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.alloc.trace.TraceAllocationPhase.TraceAllocationContext;
+import com.oracle.graal.lir.framemap.FrameMapBuilderTool;
+import com.oracle.graal.lir.gen.LIRGenerationResult;
+import com.oracle.graal.lir.gen.LIRGeneratorTool.MoveFactory;
+
+import jdk.vm.ci.code.StackSlot;
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.meta.AllocatableValue;
+import jdk.vm.ci.meta.ValueKind;
+
+/**
+ * Allocates the traces of a method concurrently on the {@linkplain ForkJoinPool#commonPool()
+ * common fork-join pool}.
+ *
+ * The allocation of a trace reads the allocation results at the ends of its predecessor blocks in
+ * traces with a lower id (for the inter-trace hints and for {@link TrivialTraceAllocator trivial
+ * traces}). A trace is therefore only started when all these traces are complete. Traces allocate
+ * their spill slots as {@link TraceSpillSlots placeholders}, which are replaced by stack slots of
+ * the frame map when the allocation of the trace is committed. Commits happen in the order of the
+ * trace ids and a trace only depends on traces with a lower id, so the result of the allocation
+ * does not depend on the scheduling of the traces.
+ */
+final class ParallelTraceAllocation {
+
+    private final TargetDescription target;
+    private final LIRGenerationResult lirGenRes;
+    private final LIR lir;
+    private final FrameMapBuilderTool frameMapBuilder;
+    private final TraceAllocationContext traceContext;
+    private final AllocatableValue[] cachedStackSlots;
+    private final DebugConfig debugConfig;
+
+    private final List<Trace> traces;
+    private final List<TraceAllocationPhase<TraceAllocationContext>> allocators;
+
+    /** The traces that can only be started once a trace is committed. */
+    private final List<List<Trace>> dependents;
+
+    // The following fields are guarded by this object.
+
+    /** The number of uncommitted traces that each trace depends on. */
+    private final int[] pendingDependencies;
+    private final TraceSpillSlots[] spillSlots;
+    private final BitSet allocated;
+    private int nextCommit;
+    private int running;
+    private Throwable failure;
+
+    ParallelTraceAllocation(TargetDescription target, LIRGenerationResult lirGenRes, TraceRegisterAllocationPolicy plan, TraceAllocationContext traceContext, AllocatableValue[] cachedStackSlots) {
+        this.target = target;
+        this.lirGenRes = lirGenRes;
+        this.lir = lirGenRes.getLIR();
+        this.frameMapBuilder = (FrameMapBuilderTool) lirGenRes.getFrameMapBuilder();
+        this.traceContext = traceContext;
+        this.cachedStackSlots = cachedStackSlots;
+        this.debugConfig = Debug.isEnabled() ? DebugScope.getConfig() : null;
+
+        TraceBuilderResult resultTraces = traceContext.resultTraces;
+        this.traces = resultTraces.getTraces();
+        int count = traces.size();
+        this.allocators = new ArrayList<>(count);
+        this.dependents = new ArrayList<>(count);
+        this.pendingDependencies = new int[count];
+        this.spillSlots = new TraceSpillSlots[count];
+        this.allocated = new BitSet(count);
+
+        BitSet dependencies = new BitSet(count);
+        for (Trace trace : traces) {
+            // the allocation strategies are initialized lazily, so select them on this thread
+            allocators.add(plan.selectStrategy(trace));
+            dependents.add(new ArrayList<>(2));
+
+            dependencies.clear();
+            for (AbstractBlockBase<?> block : trace.getBlocks()) {
+                for (AbstractBlockBase<?> pred : block.getPredecessors()) {
+                    int predTraceId = resultTraces.getTraceForBlock(pred).getId();
+                    if (predTraceId < trace.getId()) {
+                        dependencies.set(predTraceId);
+                    }
+                }
+            }
+            for (int id = dependencies.nextSetBit(0); id >= 0; id = dependencies.nextSetBit(id + 1)) {
+                dependents.get(id).add(trace);
+            }
+            pendingDependencies[trace.getId()] = dependencies.cardinality();
+        }
+    }
+
+    /**
+     * Allocates all traces and returns when all of them are committed.
+     */
+    void run() {
+        initializeMoveFactory(lir, traceContext.spillMoveFactory);
+
+        boolean interrupted = false;
+        synchronized (this) {
+            for (Trace trace : traces) {
+                if (pendingDependencies[trace.getId()] == 0) {
+                    schedule(trace);
+                }
+            }
+            /*
+             * After a failure, wait for the running traces so that they do not modify the LIR
+             * while the failure is handled.
+             */
+            while (failure == null ? nextCommit < traces.size() : running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new GraalError(failure);
+        }
+    }
+
+    /**
+     * Move factories may allocate scratch stack slots in the frame map when a stack to stack move
+     * is created for the first time. Creating a stack move for each kind of variable up front
+     * makes them allocate these slots on this thread and in a deterministic order.
+     */
+    private static void initializeMoveFactory(LIR lir, MoveFactory spillMoveFactory) {
+        Set<ValueKind<?>> kinds = new LinkedHashSet<>();
+        for (AbstractBlockBase<?> block : lir.getControlFlowGraph().getBlocks()) {
+            for (LIRInstruction op : lir.getLIRforBlock(block)) {
+                op.visitEachOutput((value, mode, flags) -> {
+                    if (isVariable(value)) {
+                        kinds.add(value.getValueKind());
+                    }
+                });
+            }
+        }
+        for (ValueKind<?> kind : kinds) {
+            spillMoveFactory.createStackMove(StackSlot.get(kind, 0, true), StackSlot.get(kind, kind.getPlatformKind().getSizeInBytes(), true));
+        }
+    }
+
+    private void schedule(Trace trace) {
+        assert Thread.holdsLock(this);
+        int firstId;
+        synchronized (frameMapBuilder) {
+            firstId = frameMapBuilder.getNumberOfStackSlots();
+        }
+        TraceSpillSlots traceSpillSlots = new TraceSpillSlots(firstId);
+        spillSlots[trace.getId()] = traceSpillSlots;
+        running++;
+        TraceAllocationContext context = new TraceAllocationContext(traceContext.spillMoveFactory, traceContext.registerAllocationConfig, traceContext.resultTraces, traceSpillSlots);
+        ForkJoinPool.commonPool().execute(() -> allocate(trace, context));
+    }
+
+    private void allocate(Trace trace, TraceAllocationContext context) {
+        Throwable result = null;
+        try {
+            allocateTrace(trace, context);
+        } catch (Throwable e) {
+            result = e;
+        }
+        synchronized (this) {
+            running--;
+            if (result != null) {
+                if (failure == null) {
+                    failure = result;
+                }
+            } else if (failure == null) {
+                allocated.set(trace.getId());
+                commitAllocatedTraces();
+            }
+            notifyAll();
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void allocateTrace(Trace trace, TraceAllocationContext context) {
+        TraceAllocationPhase<TraceAllocationContext> allocator = allocators.get(trace.getId());
+        try (DebugConfigScope c = debugConfig != null ? new DebugConfigScope(debugConfig) : null) {
+            try (Scope s = Debug.scope("AllocateTrace", trace); Indent i = Debug.logAndIndent("Allocating Trace%d: %s (%s)", trace.getId(), trace, allocator)) {
+                TraceRegisterAllocationPhase.tracesCounter.increment();
+                allocator.apply(target, lirGenRes, trace, context);
+            } catch (Throwable e) {
+                throw Debug.handle(e);
+            }
+        }
+    }
+
+    private void commitAllocatedTraces() {
+        assert Thread.holdsLock(this);
+        while (nextCommit < traces.size() && allocated.get(nextCommit)) {
+            Trace trace = traces.get(nextCommit);
+            try {
+                spillSlots[nextCommit].commit(lir, trace, frameMapBuilder, cachedStackSlots);
+            } catch (Throwable e) {
+                failure = e;
+                return;
+            }
+            spillSlots[nextCommit] = null;
+            nextCommit++;
+            for (Trace dependent : dependents.get(trace.getId())) {
+                if (--pendingDependencies[dependent.getId()] == 0) {
+                    schedule(dependent);
+                }
+            }
+        }
+    }
+}
@@ -66,7 +66,7 @@ public final class ShadowedRegisterValue extends CompositeValue {
     public CompositeValue forEachComponent(LIRInstruction inst, OperandMode mode, InstructionValueProcedure proc) {
         RegisterValue newRegister = (RegisterValue) proc.doValue(inst, register, mode, registerFlags);
         AllocatableValue newStackSlot = (AllocatableValue) proc.doValue(inst, stackslot, mode, stackslotFlags);
-        if (register.equals(newRegister) || stackslot.equals(newStackSlot)) {
+        if (register.equals(newRegister) && stackslot.equals(newStackSlot)) {
             return this;
         }
         return new ShadowedRegisterValue(newRegister, newStackSlot);
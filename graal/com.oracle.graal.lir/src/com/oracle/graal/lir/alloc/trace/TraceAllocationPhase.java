@@ -44,11 +44,21 @@ public abstract class TraceAllocationPhase<C extends TraceAllocationPhase.TraceA
         public final MoveFactory spillMoveFactory;
         public final RegisterAllocationConfig registerAllocationConfig;
         public final TraceBuilderResult resultTraces;
+        /**
+         * The spill slots of a trace that is allocated concurrently to other traces, or
+         * {@code null} if spill slots are allocated directly in the frame map.
+         */
+        public final TraceSpillSlots spillSlots;
 
         public TraceAllocationContext(MoveFactory spillMoveFactory, RegisterAllocationConfig registerAllocationConfig, TraceBuilderResult resultTraces) {
+            this(spillMoveFactory, registerAllocationConfig, resultTraces, null);
+        }
+
+        public TraceAllocationContext(MoveFactory spillMoveFactory, RegisterAllocationConfig registerAllocationConfig, TraceBuilderResult resultTraces, TraceSpillSlots spillSlots) {
             this.spillMoveFactory = spillMoveFactory;
             this.registerAllocationConfig = registerAllocationConfig;
             this.resultTraces = resultTraces;
+            this.spillSlots = spillSlots;
         }
     }
 
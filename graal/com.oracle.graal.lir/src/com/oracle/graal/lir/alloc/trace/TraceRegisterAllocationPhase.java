@@ -40,6 +40,7 @@ import com.oracle.graal.lir.ssi.SSIUtil;
 import com.oracle.graal.lir.ssi.SSIVerifier;
 import com.oracle.graal.options.Option;
 import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
 import com.oracle.graal.options.StableOptionValue;
 
 import jdk.vm.ci.code.TargetDescription;
@@ -62,12 +63,16 @@ public final class TraceRegisterAllocationPhase extends AllocationPhase {
         public static final StableOptionValue<Boolean> TraceRAreuseStackSlotsForMoveResolutionCycleBreaking = new StableOptionValue<>(true);
         @Option(help = "Cache stack slots globally (i.e. a variable always gets the same slot in every trace).", type = OptionType.Debug)
         public static final StableOptionValue<Boolean> TraceRACacheStackSlots = new StableOptionValue<>(true);
+        @Option(help = "Allocate independent traces concurrently on the common fork-join pool.", type = OptionType.Expert)
+        public static final OptionValue<Boolean> TraceRAParallel = new OptionValue<>(false);
+        @Option(help = "Minimum number of traces of a method for allocating its traces concurrently.", type = OptionType.Expert)
+        public static final OptionValue<Integer> TraceRAParallelMinTraces = new OptionValue<>(64);
         // @formatter:on
     }
 
     private static final TraceGlobalMoveResolutionPhase TRACE_GLOBAL_MOVE_RESOLUTION_PHASE = new TraceGlobalMoveResolutionPhase();
 
-    private static final DebugCounter tracesCounter = Debug.counter("TraceRA[traces]");
+    static final DebugCounter tracesCounter = Debug.counter("TraceRA[traces]");
 
     public static final DebugCounter globalStackSlots = Debug.counter("TraceRA[GlobalStackSlots]");
     public static final DebugCounter allocatedStackSlots = Debug.counter("TraceRA[AllocatedStackSlots]");
@@ -92,11 +97,15 @@ public final class TraceRegisterAllocationPhase extends AllocationPhase {
 
         Debug.dump(Debug.INFO_LOG_LEVEL, lir, "Before TraceRegisterAllocation");
         try (Scope s0 = Debug.scope("AllocateTraces", resultTraces)) {
-            for (Trace trace : resultTraces.getTraces()) {
-                tracesCounter.increment();
-                TraceAllocationPhase<TraceAllocationContext> allocator = plan.selectStrategy(trace);
-                try (Indent i = Debug.logAndIndent("Allocating Trace%d: %s (%s)", trace.getId(), trace, allocator); Scope s = Debug.scope("AllocateTrace", trace)) {
-                    allocator.apply(target, lirGenRes, trace, traceContext);
+            if (allocateInParallel(resultTraces)) {
+                new ParallelTraceAllocation(target, lirGenRes, plan, traceContext, cachedStackSlots).run();
+            } else {
+                for (Trace trace : resultTraces.getTraces()) {
+                    tracesCounter.increment();
+                    TraceAllocationPhase<TraceAllocationContext> allocator = plan.selectStrategy(trace);
+                    try (Indent i = Debug.logAndIndent("Allocating Trace%d: %s (%s)", trace.getId(), trace, allocator); Scope s = Debug.scope("AllocateTrace", trace)) {
+                        allocator.apply(target, lirGenRes, trace, traceContext);
+                    }
                 }
             }
         } catch (Throwable e) {
@@ -111,6 +120,15 @@ public final class TraceRegisterAllocationPhase extends AllocationPhase {
         deconstructSSIForm(lir);
     }
 
+    /**
+     * Traces are only allocated concurrently if there are enough of them to make up for the
+     * scheduling overhead. Dumping and logging need the traces to be allocated in order.
+     */
+    private static boolean allocateInParallel(TraceBuilderResult resultTraces) {
+        return Options.TraceRAParallel.getValue() && resultTraces.getTraces().size() >= Options.TraceRAParallelMinTraces.getValue() && !Debug.isDumpEnabled(Debug.BASIC_LOG_LEVEL) &&
+                        !Debug.isLogEnabled();
+    }
+
     /**
      * Remove Phi/Sigma In/Out.
      *
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.alloc.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.oracle.graal.compiler.common.alloc.Trace;
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.StandardOp.ValueMoveOp;
+import com.oracle.graal.lir.ValueProcedure;
+import com.oracle.graal.lir.VirtualStackSlot;
+import com.oracle.graal.lir.framemap.FrameMapBuilder;
+
+import jdk.vm.ci.meta.AllocatableValue;
+import jdk.vm.ci.meta.ValueKind;
+
+/**
+ * The spill slots of a trace that is allocated concurrently to other traces.
+ *
+ * The {@link FrameMapBuilder} and the {@linkplain TraceRegisterAllocationPhase.Options#TraceRACacheStackSlots
+ * cached stack slots} are shared by all traces, and the ids of the stack slots depend on the order
+ * in which they are allocated. Instead of allocating stack slots in the frame map, the allocator of
+ * a trace therefore gets placeholder slots from this class. When the allocation of the trace is
+ * {@linkplain #commit committed}, the placeholders are replaced by stack slots of the frame map.
+ * Traces are committed in the order of their ids, so the resulting stack slots do not depend on the
+ * scheduling of the traces.
+ */
+public final class TraceSpillSlots {
+
+    private static final class PendingStackSlot extends VirtualStackSlot {
+
+        private final int variableIndex;
+        private AllocatableValue replacement;
+
+        PendingStackSlot(int id, ValueKind<?> kind, int variableIndex) {
+            super(id, kind);
+            this.variableIndex = variableIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "pending:" + getId() + getKindSuffix();
+        }
+    }
+
+    /**
+     * The id of the first placeholder. Placeholders get ids above the stack slots that exist when
+     * the trace is scheduled so that they can be told apart in the blocked stack slot maps of the
+     * move resolvers.
+     */
+    private final int firstId;
+    private final List<PendingStackSlot> slots = new ArrayList<>();
+
+    TraceSpillSlots(int firstId) {
+        this.firstId = firstId;
+    }
+
+    /**
+     * Allocates a placeholder for a spill slot.
+     *
+     * @param variableIndex the index of the variable for which the slot is allocated, which may
+     *            share its slot with other traces, or -1 for a slot that is only used by this trace
+     */
+    public VirtualStackSlot allocateSpillSlot(ValueKind<?> kind, int variableIndex) {
+        PendingStackSlot slot = new PendingStackSlot(firstId + slots.size(), kind, variableIndex);
+        slots.add(slot);
+        return slot;
+    }
+
+    /**
+     * Replaces the placeholders in the instructions of {@code trace} with stack slots of the frame
+     * map. Moves that become redundant are removed.
+     */
+    void commit(LIR lir, Trace trace, FrameMapBuilder frameMapBuilder, AllocatableValue[] cachedStackSlots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        ValueProcedure replace = (value, mode, flags) -> value instanceof PendingStackSlot ? resolve((PendingStackSlot) value, frameMapBuilder, cachedStackSlots) : value;
+        for (AbstractBlockBase<?> block : trace.getBlocks()) {
+            List<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            boolean hasDead = false;
+            for (int i = 0; i < instructions.size(); i++) {
+                LIRInstruction op = instructions.get(i);
+                op.forEachInput(replace);
+                op.forEachAlive(replace);
+                op.forEachTemp(replace);
+                op.forEachOutput(replace);
+                op.forEachState(replace);
+                if (op instanceof ValueMoveOp && ((ValueMoveOp) op).getInput().equals(((ValueMoveOp) op).getResult())) {
+                    instructions.set(i, null);
+                    hasDead = true;
+                }
+            }
+            if (hasDead) {
+                instructions.removeAll(Collections.singleton(null));
+            }
+        }
+    }
+
+    private AllocatableValue resolve(PendingStackSlot slot, FrameMapBuilder frameMapBuilder, AllocatableValue[] cachedStackSlots) {
+        assert slots.get(slot.getId() - firstId) == slot : "placeholder of another trace: " + slot;
+        if (slot.replacement == null) {
+            int variableIndex = slot.variableIndex;
+            if (variableIndex >= 0 && cachedStackSlots != null && cachedStackSlots[variableIndex] != null) {
+                TraceRegisterAllocationPhase.globalStackSlots.increment();
+                slot.replacement = cachedStackSlots[variableIndex];
+                assert slot.replacement.getValueKind().equals(slot.getValueKind()) : "CachedStackSlot: kind mismatch? " + slot.getValueKind() + " vs. " + slot.replacement.getValueKind();
+            } else {
+                VirtualStackSlot stackSlot;
+                synchronized (frameMapBuilder) {
+                    stackSlot = frameMapBuilder.allocateSpillSlot(slot.getValueKind());
+                }
+                if (variableIndex >= 0) {
+                    if (cachedStackSlots != null) {
+                        cachedStackSlots[variableIndex] = stackSlot;
+                    }
+                    TraceRegisterAllocationPhase.allocatedStackSlots.increment();
+                }
+                slot.replacement = stackSlot;
+            }
+        }
+        return slot.replacement;
+    }
+}
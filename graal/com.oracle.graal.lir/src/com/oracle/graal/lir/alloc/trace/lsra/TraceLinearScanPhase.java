@@ -57,6 +57,7 @@ import com.oracle.graal.lir.alloc.trace.TraceAllocationPhase;
 import com.oracle.graal.lir.alloc.trace.TraceAllocationPhase.TraceAllocationContext;
 import com.oracle.graal.lir.alloc.trace.TraceBuilderPhase;
 import com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase;
+import com.oracle.graal.lir.alloc.trace.TraceSpillSlots;
 import com.oracle.graal.lir.alloc.trace.lsra.TraceInterval.RegisterPriority;
 import com.oracle.graal.lir.alloc.trace.lsra.TraceLinearScanAllocationPhase.TraceLinearScanAllocationContext;
 import com.oracle.graal.lir.debug.IntervalDumper;
@@ -177,7 +178,7 @@ public final class TraceLinearScanPhase extends TraceAllocationPhase<TraceAlloca
 
     @Override
     protected void run(TargetDescription target, LIRGenerationResult lirGenRes, Trace trace, TraceAllocationContext traceContext) {
-        createAllocator(trace).allocate(target, lirGenRes, traceContext);
+        new TraceLinearScan(trace, traceContext.spillSlots).allocate(target, lirGenRes, traceContext);
     }
 
     private static <T extends IntervalHint> boolean isSortedByFrom(T[] intervals) {
@@ -242,8 +243,19 @@ public final class TraceLinearScanPhase extends TraceAllocationPhase<TraceAlloca
 
         private final Trace trace;
 
+        /**
+         * The placeholders for the spill slots of this trace if it is allocated concurrently to
+         * other traces, otherwise {@code null}.
+         */
+        private final TraceSpillSlots spillSlots;
+
         public TraceLinearScan(Trace trace) {
+            this(trace, null);
+        }
+
+        public TraceLinearScan(Trace trace, TraceSpillSlots spillSlots) {
             this.trace = trace;
+            this.spillSlots = spillSlots;
             this.fixedIntervals = new FixedInterval[registers.size()];
         }
 
@@ -325,6 +337,10 @@ public final class TraceLinearScanPhase extends TraceAllocationPhase<TraceAlloca
          */
         private AllocatableValue allocateSpillSlot(TraceInterval interval) {
             int variableIndex = LIRValueUtil.asVariable(interval.splitParent().operand).index;
+            if (spillSlots != null) {
+                // the cached stack slots are resolved when the trace is committed
+                return spillSlots.allocateSpillSlot(interval.kind(), variableIndex);
+            }
             if (TraceRegisterAllocationPhase.Options.TraceRACacheStackSlots.getValue()) {
                 AllocatableValue cachedStackSlot = cachedStackSlots[variableIndex];
                 if (cachedStackSlot != null) {
@@ -813,6 +829,16 @@ public final class TraceLinearScanPhase extends TraceAllocationPhase<TraceAlloca
             return frameMapBuilder;
         }
 
+        /**
+         * Returns a new spill slot that is not shared with other traces.
+         */
+        VirtualStackSlot allocateSpillSlot(ValueKind<?> kind) {
+            if (spillSlots != null) {
+                return spillSlots.allocateSpillSlot(kind, -1);
+            }
+            return frameMapBuilder.allocateSpillSlot(kind);
+        }
+
         public AbstractBlockBase<?>[] sortedBlocks() {
             return trace.getBlocks();
         }
@@ -24,6 +24,7 @@ package com.oracle.graal.lir.gen;
 
 import com.oracle.graal.compiler.common.LIRKind;
 import com.oracle.graal.compiler.common.calc.Condition;
+import com.oracle.graal.compiler.common.calc.VectorOperation;
 import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
 import com.oracle.graal.compiler.common.spi.CodeGenProviders;
 import com.oracle.graal.compiler.common.spi.ForeignCallLinkage;
@@ -246,6 +247,13 @@ public interface LIRGeneratorTool extends DiagnosticLIRGeneratorTool, ValueKindF
 
     Variable emitArrayEquals(JavaKind kind, Value array1, Value array2, Value length);
 
+    /**
+     * Applies {@code op} to the elements {@code [start, end)} of the arrays in whole vectors and
+     * returns the first index that was not processed. {@code src1}, {@code src2} and
+     * {@code scalar} are {@link Value#ILLEGAL} if they are not used by the operation.
+     */
+    Variable emitVectorizedArrayOp(VectorOperation op, JavaKind kind, Value dst, Value src1, Value src2, Value scalar, Value start, Value end);
+
     void emitBlackhole(Value operand);
 
     LIRKind getLIRKind(Stamp stamp);
@@ -24,6 +24,7 @@ package com.oracle.graal.lir.phases;
 
 import java.util.regex.Pattern;
 
+import com.oracle.graal.compiler.common.CompilationMemoryQuota;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -118,6 +119,7 @@ public abstract class LIRPhase<C> {
     public final void apply(TargetDescription target, LIRGenerationResult lirGenRes, C context, boolean dumpLIR) {
         try (Scope s = Debug.scope(getName(), this)) {
             try (DebugCloseable a = timer.start(); DebugCloseable c = memUseTracker.start()) {
+                CompilationMemoryQuota.check();
                 run(target, lirGenRes, context);
                 if (dumpLIR && Debug.isDumpEnabled(Debug.BASIC_LOG_LEVEL)) {
                     Debug.dump(Debug.BASIC_LOG_LEVEL, lirGenRes.getLIR(), "%s", getName());
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import static com.oracle.graal.loop.MathUtil.add;
+import static com.oracle.graal.loop.MathUtil.mul;
+import static com.oracle.graal.loop.MathUtil.sub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.oracle.graal.compiler.common.cfg.AbstractControlFlowGraph;
+import com.oracle.graal.compiler.common.type.IntegerStamp;
+import com.oracle.graal.compiler.common.type.Stamp;
+import com.oracle.graal.compiler.common.type.StampFactory;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.loop.BasicInductionVariable;
+import com.oracle.graal.loop.CountedLoopInfo;
+import com.oracle.graal.loop.DerivedOffsetInductionVariable;
+import com.oracle.graal.loop.DerivedScaledInductionVariable;
+import com.oracle.graal.loop.InductionVariable;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.LoopsData;
+import com.oracle.graal.nodes.AbstractBeginNode;
+import com.oracle.graal.nodes.ConstantNode;
+import com.oracle.graal.nodes.FrameState;
+import com.oracle.graal.nodes.GuardNode;
+import com.oracle.graal.nodes.LogicNode;
+import com.oracle.graal.nodes.LoopEndNode;
+import com.oracle.graal.nodes.ShortCircuitOrNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.calc.AddNode;
+import com.oracle.graal.nodes.calc.IntegerBelowNode;
+import com.oracle.graal.nodes.calc.IntegerConvertNode;
+import com.oracle.graal.nodes.calc.IntegerLessThanNode;
+import com.oracle.graal.nodes.calc.SubNode;
+import com.oracle.graal.nodes.cfg.Block;
+import com.oracle.graal.nodes.cfg.ControlFlowGraph;
+import com.oracle.graal.nodes.extended.BranchProbabilityNode;
+import com.oracle.graal.nodes.util.GraphUtil;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.SpeculationReason;
+
+/**
+ * Replaces the bounds check guards of a counted loop by a single guard before the loop. A guard
+ * {@code index |<| length} is predicated if {@code length} is loop invariant and {@code index} is
+ * the counter of the loop or {@code a * counter + b} with loop invariant {@code a} and {@code b}.
+ * The predicate checks that {@code index} is within bounds for the first and the last value the
+ * counter can take in the loop body, which covers all values in between because {@code index} is
+ * linear in the counter.
+ *
+ * The range of the counter is derived from the initial value and the limit of the loop rather
+ * than from the exact trip count, so the predicate is conservative for loops with a stride other
+ * than one. All bounds are computed with 64 bit arithmetic, which is exact for 32 bit induction
+ * variables, so the predicate also holds for the wrapped 32 bit values computed in the loop.
+ *
+ * The predicate deoptimizes with {@link #PREDICATE_DEOPT_REASON}, which is not used by other guards,
+ * so that failing bounds checks that were not predicated are not mistaken for failing predicates.
+ * If a predicate fails repeatedly, the {@link com.oracle.graal.phases.OptimisticOptimizations} of
+ * the method disable loop predication. If the graph has a {@link SpeculationLog}, a failing
+ * predicate disables the predication of its loop only.
+ */
+public class LoopPredicationPhase extends BasePhase<MidTierContext> {
+
+    private static final DebugCounter PREDICATED_LOOPS = Debug.counter("PredicatedLoops");
+    private static final DebugCounter PREDICATED_GUARDS = Debug.counter("PredicatedGuards");
+
+    /**
+     * The reason with which loop predicates deoptimize. {@link DeoptimizationReason} cannot be
+     * extended, so this is a reason that no other guard uses.
+     */
+    public static final DeoptimizationReason PREDICATE_DEOPT_REASON = DeoptimizationReason.Aliasing;
+
+    static final class LoopPredicationSpeculationReason implements SpeculationReason {
+        private final ResolvedJavaMethod method;
+        private final int bci;
+
+        LoopPredicationSpeculationReason(ResolvedJavaMethod method, int bci) {
+            this.method = method;
+            this.bci = bci;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof LoopPredicationSpeculationReason) {
+                LoopPredicationSpeculationReason that = (LoopPredicationSpeculationReason) obj;
+                return this.bci == that.bci && Objects.equals(this.method, that.method);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(method) * 31 + bci;
+        }
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.hasLoops() || !context.getOptimisticOptimizations().useLoopPredication() || !graph.getGuardsStage().allowsFloatingGuards()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            if (canPredicate(loop, context)) {
+                predicate(loop, loops.getCFG());
+            }
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static boolean canPredicate(LoopEx loop, MidTierContext context) {
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        if (!(counter instanceof BasicInductionVariable) || counted.getStamp().getBits() != 32) {
+            return false;
+        }
+        if (needsOverflowGuard(counted)) {
+            return context.getOptimisticOptimizations().useLoopLimitChecks();
+        }
+        return true;
+    }
+
+    /**
+     * The predicate assumes that the counter is monotonic. With a stride of one and an exclusive
+     * limit, the counter cannot overflow before the loop exits. Otherwise the loop has to be
+     * guarded against overflow.
+     */
+    private static boolean needsOverflowGuard(CountedLoopInfo counted) {
+        InductionVariable counter = counted.getCounter();
+        return !counter.isConstantStride() || Math.abs(counter.constantStride()) != 1 || counted.isLimitIncluded();
+    }
+
+    private static void predicate(LoopEx loop, ControlFlowGraph cfg) {
+        StructuredGraph graph = loop.loopBegin().graph();
+        List<GuardNode> guards = new ArrayList<>();
+        for (Block block : loop.loop().getBlocks()) {
+            if (isExecutedInEachIteration(block, loop, cfg)) {
+                for (GuardNode guard : block.getBeginNode().usages().filter(GuardNode.class)) {
+                    if (isPredicable(guard, loop)) {
+                        guards.add(guard);
+                    }
+                }
+            }
+        }
+        if (guards.isEmpty()) {
+            return;
+        }
+
+        JavaConstant speculation = JavaConstant.NULL_POINTER;
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        if (speculationLog != null) {
+            FrameState state = loop.loopBegin().stateAfter();
+            if (state == null) {
+                return;
+            }
+            SpeculationReason reason = new LoopPredicationSpeculationReason(state.getMethod(), state.bci);
+            if (!speculationLog.maySpeculate(reason)) {
+                return;
+            }
+            speculation = speculationLog.speculate(reason);
+        }
+
+        CountedLoopInfo counted = loop.counted();
+        if (needsOverflowGuard(counted)) {
+            counted.createOverFlowGuard();
+        }
+
+        Stamp longStamp = StampFactory.forKind(JavaKind.Long);
+        ConstantNode one = ConstantNode.forLong(1, graph);
+        ValueNode start = IntegerConvertNode.convert(counted.getStart(), longStamp, graph);
+        ValueNode limit = IntegerConvertNode.convert(counted.getLimit(), longStamp, graph);
+        ValueNode first;
+        ValueNode last;
+        if (counted.getDirection() == Direction.Up) {
+            first = start;
+            last = counted.isLimitIncluded() ? limit : sub(graph, limit, one);
+        } else {
+            first = counted.isLimitIncluded() ? limit : add(graph, limit, one);
+            last = start;
+        }
+
+        LogicNode outOfBounds = null;
+        for (GuardNode guard : guards) {
+            IntegerBelowNode check = (IntegerBelowNode) guard.getCondition();
+            InductionVariable iv = loop.getInductionVariables().get(check.getX());
+            ValueNode length = IntegerConvertNode.convert(check.getY(), longStamp, graph);
+            LogicNode firstInBounds = graph.unique(new IntegerBelowNode(valueAt(iv, first, longStamp), length));
+            LogicNode lastInBounds = graph.unique(new IntegerBelowNode(valueAt(iv, last, longStamp), length));
+            LogicNode guardOutOfBounds = graph.unique(new ShortCircuitOrNode(firstInBounds, true, lastInBounds, true, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+            if (outOfBounds == null) {
+                outOfBounds = guardOutOfBounds;
+            } else {
+                outOfBounds = graph.unique(new ShortCircuitOrNode(outOfBounds, false, guardOutOfBounds, false, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+            }
+        }
+        // The body is not entered at all if the counter range is empty
+        LogicNode empty = graph.unique(new IntegerLessThanNode(last, first));
+        LogicNode condition = graph.unique(new ShortCircuitOrNode(empty, false, outOfBounds, true, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+        GuardNode predicate = graph.unique(new GuardNode(condition, AbstractBeginNode.prevBegin(loop.entryPoint()), PREDICATE_DEOPT_REASON,
+                        DeoptimizationAction.InvalidateRecompile, false, speculation));
+
+        Debug.log("Predicated %d guards of %s with %s", guards.size(), loop, predicate);
+        PREDICATED_LOOPS.increment();
+        for (GuardNode guard : guards) {
+            LogicNode check = guard.getCondition();
+            guard.replaceAndDelete(predicate);
+            GraphUtil.tryKillUnused(check);
+            PREDICATED_GUARDS.increment();
+        }
+    }
+
+    /**
+     * Determines if {@code block} belongs to {@code loop} but not to an inner loop and is executed
+     * in each iteration of the loop that does not exit.
+     */
+    private static boolean isExecutedInEachIteration(Block block, LoopEx loop, ControlFlowGraph cfg) {
+        if (block.getLoop() != loop.loop() || !AbstractControlFlowGraph.dominates(cfg.blockFor(loop.counted().getBody()), block)) {
+            return false;
+        }
+        for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
+            if (!AbstractControlFlowGraph.dominates(block, cfg.blockFor(loopEnd))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines if {@code guard} is a bounds check of an induction variable that is linear in the
+     * counter of {@code loop} against a loop invariant length. The length must be known to be
+     * non-negative, since the predicate compares sign extended 64 bit values, which only agrees
+     * with the unsigned 32 bit comparison of the guard for non-negative lengths.
+     */
+    private static boolean isPredicable(GuardNode guard, LoopEx loop) {
+        if (guard.isNegated() || guard.getReason() != DeoptimizationReason.BoundsCheckException || !(guard.getCondition() instanceof IntegerBelowNode)) {
+            return false;
+        }
+        IntegerBelowNode check = (IntegerBelowNode) guard.getCondition();
+        if (!loop.isOutsideLoop(check.getY())) {
+            return false;
+        }
+        IntegerStamp lengthStamp = (IntegerStamp) check.getY().stamp();
+        if (lengthStamp.getBits() != 32 || !lengthStamp.isPositive()) {
+            return false;
+        }
+        InductionVariable iv = loop.getInductionVariables().get(check.getX());
+        return iv != null && isLinearInCounter(iv, loop.counted().getCounter());
+    }
+
+    /**
+     * Determines if {@code iv} is {@code counter}, {@code a * counter}, {@code counter + b} or
+     * {@code a * counter + b}. The values of these induction variables can be computed exactly with
+     * 64 bit arithmetic.
+     */
+    private static boolean isLinearInCounter(InductionVariable iv, InductionVariable counter) {
+        InductionVariable current = iv;
+        if (current instanceof DerivedOffsetInductionVariable) {
+            current = ((DerivedOffsetInductionVariable) current).getBase();
+        }
+        if (current instanceof DerivedScaledInductionVariable) {
+            current = ((DerivedScaledInductionVariable) current).getBase();
+        }
+        return current == counter;
+    }
+
+    /**
+     * Computes the value of {@code iv} for the counter value {@code counterValue}.
+     */
+    private static ValueNode valueAt(InductionVariable iv, ValueNode counterValue, Stamp stamp) {
+        StructuredGraph graph = counterValue.graph();
+        if (iv instanceof DerivedOffsetInductionVariable) {
+            DerivedOffsetInductionVariable offsetIv = (DerivedOffsetInductionVariable) iv;
+            ValueNode base = valueAt(offsetIv.getBase(), counterValue, stamp);
+            ValueNode offset = IntegerConvertNode.convert(offsetIv.getOffset(), stamp, graph);
+            if (offsetIv.valueNode() instanceof AddNode) {
+                return add(graph, base, offset);
+            } else if (((SubNode) offsetIv.valueNode()).getX() == offsetIv.getBase().valueNode()) {
+                return sub(graph, base, offset);
+            } else {
+                return sub(graph, offset, base);
+            }
+        } else if (iv instanceof DerivedScaledInductionVariable) {
+            DerivedScaledInductionVariable scaledIv = (DerivedScaledInductionVariable) iv;
+            ValueNode base = valueAt(scaledIv.getBase(), counterValue, stamp);
+            return mul(graph, base, IntegerConvertNode.convert(scaledIv.getScale(), stamp, graph));
+        }
+        return counterValue;
+    }
+}
@@ -30,17 +30,25 @@ import java.util.List;
 
 import com.oracle.graal.graph.Graph.Mark;
 import com.oracle.graal.graph.Position;
+import com.oracle.graal.loop.CountedLoopInfo;
 import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.LoopFragmentInside;
 import com.oracle.graal.loop.LoopFragmentWhole;
+import com.oracle.graal.loop.LoopsData;
 import com.oracle.graal.nodeinfo.InputType;
 import com.oracle.graal.nodes.AbstractBeginNode;
 import com.oracle.graal.nodes.BeginNode;
 import com.oracle.graal.nodes.ControlSplitNode;
 import com.oracle.graal.nodes.IfNode;
+import com.oracle.graal.nodes.LogicConstantNode;
+import com.oracle.graal.nodes.LogicNegationNode;
+import com.oracle.graal.nodes.LogicNode;
 import com.oracle.graal.nodes.LoopBeginNode;
+import com.oracle.graal.nodes.LoopExitNode;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.nodes.extended.SwitchNode;
+import com.oracle.graal.nodes.util.GraphUtil;
 import com.oracle.graal.phases.common.CanonicalizerPhase;
 import com.oracle.graal.phases.tiers.PhaseContext;
 
@@ -73,6 +81,59 @@ public abstract class LoopTransformations {
         }
     }
 
+    /**
+     * Partially unrolls a counted loop such that one iteration of the loop runs
+     * {@code unrollFactor} copies of the loop body.
+     * <p>
+     * A duplicate of the loop is inserted after the exit of the loop's limit test. This post loop
+     * runs the iterations that remain after the main loop. The limit test of the main loop is
+     * strengthened such that the main loop only starts an iteration if all copies of the body stay
+     * within the limit, which makes the limit tests of the copies redundant. The main loop is then
+     * unrolled by repeatedly appending a copy of its body to itself.
+     */
+    public static void partialUnroll(LoopEx loop, int unrollFactor, PhaseContext context, CanonicalizerPhase canonicalizer) {
+        assert loop.isCounted() && unrollFactor > 1 && Integer.bitCount(unrollFactor) == 1;
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        StructuredGraph graph = loopBegin.graph();
+        IfNode limitTest = counted.getLimitTest();
+        boolean bodyIsTrueSuccessor = limitTest.trueSuccessor() == counted.getBody();
+        LoopExitNode limitExit = (LoopExitNode) limitTest.successor(!bodyIsTrueSuccessor);
+        Mark mark = graph.getMark();
+
+        // the post loop inherits the flag
+        loopBegin.setPartiallyUnrolled();
+        LoopFragmentWhole postLoop = loop.whole().insertDuplicateAfter(limitExit);
+        double frequency = loopBegin.loopFrequency();
+        postLoop.getDuplicatedNode(loopBegin).setLoopFrequency(Math.min(frequency, unrollFactor));
+        loopBegin.setLoopFrequency(Math.max(1.0, frequency / unrollFactor));
+
+        LogicNode condition = limitTest.condition();
+        LogicNode unrolledCondition = counted.createUnrolledLimitTest(unrollFactor);
+        limitTest.setCondition(bodyIsTrueSuccessor ? unrolledCondition : graph.unique(new LogicNegationNode(unrolledCondition)));
+        GraphUtil.tryKillUnused(condition);
+        loop.invalidateFragments();
+
+        LoopEx mainLoop = loop;
+        for (int factor = 1; factor < unrollFactor; factor *= 2) {
+            if (factor > 1) {
+                mainLoop = new LoopsData(graph).loop(loopBegin);
+                if (mainLoop == null) {
+                    break;
+                }
+            }
+            LoopFragmentInside duplicate = mainLoop.inside().duplicate();
+            duplicate.appendInside(mainLoop);
+            IfNode duplicateLimitTest = duplicate.getDuplicatedNode(limitTest);
+            duplicateLimitTest.setCondition(LogicConstantNode.forBoolean(!loopBegin.isLoopExit(duplicateLimitTest.trueSuccessor()), graph));
+            canonicalizer.applyIncremental(graph, context, mark);
+            mark = graph.getMark();
+            if (loopBegin.isDeleted() || limitTest.isDeleted()) {
+                break;
+            }
+        }
+    }
+
     public static void unswitch(LoopEx loop, List<ControlSplitNode> controlSplitNodeSet) {
         ControlSplitNode firstNode = controlSplitNodeSet.iterator().next();
         LoopFragmentWhole originalLoop = loop.whole();
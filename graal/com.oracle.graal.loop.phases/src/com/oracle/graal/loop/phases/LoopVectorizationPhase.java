@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oracle.graal.compiler.common.calc.VectorOperation;
+import com.oracle.graal.compiler.common.type.StampFactory;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.graph.Node;
+import com.oracle.graal.graph.spi.Canonicalizable.BinaryCommutative;
+import com.oracle.graal.loop.BasicInductionVariable;
+import com.oracle.graal.loop.CountedLoopInfo;
+import com.oracle.graal.loop.InductionVariable;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.LoopsData;
+import com.oracle.graal.nodes.AbstractEndNode;
+import com.oracle.graal.nodes.BeginNode;
+import com.oracle.graal.nodes.ConstantNode;
+import com.oracle.graal.nodes.EndNode;
+import com.oracle.graal.nodes.FixedNode;
+import com.oracle.graal.nodes.FixedWithNextNode;
+import com.oracle.graal.nodes.FrameState;
+import com.oracle.graal.nodes.IfNode;
+import com.oracle.graal.nodes.LogicNode;
+import com.oracle.graal.nodes.LoopBeginNode;
+import com.oracle.graal.nodes.MergeNode;
+import com.oracle.graal.nodes.PiNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.ValuePhiNode;
+import com.oracle.graal.nodes.VirtualState.NodeClosure;
+import com.oracle.graal.nodes.calc.AddNode;
+import com.oracle.graal.nodes.calc.AndNode;
+import com.oracle.graal.nodes.calc.BinaryArithmeticNode;
+import com.oracle.graal.nodes.calc.ConditionalNode;
+import com.oracle.graal.nodes.calc.IntegerLessThanNode;
+import com.oracle.graal.nodes.calc.IsNullNode;
+import com.oracle.graal.nodes.calc.MulNode;
+import com.oracle.graal.nodes.calc.OrNode;
+import com.oracle.graal.nodes.calc.SubNode;
+import com.oracle.graal.nodes.calc.XorNode;
+import com.oracle.graal.nodes.extended.BranchProbabilityNode;
+import com.oracle.graal.nodes.java.AccessIndexedNode;
+import com.oracle.graal.nodes.java.ArrayLengthNode;
+import com.oracle.graal.nodes.java.LoadIndexedNode;
+import com.oracle.graal.nodes.java.StoreIndexedNode;
+import com.oracle.graal.nodes.java.VectorizedArrayOpNode;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.tiers.PhaseContext;
+
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Vectorizes innermost counted loops of the form
+ *
+ * <pre>
+ * for (int i = start; i &lt; end; i++) {
+ *     dst[i] = src1[i] op src2[i]; // or src1[i] op scalar, src1[i] or scalar
+ * }
+ * </pre>
+ *
+ * where all arrays have the same primitive element kind, {@code op} is a
+ * {@linkplain VectorOperation#isSupported supported} operation and all arrays, {@code end} and
+ * {@code scalar} are loop invariant. Since every element is only accessed at the index of its own
+ * iteration, the iterations are independent even if the arrays alias.
+ *
+ * A {@link VectorizedArrayOpNode} that processes as many whole vectors as possible is inserted
+ * before the loop. The range of the vectors is clamped to the lengths of all accessed arrays and
+ * the vectors are skipped if an array is null or {@code start} is negative, so all exceptions are
+ * thrown by the original loop, which starts at the first element that was not processed and so
+ * remains as the scalar loop for the remaining iterations.
+ */
+public class LoopVectorizationPhase extends BasePhase<PhaseContext> {
+
+    private static final DebugCounter VECTORIZED_LOOPS = Debug.counter("VectorizedLoops");
+
+    /** The size in bytes of the vectors of the target. */
+    private final int vectorSize;
+
+    public LoopVectorizationPhase(int vectorSize) {
+        this.vectorSize = vectorSize;
+    }
+
+    /**
+     * The operation applied to the arrays by the body of a vectorizable loop.
+     */
+    private static final class VectorizableLoop {
+        final LoopEx loop;
+        final VectorOperation op;
+        final JavaKind kind;
+        /** All arrays accessed in the loop body, including {@link #dst}. */
+        final Set<ValueNode> arrays;
+        final ValueNode dst;
+        final ValueNode src1;
+        final ValueNode src2;
+        final ValueNode scalar;
+
+        VectorizableLoop(LoopEx loop, VectorOperation op, JavaKind kind, Set<ValueNode> arrays, ValueNode dst, ValueNode src1, ValueNode src2, ValueNode scalar) {
+            this.loop = loop;
+            this.op = op;
+            this.kind = kind;
+            this.arrays = arrays;
+            this.dst = dst;
+            this.src1 = src1;
+            this.src2 = src2;
+            this.scalar = scalar;
+        }
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        if (!graph.hasLoops()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        List<VectorizableLoop> vectorizable = new ArrayList<>();
+        for (LoopEx loop : loops.countedLoops()) {
+            VectorizableLoop match = match(loop);
+            if (match != null) {
+                vectorizable.add(match);
+            }
+        }
+        for (VectorizableLoop match : vectorizable) {
+            Debug.log("Vectorize %s: %s %s", match.loop, match.op, match.kind);
+            vectorize(graph, match);
+            VECTORIZED_LOOPS.increment();
+            Debug.dump(Debug.INFO_LOG_LEVEL, graph, "Vectorized %s", match.loop);
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private VectorizableLoop match(LoopEx loop) {
+        if (!loop.loop().getChildren().isEmpty()) {
+            return null;
+        }
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (!(counter instanceof BasicInductionVariable) || counted.getDirection() != Direction.Up || counted.isLimitIncluded() || !counter.isConstantStride() || counter.constantStride() != 1 ||
+                        counted.getStamp().getBits() != 32) {
+            return null;
+        }
+        if (loopBegin.getLoopEndCount() != 1 || loopBegin.loopExits().count() != 1 || loopBegin.phis().count() != 1 || loopBegin.stateAfter() == null ||
+                        loopBegin.next() != counted.getLimitTest()) {
+            return null;
+        }
+
+        // The body may only consist of array loads and a single array store
+        ValueNode phi = counter.valueNode();
+        List<LoadIndexedNode> loads = new ArrayList<>();
+        StoreIndexedNode store = null;
+        FixedNode node = counted.getBody().next();
+        while (node instanceof FixedWithNextNode) {
+            if (node instanceof LoadIndexedNode) {
+                loads.add((LoadIndexedNode) node);
+            } else if (node instanceof StoreIndexedNode && store == null) {
+                store = (StoreIndexedNode) node;
+            } else {
+                return null;
+            }
+            node = ((FixedWithNextNode) node).next();
+        }
+        if (store == null || node != loopBegin.loopEnds().first()) {
+            return null;
+        }
+
+        JavaKind kind = store.elementKind();
+        if (kind != JavaKind.Int && kind != JavaKind.Long && kind != JavaKind.Float && kind != JavaKind.Double) {
+            return null;
+        }
+        Set<ValueNode> arrays = new LinkedHashSet<>();
+        List<AccessIndexedNode> accesses = new ArrayList<>(loads);
+        accesses.add(store);
+        for (AccessIndexedNode access : accesses) {
+            if (access.index() != phi || access.elementKind() != kind || !loop.isOutsideLoop(access.array())) {
+                return null;
+            }
+            arrays.add(access.array());
+        }
+
+        VectorOperation op;
+        ValueNode src1 = null;
+        ValueNode src2 = null;
+        ValueNode scalar = null;
+        ValueNode value = store.value();
+        if (loads.contains(value)) {
+            op = VectorOperation.MOVE;
+            src1 = ((LoadIndexedNode) value).array();
+        } else if (loop.isOutsideLoop(value)) {
+            op = VectorOperation.MOVE;
+            scalar = value;
+        } else {
+            op = operationFor(value);
+            if (op == null) {
+                return null;
+            }
+            BinaryArithmeticNode<?> arithmetic = (BinaryArithmeticNode<?>) value;
+            ValueNode x = arithmetic.getX();
+            ValueNode y = arithmetic.getY();
+            if (!loads.contains(x) && arithmetic instanceof BinaryCommutative) {
+                x = arithmetic.getY();
+                y = arithmetic.getX();
+            }
+            if (!loads.contains(x)) {
+                return null;
+            }
+            src1 = ((LoadIndexedNode) x).array();
+            if (loads.contains(y)) {
+                src2 = ((LoadIndexedNode) y).array();
+            } else if (loop.isOutsideLoop(y)) {
+                scalar = y;
+            } else {
+                return null;
+            }
+        }
+        if (!op.isSupported(kind)) {
+            return null;
+        }
+
+        int elementsPerVector = vectorSize / kind.getByteCount();
+        if (counted.isConstantMaxTripCount() && counted.constantMaxTripCount() < 2 * elementsPerVector) {
+            return null;
+        }
+        return new VectorizableLoop(loop, op, kind, arrays, store.array(), src1, src2, scalar);
+    }
+
+    private static VectorOperation operationFor(ValueNode value) {
+        if (value instanceof AddNode) {
+            return VectorOperation.ADD;
+        } else if (value instanceof SubNode) {
+            return VectorOperation.SUB;
+        } else if (value instanceof MulNode) {
+            return VectorOperation.MUL;
+        } else if (value instanceof AndNode) {
+            return VectorOperation.AND;
+        } else if (value instanceof OrNode) {
+            return VectorOperation.OR;
+        } else if (value instanceof XorNode) {
+            return VectorOperation.XOR;
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the vectorized iterations before the loop and makes the loop start at the first
+     * iteration that was not processed.
+     */
+    private static void vectorize(StructuredGraph graph, VectorizableLoop match) {
+        LoopEx loop = match.loop;
+        LoopBeginNode loopBegin = loop.loopBegin();
+        CountedLoopInfo counted = loop.counted();
+        ValuePhiNode phi = (ValuePhiNode) counted.getCounter().valueNode();
+        AbstractEndNode forwardEnd = loopBegin.forwardEnd();
+        ValueNode start = counted.getStart();
+
+        BeginNode vectorBegin = graph.add(new BeginNode());
+        BeginNode skipBegin = graph.add(new BeginNode());
+
+        LogicNode skip = graph.unique(new IntegerLessThanNode(start, ConstantNode.forInt(0, graph)));
+        Map<ValueNode, ValueNode> nonNullArrays = new LinkedHashMap<>();
+        ValueNode end = counted.getLimit();
+        FixedWithNextNode last = vectorBegin;
+        for (ValueNode array : match.arrays) {
+            skip = LogicNode.or(skip, graph.unique(new IsNullNode(array)), BranchProbabilityNode.NOT_FREQUENT_PROBABILITY);
+            ValueNode nonNullArray = graph.unique(new PiNode(array, array.stamp().join(StampFactory.objectNonNull()), vectorBegin));
+            nonNullArrays.put(array, nonNullArray);
+            ArrayLengthNode length = graph.add(new ArrayLengthNode(nonNullArray));
+            last.setNext(length);
+            last = length;
+            end = graph.unique(new ConditionalNode(graph.unique(new IntegerLessThanNode(end, length)), end, length));
+        }
+
+        VectorizedArrayOpNode vector = graph.add(new VectorizedArrayOpNode(match.op, match.kind, nonNullArrays.get(match.dst), nonNullArrays.get(match.src1), nonNullArrays.get(match.src2),
+                        match.scalar, start, end));
+        vector.setStateAfter(loopEntryState(loopBegin, phi, vector));
+        last.setNext(vector);
+        EndNode vectorEnd = graph.add(new EndNode());
+        vector.setNext(vectorEnd);
+
+        EndNode skipEnd = graph.add(new EndNode());
+        skipBegin.setNext(skipEnd);
+
+        MergeNode merge = graph.add(new MergeNode());
+        merge.addForwardEnd(vectorEnd);
+        merge.addForwardEnd(skipEnd);
+        ValuePhiNode newStart = graph.addWithoutUnique(new ValuePhiNode(phi.stamp().unrestricted(), merge, new ValueNode[]{vector, start}));
+        merge.setStateAfter(loopEntryState(loopBegin, phi, newStart));
+
+        IfNode ifNode = graph.add(new IfNode(skip, skipBegin, vectorBegin, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+        forwardEnd.replaceAtPredecessor(ifNode);
+        merge.setNext(forwardEnd);
+        phi.setValueAt(forwardEnd, newStart);
+    }
+
+    /**
+     * Creates the state at the entry of the loop in which the counter has the value {@code value}.
+     */
+    private static FrameState loopEntryState(LoopBeginNode loopBegin, ValuePhiNode counter, ValueNode value) {
+        FrameState state = loopBegin.stateAfter().duplicateWithVirtualState();
+        state.applyToNonVirtual(new NodeClosure<ValueNode>() {
+
+            @Override
+            public void apply(Node from, ValueNode node) {
+                if (node == counter) {
+                    from.replaceFirstInput(counter, value);
+                }
+            }
+        });
+        return state;
+    }
+
+    @Override
+    public boolean checkContract() {
+        return false;
+    }
+}
@@ -32,6 +32,8 @@ import com.oracle.graal.loop.InductionVariable.Direction;
 import com.oracle.graal.nodes.AbstractBeginNode;
 import com.oracle.graal.nodes.ConstantNode;
 import com.oracle.graal.nodes.GuardNode;
+import com.oracle.graal.nodes.IfNode;
+import com.oracle.graal.nodes.LogicNode;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.nodes.calc.CompareNode;
@@ -141,6 +143,35 @@ public class CountedLoopInfo {
         return body;
     }
 
+    public IfNode getLimitTest() {
+        return (IfNode) body.predecessor();
+    }
+
+    /**
+     * Creates the condition under which one iteration of this loop, partially unrolled by
+     * {@code unrollFactor}, can run all copies of the loop body without passing the limit. If the
+     * adjusted limit overflows, the condition is always false.
+     */
+    public LogicNode createUnrolledLimitTest(int unrollFactor) {
+        assert unrollFactor > 1 && iv.isConstantStride();
+        StructuredGraph graph = iv.valueNode().graph();
+        IntegerStamp stamp = getStamp();
+        long delta = (unrollFactor - 1) * Math.abs(iv.constantStride()) - (oneOff ? 1 : 0);
+        ConstantNode deltaNode = ConstantNode.forIntegerStamp(stamp, delta, graph);
+        if (iv.direction() == Direction.Up) {
+            long min = CodeUtil.minValue(stamp.getBits());
+            LogicNode overflow = graph.unique(new IntegerLessThanNode(end, ConstantNode.forIntegerStamp(stamp, min + delta, graph)));
+            ValueNode limit = graph.unique(new ConditionalNode(overflow, ConstantNode.forIntegerStamp(stamp, min, graph), sub(graph, end, deltaNode)));
+            return graph.unique(new IntegerLessThanNode(iv.valueNode(), limit));
+        } else {
+            assert iv.direction() == Direction.Down;
+            long max = CodeUtil.maxValue(stamp.getBits());
+            LogicNode overflow = graph.unique(new IntegerLessThanNode(ConstantNode.forIntegerStamp(stamp, max - delta, graph), end));
+            ValueNode limit = graph.unique(new ConditionalNode(overflow, ConstantNode.forIntegerStamp(stamp, max, graph), add(graph, end, deltaNode)));
+            return graph.unique(new IntegerLessThanNode(limit, iv.valueNode()));
+        }
+    }
+
     public Direction getDirection() {
         return iv.direction();
     }
@@ -46,6 +46,7 @@ import com.oracle.graal.options.OptionType;
 import com.oracle.graal.options.OptionValue;
 
 import jdk.vm.ci.code.BytecodeFrame;
+import jdk.vm.ci.code.CodeUtil;
 
 public class DefaultLoopPolicies implements LoopPolicies {
     @Option(help = "", type = OptionType.Expert) public static final OptionValue<Integer> LoopUnswitchMaxIncrease = new OptionValue<>(500);
@@ -56,24 +57,16 @@ public class DefaultLoopPolicies implements LoopPolicies {
     @Option(help = "", type = OptionType.Expert) public static final OptionValue<Integer> FullUnrollMaxIterations = new OptionValue<>(600);
     @Option(help = "", type = OptionType.Expert) public static final OptionValue<Integer> ExactFullUnrollMaxNodes = new OptionValue<>(1200);
 
+    @Option(help = "", type = OptionType.Expert) public static final OptionValue<Integer> PartialUnrollMaxFactor = new OptionValue<>(8);
+    @Option(help = "", type = OptionType.Expert) public static final OptionValue<Integer> PartialUnrollMaxNodes = new OptionValue<>(400);
+
     @Override
     public boolean shouldPeel(LoopEx loop, ControlFlowGraph cfg) {
         LoopBeginNode loopBegin = loop.loopBegin();
         double entryProbability = cfg.blockFor(loopBegin.forwardEnd()).probability();
         if (entryProbability > MinimumPeelProbability.getValue() && loop.size() + loopBegin.graph().getNodeCount() < MaximumDesiredSize.getValue()) {
             // check whether we're allowed to peel this loop
-            for (Node node : loop.inside().nodes()) {
-                if (node instanceof ControlFlowAnchorNode) {
-                    return false;
-                }
-                if (node instanceof FrameState) {
-                    FrameState frameState = (FrameState) node;
-                    if (frameState.bci == BytecodeFrame.AFTER_EXCEPTION_BCI || frameState.bci == BytecodeFrame.UNWIND_BCI) {
-                        return false;
-                    }
-                }
-            }
-            return true;
+            return canDuplicateLoop(loop);
         } else {
             return false;
         }
@@ -91,21 +84,63 @@ public class DefaultLoopPolicies implements LoopPolicies {
         int size = Math.max(1, loop.size() - 1 - loop.loopBegin().phis().count());
         if (maxTrips <= FullUnrollMaxIterations.getValue() && size * (maxTrips - 1) <= maxNodes) {
             // check whether we're allowed to unroll this loop
-            for (Node node : loop.inside().nodes()) {
-                if (node instanceof ControlFlowAnchorNode) {
+            return canDuplicateLoop(loop);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean shouldPartialUnroll(LoopEx loop) {
+        if (!loop.isCounted() || !loop.loop().getChildren().isEmpty()) {
+            return false;
+        }
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (loopBegin.isPartiallyUnrolled() || loopBegin.loopEnds().count() != 1 || !loopBegin.graph().hasValueProxies()) {
+            return false;
+        }
+        // the copies of the loop body rely on the counter advancing by a constant stride
+        InductionVariable counter = loop.counted().getCounter();
+        if (!counter.isConstantStride() || counter.constantStride() == Long.MIN_VALUE) {
+            return false;
+        }
+        if (!(counter instanceof BasicInductionVariable) && !(counter instanceof DerivedOffsetInductionVariable && ((DerivedOffsetInductionVariable) counter).getBase() instanceof BasicInductionVariable)) {
+            return false;
+        }
+        return partialUnrollFactor(loop) > 1 && canDuplicateLoop(loop);
+    }
+
+    @Override
+    public int partialUnrollFactor(LoopEx loop) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        int maxNodes = Math.min(PartialUnrollMaxNodes.getValue(), Math.max(0, MaximumDesiredSize.getValue() - loopBegin.graph().getNodeCount()));
+        int size = Math.max(1, loop.size() - 1 - loopBegin.phis().count());
+        long stride = Math.abs(loop.counted().getCounter().constantStride());
+        long maxValue = CodeUtil.maxValue(loop.counted().getStamp().getBits());
+        int factor = 1;
+        /*
+         * The post loop and the copies in the main loop add factor times the loop body. The main
+         * loop should still run at least two iterations.
+         */
+        while (factor * 2 <= PartialUnrollMaxFactor.getValue() && size * factor * 2 <= maxNodes && factor * 4 <= loopBegin.loopFrequency() && stride <= maxValue / (factor * 2 - 1)) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    private static boolean canDuplicateLoop(LoopEx loop) {
+        for (Node node : loop.inside().nodes()) {
+            if (node instanceof ControlFlowAnchorNode) {
+                return false;
+            }
+            if (node instanceof FrameState) {
+                FrameState frameState = (FrameState) node;
+                if (frameState.bci == BytecodeFrame.AFTER_EXCEPTION_BCI || frameState.bci == BytecodeFrame.UNWIND_BCI) {
                     return false;
                 }
-                if (node instanceof FrameState) {
-                    FrameState frameState = (FrameState) node;
-                    if (frameState.bci == BytecodeFrame.AFTER_EXCEPTION_BCI || frameState.bci == BytecodeFrame.UNWIND_BCI) {
-                        return false;
-                    }
-                }
             }
-            return true;
-        } else {
-            return false;
         }
+        return true;
     }
 
     @Override
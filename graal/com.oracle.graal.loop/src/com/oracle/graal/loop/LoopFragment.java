@@ -326,12 +326,20 @@ public abstract class LoopFragment {
      * the original fragment's exits.
      */
     protected void mergeEarlyExits() {
+        mergeEarlyExits(null);
+    }
+
+    /**
+     * Merges the early exits that were duplicated as part of this fragment, except for
+     * {@code excludedExit}, with the original fragment's exits.
+     */
+    protected void mergeEarlyExits(LoopExitNode excludedExit) {
         assert isDuplicate();
         StructuredGraph graph = graph();
         for (AbstractBeginNode earlyExit : LoopFragment.toHirBlocks(original().loop().loop().getExits())) {
             LoopExitNode loopEarlyExit = (LoopExitNode) earlyExit;
             FixedNode next = loopEarlyExit.next();
-            if (loopEarlyExit.isDeleted() || !this.original().contains(loopEarlyExit)) {
+            if (loopEarlyExit.isDeleted() || loopEarlyExit == excludedExit || !this.original().contains(loopEarlyExit)) {
                 continue;
             }
             AbstractBeginNode newEarlyExit = getDuplicatedNode(loopEarlyExit);
@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.loop;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,7 @@ import com.oracle.graal.nodes.BeginNode;
 import com.oracle.graal.nodes.EndNode;
 import com.oracle.graal.nodes.FrameState;
 import com.oracle.graal.nodes.GuardPhiNode;
+import com.oracle.graal.nodes.GuardProxyNode;
 import com.oracle.graal.nodes.LoopBeginNode;
 import com.oracle.graal.nodes.LoopEndNode;
 import com.oracle.graal.nodes.LoopExitNode;
@@ -49,7 +51,9 @@ import com.oracle.graal.nodes.StateSplit;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.nodes.ValuePhiNode;
+import com.oracle.graal.nodes.ValueProxyNode;
 import com.oracle.graal.nodes.VirtualState.NodeClosure;
+import com.oracle.graal.nodes.extended.GuardingNode;
 import com.oracle.graal.nodes.memory.MemoryPhiNode;
 import com.oracle.graal.nodes.util.GraphUtil;
 
@@ -74,6 +78,17 @@ public class LoopFragmentInside extends LoopFragment {
         }
     };
 
+    private final DuplicationReplacement dataFixWithinAfter = new DuplicationReplacement() {
+
+        @Override
+        public Node replacement(Node oriInput) {
+            if (!(oriInput instanceof ValueNode)) {
+                return oriInput;
+            }
+            return primAfter((ValueNode) oriInput);
+        }
+    };
+
     public LoopFragmentInside(LoopEx loop) {
         super(loop);
     }
@@ -93,9 +108,78 @@ public class LoopFragmentInside extends LoopFragment {
         return (LoopFragmentInside) super.original();
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Appends this duplicate of the loop body to the original loop body: the duplicate starts where
+     * the original body reaches the loop end and itself ends in the loop end, such that one
+     * iteration of the loop executes the body twice. The exits of the duplicate are exits of the
+     * loop as well and are merged with the original exits. The loop must have a single loop end.
+     */
     public void appendInside(LoopEx loop) {
-        // TODO (gd)
+        assert this.isDuplicate() && this.original().loop() == loop;
+        LoopBeginNode loopBegin = loop.loopBegin();
+        assert loopBegin.loopEnds().count() == 1;
+        LoopEndNode loopEnd = loopBegin.loopEnds().first();
+        StructuredGraph graph = graph();
+
+        patchNodes(dataFixWithinAfter);
+
+        for (LoopExitNode exit : original().exits().snapshot()) {
+            AbstractBeginNode begin = getDuplicatedNode(exit);
+            if (begin == null) {
+                continue;
+            }
+            LoopExitNode newExit = graph.add(new LoopExitNode(loopBegin));
+            graph.replaceFixedWithFixed(begin, newExit);
+            putDuplicatedNode(exit, newExit);
+            for (ProxyNode proxy : exit.proxies()) {
+                ValueNode value = proxy.value();
+                if (value == null) {
+                    continue;
+                }
+                ProxyNode newProxy;
+                if (proxy instanceof ValueProxyNode) {
+                    newProxy = ProxyNode.forValue(primAfter(value), newExit, graph);
+                } else if (proxy instanceof GuardProxyNode) {
+                    newProxy = ProxyNode.forGuard((GuardingNode) primAfter(value), newExit, graph);
+                } else {
+                    throw GraalError.shouldNotReachHere();
+                }
+                putDuplicatedNode(proxy, newProxy);
+            }
+            FrameState exitState = exit.stateAfter();
+            if (exitState != null) {
+                FrameState newExitState = exitState.duplicateWithVirtualState();
+                newExitState.applyToNonVirtual(new NodeClosure<ValueNode>() {
+
+                    @Override
+                    public void apply(Node from, ValueNode node) {
+                        ValueNode value = primAfter(node);
+                        if (value != node) {
+                            from.replaceFirstInput(node, value);
+                        }
+                    }
+                });
+                newExit.setStateAfter(newExitState);
+            }
+        }
+
+        // the loop phis continue with the values computed by the duplicate
+        List<PhiNode> phis = loopBegin.phis().snapshot();
+        List<ValueNode> backValues = new ArrayList<>(phis.size());
+        for (PhiNode phi : phis) {
+            backValues.add(primAfter(phi.valueAt(loopEnd)));
+        }
+
+        AbstractBeginNode entry = getDuplicatedNode(loopBegin);
+        AbstractEndNode end = getDuplicatedNode(loopEnd);
+        loopEnd.replaceAtPredecessor(entry);
+        end.replaceAtPredecessor(loopEnd);
+        end.safeDelete();
+        for (int i = 0; i < phis.size(); i++) {
+            phis.get(i).setValueAt(loopEnd, backValues.get(i));
+        }
+
+        mergeEarlyExits();
     }
 
     @Override
@@ -337,6 +421,30 @@ public class LoopFragmentInside extends LoopFragment {
         }
     }
 
+    /**
+     * Gets the corresponding value in this fragment when it is appended to the original loop body.
+     * The loop phis are replaced by the values computed by the original body.
+     *
+     * @param b original value
+     * @return corresponding value in the appended duplicate
+     */
+    private ValueNode primAfter(ValueNode b) {
+        assert isDuplicate();
+        LoopBeginNode loopBegin = original().loop().loopBegin();
+        if (loopBegin.isPhiAtMerge(b)) {
+            PhiNode phi = (PhiNode) b;
+            return phi.valueAt(loopBegin.loopEnds().first());
+        } else if (nodesReady) {
+            ValueNode v = getDuplicatedNode(b);
+            if (v == null) {
+                return b;
+            }
+            return v;
+        } else {
+            return b;
+        }
+    }
+
     private AbstractBeginNode mergeEnds() {
         assert isDuplicate();
         List<EndNode> endsToMerge = new LinkedList<>();
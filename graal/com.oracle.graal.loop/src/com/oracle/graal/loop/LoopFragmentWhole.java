@@ -25,15 +25,24 @@ package com.oracle.graal.loop;
 import java.util.Collections;
 
 import com.oracle.graal.compiler.common.cfg.Loop;
+import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.graph.Graph;
 import com.oracle.graal.graph.Graph.DuplicationReplacement;
 import com.oracle.graal.graph.Node;
 import com.oracle.graal.graph.NodeBitMap;
 import com.oracle.graal.nodes.EndNode;
 import com.oracle.graal.nodes.FixedNode;
+import com.oracle.graal.nodes.FrameState;
+import com.oracle.graal.nodes.GuardPhiNode;
 import com.oracle.graal.nodes.LoopBeginNode;
+import com.oracle.graal.nodes.LoopExitNode;
+import com.oracle.graal.nodes.PhiNode;
+import com.oracle.graal.nodes.ProxyNode;
+import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.StructuredGraph.GuardsStage;
 import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.ValuePhiNode;
+import com.oracle.graal.nodes.VirtualState;
 import com.oracle.graal.nodes.cfg.Block;
 
 public class LoopFragmentWhole extends LoopFragment {
@@ -53,6 +62,57 @@ public class LoopFragmentWhole extends LoopFragment {
         return loopFragmentWhole;
     }
 
+    /**
+     * Duplicates this loop and inserts the duplicate after {@code exit}. The duplicate starts with
+     * the values of the loop phis at {@code exit} and continues with the code that followed
+     * {@code exit}, i.e., it runs the iterations that remain when the original loop leaves through
+     * {@code exit}. The other exits of the two loops are merged.
+     *
+     * @param exit an exit of this loop that is taken before any other node of the loop body, such
+     *            that the loop phis hold the values of the current iteration at the exit
+     * @return the duplicate
+     */
+    public LoopFragmentWhole insertDuplicateAfter(LoopExitNode exit) {
+        assert !isDuplicate() && exit.loopBegin() == loop().loopBegin();
+        LoopFragmentWhole duplicate = new LoopFragmentWhole(this);
+        duplicate.patchNodes(null);
+        duplicate.mergeEarlyExits(exit);
+
+        StructuredGraph graph = graph();
+        LoopBeginNode loopBegin = loop().loopBegin();
+        LoopBeginNode newLoopBegin = duplicate.getDuplicatedNode(loopBegin);
+        LoopExitNode newExit = duplicate.getDuplicatedNode(exit);
+
+        FixedNode next = exit.next();
+        exit.setNext(null);
+        newExit.setNext(next);
+
+        // the code after the exit now uses the values computed by the duplicate
+        FrameState exitState = exit.stateAfter();
+        for (ProxyNode proxy : exit.proxies().snapshot()) {
+            ProxyNode newProxy = duplicate.getDuplicatedNode(proxy);
+            proxy.replaceAtMatchingUsages(newProxy, usage -> !(usage instanceof VirtualState && exitState != null && exitState.isPartOfThisState((VirtualState) usage)));
+        }
+        for (Node anchored : exit.anchored().snapshot()) {
+            anchored.replaceFirstInput(exit, newExit);
+        }
+
+        for (PhiNode phi : loopBegin.phis()) {
+            PhiNode newPhi = duplicate.getDuplicatedNode(phi);
+            ProxyNode initializer;
+            if (phi instanceof ValuePhiNode) {
+                initializer = ProxyNode.forValue(phi, exit, graph);
+            } else if (phi instanceof GuardPhiNode) {
+                initializer = ProxyNode.forGuard((GuardPhiNode) phi, exit, graph);
+            } else {
+                throw GraalError.shouldNotReachHere();
+            }
+            newPhi.setValueAt(newLoopBegin.forwardEnd(), initializer);
+        }
+        exit.setNext(newLoopBegin.forwardEnd());
+        return duplicate;
+    }
+
     private void reify() {
         assert this.isDuplicate();
 
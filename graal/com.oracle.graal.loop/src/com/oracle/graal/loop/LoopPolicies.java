@@ -32,6 +32,14 @@ public interface LoopPolicies {
 
     boolean shouldFullUnroll(LoopEx loop);
 
+    boolean shouldPartialUnroll(LoopEx loop);
+
+    /**
+     * Gets the number of copies of the loop body that one iteration of {@code loop} should run
+     * after partial unrolling. This is a power of two, or 1 if the loop should not be unrolled.
+     */
+    int partialUnrollFactor(LoopEx loop);
+
     boolean shouldTryUnswitch(LoopEx loop);
 
     boolean shouldUnswitch(LoopEx loop, List<ControlSplitNode> controlSplits);
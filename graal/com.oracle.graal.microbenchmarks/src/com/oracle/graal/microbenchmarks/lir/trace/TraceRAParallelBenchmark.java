@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.lir.trace;
+
+import static com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase.Options.TraceRAParallel;
+import static com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase.Options.TraceRAParallelMinTraces;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import com.oracle.graal.compiler.common.GraalOptions;
+import com.oracle.graal.lir.alloc.trace.TraceRegisterAllocationPhase;
+import com.oracle.graal.lir.gen.LIRGenerationResult;
+import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.microbenchmarks.graal.GraalBenchmark;
+import com.oracle.graal.microbenchmarks.lir.GraalCompilerState;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Benchmarks the {@link TraceRegisterAllocationPhase trace register allocation} with the traces
+ * allocated sequentially and {@linkplain TraceRegisterAllocationPhase.Options#TraceRAParallel
+ * concurrently}.
+ */
+public class TraceRAParallelBenchmark extends GraalBenchmark {
+
+    public static class State extends GraalCompilerState.AllocationStage {
+        @MethodDescString @Param({
+                        "java.util.HashMap#computeIfAbsent",
+                        "java.util.concurrent.ConcurrentHashMap#putVal",
+                        "java.util.TimSort#mergeHi"
+        }) public String method;
+
+        @Param({"false", "true"}) public boolean parallel;
+
+        @SuppressWarnings("try")
+        @Override
+        protected LIRSuites createLIRSuites() {
+            try (OverrideScope os = OptionValue.override(GraalOptions.TraceRA, true)) {
+                return super.createLIRSuites();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("try")
+        public LIRGenerationResult compile() {
+            try (OverrideScope os = OptionValue.override(TraceRAParallel, parallel, TraceRAParallelMinTraces, 0)) {
+                return super.compile();
+            }
+        }
+    }
+
+    @Benchmark
+    public LIRGenerationResult allocate(State s) {
+        return s.compile();
+    }
+}
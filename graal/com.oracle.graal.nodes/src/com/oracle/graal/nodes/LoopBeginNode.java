@@ -46,6 +46,7 @@ public final class LoopBeginNode extends AbstractMergeNode implements IterableNo
     protected int nextEndIndex;
     protected int unswitches;
     protected int inversionCount;
+    protected boolean partiallyUnrolled;
 
     /** See {@link LoopEndNode#canSafepoint} for more information. */
     boolean canEndsSafepoint;
@@ -215,6 +216,17 @@ public final class LoopBeginNode extends AbstractMergeNode implements IterableNo
         inversionCount = count;
     }
 
+    /**
+     * Determines whether this loop is the main loop or the post loop of a partially unrolled loop.
+     */
+    public boolean isPartiallyUnrolled() {
+        return partiallyUnrolled;
+    }
+
+    public void setPartiallyUnrolled() {
+        partiallyUnrolled = true;
+    }
+
     @Override
     public void simplify(SimplifierTool tool) {
         canonicalizePhis(tool);
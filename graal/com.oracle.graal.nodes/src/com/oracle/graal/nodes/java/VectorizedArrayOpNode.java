@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.nodes.java;
+
+import static com.oracle.graal.nodeinfo.InputType.Memory;
+import static com.oracle.graal.nodeinfo.NodeCycles.CYCLES_100;
+import static com.oracle.graal.nodeinfo.NodeSize.SIZE_50;
+
+import com.oracle.graal.compiler.common.LocationIdentity;
+import com.oracle.graal.compiler.common.calc.VectorOperation;
+import com.oracle.graal.compiler.common.type.StampFactory;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.nodeinfo.NodeInfo;
+import com.oracle.graal.nodes.NamedLocationIdentity;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.memory.AbstractMemoryCheckpoint;
+import com.oracle.graal.nodes.memory.MemoryCheckpoint;
+import com.oracle.graal.nodes.spi.LIRLowerable;
+import com.oracle.graal.nodes.spi.NodeLIRBuilderTool;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Applies a {@link VectorOperation} to the elements {@code [start, end)} of primitive arrays with
+ * vector instructions, i.e., {@code dst[i] = src1[i] op src2[i]} or {@code dst[i] = src1[i] op
+ * scalar}. A {@link VectorOperation#MOVE} stores {@code src1[i]} or, without a source array,
+ * {@code scalar}.
+ *
+ * Only whole vectors are processed. The result is the first index that was not processed, which
+ * lies in {@code [start, end]} and is {@code start} if {@code end <= start}. The arrays must be
+ * non-null, {@code start} must not be negative and {@code end} must not exceed the length of any of
+ * the arrays.
+ */
+@NodeInfo(allowedUsageTypes = Memory, cycles = CYCLES_100, size = SIZE_50)
+public final class VectorizedArrayOpNode extends AbstractMemoryCheckpoint implements LIRLowerable, MemoryCheckpoint.Single {
+
+    public static final NodeClass<VectorizedArrayOpNode> TYPE = NodeClass.create(VectorizedArrayOpNode.class);
+
+    protected final VectorOperation op;
+    /** {@link JavaKind} of the elements of all arrays. */
+    protected final JavaKind kind;
+
+    @Input ValueNode dst;
+    @OptionalInput ValueNode src1;
+    @OptionalInput ValueNode src2;
+    @OptionalInput ValueNode scalar;
+    @Input ValueNode start;
+    @Input ValueNode end;
+
+    public VectorizedArrayOpNode(VectorOperation op, JavaKind kind, ValueNode dst, ValueNode src1, ValueNode src2, ValueNode scalar, ValueNode start, ValueNode end) {
+        super(TYPE, StampFactory.forKind(JavaKind.Int));
+        assert op.isSupported(kind) : op + " " + kind;
+        assert (src1 == null) == (op == VectorOperation.MOVE && scalar != null) : "a source array is required unless a scalar is stored";
+        assert src2 == null || scalar == null : "at most one second operand";
+        this.op = op;
+        this.kind = kind;
+        this.dst = dst;
+        this.src1 = src1;
+        this.src2 = src2;
+        this.scalar = scalar;
+        this.start = start;
+        this.end = end;
+    }
+
+    public VectorOperation getOperation() {
+        return op;
+    }
+
+    public JavaKind getElementKind() {
+        return kind;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(kind);
+    }
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        Value src1Value = src1 == null ? Value.ILLEGAL : gen.operand(src1);
+        Value src2Value = src2 == null ? Value.ILLEGAL : gen.operand(src2);
+        Value scalarValue = scalar == null ? Value.ILLEGAL : gen.operand(scalar);
+        Value result = gen.getLIRGeneratorTool().emitVectorizedArrayOp(op, kind, gen.operand(dst), src1Value, src2Value, scalarValue, gen.operand(start), gen.operand(end));
+        gen.setResult(this, result);
+    }
+}
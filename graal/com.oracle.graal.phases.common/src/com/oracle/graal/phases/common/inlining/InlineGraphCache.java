@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases.common.inlining;
+
+import static com.oracle.graal.compiler.common.GraalOptions.InlineGraphCacheSize;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oracle.graal.bytecode.BytecodeStream;
+import com.oracle.graal.bytecode.Bytecodes;
+import com.oracle.graal.compiler.common.util.SizeBoundedCache;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.GraphDecoder;
+import com.oracle.graal.nodes.GraphEncoder;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.PhaseSuite;
+import com.oracle.graal.phases.tiers.HighTierContext;
+
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * A cache of the parsed and canonicalized graphs of inlining candidates that is shared by all
+ * compilations. The graphs are kept in {@link EncodedGraph} form and decoded into a new graph for
+ * each use. The cache is bounded by the estimated size of the cached graphs in bytes; when the
+ * bound is exceeded, the least recently used graphs are evicted.
+ *
+ * A graph is keyed by its method, the {@link AllowAssumptions} mode and everything in the
+ * {@link HighTierContext} that influences parsing. The graph builder suite is represented by the
+ * phases it consists of, so that the copies of a suite that are made for each compilation share
+ * their graphs. It is only used as long as it is still valid for the method:
+ * <ul>
+ * <li>Graphs that depend on assumptions are not cached, since the assumptions are not re-validated
+ * when a graph is taken from the cache.</li>
+ * <li>Graphs are only cached if the profile of the method is mature, and a cached graph is parsed
+ * again if the method deoptimized since it was parsed, so that speculations that failed are not
+ * inlined again.</li>
+ * <li>A cached graph is parsed again if the probability of one of the branches or switches of the
+ * method changed by more than {@link #PROBABILITY_TOLERANCE} since it was parsed, so that the
+ * branch probabilities of the graph do not go stale.</li>
+ * <li>A cached graph is parsed again if the bytecodes of the method changed, i.e., if its class
+ * was redefined.</li>
+ * </ul>
+ */
+public final class InlineGraphCache {
+
+    private static final DebugCounter CacheHits = Debug.counter("InlineGraphCacheHits");
+    private static final DebugCounter CacheMisses = Debug.counter("InlineGraphCacheMisses");
+    private static final DebugCounter CacheInvalidations = Debug.counter("InlineGraphCacheInvalidations");
+    private static final DebugCounter CacheEvictions = Debug.counter("InlineGraphCacheEvictions");
+
+    /**
+     * Estimated size of the fixed parts of an {@link EncodedGraph} and its cache entry.
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /**
+     * The maximum difference between the branch probabilities a graph was parsed with and the
+     * current branch probabilities of its method for which the graph is still used.
+     */
+    static final double PROBABILITY_TOLERANCE = 0.1;
+
+    private static volatile InlineGraphCache instance;
+
+    /**
+     * Returns the cache shared by all compilations, or {@code null} if it is disabled.
+     */
+    public static InlineGraphCache getInstance() {
+        InlineGraphCache result = instance;
+        if (result == null) {
+            int sizeInMB = InlineGraphCacheSize.getValue();
+            if (sizeInMB <= 0) {
+                return null;
+            }
+            synchronized (InlineGraphCache.class) {
+                result = instance;
+                if (result == null) {
+                    result = new InlineGraphCache(sizeInMB * 1024L * 1024L);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prints the statistics of the shared cache, if it was used.
+     */
+    public static void printStatistics(PrintStream out) {
+        InlineGraphCache cache = instance;
+        if (cache != null) {
+            long hits = cache.hits.get();
+            long lookups = hits + cache.misses.get();
+            out.printf("Inline graph cache: %d lookups, %d hits (%.1f%%), %d invalidations, %d evictions, %d graphs, %d of %d bytes%n", lookups, hits, lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+                            cache.invalidations.get(), cache.entries.getEvictions(), cache.entries.getCount(), cache.entries.getSize(), cache.entries.getMaxSize());
+        }
+    }
+
+    private final SizeBoundedCache<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public InlineGraphCache(long maxBytes) {
+        this.entries = new SizeBoundedCache<Key, Entry>(maxBytes) {
+            @Override
+            protected void evicted(Key key, Entry entry, long size) {
+                CacheEvictions.increment();
+            }
+        };
+    }
+
+    /**
+     * Returns a new graph decoded from the cached graph of a method, or {@code null} if there is
+     * no valid cached graph.
+     */
+    public StructuredGraph get(ResolvedJavaMethod method, HighTierContext context, StructuredGraph caller) {
+        Architecture architecture = context.getArchitecture();
+        if (architecture == null) {
+            return null;
+        }
+        Key key = new Key(method, context, caller);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            CacheMisses.increment();
+            return null;
+        }
+        if (!Arrays.equals(entry.code, method.getCode()) || !entry.isValid(method.getProfilingInfo())) {
+            entries.remove(key, entry);
+            invalidations.incrementAndGet();
+            CacheInvalidations.increment();
+            misses.incrementAndGet();
+            CacheMisses.increment();
+            return null;
+        }
+        hits.incrementAndGet();
+        CacheHits.increment();
+
+        StructuredGraph graph = new StructuredGraph(method, key.allowAssumptions);
+        if (!key.unsafeAccessTracking) {
+            graph.disableUnsafeAccessTracking();
+        }
+        new GraphDecoder(architecture).decode(graph, entry.graph);
+        for (ResolvedJavaMethod inlinedMethod : entry.graph.getInlinedMethods()) {
+            graph.recordInlinedMethod(inlinedMethod);
+        }
+        if (entry.hasUnsafeAccess) {
+            graph.markUnsafeAccess();
+        }
+        return graph;
+    }
+
+    /**
+     * Adds the graph of a method that was parsed in a context to the cache, if it can be cached.
+     */
+    public void put(ResolvedJavaMethod method, HighTierContext context, StructuredGraph caller, StructuredGraph graph) {
+        Architecture architecture = context.getArchitecture();
+        if (architecture == null || (graph.getAssumptions() != null && !graph.getAssumptions().isEmpty())) {
+            return;
+        }
+        ProfilingInfo profile = method.getProfilingInfo();
+        if (!profile.isMature()) {
+            return;
+        }
+        EncodedGraph encodedGraph = GraphEncoder.encodeSingleGraph(graph, architecture);
+        Entry entry = new Entry(encodedGraph, graph.hasUnsafeAccess(), method.getCode(), profile);
+        entries.put(new Key(method, context, caller), entry, entry.estimateSize());
+    }
+
+    /**
+     * Returns the estimated size in bytes of all cached graphs.
+     */
+    public long getSize() {
+        return entries.getSize();
+    }
+
+    /**
+     * Returns the number of cached graphs.
+     */
+    public int getCount() {
+        return entries.getCount();
+    }
+
+    private static int[] getDeoptimizationCounts(ProfilingInfo profile) {
+        DeoptimizationReason[] reasons = DeoptimizationReason.values();
+        int[] counts = new int[reasons.length];
+        for (int i = 0; i < reasons.length; i++) {
+            counts[i] = profile.getDeoptimizationCount(reasons[i]);
+        }
+        return counts;
+    }
+
+    private static final class Entry {
+        final EncodedGraph graph;
+        final boolean hasUnsafeAccess;
+
+        /**
+         * The bytecodes of the method and its deoptimization counts per
+         * {@link DeoptimizationReason} when the graph was parsed.
+         */
+        final byte[] code;
+        final int[] deoptimizationCounts;
+
+        /**
+         * The bytecode indexes of the conditional branches of the method and their taken
+         * probabilities when the graph was parsed.
+         */
+        final int[] branchBcis;
+        final double[] branchProbabilities;
+
+        /**
+         * The bytecode indexes of the switches of the method and their probabilities when the
+         * graph was parsed.
+         */
+        final int[] switchBcis;
+        final double[][] switchProbabilities;
+
+        Entry(EncodedGraph graph, boolean hasUnsafeAccess, byte[] code, ProfilingInfo profile) {
+            this.graph = graph;
+            this.hasUnsafeAccess = hasUnsafeAccess;
+            this.code = code;
+            this.deoptimizationCounts = getDeoptimizationCounts(profile);
+
+            List<Integer> branches = new ArrayList<>();
+            List<Integer> switches = new ArrayList<>();
+            if (code != null) {
+                BytecodeStream stream = new BytecodeStream(code);
+                while (stream.currentBC() != Bytecodes.END) {
+                    int opcode = stream.currentBC();
+                    if (Bytecodes.isConditionalBranch(opcode)) {
+                        branches.add(stream.currentBCI());
+                    } else if (opcode == Bytecodes.TABLESWITCH || opcode == Bytecodes.LOOKUPSWITCH) {
+                        switches.add(stream.currentBCI());
+                    }
+                    stream.next();
+                }
+            }
+            this.branchBcis = new int[branches.size()];
+            this.branchProbabilities = new double[branches.size()];
+            for (int i = 0; i < branchBcis.length; i++) {
+                branchBcis[i] = branches.get(i);
+                branchProbabilities[i] = profile.getBranchTakenProbability(branchBcis[i]);
+            }
+            this.switchBcis = new int[switches.size()];
+            this.switchProbabilities = new double[switches.size()][];
+            for (int i = 0; i < switchBcis.length; i++) {
+                switchBcis[i] = switches.get(i);
+                switchProbabilities[i] = profile.getSwitchProbabilities(switchBcis[i]);
+            }
+        }
+
+        /**
+         * Determines if the graph is still valid for the current profile of its method.
+         */
+        boolean isValid(ProfilingInfo profile) {
+            if (!Arrays.equals(deoptimizationCounts, getDeoptimizationCounts(profile))) {
+                return false;
+            }
+            for (int i = 0; i < branchBcis.length; i++) {
+                if (Math.abs(profile.getBranchTakenProbability(branchBcis[i]) - branchProbabilities[i]) > PROBABILITY_TOLERANCE) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < switchBcis.length; i++) {
+                double[] current = profile.getSwitchProbabilities(switchBcis[i]);
+                double[] recorded = switchProbabilities[i];
+                if (current == null || recorded == null) {
+                    if (current != recorded) {
+                        return false;
+                    }
+                } else if (current.length != recorded.length) {
+                    return false;
+                } else {
+                    for (int j = 0; j < current.length; j++) {
+                        if (Math.abs(current[j] - recorded[j]) > PROBABILITY_TOLERANCE) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        long estimateSize() {
+            long size = ENTRY_OVERHEAD + graph.getEncoding().length + 8L * (graph.getObjects().length + graph.getNodeClasses().length);
+            size += (code == null ? 0 : code.length) + 4L * deoptimizationCounts.length + 12L * branchBcis.length;
+            for (double[] probabilities : switchProbabilities) {
+                size += 4 + 8L * (probabilities == null ? 0 : probabilities.length);
+            }
+            return size;
+        }
+    }
+
+    private static final class Key {
+        private final ResolvedJavaMethod method;
+        private final AllowAssumptions allowAssumptions;
+        private final List<BasePhase<? super HighTierContext>> graphBuilderPhases;
+        private final OptimisticOptimizations optimisticOpts;
+        private final boolean unsafeAccessTracking;
+
+        Key(ResolvedJavaMethod method, HighTierContext context, StructuredGraph caller) {
+            this.method = method;
+            this.allowAssumptions = AllowAssumptions.from(caller.getAssumptions() != null);
+            this.graphBuilderPhases = getPhases(context.getGraphBuilderSuite());
+            this.optimisticOpts = context.getOptimisticOptimizations();
+            this.unsafeAccessTracking = caller.isUnsafeAccessTrackingEnabled();
+        }
+
+        /**
+         * Returns the phases of a graph builder suite. Phases do not override
+         * {@link Object#equals(Object)}, so suites are equal if they consist of the same phase
+         * instances.
+         */
+        private static List<BasePhase<? super HighTierContext>> getPhases(PhaseSuite<HighTierContext> suite) {
+            if (suite == null) {
+                return Collections.emptyList();
+            }
+            List<BasePhase<? super HighTierContext>> phases = new ArrayList<>(2);
+            ListIterator<BasePhase<? super HighTierContext>> it = suite.phaseIterator();
+            while (it.hasNext()) {
+                phases.add(it.next());
+            }
+            return phases;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() ^ graphBuilderPhases.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return method.equals(other.method) && allowAssumptions == other.allowAssumptions && graphBuilderPhases.equals(other.graphBuilderPhases) &&
+                                Objects.equals(optimisticOpts, other.optimisticOpts) && unsafeAccessTracking == other.unsafeAccessTracking;
+            }
+            return false;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
 import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.phases.common.CanonicalizerPhase;
 import com.oracle.graal.phases.common.DeadCodeEliminationPhase;
+import com.oracle.graal.phases.common.inlining.InlineGraphCache;
 import com.oracle.graal.phases.common.inlining.InliningUtil;
 import com.oracle.graal.phases.common.instrumentation.ExtractInstrumentationPhase;
 import com.oracle.graal.phases.graph.FixedNodeProbabilityCache;
@@ -50,8 +51,8 @@ import jdk.vm.ci.meta.ResolvedJavaMethod;
 
 /**
  * <p>
- * Represents a feasible concrete target for inlining, whose graph has been copied already and thus
- * can be modified without affecting the original (usually cached) version.
+ * Represents a feasible concrete target for inlining, whose graph has been copied or decoded already
+ * and thus can be modified without affecting the original (usually cached) version.
  * </p>
  *
  * <p>
@@ -69,23 +70,32 @@ public class InlineableGraph implements Inlineable {
     private FixedNodeProbabilityCache probabilites = new FixedNodeProbabilityCache();
 
     public InlineableGraph(final ResolvedJavaMethod method, final Invoke invoke, final HighTierContext context, CanonicalizerPhase canonicalizer) {
-        StructuredGraph original = getOriginalGraph(method, context, canonicalizer, invoke.asNode().graph(), invoke.bci());
-        // TODO copying the graph is only necessary if it is modified or if it contains any invokes
-        this.graph = (StructuredGraph) original.copy();
+        this.graph = getGraph(method, context, canonicalizer, invoke.asNode().graph(), invoke.bci());
         specializeGraphToArguments(invoke, context, canonicalizer);
     }
 
     /**
-     * This method looks up in a cache the graph for the argument, if not found bytecode is parsed.
-     * The graph thus obtained is returned, ie the caller is responsible for cloning before
-     * modification.
+     * Returns a graph for the argument that can be modified. Intrinsic graphs are copied, since
+     * they are shared. Otherwise, the graph is decoded from the {@link InlineGraphCache} or, if it
+     * is not cached, the bytecodes are parsed and the resulting graph is added to the cache.
      */
-    private static StructuredGraph getOriginalGraph(final ResolvedJavaMethod method, final HighTierContext context, CanonicalizerPhase canonicalizer, StructuredGraph caller, int callerBci) {
-        StructuredGraph result = InliningUtil.getIntrinsicGraph(context.getReplacements(), method, callerBci);
-        if (result != null) {
-            return result;
+    private static StructuredGraph getGraph(final ResolvedJavaMethod method, final HighTierContext context, CanonicalizerPhase canonicalizer, StructuredGraph caller, int callerBci) {
+        StructuredGraph intrinsic = InliningUtil.getIntrinsicGraph(context.getReplacements(), method, callerBci);
+        if (intrinsic != null) {
+            return (StructuredGraph) intrinsic.copy();
         }
-        return parseBytecodes(method, context, canonicalizer, caller);
+        InlineGraphCache cache = InlineGraphCache.getInstance();
+        if (cache != null) {
+            StructuredGraph cached = cache.get(method, context, caller);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        StructuredGraph result = parseBytecodes(method, context, canonicalizer, caller);
+        if (cache != null) {
+            cache.put(method, context, caller, result);
+        }
+        return result;
     }
 
     /**
@@ -189,9 +199,6 @@ public class InlineableGraph implements Inlineable {
 
     /**
      * This method builds the IR nodes for the given <code>method</code> and canonicalizes them.
-     * Provided profiling info is mature, the resulting graph is cached. The caller is responsible
-     * for cloning before modification.
-     * </p>
      */
     @SuppressWarnings("try")
     private static StructuredGraph parseBytecodes(ResolvedJavaMethod method, HighTierContext context, CanonicalizerPhase canonicalizer, StructuredGraph caller) {
@@ -24,6 +24,7 @@ package com.oracle.graal.phases;
 
 import java.util.regex.Pattern;
 
+import com.oracle.graal.compiler.common.CompilationMemoryQuota;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -151,6 +152,7 @@ public abstract class BasePhase<C> implements PhaseSizeContract {
     @SuppressWarnings("try")
     protected final void apply(final StructuredGraph graph, final C context, final boolean dumpGraph) {
         try (DebugCloseable a = timer.start(); Scope s = Debug.scope(getClass(), this); DebugCloseable c = memUseTracker.start()) {
+            CompilationMemoryQuota.check();
             int sizeBefore = 0;
             Mark before = null;
             if (PhaseOptions.VerifyGraalPhasesSize.getValue() && checkContract()) {
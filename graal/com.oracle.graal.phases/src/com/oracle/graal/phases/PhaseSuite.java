@@ -71,6 +71,13 @@ public class PhaseSuite<C> extends BasePhase<C> {
         phases.add(phase);
     }
 
+    /**
+     * Returns a {@link ListIterator} positioned before the first phase of this suite.
+     */
+    public final ListIterator<BasePhase<? super C>> phaseIterator() {
+        return phases.listIterator();
+    }
+
     /**
      * Returns a {@link ListIterator} at the position of the first phase which is an instance of
      * {@code phaseClass} or null if no such phase can be found.
@@ -26,16 +26,21 @@ import com.oracle.graal.phases.OptimisticOptimizations;
 import com.oracle.graal.phases.PhaseSuite;
 import com.oracle.graal.phases.util.Providers;
 
+import jdk.vm.ci.code.Architecture;
+
 public class HighTierContext extends PhaseContext {
 
     private final PhaseSuite<HighTierContext> graphBuilderSuite;
 
     private final OptimisticOptimizations optimisticOpts;
 
+    private final Architecture architecture;
+
     public HighTierContext(Providers providers, PhaseSuite<HighTierContext> graphBuilderSuite, OptimisticOptimizations optimisticOpts) {
         super(providers);
         this.graphBuilderSuite = graphBuilderSuite;
         this.optimisticOpts = optimisticOpts;
+        this.architecture = providers.getCodeCache() != null ? providers.getCodeCache().getTarget().arch : null;
     }
 
     public PhaseSuite<HighTierContext> getGraphBuilderSuite() {
@@ -45,4 +50,12 @@ public class HighTierContext extends PhaseContext {
     public OptimisticOptimizations getOptimisticOptimizations() {
         return optimisticOpts;
     }
+
+    /**
+     * Returns the architecture of the compilation target, or {@code null} if the providers of this
+     * context have no code cache.
+     */
+    public Architecture getArchitecture() {
+        return architecture;
+    }
 }
@@ -37,4 +37,18 @@ public interface SuitesCreator extends SuitesProvider {
      * Create a new set of low-level phase suites based on the current option settings.
      */
     LIRSuites createLIRSuites();
+
+    /**
+     * Create a new set of phase suites for a compiler configuration other than the one this
+     * creator was constructed with, based on the current option settings. Platform specific phases
+     * are added the same way as for {@link #createSuites()}.
+     */
+    Suites createSuites(CompilerConfiguration compilerConfiguration);
+
+    /**
+     * Create a new set of low-level phase suites for a compiler configuration other than the one
+     * this creator was constructed with, based on the current option settings. Platform specific
+     * phases are added the same way as for {@link #createLIRSuites()}.
+     */
+    LIRSuites createLIRSuites(CompilerConfiguration compilerConfiguration);
 }
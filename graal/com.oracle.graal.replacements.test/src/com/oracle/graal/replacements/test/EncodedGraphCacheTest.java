@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.test;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.spi.ConstantFieldProvider;
+import com.oracle.graal.compiler.test.GraalCompilerTest;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.ReturnNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import com.oracle.graal.nodes.graphbuilderconf.InlineInvokePlugin;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.replacements.CachingPEGraphDecoder;
+import com.oracle.graal.replacements.EncodedGraphCache;
+
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class EncodedGraphCacheTest extends GraalCompilerTest {
+
+    public static int snippet1() {
+        return 1;
+    }
+
+    public static int snippet2() {
+        return 2;
+    }
+
+    public static int snippet3() {
+        return 3;
+    }
+
+    static int mutableField = 1;
+
+    public static int readMutableField() {
+        return mutableField;
+    }
+
+    private static EncodedGraph createGraph(int size) {
+        return new EncodedGraph(new byte[size], 0, new Object[0], new NodeClass<?>[0], null, Collections.emptyList());
+    }
+
+    @Test
+    public void testLookup() {
+        EncodedGraphCache cache = new EncodedGraphCache(1024 * 1024);
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet1");
+        Object config = new Object();
+        EncodedGraph graph = createGraph(100);
+
+        Assert.assertNull(cache.get(method, null, AllowAssumptions.YES, config));
+        Assert.assertSame(graph, cache.put(method, null, AllowAssumptions.YES, config, graph));
+        Assert.assertSame(graph, cache.get(method, null, AllowAssumptions.YES, config));
+
+        // different configuration or assumption mode must not share the graph
+        Assert.assertNull(cache.get(method, null, AllowAssumptions.YES, new Object()));
+        Assert.assertNull(cache.get(method, null, AllowAssumptions.NO, config));
+
+        // first graph put into the cache wins
+        Assert.assertSame(graph, cache.put(method, null, AllowAssumptions.YES, config, createGraph(100)));
+        Assert.assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void testEviction() {
+        EncodedGraphCache cache = new EncodedGraphCache(3 * 1024);
+        Object config = new Object();
+        ResolvedJavaMethod method1 = getResolvedJavaMethod("snippet1");
+        ResolvedJavaMethod method2 = getResolvedJavaMethod("snippet2");
+        ResolvedJavaMethod method3 = getResolvedJavaMethod("snippet3");
+
+        cache.put(method1, null, AllowAssumptions.YES, config, createGraph(1000));
+        cache.put(method2, null, AllowAssumptions.YES, config, createGraph(1000));
+        // make method1 more recently used than method2
+        Assert.assertNotNull(cache.get(method1, null, AllowAssumptions.YES, config));
+        cache.put(method3, null, AllowAssumptions.YES, config, createGraph(1000));
+
+        Assert.assertTrue(cache.getSize() <= 3 * 1024);
+        Assert.assertNull(cache.get(method2, null, AllowAssumptions.YES, config));
+        Assert.assertNotNull(cache.get(method3, null, AllowAssumptions.YES, config));
+    }
+
+    /**
+     * Folds {@link #mutableField} as if it was a compilation final field.
+     */
+    private final class MutableFieldFoldingProvider implements ConstantFieldProvider {
+
+        @Override
+        public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+            if (field.getName().equals("mutableField") && field.getDeclaringClass().equals(getMetaAccess().lookupJavaType(EncodedGraphCacheTest.class))) {
+                return tool.foldConstant(tool.readValue());
+            }
+            return getProviders().getConstantFieldProvider().readConstantField(field, tool);
+        }
+    }
+
+    private int decodeMutableFieldRead(EncodedGraphCache cache, Object config) {
+        ResolvedJavaMethod method = getResolvedJavaMethod("readMutableField");
+        GraphBuilderConfiguration graphBuilderConfig = GraphBuilderConfiguration.getDefault(getDefaultGraphBuilderPlugins()).withEagerResolving(true);
+        CachingPEGraphDecoder decoder = new CachingPEGraphDecoder(getProviders().copyWith(new MutableFieldFoldingProvider()), graphBuilderConfig, OptimisticOptimizations.NONE,
+                        AllowAssumptions.YES, getTarget().arch, cache, config);
+        StructuredGraph graph = new StructuredGraph(method, AllowAssumptions.YES);
+        decoder.decode(graph, method, null, null, new InlineInvokePlugin[0], null);
+        ValueNode result = graph.getNodes(ReturnNode.TYPE).first().result();
+        Assert.assertTrue(result.isConstant());
+        return result.asJavaConstant().asInt();
+    }
+
+    /**
+     * Graphs in which a mutable field was folded must not be shared, as the field may have changed
+     * when the next compilation uses the graph.
+     */
+    @Test
+    public void testMutableFieldNotShared() {
+        EncodedGraphCache cache = new EncodedGraphCache(1024 * 1024);
+        Object config = new Object();
+        int oldValue = mutableField;
+        try {
+            mutableField = 1;
+            Assert.assertEquals(1, decodeMutableFieldRead(cache, config));
+            mutableField = 2;
+            Assert.assertEquals(2, decodeMutableFieldRead(cache, config));
+            Assert.assertEquals(0, cache.getCount());
+        } finally {
+            mutableField = oldValue;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.bytecode.ResolvedJavaMethodBytecode;
+import com.oracle.graal.compiler.test.GraalCompilerTest;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.GraphEncoder;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import com.oracle.graal.nodes.graphbuilderconf.InlineInvokePlugin;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.replacements.CachingPEGraphDecoder;
+import com.oracle.graal.replacements.EncodedGraphCache;
+import com.oracle.graal.replacements.EncodedGraphStore;
+
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+public class EncodedGraphStoreTest extends GraalCompilerTest {
+
+    private int field;
+
+    /**
+     * Not a compile-time constant, so that reads are folded by the compiler and not by javac.
+     */
+    static final int STATIC_FINAL_FIELD = Integer.getInteger("EncodedGraphStoreTest.value", 42);
+
+    public static int readStaticFinalField(int a) {
+        return a + STATIC_FINAL_FIELD;
+    }
+
+    public static int add(int a, int b) {
+        return a + b;
+    }
+
+    public int snippet(int a, long b, double c) {
+        if (a > 3) {
+            field = (int) (b + c);
+        }
+        return field * a;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Architecture arch = getTarget().arch;
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet");
+        StructuredGraph graph = parseEager(method, AllowAssumptions.NO);
+        EncodedGraph encodedGraph = GraphEncoder.encodeSingleGraph(graph, arch);
+        String fingerprint = EncodedGraphStore.computeFingerprint(arch, GraphEncoder.class);
+
+        Path file = Files.createTempFile("EncodedGraphStoreTest", ".bin");
+        try {
+            EncodedGraphStore store = EncodedGraphStore.open(file, fingerprint, getMetaAccess(), getClass().getClassLoader());
+            Assert.assertNull(store.load(method, AllowAssumptions.NO));
+            Assert.assertTrue(store.record(method, AllowAssumptions.NO, encodedGraph));
+            store.save();
+
+            EncodedGraphStore reopened = EncodedGraphStore.open(file, fingerprint, getMetaAccess(), getClass().getClassLoader());
+            Assert.assertEquals(1, reopened.getCount());
+            Assert.assertNull(reopened.load(method, AllowAssumptions.YES));
+            EncodedGraph loaded = reopened.load(method, AllowAssumptions.NO);
+            Assert.assertNotNull(loaded);
+            Assert.assertArrayEquals(encodedGraph.getEncoding(), loaded.getEncoding());
+            Assert.assertEquals(encodedGraph.getStartOffset(), loaded.getStartOffset());
+            Assert.assertArrayEquals(encodedGraph.getNodeClasses(), loaded.getNodeClasses());
+            Assert.assertEquals(encodedGraph.getObjects().length, loaded.getObjects().length);
+            for (int i = 0; i < loaded.getObjects().length; i++) {
+                Object expected = encodedGraph.getObjects()[i];
+                Object actual = loaded.getObjects()[i];
+                if (expected instanceof ResolvedJavaMethodBytecode) {
+                    Assert.assertEquals(((ResolvedJavaMethodBytecode) expected).getMethod(), ((ResolvedJavaMethodBytecode) actual).getMethod());
+                } else {
+                    Assert.assertEquals(expected, actual);
+                }
+            }
+
+            // a different fingerprint invalidates the whole file
+            EncodedGraphStore other = EncodedGraphStore.open(file, fingerprint + "x", getMetaAccess(), getClass().getClassLoader());
+            Assert.assertEquals(0, other.getCount());
+            Assert.assertNull(other.load(method, AllowAssumptions.NO));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDamagedFile() throws IOException {
+        Architecture arch = getTarget().arch;
+        Path file = Files.createTempFile("EncodedGraphStoreTest", ".bin");
+        try {
+            byte[] garbage = new byte[100];
+            Arrays.fill(garbage, (byte) 0x5A);
+            Files.write(file, garbage);
+            EncodedGraphStore store = EncodedGraphStore.open(file, EncodedGraphStore.computeFingerprint(arch), getMetaAccess(), getClass().getClassLoader());
+            Assert.assertEquals(0, store.getCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void decode(EncodedGraphCache cache, Object config, String methodName) {
+        ResolvedJavaMethod method = getResolvedJavaMethod(methodName);
+        GraphBuilderConfiguration graphBuilderConfig = GraphBuilderConfiguration.getDefault(getDefaultGraphBuilderPlugins()).withEagerResolving(true);
+        CachingPEGraphDecoder decoder = new CachingPEGraphDecoder(getProviders(), graphBuilderConfig, OptimisticOptimizations.NONE, AllowAssumptions.NO, getTarget().arch, cache, config);
+        decoder.decode(new StructuredGraph(method, AllowAssumptions.NO), method, null, null, new InlineInvokePlugin[0], null);
+    }
+
+    /**
+     * Values folded from static fields may be different in another VM, so graphs containing them
+     * must not be stored.
+     */
+    @Test
+    public void testFoldedStaticFieldNotStored() throws IOException {
+        Architecture arch = getTarget().arch;
+        Path file = Files.createTempFile("EncodedGraphStoreTest", ".bin");
+        try {
+            EncodedGraphStore store = EncodedGraphStore.open(file, EncodedGraphStore.computeFingerprint(arch), getMetaAccess(), getClass().getClassLoader());
+            Object config = new Object();
+            EncodedGraphCache cache = new EncodedGraphCache(1024 * 1024, store, config);
+
+            decode(cache, config, "readStaticFinalField");
+            Assert.assertEquals(1, cache.getCount());
+            Assert.assertEquals(0, store.getCount());
+            Assert.assertNull(store.load(getResolvedJavaMethod("readStaticFinalField"), AllowAssumptions.NO));
+
+            decode(cache, config, "add");
+            Assert.assertEquals(2, cache.getCount());
+            Assert.assertEquals(1, store.getCount());
+            Assert.assertNotNull(store.load(getResolvedJavaMethod("add"), AllowAssumptions.NO));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.oracle.graal.bytecode.BytecodeProvider;
+import com.oracle.graal.compiler.common.spi.ConstantFieldProvider;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.java.GraphBuilderPhase;
 import com.oracle.graal.nodes.EncodedGraph;
@@ -42,11 +43,18 @@ import com.oracle.graal.phases.tiers.PhaseContext;
 import com.oracle.graal.phases.util.Providers;
 
 import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ResolvedJavaField;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 
 /**
  * A graph decoder that provides all necessary encoded graphs on-the-fly (by parsing the methods and
- * encoding the graphs).
+ * encoding the graphs). Graphs are cached per decoder and, if an {@link EncodedGraphCache} is
+ * provided, additionally in that cache so that other decoders using the same configuration can
+ * reuse them. Graphs in which parsing folded a value that may change later, i.e., a non-final field
+ * or the elements of a stable array, are only cached by the decoder that parsed them. Graphs in
+ * which parsing folded a static field are not kept across VM restarts, as the field may have a
+ * different value in another VM.
  */
 public class CachingPEGraphDecoder extends PEGraphDecoder {
 
@@ -55,16 +63,46 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
     protected final OptimisticOptimizations optimisticOpts;
     private final AllowAssumptions allowAssumptions;
     private final Map<ResolvedJavaMethod, EncodedGraph> graphCache;
+    private final EncodedGraphCache sharedGraphCache;
+    private final Object sharedGraphCacheKey;
+    /**
+     * Graphs that folded mutable values, see {@link FoldedValueRecorder}.
+     */
+    private final Map<ResolvedJavaMethod, EncodedGraph> unsharedGraphCache = new HashMap<>();
+    private final FoldedValueRecorder foldedValueRecorder;
 
     public CachingPEGraphDecoder(Providers providers, GraphBuilderConfiguration graphBuilderConfig, OptimisticOptimizations optimisticOpts, AllowAssumptions allowAssumptions,
                     Architecture architecture) {
+        this(providers, graphBuilderConfig, optimisticOpts, allowAssumptions, architecture, null, null);
+    }
+
+    /**
+     * @param sharedGraphCache a cache shared with other decoders, or {@code null}
+     * @param sharedGraphCacheKey identifies the graph builder configuration in the shared cache. All
+     *            decoders that use the same key must parse methods the same way.
+     */
+    public CachingPEGraphDecoder(Providers providers, GraphBuilderConfiguration graphBuilderConfig, OptimisticOptimizations optimisticOpts, AllowAssumptions allowAssumptions,
+                    Architecture architecture, EncodedGraphCache sharedGraphCache, Object sharedGraphCacheKey) {
+        this(providers, graphBuilderConfig, optimisticOpts, allowAssumptions, architecture, sharedGraphCache, sharedGraphCacheKey, new HashMap<>());
+    }
+
+    /**
+     * @param graphCache the cache of this decoder. It is not thread safe, but may be passed to
+     *            several decoders that run on the same thread one after another and use the same
+     *            configuration and {@link AllowAssumptions}.
+     */
+    public CachingPEGraphDecoder(Providers providers, GraphBuilderConfiguration graphBuilderConfig, OptimisticOptimizations optimisticOpts, AllowAssumptions allowAssumptions,
+                    Architecture architecture, EncodedGraphCache sharedGraphCache, Object sharedGraphCacheKey, Map<ResolvedJavaMethod, EncodedGraph> graphCache) {
         super(providers.getMetaAccess(), providers.getConstantReflection(), providers.getConstantFieldProvider(), providers.getStampProvider(), architecture);
 
-        this.providers = providers;
+        this.foldedValueRecorder = new FoldedValueRecorder(providers.getConstantFieldProvider());
+        this.providers = providers.copyWith(foldedValueRecorder);
         this.graphBuilderConfig = graphBuilderConfig;
         this.optimisticOpts = optimisticOpts;
         this.allowAssumptions = allowAssumptions;
-        this.graphCache = new HashMap<>();
+        this.graphCache = graphCache;
+        this.sharedGraphCache = sharedGraphCache;
+        this.sharedGraphCacheKey = sharedGraphCacheKey;
     }
 
     protected GraphBuilderPhase.Instance createGraphBuilderPhaseInstance(IntrinsicContext initialIntrinsicContext) {
@@ -75,6 +113,7 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
     @SuppressWarnings("try")
     private EncodedGraph createGraph(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider) {
         StructuredGraph graph = new StructuredGraph(method, allowAssumptions);
+        foldedValueRecorder.reset();
         try (Debug.Scope scope = Debug.scope("createGraph", graph)) {
             IntrinsicContext initialIntrinsicContext = intrinsicBytecodeProvider != null ? new IntrinsicContext(method, method, intrinsicBytecodeProvider, INLINE_AFTER_PARSING) : null;
             GraphBuilderPhase.Instance graphBuilderPhaseInstance = createGraphBuilderPhaseInstance(initialIntrinsicContext);
@@ -84,6 +123,13 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
             new CanonicalizerPhase().apply(graph, context);
 
             EncodedGraph encodedGraph = GraphEncoder.encodeSingleGraph(graph, architecture);
+            if (foldedValueRecorder.foldedMutableValue) {
+                unsharedGraphCache.put(method, encodedGraph);
+                return encodedGraph;
+            }
+            if (sharedGraphCache != null) {
+                encodedGraph = sharedGraphCache.put(method, intrinsicBytecodeProvider, allowAssumptions, sharedGraphCacheKey, encodedGraph, !foldedValueRecorder.foldedStaticValue);
+            }
             graphCache.put(method, encodedGraph);
             return encodedGraph;
 
@@ -95,9 +141,74 @@ public class CachingPEGraphDecoder extends PEGraphDecoder {
     @Override
     protected EncodedGraph lookupEncodedGraph(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider) {
         EncodedGraph result = graphCache.get(method);
+        if (result == null) {
+            result = unsharedGraphCache.get(method);
+        }
+        if (result == null && sharedGraphCache != null) {
+            result = sharedGraphCache.get(method, intrinsicBytecodeProvider, allowAssumptions, sharedGraphCacheKey);
+            if (result != null) {
+                graphCache.put(method, result);
+            }
+        }
         if (result == null && method.hasBytecodes()) {
             result = createGraph(method, intrinsicBytecodeProvider);
         }
         return result;
     }
+
+    /**
+     * Records whether parsing folded a value that may change later, i.e., a non-final field or the
+     * elements of a stable array. A graph that contains such a value is only valid for the current
+     * value and must not be reused by other decoders, which may run after the value changed.
+     * Additionally records whether a static field was folded, whose value, even if final, may be
+     * different in another VM.
+     */
+    private static final class FoldedValueRecorder implements ConstantFieldProvider {
+
+        private final ConstantFieldProvider delegate;
+        boolean foldedMutableValue;
+        boolean foldedStaticValue;
+
+        FoldedValueRecorder(ConstantFieldProvider delegate) {
+            this.delegate = delegate;
+        }
+
+        void reset() {
+            foldedMutableValue = false;
+            foldedStaticValue = false;
+        }
+
+        @Override
+        public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+            return delegate.readConstantField(field, new ConstantFieldTool<T>() {
+
+                @Override
+                public JavaConstant readValue() {
+                    return tool.readValue();
+                }
+
+                @Override
+                public JavaConstant getReceiver() {
+                    return tool.getReceiver();
+                }
+
+                @Override
+                public T foldConstant(JavaConstant ret) {
+                    record(field, 0);
+                    return tool.foldConstant(ret);
+                }
+
+                @Override
+                public T foldStableArray(JavaConstant ret, int stableDimensions, boolean isDefaultStable) {
+                    record(field, stableDimensions);
+                    return tool.foldStableArray(ret, stableDimensions, isDefaultStable);
+                }
+            });
+        }
+
+        private void record(ResolvedJavaField field, int stableDimensions) {
+            foldedMutableValue |= !field.isFinal() || stableDimensions > 0;
+            foldedStaticValue |= field.isStatic();
+        }
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements;
+
+import java.util.Objects;
+
+import com.oracle.graal.bytecode.BytecodeProvider;
+import com.oracle.graal.compiler.common.util.SizeBoundedCache;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * A thread-safe cache of {@link EncodedGraph}s that can be shared by multiple
+ * {@link CachingPEGraphDecoder}s, i.e., across compilations. The cache is bounded by the estimated
+ * size of the cached graphs in bytes. When the bound is exceeded, the least recently used graphs
+ * are evicted.
+ *
+ * Only graphs that do not depend on any assumptions are cached, since assumptions recorded while
+ * parsing are not re-validated when a graph is taken from the cache.
+ *
+ * Optionally, the cache is backed by an {@link EncodedGraphStore} that keeps graphs across VM
+ * restarts. The store is only consulted for graphs parsed without an intrinsic bytecode provider
+ * and with the one configuration the store was created for. Only graphs that are explicitly
+ * {@linkplain #put(ResolvedJavaMethod, BytecodeProvider, AllowAssumptions, Object, EncodedGraph, boolean)
+ * declared persistable} are recorded in the store.
+ */
+public final class EncodedGraphCache {
+
+    private static final DebugCounter CacheHits = Debug.counter("EncodedGraphCacheHits");
+    private static final DebugCounter CacheMisses = Debug.counter("EncodedGraphCacheMisses");
+    private static final DebugCounter CacheEvictions = Debug.counter("EncodedGraphCacheEvictions");
+    private static final DebugCounter CacheEvictedBytes = Debug.counter("EncodedGraphCacheEvictedBytes");
+
+    /**
+     * Estimated size of the fixed parts of an {@link EncodedGraph} and its cache entry.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final SizeBoundedCache<Key, EncodedGraph> entries;
+    private final EncodedGraphStore persistentStore;
+    private final Object persistentStoreConfigKey;
+
+    /**
+     * @param maxBytes the maximum estimated size of all cached graphs
+     */
+    public EncodedGraphCache(long maxBytes) {
+        this(maxBytes, null, null);
+    }
+
+    /**
+     * @param maxBytes the maximum estimated size of all cached graphs
+     * @param persistentStore a store that keeps graphs across VM restarts, or {@code null}
+     * @param persistentStoreConfigKey the configuration key of the graphs kept in
+     *            {@code persistentStore}
+     */
+    public EncodedGraphCache(long maxBytes, EncodedGraphStore persistentStore, Object persistentStoreConfigKey) {
+        this.entries = new SizeBoundedCache<Key, EncodedGraph>(maxBytes) {
+            @Override
+            protected void evicted(Key key, EncodedGraph graph, long size) {
+                CacheEvictions.increment();
+                CacheEvictedBytes.add(size);
+            }
+        };
+        this.persistentStore = persistentStore;
+        this.persistentStoreConfigKey = persistentStoreConfigKey;
+    }
+
+    public EncodedGraphStore getPersistentStore() {
+        return persistentStore;
+    }
+
+    /**
+     * Returns the cached graph for a method or {@code null} if there is none.
+     *
+     * @param configKey identifies the graph builder configuration the graph was parsed with
+     */
+    public EncodedGraph get(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider, AllowAssumptions allowAssumptions, Object configKey) {
+        EncodedGraph graph = entries.get(new Key(method, intrinsicBytecodeProvider, allowAssumptions, configKey));
+        if (graph == null) {
+            CacheMisses.increment();
+            if (usesPersistentStore(intrinsicBytecodeProvider, configKey)) {
+                EncodedGraph storedGraph = persistentStore.load(method, allowAssumptions);
+                if (storedGraph != null) {
+                    return putInMemory(method, intrinsicBytecodeProvider, allowAssumptions, configKey, storedGraph);
+                }
+            }
+            return null;
+        }
+        CacheHits.increment();
+        return graph;
+    }
+
+    /**
+     * Adds a graph to the cache without recording it in the persistent store.
+     *
+     * @see #put(ResolvedJavaMethod, BytecodeProvider, AllowAssumptions, Object, EncodedGraph,
+     *      boolean)
+     */
+    public EncodedGraph put(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider, AllowAssumptions allowAssumptions, Object configKey, EncodedGraph graph) {
+        return put(method, intrinsicBytecodeProvider, allowAssumptions, configKey, graph, false);
+    }
+
+    /**
+     * Adds a graph to the cache. If another thread added a graph for the same key in the meantime,
+     * that graph is kept and returned instead.
+     *
+     * @param configKey identifies the graph builder configuration the graph was parsed with
+     * @param persistable whether the graph is valid in other VMs, i.e., does not contain values
+     *            that were folded from static fields and may be different in another VM
+     * @return the graph that is in the cache for the key after this call
+     */
+    public EncodedGraph put(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider, AllowAssumptions allowAssumptions, Object configKey, EncodedGraph graph, boolean persistable) {
+        if (!isCacheable(graph)) {
+            return graph;
+        }
+        if (persistable && usesPersistentStore(intrinsicBytecodeProvider, configKey)) {
+            persistentStore.record(method, allowAssumptions, graph);
+        }
+        return putInMemory(method, intrinsicBytecodeProvider, allowAssumptions, configKey, graph);
+    }
+
+    private EncodedGraph putInMemory(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider, AllowAssumptions allowAssumptions, Object configKey, EncodedGraph graph) {
+        return entries.putIfAbsent(new Key(method, intrinsicBytecodeProvider, allowAssumptions, configKey), graph, estimateSize(graph));
+    }
+
+    /**
+     * Returns the estimated size in bytes of all cached graphs.
+     */
+    public long getSize() {
+        return entries.getSize();
+    }
+
+    /**
+     * Returns the number of cached graphs.
+     */
+    public int getCount() {
+        return entries.getCount();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private boolean usesPersistentStore(BytecodeProvider intrinsicBytecodeProvider, Object configKey) {
+        return persistentStore != null && intrinsicBytecodeProvider == null && configKey == persistentStoreConfigKey;
+    }
+
+    private static boolean isCacheable(EncodedGraph graph) {
+        return graph.getAssumptions() == null || graph.getAssumptions().isEmpty();
+    }
+
+    private static long estimateSize(EncodedGraph graph) {
+        return ENTRY_OVERHEAD + graph.getEncoding().length + 8L * (graph.getObjects().length + graph.getNodeClasses().length);
+    }
+
+    private static final class Key {
+        private final ResolvedJavaMethod method;
+        private final BytecodeProvider intrinsicBytecodeProvider;
+        private final AllowAssumptions allowAssumptions;
+        private final Object configKey;
+
+        Key(ResolvedJavaMethod method, BytecodeProvider intrinsicBytecodeProvider, AllowAssumptions allowAssumptions, Object configKey) {
+            this.method = method;
+            this.intrinsicBytecodeProvider = intrinsicBytecodeProvider;
+            this.allowAssumptions = allowAssumptions;
+            this.configKey = configKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() ^ System.identityHashCode(configKey);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return method.equals(other.method) && Objects.equals(intrinsicBytecodeProvider, other.intrinsicBytecodeProvider) && allowAssumptions == other.allowAssumptions &&
+                                configKey == other.configKey;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,786 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import com.oracle.graal.bytecode.ResolvedJavaMethodBytecode;
+import com.oracle.graal.compiler.common.LocationIdentity;
+import com.oracle.graal.compiler.common.type.FloatStamp;
+import com.oracle.graal.compiler.common.type.IntegerStamp;
+import com.oracle.graal.compiler.common.type.ObjectStamp;
+import com.oracle.graal.compiler.common.type.Stamp;
+import com.oracle.graal.compiler.common.type.StampFactory;
+import com.oracle.graal.compiler.common.type.StampPair;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.FieldLocationIdentity;
+import com.oracle.graal.nodes.NamedLocationIdentity;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.PrimitiveConstant;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+
+/**
+ * A file based store of {@link EncodedGraph}s that survives VM restarts. Graphs are recorded while
+ * the VM runs and written to the file by {@link #save()}. A later VM maps the file into memory and
+ * decodes individual graphs lazily on {@link #load lookup}.
+ *
+ * The {@link EncodedGraph#getObjects() object table} and {@link EncodedGraph#getNodeClasses() node
+ * class table} of a graph are stored symbolically, i.e., types, methods and fields by name and
+ * descriptor, and are resolved again when the graph is loaded. Only graphs whose object tables
+ * consist of stamps, primitive constants, types, methods, fields, enum values, strings and well
+ * known location identities can be stored. Graphs with other objects, e.g., object constants, are
+ * silently skipped.
+ *
+ * Every stored graph carries the hashes of the class files it was derived from: the declaring
+ * classes of the parsed and inlined methods and of all referenced methods and fields, as well as
+ * the node classes. A graph is discarded on load if any of these class files changed. The whole
+ * file is discarded if its {@link #computeFingerprint fingerprint} does not match, e.g., because
+ * the VM or the compiler changed.
+ */
+public final class EncodedGraphStore {
+
+    private static final DebugCounter StoreLoads = Debug.counter("EncodedGraphStoreLoads");
+    private static final DebugCounter StoreStaleEntries = Debug.counter("EncodedGraphStoreStaleEntries");
+    private static final DebugCounter StoreRecords = Debug.counter("EncodedGraphStoreRecords");
+    private static final DebugCounter StoreUnsupportedGraphs = Debug.counter("EncodedGraphStoreUnsupportedGraphs");
+
+    private static final int MAGIC = 0xE6C0DE67;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_ENUM = 2;
+    private static final byte TAG_TYPE = 3;
+    private static final byte TAG_METHOD = 4;
+    private static final byte TAG_FIELD = 5;
+    private static final byte TAG_INTEGER_STAMP = 6;
+    private static final byte TAG_FLOAT_STAMP = 7;
+    private static final byte TAG_OBJECT_STAMP = 8;
+    private static final byte TAG_VOID_STAMP = 9;
+    private static final byte TAG_ILLEGAL_STAMP = 10;
+    private static final byte TAG_STAMP_PAIR = 11;
+    private static final byte TAG_PRIMITIVE_CONSTANT = 12;
+    private static final byte TAG_NULL_CONSTANT = 13;
+    private static final byte TAG_FIELD_LOCATION = 14;
+    private static final byte TAG_ANY_LOCATION = 15;
+    private static final byte TAG_FINAL_LOCATION = 16;
+    private static final byte TAG_ARRAY_LENGTH_LOCATION = 17;
+    private static final byte TAG_ARRAY_LOCATION = 18;
+    private static final byte TAG_METHOD_BYTECODE = 19;
+
+    private final Path file;
+    private final String fingerprint;
+    private final MetaAccessProvider metaAccess;
+    /**
+     * Loader used to resolve the classes of the compiled program.
+     */
+    private final ClassLoader programLoader;
+    /**
+     * Loader used to resolve node classes and enums, i.e., classes of the compiler itself.
+     */
+    private final ClassLoader compilerLoader;
+
+    /**
+     * The mapped contents of the file as found when opening the store, or {@code null}.
+     */
+    private final ByteBuffer mappedData;
+    private final Map<String, IndexEntry> index;
+    private final Set<String> staleKeys = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<String, byte[]> recorded = new ConcurrentHashMap<>();
+
+    /**
+     * Class file hashes computed in this VM, keyed by class name. Class files do not change while
+     * the VM is running, so every hash is computed at most once.
+     */
+    private final Map<String, Long> classHashes = new ConcurrentHashMap<>();
+
+    private static final class IndexEntry {
+        final int offset;
+        final int length;
+
+        IndexEntry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static final class UnsupportedObjectException extends Exception {
+        private static final long serialVersionUID = -3469137436207212473L;
+
+        UnsupportedObjectException(Object object) {
+            super(String.valueOf(object));
+        }
+    }
+
+    private EncodedGraphStore(Path file, String fingerprint, MetaAccessProvider metaAccess, ClassLoader programLoader, ByteBuffer mappedData, Map<String, IndexEntry> index) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.metaAccess = metaAccess;
+        this.programLoader = programLoader;
+        ClassLoader cl = EncodedGraphStore.class.getClassLoader();
+        this.compilerLoader = cl == null ? ClassLoader.getSystemClassLoader() : cl;
+        this.mappedData = mappedData;
+        this.index = index;
+    }
+
+    /**
+     * Opens the store backed by {@code file}. If the file does not exist, cannot be read, or was
+     * written with a different fingerprint, the store starts out empty and the file is replaced on
+     * the next {@link #save()}.
+     *
+     * @param programLoader the class loader used to resolve the classes of the compiled program
+     */
+    public static EncodedGraphStore open(Path file, String fingerprint, MetaAccessProvider metaAccess, ClassLoader programLoader) {
+        if (Files.isRegularFile(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION) {
+                    int indexLength = buffer.getInt(8);
+                    byte[] indexBytes = new byte[indexLength];
+                    ByteBuffer indexBuffer = buffer.duplicate();
+                    indexBuffer.position(HEADER_SIZE);
+                    indexBuffer.get(indexBytes);
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(indexBytes));
+                    if (in.readUTF().equals(fingerprint)) {
+                        int count = in.readInt();
+                        Map<String, IndexEntry> index = new HashMap<>(count * 2);
+                        for (int i = 0; i < count; i++) {
+                            index.put(in.readUTF(), new IndexEntry(in.readInt(), in.readInt()));
+                        }
+                        indexBuffer.position(HEADER_SIZE + indexLength);
+                        return new EncodedGraphStore(file, fingerprint, metaAccess, programLoader, indexBuffer.slice(), index);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                /* A damaged file is treated like a missing one. */
+            }
+        }
+        return new EncodedGraphStore(file, fingerprint, metaAccess, programLoader, null, Collections.emptyMap());
+    }
+
+    /**
+     * Computes a fingerprint of the VM and compiler that must match for a stored file to be used.
+     * The fingerprint covers the VM version, the target architecture and the class files of
+     * {@code compilerClasses}.
+     */
+    public static String computeFingerprint(Architecture architecture, Class<?>... compilerClasses) {
+        CRC32 crc = new CRC32();
+        for (Class<?> c : compilerClasses) {
+            Long hash = hashClassfile(c);
+            if (hash != null) {
+                updateLong(crc, hash);
+            }
+        }
+        return System.getProperty("java.vm.version") + ":" + architecture.getName() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Returns the number of graphs available from the file plus the number of graphs recorded in
+     * this VM.
+     */
+    public int getCount() {
+        int count = recorded.size();
+        for (String key : index.keySet()) {
+            if (!recorded.containsKey(key) && !staleKeys.contains(key)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Loads the stored graph of a method, or returns {@code null} if there is no stored graph or
+     * the stored graph is no longer valid.
+     */
+    public EncodedGraph load(ResolvedJavaMethod method, AllowAssumptions allowAssumptions) {
+        String key = key(method, allowAssumptions);
+        byte[] data = recorded.get(key);
+        if (data == null) {
+            IndexEntry entry = index.get(key);
+            if (entry == null || staleKeys.contains(key)) {
+                return null;
+            }
+            data = readMapped(entry);
+        }
+        try {
+            EncodedGraph graph = decode(new DataInputStream(new ByteArrayInputStream(data)));
+            if (graph != null) {
+                StoreLoads.increment();
+                return graph;
+            }
+        } catch (IOException | ReflectiveOperationException | LinkageError | RuntimeException e) {
+            /* The entry refers to something that no longer exists. */
+        }
+        StoreStaleEntries.increment();
+        staleKeys.add(key);
+        recorded.remove(key, data);
+        return null;
+    }
+
+    /**
+     * Records a graph so that it is written to the file by the next {@link #save()}. Only the
+     * classes a graph was derived from are validated when it is loaded, so the graph must not
+     * contain values folded from static fields, which may be different in another VM.
+     *
+     * @return {@code true} if the graph can be stored, {@code false} if it references objects that
+     *         cannot be re-resolved symbolically
+     */
+    public boolean record(ResolvedJavaMethod method, AllowAssumptions allowAssumptions, EncodedGraph graph) {
+        String key = key(method, allowAssumptions);
+        if (recorded.containsKey(key)) {
+            return true;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(graph.getEncoding().length + 1024);
+            encode(new DataOutputStream(bytes), method, graph);
+            recorded.put(key, bytes.toByteArray());
+            StoreRecords.increment();
+            return true;
+        } catch (UnsupportedObjectException e) {
+            StoreUnsupportedGraphs.increment();
+            return false;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Writes all valid graphs, i.e., the ones from the file that were not found to be stale plus
+     * the ones recorded in this VM, to a temporary file that then atomically replaces the file of
+     * this store.
+     */
+    public synchronized void save() throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        for (Map.Entry<String, IndexEntry> e : index.entrySet()) {
+            if (!staleKeys.contains(e.getKey())) {
+                entries.put(e.getKey(), readMapped(e.getValue()));
+            }
+        }
+        entries.putAll(recorded);
+
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(indexBytes);
+        indexOut.writeUTF(fingerprint);
+        indexOut.writeInt(entries.size());
+        int offset = 0;
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            indexOut.writeUTF(e.getKey());
+            indexOut.writeInt(offset);
+            indexOut.writeInt(e.getValue().length);
+            offset += e.getValue().length;
+        }
+        indexOut.flush();
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tmp); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(indexBytes.size());
+                indexBytes.writeTo(out);
+                for (byte[] data : entries.values()) {
+                    out.write(data);
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private byte[] readMapped(IndexEntry entry) {
+        byte[] data = new byte[entry.length];
+        ByteBuffer buffer = mappedData.duplicate();
+        buffer.position(entry.offset);
+        buffer.get(data);
+        return data;
+    }
+
+    private static String key(ResolvedJavaMethod method, AllowAssumptions allowAssumptions) {
+        return method.getDeclaringClass().getName() + method.getName() + method.getSignature().toMethodDescriptor() + ":" + allowAssumptions;
+    }
+
+    /*
+     * Entry format: the hashed class files, the start offset, the encoding, the node classes, the
+     * objects and the inlined methods.
+     */
+
+    private void encode(DataOutputStream out, ResolvedJavaMethod method, EncodedGraph graph) throws IOException, UnsupportedObjectException {
+        Map<String, Boolean> hashedClasses = new LinkedHashMap<>();
+        addHashedType(hashedClasses, method.getDeclaringClass());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(graph.getEncoding().length + 512);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeLong(graph.getStartOffset());
+        bodyOut.writeInt(graph.getEncoding().length);
+        bodyOut.write(graph.getEncoding());
+        bodyOut.writeInt(graph.getNodeClasses().length);
+        for (NodeClass<?> nodeClass : graph.getNodeClasses()) {
+            Class<?> c = nodeClass.getJavaClass();
+            checkResolvable(c, compilerLoader);
+            hashedClasses.put(c.getName(), Boolean.TRUE);
+            bodyOut.writeUTF(c.getName());
+        }
+        bodyOut.writeInt(graph.getObjects().length);
+        for (Object object : graph.getObjects()) {
+            writeObject(bodyOut, object, hashedClasses);
+        }
+        List<ResolvedJavaMethod> inlinedMethods = graph.getInlinedMethods();
+        bodyOut.writeInt(inlinedMethods == null ? -1 : inlinedMethods.size());
+        if (inlinedMethods != null) {
+            for (ResolvedJavaMethod inlinedMethod : inlinedMethods) {
+                writeMethod(bodyOut, inlinedMethod, hashedClasses);
+            }
+        }
+        bodyOut.flush();
+
+        out.writeInt(hashedClasses.size());
+        for (Map.Entry<String, Boolean> e : hashedClasses.entrySet()) {
+            Long hash = classHash(e.getKey(), e.getValue());
+            if (hash == null) {
+                throw new UnsupportedObjectException(e.getKey());
+            }
+            out.writeUTF(e.getKey());
+            out.writeBoolean(e.getValue());
+            out.writeLong(hash);
+        }
+        body.writeTo(out);
+        out.flush();
+    }
+
+    private EncodedGraph decode(DataInputStream in) throws IOException, ReflectiveOperationException {
+        int hashedClassCount = in.readInt();
+        for (int i = 0; i < hashedClassCount; i++) {
+            String className = in.readUTF();
+            boolean compilerClass = in.readBoolean();
+            long hash = in.readLong();
+            Long currentHash = classHash(className, compilerClass);
+            if (currentHash == null || currentHash != hash) {
+                return null;
+            }
+        }
+        long startOffset = in.readLong();
+        byte[] encoding = new byte[in.readInt()];
+        in.readFully(encoding);
+        NodeClass<?>[] nodeClasses = new NodeClass<?>[in.readInt()];
+        for (int i = 0; i < nodeClasses.length; i++) {
+            nodeClasses[i] = NodeClass.get(Class.forName(in.readUTF(), false, compilerLoader));
+        }
+        Object[] objects = new Object[in.readInt()];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = readObject(in);
+        }
+        List<ResolvedJavaMethod> inlinedMethods = null;
+        int inlinedMethodCount = in.readInt();
+        if (inlinedMethodCount >= 0) {
+            inlinedMethods = new ArrayList<>(inlinedMethodCount);
+            for (int i = 0; i < inlinedMethodCount; i++) {
+                inlinedMethods.add(readMethod(in));
+            }
+        }
+        return new EncodedGraph(encoding, startOffset, objects, nodeClasses, null, inlinedMethods);
+    }
+
+    private void writeObject(DataOutputStream out, Object object, Map<String, Boolean> hashedClasses) throws IOException, UnsupportedObjectException {
+        if (object == null) {
+            out.writeByte(TAG_NULL);
+        } else if (object instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF((String) object);
+        } else if (object instanceof Enum) {
+            Class<?> enumClass = ((Enum<?>) object).getDeclaringClass();
+            checkResolvable(enumClass, compilerLoader);
+            out.writeByte(TAG_ENUM);
+            out.writeUTF(enumClass.getName());
+            out.writeUTF(((Enum<?>) object).name());
+        } else if (object instanceof ResolvedJavaType) {
+            out.writeByte(TAG_TYPE);
+            writeType(out, (ResolvedJavaType) object);
+        } else if (object instanceof ResolvedJavaMethod) {
+            out.writeByte(TAG_METHOD);
+            writeMethod(out, (ResolvedJavaMethod) object, hashedClasses);
+        } else if (object instanceof ResolvedJavaField) {
+            out.writeByte(TAG_FIELD);
+            writeField(out, (ResolvedJavaField) object, hashedClasses);
+        } else if (object.getClass() == IntegerStamp.class) {
+            IntegerStamp stamp = (IntegerStamp) object;
+            out.writeByte(TAG_INTEGER_STAMP);
+            out.writeInt(stamp.getBits());
+            out.writeLong(stamp.lowerBound());
+            out.writeLong(stamp.upperBound());
+            out.writeLong(stamp.downMask());
+            out.writeLong(stamp.upMask());
+        } else if (object.getClass() == FloatStamp.class) {
+            FloatStamp stamp = (FloatStamp) object;
+            out.writeByte(TAG_FLOAT_STAMP);
+            out.writeInt(stamp.getBits());
+            out.writeDouble(stamp.lowerBound());
+            out.writeDouble(stamp.upperBound());
+            out.writeBoolean(stamp.isNonNaN());
+        } else if (object.getClass() == ObjectStamp.class) {
+            ObjectStamp stamp = (ObjectStamp) object;
+            out.writeByte(TAG_OBJECT_STAMP);
+            out.writeBoolean(stamp.type() != null);
+            if (stamp.type() != null) {
+                writeType(out, stamp.type());
+            }
+            out.writeBoolean(stamp.isExactType());
+            out.writeBoolean(stamp.nonNull());
+            out.writeBoolean(stamp.alwaysNull());
+        } else if (object == StampFactory.forVoid()) {
+            out.writeByte(TAG_VOID_STAMP);
+        } else if (object == StampFactory.forKind(JavaKind.Illegal)) {
+            out.writeByte(TAG_ILLEGAL_STAMP);
+        } else if (object instanceof StampPair) {
+            StampPair pair = (StampPair) object;
+            out.writeByte(TAG_STAMP_PAIR);
+            writeObject(out, pair.getTrustedStamp(), hashedClasses);
+            writeObject(out, pair.getUncheckedStamp(), hashedClasses);
+        } else if (object instanceof PrimitiveConstant) {
+            PrimitiveConstant constant = (PrimitiveConstant) object;
+            out.writeByte(TAG_PRIMITIVE_CONSTANT);
+            out.writeChar(constant.getJavaKind().getTypeChar());
+            switch (constant.getJavaKind()) {
+                case Boolean:
+                    out.writeBoolean(constant.asBoolean());
+                    break;
+                case Float:
+                    out.writeFloat(constant.asFloat());
+                    break;
+                case Double:
+                    out.writeDouble(constant.asDouble());
+                    break;
+                case Long:
+                    out.writeLong(constant.asLong());
+                    break;
+                case Byte:
+                case Short:
+                case Char:
+                case Int:
+                    out.writeInt(constant.asInt());
+                    break;
+                default:
+                    throw new UnsupportedObjectException(object);
+            }
+        } else if (JavaConstant.NULL_POINTER.equals(object)) {
+            out.writeByte(TAG_NULL_CONSTANT);
+        } else if (object instanceof FieldLocationIdentity) {
+            out.writeByte(TAG_FIELD_LOCATION);
+            writeField(out, ((FieldLocationIdentity) object).getField(), hashedClasses);
+        } else if (object == LocationIdentity.any()) {
+            out.writeByte(TAG_ANY_LOCATION);
+        } else if (object == NamedLocationIdentity.FINAL_LOCATION) {
+            out.writeByte(TAG_FINAL_LOCATION);
+        } else if (object == NamedLocationIdentity.ARRAY_LENGTH_LOCATION) {
+            out.writeByte(TAG_ARRAY_LENGTH_LOCATION);
+        } else if (object instanceof NamedLocationIdentity) {
+            for (JavaKind kind : JavaKind.values()) {
+                if ((kind.isPrimitive() || kind == JavaKind.Object) && object == NamedLocationIdentity.getArrayLocation(kind)) {
+                    out.writeByte(TAG_ARRAY_LOCATION);
+                    out.writeChar(kind.getTypeChar());
+                    return;
+                }
+            }
+            throw new UnsupportedObjectException(object);
+        } else if (object.getClass() == ResolvedJavaMethodBytecode.class) {
+            out.writeByte(TAG_METHOD_BYTECODE);
+            writeMethod(out, ((ResolvedJavaMethodBytecode) object).getMethod(), hashedClasses);
+        } else {
+            throw new UnsupportedObjectException(object);
+        }
+    }
+
+    private Object readObject(DataInputStream in) throws IOException, ReflectiveOperationException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_ENUM:
+                return readEnum(in);
+            case TAG_TYPE:
+                return readType(in);
+            case TAG_METHOD:
+                return readMethod(in);
+            case TAG_FIELD:
+                return readField(in);
+            case TAG_INTEGER_STAMP:
+                return new IntegerStamp(in.readInt(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            case TAG_FLOAT_STAMP:
+                return new FloatStamp(in.readInt(), in.readDouble(), in.readDouble(), in.readBoolean());
+            case TAG_OBJECT_STAMP:
+                ResolvedJavaType type = in.readBoolean() ? readType(in) : null;
+                return new ObjectStamp(type, in.readBoolean(), in.readBoolean(), in.readBoolean());
+            case TAG_VOID_STAMP:
+                return StampFactory.forVoid();
+            case TAG_ILLEGAL_STAMP:
+                return StampFactory.forKind(JavaKind.Illegal);
+            case TAG_STAMP_PAIR:
+                Stamp trustedStamp = (Stamp) readObject(in);
+                Stamp uncheckedStamp = (Stamp) readObject(in);
+                return uncheckedStamp == null ? StampPair.createSingle(trustedStamp) : StampPair.create(trustedStamp, uncheckedStamp);
+            case TAG_PRIMITIVE_CONSTANT:
+                return readPrimitiveConstant(in);
+            case TAG_NULL_CONSTANT:
+                return JavaConstant.NULL_POINTER;
+            case TAG_FIELD_LOCATION:
+                return new FieldLocationIdentity(readField(in));
+            case TAG_ANY_LOCATION:
+                return LocationIdentity.any();
+            case TAG_FINAL_LOCATION:
+                return NamedLocationIdentity.FINAL_LOCATION;
+            case TAG_ARRAY_LENGTH_LOCATION:
+                return NamedLocationIdentity.ARRAY_LENGTH_LOCATION;
+            case TAG_ARRAY_LOCATION:
+                return NamedLocationIdentity.getArrayLocation(JavaKind.fromPrimitiveOrVoidTypeChar(in.readChar()));
+            case TAG_METHOD_BYTECODE:
+                return new ResolvedJavaMethodBytecode(readMethod(in));
+            default:
+                throw new IOException("unknown tag " + tag);
+        }
+    }
+
+    private static JavaConstant readPrimitiveConstant(DataInputStream in) throws IOException {
+        JavaKind kind = JavaKind.fromPrimitiveOrVoidTypeChar(in.readChar());
+        switch (kind) {
+            case Boolean:
+                return JavaConstant.forBoolean(in.readBoolean());
+            case Float:
+                return JavaConstant.forFloat(in.readFloat());
+            case Double:
+                return JavaConstant.forDouble(in.readDouble());
+            case Long:
+                return JavaConstant.forLong(in.readLong());
+            case Byte:
+                return JavaConstant.forByte((byte) in.readInt());
+            case Short:
+                return JavaConstant.forShort((short) in.readInt());
+            case Char:
+                return JavaConstant.forChar((char) in.readInt());
+            case Int:
+                return JavaConstant.forInt(in.readInt());
+            default:
+                throw new IOException("unexpected kind " + kind);
+        }
+    }
+
+    private Object readEnum(DataInputStream in) throws IOException, ReflectiveOperationException {
+        Class<?> enumClass = Class.forName(in.readUTF(), false, compilerLoader);
+        String name = in.readUTF();
+        for (Object constant : enumClass.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equals(name)) {
+                return constant;
+            }
+        }
+        throw new IOException("unknown enum constant " + enumClass.getName() + "." + name);
+    }
+
+    private void writeType(DataOutputStream out, ResolvedJavaType type) throws IOException, UnsupportedObjectException {
+        Class<?> c;
+        try {
+            c = resolveType(type.getName());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedObjectException(type);
+        }
+        if (!metaAccess.lookupJavaType(c).equals(type)) {
+            /* The type is not visible through the program class loader. */
+            throw new UnsupportedObjectException(type);
+        }
+        out.writeUTF(type.getName());
+    }
+
+    private ResolvedJavaType readType(DataInputStream in) throws IOException, ReflectiveOperationException {
+        return metaAccess.lookupJavaType(resolveType(in.readUTF()));
+    }
+
+    private void writeMethod(DataOutputStream out, ResolvedJavaMethod method, Map<String, Boolean> hashedClasses) throws IOException, UnsupportedObjectException {
+        writeType(out, method.getDeclaringClass());
+        addHashedType(hashedClasses, method.getDeclaringClass());
+        out.writeUTF(method.getName());
+        out.writeUTF(method.getSignature().toMethodDescriptor());
+        out.writeBoolean(method.isStatic());
+    }
+
+    private ResolvedJavaMethod readMethod(DataInputStream in) throws IOException, ReflectiveOperationException {
+        ResolvedJavaType type = readType(in);
+        String name = in.readUTF();
+        String descriptor = in.readUTF();
+        boolean isStatic = in.readBoolean();
+        if (isStatic && name.equals("<clinit>")) {
+            ResolvedJavaMethod method = type.getClassInitializer();
+            if (method != null) {
+                return method;
+            }
+        }
+        ResolvedJavaMethod[] methodsToSearch = name.equals("<init>") ? type.getDeclaredConstructors() : type.getDeclaredMethods();
+        for (ResolvedJavaMethod method : methodsToSearch) {
+            if (method.isStatic() == isStatic && method.getName().equals(name) && method.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(type.toJavaName() + "." + name + descriptor);
+    }
+
+    private void writeField(DataOutputStream out, ResolvedJavaField field, Map<String, Boolean> hashedClasses) throws IOException, UnsupportedObjectException {
+        writeType(out, field.getDeclaringClass());
+        addHashedType(hashedClasses, field.getDeclaringClass());
+        out.writeUTF(field.getName());
+        out.writeUTF(field.getType().getName());
+        out.writeBoolean(field.isStatic());
+    }
+
+    private ResolvedJavaField readField(DataInputStream in) throws IOException, ReflectiveOperationException {
+        ResolvedJavaType type = readType(in);
+        String name = in.readUTF();
+        String fieldType = in.readUTF();
+        boolean isStatic = in.readBoolean();
+        ResolvedJavaField[] fields = isStatic ? type.getStaticFields() : type.getInstanceFields(false);
+        for (ResolvedJavaField field : fields) {
+            if (field.getName().equals(name) && field.getType().getName().equals(fieldType)) {
+                return field;
+            }
+        }
+        throw new NoSuchFieldException(type.toJavaName() + "." + name);
+    }
+
+    private static void addHashedType(Map<String, Boolean> hashedClasses, ResolvedJavaType type) {
+        ResolvedJavaType elementalType = type.getElementalType();
+        if (!elementalType.isPrimitive()) {
+            hashedClasses.putIfAbsent(elementalType.toJavaName(), Boolean.FALSE);
+        }
+    }
+
+    private static void checkResolvable(Class<?> c, ClassLoader loader) throws UnsupportedObjectException {
+        try {
+            if (Class.forName(c.getName(), false, loader) == c) {
+                return;
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            /* Fall through. */
+        }
+        throw new UnsupportedObjectException(c);
+    }
+
+    /**
+     * Resolves a type name in the format of {@link ResolvedJavaType#getName()} to a class.
+     */
+    private Class<?> resolveType(String descriptor) throws ClassNotFoundException {
+        if (descriptor.length() == 1) {
+            return JavaKind.fromPrimitiveOrVoidTypeChar(descriptor.charAt(0)).toJavaClass();
+        }
+        String name;
+        if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+            name = descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+        } else {
+            name = descriptor.replace('/', '.');
+        }
+        return Class.forName(name, false, programLoader);
+    }
+
+    /**
+     * Returns the hash of the class file of a class in this VM, or {@code null} if the class or its
+     * class file cannot be found.
+     */
+    private Long classHash(String className, boolean compilerClass) {
+        String key = (compilerClass ? "compiler:" : "program:") + className;
+        Long hash = classHashes.get(key);
+        if (hash == null) {
+            try {
+                hash = hashClassfile(Class.forName(className, false, compilerClass ? compilerLoader : programLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                hash = null;
+            }
+            classHashes.put(key, hash == null ? Long.valueOf(-1) : hash);
+        }
+        return hash == null || hash == -1 ? null : hash;
+    }
+
+    private static Long hashClassfile(Class<?> c) {
+        String classfilePath = "/" + c.getName().replace('.', '/') + ".class";
+        try (InputStream in = c.getResourceAsStream(classfilePath)) {
+            if (in == null) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+            return crc.getValue();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void updateLong(CRC32 crc, long value) {
+        for (int i = 0; i < 8; i++) {
+            crc.update((int) (value >>> (i * 8)));
+        }
+    }
+}
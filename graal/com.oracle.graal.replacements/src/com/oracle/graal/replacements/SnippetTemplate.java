@@ -41,7 +41,6 @@ import java.util.Collections;
 import java.util.Formattable;
 import java.util.Formatter;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -57,6 +56,7 @@ import com.oracle.graal.compiler.common.type.Stamp;
 import com.oracle.graal.compiler.common.type.StampFactory;
 import com.oracle.graal.compiler.common.type.StampPair;
 import com.oracle.graal.compiler.common.type.TypeReference;
+import com.oracle.graal.compiler.common.util.SizeBoundedCache;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -218,6 +218,17 @@ public class SnippetTemplate {
          */
         private final DebugCounter instantiationCounter;
 
+        /**
+         * Counts lookups of templates derived from this snippet that found the template in the
+         * cache of the {@link AbstractTemplates}.
+         */
+        private final DebugCounter templateCacheHits;
+
+        /**
+         * Counts lookups of templates derived from this snippet that had to create the template.
+         */
+        private final DebugCounter templateCacheMisses;
+
         protected abstract Lazy lazy();
 
         protected SnippetInfo(ResolvedJavaMethod method, LocationIdentity[] privateLocations) {
@@ -225,6 +236,8 @@ public class SnippetTemplate {
             this.privateLocations = SnippetCounterNode.addSnippetCounters(privateLocations);
             instantiationCounter = Debug.counter("SnippetInstantiationCount[%s]", method.getName());
             instantiationTimer = Debug.timer("SnippetInstantiationTime[%s]", method.getName());
+            templateCacheHits = Debug.counter("SnippetTemplateCacheHits[%s]", method.getName());
+            templateCacheMisses = Debug.counter("SnippetTemplateCacheMisses[%s]", method.getName());
             assert method.isStatic() : "snippet method must be static: " + method.format("%H.%n");
         }
 
@@ -542,13 +555,17 @@ public class SnippetTemplate {
 
     private static final DebugTimer SnippetTemplateCreationTime = Debug.timer("SnippetTemplateCreationTime");
     private static final DebugCounter SnippetTemplates = Debug.counter("SnippetTemplateCount");
+    private static final DebugCounter SnippetTemplateCacheEvictions = Debug.counter("SnippetTemplateCacheEvictions");
 
     static class Options {
         @Option(help = "Use a LRU cache for snippet templates.")//
         static final OptionValue<Boolean> UseSnippetTemplateCache = new OptionValue<>(true);
 
-        @Option(help = "")//
+        @Option(help = "Maximum number of templates cached for the snippets of one snippet class.")//
         static final OptionValue<Integer> MaxTemplatesPerSnippet = new OptionValue<>(50);
+
+        @Option(help = "Maximum estimated size in kilobytes of the templates cached for the snippets of one snippet class.")//
+        static final OptionValue<Integer> SnippetTemplateCacheSize = new OptionValue<>(2048);
     }
 
     /**
@@ -559,15 +576,14 @@ public class SnippetTemplate {
         protected final Providers providers;
         protected final SnippetReflectionProvider snippetReflection;
         protected final TargetDescription target;
-        private final Map<CacheKey, SnippetTemplate> templates;
+        private final TemplateCache templates;
 
         protected AbstractTemplates(Providers providers, SnippetReflectionProvider snippetReflection, TargetDescription target) {
             this.providers = providers;
             this.snippetReflection = snippetReflection;
             this.target = target;
             if (Options.UseSnippetTemplateCache.getValue()) {
-                int size = Options.MaxTemplatesPerSnippet.getValue();
-                this.templates = Collections.synchronizedMap(new LRUCache<>(size, size));
+                this.templates = new TemplateCache(Options.SnippetTemplateCacheSize.getValue() * 1024L, Options.MaxTemplatesPerSnippet.getValue());
             } else {
                 this.templates = null;
             }
@@ -607,34 +623,41 @@ public class SnippetTemplate {
          */
         @SuppressWarnings("try")
         protected SnippetTemplate template(final Arguments args) {
-            SnippetTemplate template = Options.UseSnippetTemplateCache.getValue() && args.cacheable ? templates.get(args.cacheKey) : null;
-            if (template == null) {
-                SnippetTemplates.increment();
-                try (DebugCloseable a = SnippetTemplateCreationTime.start(); Scope s = Debug.scope("SnippetSpecialization", args.info.method)) {
-                    template = new SnippetTemplate(providers, snippetReflection, args);
-                    if (Options.UseSnippetTemplateCache.getValue() && args.cacheable) {
-                        templates.put(args.cacheKey, template);
-                    }
-                } catch (Throwable e) {
-                    throw Debug.handle(e);
+            boolean useCache = Options.UseSnippetTemplateCache.getValue() && args.cacheable;
+            SnippetTemplate template = useCache ? templates.get(args.cacheKey) : null;
+            if (template != null) {
+                args.info.templateCacheHits.increment();
+                return template;
+            }
+            if (useCache) {
+                args.info.templateCacheMisses.increment();
+            }
+            SnippetTemplates.increment();
+            try (DebugCloseable a = SnippetTemplateCreationTime.start(); Scope s = Debug.scope("SnippetSpecialization", args.info.method)) {
+                template = new SnippetTemplate(providers, snippetReflection, args);
+                if (useCache) {
+                    template = templates.putIfAbsent(args.cacheKey, template, template.estimateSize());
                 }
+            } catch (Throwable e) {
+                throw Debug.handle(e);
             }
             return template;
         }
     }
 
-    private static final class LRUCache<K, V> extends LinkedHashMap<K, V> {
-        private static final long serialVersionUID = 1L;
-        private final int maxCacheSize;
+    /**
+     * A thread-safe cache of snippet templates bounded by the estimated size of the templates in
+     * bytes and by their number.
+     */
+    private static final class TemplateCache extends SizeBoundedCache<CacheKey, SnippetTemplate> {
 
-        LRUCache(int initialCapacity, int maxCacheSize) {
-            super(initialCapacity, 0.75F, true);
-            this.maxCacheSize = maxCacheSize;
+        TemplateCache(long maxBytes, int maxCount) {
+            super(maxBytes, maxCount);
         }
 
         @Override
-        protected boolean removeEldestEntry(java.util.Map.Entry<K, V> eldest) {
-            return size() > maxCacheSize;
+        protected void evicted(CacheKey key, SnippetTemplate template, long size) {
+            SnippetTemplateCacheEvictions.increment();
         }
     }
 
@@ -1012,6 +1035,23 @@ public class SnippetTemplate {
      */
     private final ArrayList<Node> nodes;
 
+    /**
+     * Estimated size in bytes of the fixed parts of a template.
+     */
+    private static final int TEMPLATE_OVERHEAD = 256;
+
+    /**
+     * Estimated size in bytes of a node of the snippet graph including its edges.
+     */
+    private static final int BYTES_PER_NODE = 96;
+
+    /**
+     * Estimates the number of bytes retained by this template.
+     */
+    long estimateSize() {
+        return TEMPLATE_OVERHEAD + (long) snippet.getNodeCount() * BYTES_PER_NODE;
+    }
+
     /**
      * Times instantiations of this template.
      *
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench.pe;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TrufflePEGraphCacheSize;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugEnvironment;
+import com.oracle.graal.debug.internal.DebugScope;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.DefaultTruffleCompiler;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompiler;
+import com.oracle.graal.truffle.TruffleDebugJavaMethod;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.truffle.api.Truffle;
+
+/**
+ * Benchmarks the Truffle specific stages of a compilation of {@link SyntheticAST synthetic ASTs}
+ * of increasing size: building the {@link TruffleInlining inlining decisions}, partial evaluation
+ * with and without the parsed graphs in the shared graph cache of the
+ * {@link com.oracle.graal.replacements.CachingPEGraphDecoder} and compiling the partially
+ * evaluated graph with {@link TruffleCompiler#compileMethodHelper}.
+ *
+ * The primary result is the time per AST. The {@code nodes} secondary result is the time per AST
+ * node, where the nodes of inlined call targets are counted as well. Run with {@code -prof gc} to
+ * report the allocation rate and the bytes allocated per AST ({@code gc.alloc.rate.norm}).
+ */
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PartialEvaluationBenchmark {
+
+    @State(Scope.Thread)
+    public static class ASTState {
+
+        @Param({"16", "128", "1024"}) public int size;
+
+        TruffleCompiler compiler;
+        /** A compiler that parses all methods again for each partial evaluation. */
+        TruffleCompiler uncachedCompiler;
+        OptimizedCallTarget callTarget;
+        TruffleInlining inlining;
+        int nodeCount;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            // Ensure a debug configuration for this thread is initialized
+            if (Debug.isEnabled() && DebugScope.getConfig() == null) {
+                DebugEnvironment.initialize(System.out);
+            }
+            GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+            compiler = DefaultTruffleCompiler.create(runtime);
+            try (OverrideScope s = OptionValue.override(TrufflePEGraphCacheSize, 0)) {
+                uncachedCompiler = DefaultTruffleCompiler.create(runtime);
+            }
+
+            callTarget = (OptimizedCallTarget) runtime.createCallTarget(SyntheticAST.create(size));
+            // Execute the AST so that all classes are loaded and initialized and calls are profiled
+            for (int i = 0; i < 3; i++) {
+                callTarget.call(i, i + 1);
+            }
+            inlining = new TruffleInlining(callTarget, new DefaultInliningPolicy());
+            nodeCount = callTarget.getNonTrivialNodeCount() + inlining.getInlinedNodeCount();
+
+            // Fill the shared graph cache
+            createGraph(compiler, this);
+        }
+    }
+
+    /**
+     * Provides a new partially evaluated graph for each invocation of a benchmark.
+     */
+    @State(Scope.Thread)
+    public static class GraphState extends ASTState {
+
+        StructuredGraph originalGraph;
+        StructuredGraph graph;
+
+        @Setup(Level.Trial)
+        public void setupGraph() {
+            originalGraph = createGraph(compiler, this);
+        }
+
+        @Setup(Level.Invocation)
+        public void beforeInvocation() {
+            graph = (StructuredGraph) originalGraph.copy();
+        }
+    }
+
+    /**
+     * Counts the processed AST nodes.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class NodeCounter {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @SuppressWarnings("try")
+    static StructuredGraph createGraph(TruffleCompiler compiler, ASTState s) {
+        try (Debug.Scope scope = Debug.scope("TruffleCompilation", new TruffleDebugJavaMethod(s.callTarget))) {
+            return compiler.getPartialEvaluator().createGraph(s.callTarget, s.inlining, AllowAssumptions.YES);
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+    }
+
+    @Benchmark
+    public TruffleInlining inlining(ASTState s, NodeCounter counter) {
+        counter.nodes += s.nodeCount;
+        return new TruffleInlining(s.callTarget, new DefaultInliningPolicy());
+    }
+
+    /**
+     * Partial evaluation including the parsing of all methods reached from the AST.
+     */
+    @Benchmark
+    public StructuredGraph partialEvaluation(ASTState s, NodeCounter counter) {
+        counter.nodes += s.nodeCount;
+        return createGraph(s.uncachedCompiler, s);
+    }
+
+    /**
+     * Partial evaluation that decodes the parsed graphs of all methods from the shared graph cache.
+     */
+    @Benchmark
+    public StructuredGraph partialEvaluationCachedGraphs(ASTState s, NodeCounter counter) {
+        counter.nodes += s.nodeCount;
+        return createGraph(s.compiler, s);
+    }
+
+    @Benchmark
+    @SuppressWarnings("try")
+    public CompilationResult compile(GraphState s, NodeCounter counter) {
+        counter.nodes += s.nodeCount;
+        try (Debug.Scope scope = Debug.scope("TruffleCompilation", new TruffleDebugJavaMethod(s.callTarget))) {
+            return s.compiler.compileMethodHelper(s.graph, s.callTarget.toString(), null, s.callTarget);
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+    }
+}
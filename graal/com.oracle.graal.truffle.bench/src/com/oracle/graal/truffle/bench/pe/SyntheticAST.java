@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench.pe;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeInfo;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * Builds deterministic ASTs of a given size that mix the shapes a guest language typically
+ * produces: arithmetic, profiled conditionals and direct calls to other call targets, which
+ * exercise the inlining decisions.
+ *
+ * The ASTs compute an {@code int} from two {@code int} arguments.
+ */
+public final class SyntheticAST {
+
+    private SyntheticAST() {
+    }
+
+    public abstract static class BenchmarkLanguage extends TruffleLanguage<Object> {
+    }
+
+    /**
+     * Creates the root node of an AST with approximately {@code size} nodes, not counting the
+     * nodes of the called call targets.
+     */
+    public static RootNode create(int size) {
+        return new SyntheticRootNode("synthetic" + size, create(size, 0));
+    }
+
+    private static ExpressionNode create(int size, int depth) {
+        if (size <= 1) {
+            switch (depth % 3) {
+                case 0:
+                    return new ArgumentNode(0);
+                case 1:
+                    return new ArgumentNode(1);
+                default:
+                    return new ConstantNode(depth);
+            }
+        }
+        int remaining = size - 1;
+        if (depth % 4 == 3 && remaining > 1) {
+            RootNode callee = new SyntheticRootNode("callee" + size + "_" + depth, create(remaining, 0));
+            return new CallNode(Truffle.getRuntime().createCallTarget(callee));
+        }
+        if (depth % 3 == 2 && remaining >= 3) {
+            int part = remaining / 3;
+            return new ConditionalNode(create(part, depth + 1), create(part, depth + 1), create(remaining - 2 * part, depth + 1));
+        }
+        int left = remaining / 2;
+        return new AddNode(create(left, depth + 1), create(remaining - left, depth + 1));
+    }
+
+    @NodeInfo
+    static final class SyntheticRootNode extends RootNode {
+
+        private final String name;
+        @Child private ExpressionNode body;
+
+        SyntheticRootNode(String name, ExpressionNode body) {
+            super(BenchmarkLanguage.class, null, new FrameDescriptor());
+            this.name = name;
+            this.body = body;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return body.execute(frame);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    abstract static class ExpressionNode extends Node {
+
+        abstract int execute(VirtualFrame frame);
+    }
+
+    static final class ArgumentNode extends ExpressionNode {
+
+        private final int index;
+
+        ArgumentNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        int execute(VirtualFrame frame) {
+            return (int) frame.getArguments()[index];
+        }
+    }
+
+    static final class ConstantNode extends ExpressionNode {
+
+        private final int value;
+
+        ConstantNode(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int execute(VirtualFrame frame) {
+            return value;
+        }
+    }
+
+    static final class AddNode extends ExpressionNode {
+
+        @Child private ExpressionNode left;
+        @Child private ExpressionNode right;
+
+        AddNode(ExpressionNode left, ExpressionNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int execute(VirtualFrame frame) {
+            return left.execute(frame) + right.execute(frame);
+        }
+    }
+
+    static final class ConditionalNode extends ExpressionNode {
+
+        @Child private ExpressionNode condition;
+        @Child private ExpressionNode thenPart;
+        @Child private ExpressionNode elsePart;
+        private final ConditionProfile profile = ConditionProfile.createCountingProfile();
+
+        ConditionalNode(ExpressionNode condition, ExpressionNode thenPart, ExpressionNode elsePart) {
+            this.condition = condition;
+            this.thenPart = thenPart;
+            this.elsePart = elsePart;
+        }
+
+        @Override
+        int execute(VirtualFrame frame) {
+            if (profile.profile(condition.execute(frame) > 0)) {
+                return thenPart.execute(frame);
+            } else {
+                return elsePart.execute(frame);
+            }
+        }
+    }
+
+    static final class CallNode extends ExpressionNode {
+
+        @Child private DirectCallNode callNode;
+
+        CallNode(CallTarget callTarget) {
+            this.callNode = Truffle.getRuntime().createDirectCallNode(callTarget);
+        }
+
+        @Override
+        int execute(VirtualFrame frame) {
+            return (int) callNode.call(frame, frame.getArguments());
+        }
+    }
+}
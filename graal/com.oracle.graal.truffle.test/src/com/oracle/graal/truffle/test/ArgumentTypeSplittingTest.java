@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests splitting of call targets whose argument type profile was merged from call sites that pass
+ * arguments of different classes.
+ */
+public class ArgumentTypeSplittingTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static final int CALLS = 32;
+
+    /**
+     * A callee that contains two calls and no polymorphic nodes, so that it is not split by the
+     * other splitting heuristics.
+     */
+    private static final class CalleeRootNode extends RootNode {
+
+        @Child private DirectCallNode call1;
+        @Child private DirectCallNode call2;
+
+        CalleeRootNode() {
+            super(MockLanguage.class, null, null);
+            OptimizedCallTarget leaf = (OptimizedCallTarget) runtime.createCallTarget(new RootNode(MockLanguage.class, null, null) {
+                @Override
+                public Object execute(VirtualFrame frame) {
+                    return null;
+                }
+            });
+            this.call1 = runtime.createDirectCallNode(leaf);
+            this.call2 = runtime.createDirectCallNode(leaf);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return frame.getArguments()[0];
+        }
+
+        @Override
+        public boolean isCloningAllowed() {
+            return true;
+        }
+    }
+
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private DirectCallNode call;
+        private final Object argument;
+
+        CallerRootNode(OptimizedCallTarget callee, Object argument) {
+            super(MockLanguage.class, null, null);
+            this.call = runtime.createDirectCallNode(callee);
+            this.argument = argument;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return call.call(frame, new Object[]{argument});
+        }
+    }
+
+    /**
+     * Calls a callee from one call site with integers and from another with strings, and returns
+     * the call node of the first call site.
+     */
+    private static DirectCallNode callWithMergedArgumentTypes() {
+        OptimizedCallTarget callee = (OptimizedCallTarget) runtime.createCallTarget(new CalleeRootNode());
+        CallerRootNode intCaller = new CallerRootNode(callee, 42);
+        CallerRootNode stringCaller = new CallerRootNode(callee, "42");
+        OptimizedCallTarget intTarget = (OptimizedCallTarget) runtime.createCallTarget(intCaller);
+        OptimizedCallTarget stringTarget = (OptimizedCallTarget) runtime.createCallTarget(stringCaller);
+        for (int i = 0; i < CALLS; i++) {
+            intTarget.call();
+            stringTarget.call();
+        }
+        return intCaller.call;
+    }
+
+    @Test
+    public void testSplitForMergedArgumentTypes() {
+        DirectCallNode call = callWithMergedArgumentTypes();
+        assertTrue(call.isCallTargetCloned());
+    }
+
+    @Test
+    public void testNoSplitWithoutSplitting() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplitting, false)) {
+            DirectCallNode call = callWithMergedArgumentTypes();
+            assertFalse(call.isCallTargetCloned());
+        }
+    }
+
+    @Test
+    public void testNoSplitForLargeCallee() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingMaxCalleeSize, 0)) {
+            DirectCallNode call = callWithMergedArgumentTypes();
+            assertFalse(call.isCallTargetCloned());
+        }
+    }
+
+    @Test
+    public void testNoSplitWithoutBudget() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleArgumentTypeSplittingBudget, 0)) {
+            DirectCallNode call = callWithMergedArgumentTypes();
+            assertFalse(call.isCallTargetCloned());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Assume;
+
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.debug.AbstractDebugCompilationListener;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Occupies all Truffle compiler threads with background compilations that block until they are
+ * released. While the threads are blocked, a test can fill the compile queue and then
+ * {@linkplain #releaseOne() release} a single thread to observe the order in which the queued
+ * compilations start.
+ */
+final class BlockedCompilerThreads extends AbstractDebugCompilationListener implements AutoCloseable {
+
+    static final long TIMEOUT_MILLIS = 30000;
+
+    private final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private final Map<OptimizedCallTarget, CountDownLatch> blockers = new ConcurrentHashMap<>();
+
+    /** The blocking compilations that occupy a compiler thread, in the order they started. */
+    private final List<OptimizedCallTarget> blocked = new CopyOnWriteArrayList<>();
+
+    /** All other compilations in the order they started. */
+    private final List<OptimizedCallTarget> started = new CopyOnWriteArrayList<>();
+
+    private final Map<OptimizedCallTarget, Thread> startedThreads = new ConcurrentHashMap<>();
+
+    /**
+     * Blocks all compiler threads. The last blocking compilation remains in the queue, where it
+     * does not block anymore once a thread is released.
+     */
+    BlockedCompilerThreads() {
+        Assume.assumeTrue(TruffleCompilerOptions.TruffleBackgroundCompilation.getValue());
+        Assume.assumeFalse(TruffleCompilerOptions.TruffleCompilationExceptionsAreThrown.getValue());
+        runtime.addCompilationListener(this);
+        try {
+            OptimizedCallTarget queued;
+            do {
+                queued = queueBlocker();
+            } while (awaitBlocked(queued));
+            blockers.get(queued).countDown();
+        } catch (Throwable t) {
+            close();
+            throw t;
+        }
+    }
+
+    static OptimizedCallTarget createTarget(int calls) {
+        OptimizedCallTarget target = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new RootNode(MockLanguage.class, null, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return 42;
+            }
+        });
+        for (int i = 0; i < calls; i++) {
+            target.call();
+        }
+        return target;
+    }
+
+    /**
+     * Queues a compilation that blocks the compiler thread that starts it.
+     */
+    OptimizedCallTarget queueBlocker() {
+        OptimizedCallTarget blocker = createTarget(0);
+        blockers.put(blocker, new CountDownLatch(1));
+        blocker.compile();
+        return blocker;
+    }
+
+    /**
+     * Waits until a blocking compilation occupies a compiler thread.
+     *
+     * @return {@code false} if it remains in the queue because all compiler threads are blocked
+     */
+    boolean awaitBlocked(OptimizedCallTarget blocker) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!blocked.contains(blocker)) {
+            if (runtime.getCompilerThreadCount() <= blocked.size()) {
+                return false;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("blocking compilation did not start");
+            }
+            sleep();
+        }
+        return true;
+    }
+
+    int getBlockedCount() {
+        return blocked.size();
+    }
+
+    /**
+     * Releases the compiler thread that was blocked first.
+     */
+    void releaseOne() {
+        blockers.get(blocked.remove(0)).countDown();
+    }
+
+    /**
+     * Waits until the given compilations started and returns them in the order they started.
+     */
+    List<OptimizedCallTarget> awaitStarted(OptimizedCallTarget... targets) {
+        List<OptimizedCallTarget> expected = new ArrayList<>();
+        for (OptimizedCallTarget target : targets) {
+            expected.add(target);
+        }
+        waitFor(() -> started.containsAll(expected));
+        List<OptimizedCallTarget> result = new ArrayList<>(started);
+        result.retainAll(expected);
+        return result;
+    }
+
+    Thread getThread(OptimizedCallTarget target) {
+        return startedThreads.get(target);
+    }
+
+    static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            sleep();
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public void notifyCompilationStarted(OptimizedCallTarget target) {
+        CountDownLatch latch = blockers.get(target);
+        if (latch == null) {
+            startedThreads.put(target, Thread.currentThread());
+            started.add(target);
+        } else if (latch.getCount() > 0) {
+            blocked.add(target);
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Releases all compiler threads and waits for the blocking and the observed compilations to
+     * finish.
+     */
+    @Override
+    public void close() {
+        for (CountDownLatch latch : blockers.values()) {
+            latch.countDown();
+        }
+        try {
+            for (OptimizedCallTarget blocker : blockers.keySet()) {
+                runtime.waitForCompilation(blocker, TIMEOUT_MILLIS);
+            }
+            for (OptimizedCallTarget target : started) {
+                runtime.waitForCompilation(target, TIMEOUT_MILLIS);
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AssertionError(e);
+        } finally {
+            runtime.removeCompilationListener(this);
+        }
+    }
+}
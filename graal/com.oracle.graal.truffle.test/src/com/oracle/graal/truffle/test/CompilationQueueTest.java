@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static com.oracle.graal.truffle.test.BlockedCompilerThreads.createTarget;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+
+/**
+ * Tests that the background compile queue orders compilations by the hotness of their call
+ * targets.
+ */
+public class CompilationQueueTest {
+
+    /**
+     * The compilation threshold used for computing the hotness while queuing. The call targets are
+     * called fewer times than the actual threshold so that they are not compiled.
+     */
+    private static final int THRESHOLD = 10;
+
+    private static final int HOT_CALLS = 50 * THRESHOLD;
+
+    /** A maximum delay that is long enough to not limit the reordering during a test. */
+    private static final int MAX_DELAY = 100000;
+
+    private static OptimizedCallTarget createHotTarget() {
+        Assume.assumeTrue(TruffleCompilerOptions.TruffleCompilationThreshold.getValue() > HOT_CALLS);
+        Assume.assumeFalse(TruffleCompilerOptions.TruffleCompileImmediately.getValue());
+        return createTarget(HOT_CALLS);
+    }
+
+    private static void queue(OptimizedCallTarget... targets) {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationThreshold, THRESHOLD)) {
+            for (OptimizedCallTarget target : targets) {
+                target.compile();
+            }
+        }
+    }
+
+    @Test
+    public void testHotterTargetFirst() {
+        OptimizedCallTarget cold = createTarget(1);
+        OptimizedCallTarget hot = createHotTarget();
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads(); OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationQueueMaxDelay, MAX_DELAY)) {
+            queue(cold, hot);
+            blocked.releaseOne();
+            assertEquals(Arrays.asList(hot, cold), blocked.awaitStarted(cold, hot));
+        }
+    }
+
+    @Test
+    public void testEqualHotnessInQueueOrder() {
+        OptimizedCallTarget first = createTarget(1);
+        OptimizedCallTarget second = createTarget(1);
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads(); OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationQueueMaxDelay, MAX_DELAY)) {
+            queue(first, second);
+            blocked.releaseOne();
+            assertEquals(Arrays.asList(first, second), blocked.awaitStarted(first, second));
+        }
+    }
+
+    /**
+     * A compilation can only be overtaken by compilations queued less than the maximum delay after
+     * it.
+     */
+    @Test
+    public void testMaxDelay() throws InterruptedException {
+        OptimizedCallTarget cold = createTarget(1);
+        OptimizedCallTarget hot = createHotTarget();
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads(); OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationQueueMaxDelay, 1)) {
+            queue(cold);
+            Thread.sleep(10);
+            queue(hot);
+            blocked.releaseOne();
+            assertEquals(Arrays.asList(cold, hot), blocked.awaitStarted(cold, hot));
+        }
+    }
+
+    /**
+     * A call target that gets hotter while it waits for compilation moves forward in the queue.
+     */
+    @Test
+    public void testPriorityUpdate() {
+        OptimizedCallTarget other = createTarget(1);
+        OptimizedCallTarget warming = createTarget(1);
+        Assume.assumeTrue(TruffleCompilerOptions.TruffleCompilationThreshold.getValue() > HOT_CALLS + 1);
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads(); OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationQueueMaxDelay, MAX_DELAY)) {
+            queue(other, warming);
+            try (OverrideScope t = OptionValue.override(TruffleCompilerOptions.TruffleCompilationThreshold, THRESHOLD)) {
+                for (int i = 0; i < HOT_CALLS; i++) {
+                    warming.call();
+                }
+            }
+            blocked.releaseOne();
+            assertEquals(Arrays.asList(warming, other), blocked.awaitStarted(other, warming));
+        }
+    }
+}
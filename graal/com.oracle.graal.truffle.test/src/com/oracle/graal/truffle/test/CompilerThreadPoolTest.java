@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests that the number of Truffle compiler threads follows the length of the compile queue.
+ */
+public class CompilerThreadPoolTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    @Test
+    public void testNoThreadForSingleWaitingTask() {
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads()) {
+            /* One blocking compilation waits for the blocked threads without starting a new one. */
+            assertEquals(blocked.getBlockedCount(), runtime.getCompilerThreadCount());
+            assertTrue(runtime.getCompilationQueueSize() >= 1);
+        }
+    }
+
+    @Test
+    public void testGrowToMaximum() {
+        int maximum = runtime.getMaximumCompilerThreadCount();
+        long startedBefore = runtime.getCompilationQueueLatency().getCount();
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads()) {
+            /*
+             * A thread is started whenever more compilations wait than there are threads, so twice
+             * the maximum number of waiting compilations is enough to start all threads.
+             */
+            for (int i = 0; i < 2 * maximum + 2; i++) {
+                blocked.queueBlocker();
+            }
+            BlockedCompilerThreads.waitFor(() -> blocked.getBlockedCount() == maximum);
+            assertEquals(maximum, runtime.getCompilerThreadCount());
+            assertEquals(maximum, runtime.getLargestCompilerThreadCount());
+
+            blocked.queueBlocker();
+            assertEquals(maximum, runtime.getCompilerThreadCount());
+            assertTrue(runtime.getCompilationQueueSize() > maximum);
+        }
+        assertTrue(runtime.getCompilationQueueLatency().getCount() >= startedBefore + maximum);
+    }
+
+    /**
+     * Threads above the minimum terminate once they have been idle for the keep-alive time.
+     */
+    @Test
+    public void testShrinkToMinimum() {
+        Assume.assumeTrue(TruffleCompilerOptions.TruffleCompilerThreads.getValue() <= 0);
+        int keepAlive = TruffleCompilerOptions.TruffleCompilerThreadKeepAlive.getValue();
+        Assume.assumeTrue(keepAlive <= BlockedCompilerThreads.TIMEOUT_MILLIS);
+        int minimum = Math.max(1, TruffleCompilerOptions.TruffleMinCompilerThreads.getValue());
+        int maximum = runtime.getMaximumCompilerThreadCount();
+        Assume.assumeTrue(minimum < maximum);
+
+        try (BlockedCompilerThreads blocked = new BlockedCompilerThreads()) {
+            for (int i = 0; i < 2 * maximum + 2; i++) {
+                blocked.queueBlocker();
+            }
+            BlockedCompilerThreads.waitFor(() -> runtime.getCompilerThreadCount() == maximum);
+        }
+        BlockedCompilerThreads.waitFor(() -> runtime.getCompilerThreadCount() <= minimum);
+    }
+
+    /**
+     * Calls its callee only if it gets an argument, so that the callee does not get hotter than
+     * its caller.
+     */
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private DirectCallNode callNode;
+
+        CallerRootNode(OptimizedCallTarget callee) {
+            super(MockLanguage.class, null, null);
+            this.callNode = runtime.createDirectCallNode(callee);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return frame.getArguments().length == 0 ? 42 : callNode.call(frame, new Object[0]);
+        }
+    }
+
+    /**
+     * With {@link TruffleCompilerOptions#TruffleBatchCompilation}, a queued callee is removed from
+     * the queue and compiled by the thread that compiled its caller.
+     */
+    @Test
+    public void testBatchCompilation() {
+        Assume.assumeTrue(TruffleCompilerOptions.TruffleCompilationThreshold.getValue() > 500);
+        Assume.assumeFalse(TruffleCompilerOptions.TruffleCompileImmediately.getValue());
+        boolean batchCompilation = TruffleCompilerOptions.TruffleBatchCompilation.getValue();
+        int maxCallerSize = TruffleCompilerOptions.TruffleInliningMaxCallerSize.getValue();
+        try {
+            /* Compiler threads do not see overrides of the test thread. */
+            TruffleCompilerOptions.TruffleBatchCompilation.setValue(true);
+            /* The callee must not be inlined, which would remove it from the queue. */
+            TruffleCompilerOptions.TruffleInliningMaxCallerSize.setValue(0);
+
+            OptimizedCallTarget callee = BlockedCompilerThreads.createTarget(0);
+            OptimizedCallTarget caller = (OptimizedCallTarget) runtime.createCallTarget(new CallerRootNode(callee));
+            for (int i = 0; i < 500; i++) {
+                caller.call();
+            }
+            try (BlockedCompilerThreads blocked = new BlockedCompilerThreads()) {
+                try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleCompilationThreshold, 10)) {
+                    callee.compile();
+                    caller.compile();
+                }
+                blocked.releaseOne();
+                assertEquals(Arrays.asList(caller, callee), blocked.awaitStarted(callee, caller));
+                assertSame(blocked.getThread(caller), blocked.getThread(callee));
+            }
+        } finally {
+            TruffleCompilerOptions.TruffleBatchCompilation.setValue(batchCompilation);
+            TruffleCompilerOptions.TruffleInliningMaxCallerSize.setValue(maxCallerSize);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.graal.truffle.debug.AbstractDebugCompilationListener;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+
+import jdk.vm.ci.code.BailoutException;
+
+/**
+ * Tests the compilation of call targets whose graph exceeds
+ * {@link TruffleCompilerOptions#TruffleMaximumGraphSize}.
+ */
+public class GraphSizeBudgetTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static final class NotificationCounter extends AbstractDebugCompilationListener {
+
+        private final OptimizedCallTarget target;
+        int truffleTierFinished;
+        int successes;
+        int failures;
+        Throwable failure;
+
+        NotificationCounter(OptimizedCallTarget target) {
+            this.target = target;
+        }
+
+        @Override
+        public void notifyCompilationTruffleTierFinished(OptimizedCallTarget compiledTarget, TruffleInlining inliningDecision, StructuredGraph graph) {
+            if (compiledTarget == target) {
+                truffleTierFinished++;
+            }
+        }
+
+        @Override
+        public void notifyCompilationSuccess(OptimizedCallTarget compiledTarget, TruffleInlining inliningDecision, StructuredGraph graph, CompilationResult result) {
+            if (compiledTarget == target) {
+                successes++;
+            }
+        }
+
+        @Override
+        public void notifyCompilationFailed(OptimizedCallTarget compiledTarget, StructuredGraph graph, Throwable t) {
+            if (compiledTarget == target) {
+                failures++;
+                failure = t;
+            }
+        }
+    }
+
+    private static OptimizedCallTarget createTarget() {
+        OptimizedCallTarget target = (OptimizedCallTarget) runtime.createCallTarget(new RootNode(MockLanguage.class, null, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                Object[] arguments = frame.getArguments();
+                return arguments.length == 0 ? 0 : arguments.length * 31 + arguments[0].hashCode();
+            }
+        });
+        target.call();
+        target.call(42);
+        return target;
+    }
+
+    @Test
+    public void testWithinBudget() {
+        OptimizedCallTarget target = createTarget();
+        NotificationCounter counter = new NotificationCounter(target);
+        runtime.addCompilationListener(counter);
+        try {
+            runtime.getTruffleCompiler().compileMethod(target);
+            assertEquals(1, counter.truffleTierFinished);
+            assertEquals(1, counter.successes);
+            assertEquals(0, counter.failures);
+        } finally {
+            runtime.removeCompilationListener(counter);
+        }
+    }
+
+    @Test
+    public void testOverBudget() {
+        OptimizedCallTarget target = createTarget();
+        NotificationCounter counter = new NotificationCounter(target);
+        runtime.addCompilationListener(counter);
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleMaximumGraphSize, 1)) {
+            try {
+                runtime.getTruffleCompiler().compileMethod(target);
+                fail("expected a bailout");
+            } catch (BailoutException e) {
+                assertTrue(e.isPermanent());
+                assertTrue(e.getMessage(), e.getMessage().contains("TruffleMaximumGraphSize"));
+            }
+            assertEquals(1, counter.failures);
+            assertTrue(counter.failure instanceof BailoutException);
+            assertEquals(0, counter.successes);
+            assertEquals(0, counter.truffleTierFinished);
+        } finally {
+            runtime.removeCompilationListener(counter);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests that a {@link TruffleInlining} reuses the decisions of a previous exploration for the call
+ * trees that did not change since.
+ */
+public class IncrementalInliningTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static class ValueNode extends Node {
+
+        Object execute() {
+            return 42;
+        }
+    }
+
+    private static final class LeafRootNode extends RootNode {
+
+        @Child ValueNode value = new ValueNode();
+
+        LeafRootNode() {
+            super(MockLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return value.execute();
+        }
+    }
+
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private DirectCallNode call1;
+        @Child private DirectCallNode call2;
+
+        CallerRootNode(OptimizedCallTarget callee1, OptimizedCallTarget callee2) {
+            super(MockLanguage.class, null, null);
+            this.call1 = runtime.createDirectCallNode(callee1);
+            this.call2 = runtime.createDirectCallNode(callee2);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            call1.call(frame, new Object[0]);
+            return call2.call(frame, new Object[0]);
+        }
+    }
+
+    @Test
+    public void testReuseUnchangedCallTrees() {
+        LeafRootNode leaf1 = new LeafRootNode();
+        LeafRootNode leaf2 = new LeafRootNode();
+        OptimizedCallTarget callee1 = (OptimizedCallTarget) runtime.createCallTarget(leaf1);
+        OptimizedCallTarget callee2 = (OptimizedCallTarget) runtime.createCallTarget(leaf2);
+        OptimizedCallTarget caller = (OptimizedCallTarget) runtime.createCallTarget(new CallerRootNode(callee1, callee2));
+        for (int i = 0; i < 10; i++) {
+            caller.call();
+        }
+
+        TruffleInlining first = new TruffleInlining(caller, new DefaultInliningPolicy());
+        Assume.assumeTrue("call sites are not inlined", first.countInlinedCalls() == 2);
+        assertEquals(2, first.getExploredCallSiteCount());
+        assertEquals(0, first.getReusedCallSiteCount());
+
+        TruffleInlining second = new TruffleInlining(caller, new DefaultInliningPolicy(), first);
+        assertEquals(0, second.getExploredCallSiteCount());
+        assertEquals(2, second.getReusedCallSiteCount());
+        assertEquals(2, second.countInlinedCalls());
+
+        /* A rewrite in the second callee invalidates only its decision. */
+        leaf2.value.replace(new ValueNode());
+        TruffleInlining third = new TruffleInlining(caller, new DefaultInliningPolicy(), second);
+        assertEquals(1, third.getExploredCallSiteCount());
+        assertEquals(1, third.getReusedCallSiteCount());
+        assertEquals(2, third.countInlinedCalls());
+    }
+
+    @Test
+    public void testNoReuseWithoutPrevious() {
+        OptimizedCallTarget callee1 = (OptimizedCallTarget) runtime.createCallTarget(new LeafRootNode());
+        OptimizedCallTarget callee2 = (OptimizedCallTarget) runtime.createCallTarget(new LeafRootNode());
+        OptimizedCallTarget caller = (OptimizedCallTarget) runtime.createCallTarget(new CallerRootNode(callee1, callee2));
+        caller.call();
+
+        TruffleInlining inlining = new TruffleInlining(caller, new DefaultInliningPolicy(), null);
+        assertEquals(2, inlining.getExploredCallSiteCount());
+        assertEquals(0, inlining.getReusedCallSiteCount());
+    }
+}
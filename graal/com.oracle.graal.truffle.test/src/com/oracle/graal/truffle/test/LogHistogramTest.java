@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.debug.LogHistogram;
+
+/**
+ * Tests the buckets of {@link LogHistogram} and the merging of its intervals into the totals.
+ */
+public class LogHistogramTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        assertEquals(0, LogHistogram.bucket(-1));
+        assertEquals(0, LogHistogram.bucket(0));
+        assertEquals(1, LogHistogram.bucket(1));
+        assertEquals(2, LogHistogram.bucket(2));
+        assertEquals(2, LogHistogram.bucket(3));
+        assertEquals(3, LogHistogram.bucket(4));
+        assertEquals(LogHistogram.BUCKETS - 1, LogHistogram.bucket(Long.MAX_VALUE));
+        for (int i = 1; i < LogHistogram.BUCKETS; i++) {
+            long upper = LogHistogram.upperBound(i);
+            assertEquals(i, LogHistogram.bucket(upper));
+            assertEquals(i, LogHistogram.bucket(LogHistogram.upperBound(i - 1) + 1));
+            if (i < LogHistogram.BUCKETS - 1) {
+                assertEquals(i + 1, LogHistogram.bucket(upper + 1));
+            }
+        }
+        assertEquals(0, LogHistogram.upperBound(0));
+        assertEquals(Long.MAX_VALUE, LogHistogram.upperBound(LogHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LogHistogram histogram = new LogHistogram();
+        long[] empty = histogram.getTotal();
+        assertEquals(0, LogHistogram.count(empty));
+        assertEquals(0, LogHistogram.percentile(empty, 50));
+        assertEquals(0, LogHistogram.percentile(empty, 100));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        long[] counts = histogram.getTotal();
+        assertEquals(100, LogHistogram.count(counts));
+        assertEquals(1, LogHistogram.percentile(counts, 1));
+        assertEquals(63, LogHistogram.percentile(counts, 50));
+        assertEquals(127, LogHistogram.percentile(counts, 90));
+        assertEquals(127, LogHistogram.percentile(counts, 100));
+        assertEquals(1, LogHistogram.percentile(counts, 0));
+    }
+
+    @Test
+    public void testIntervalsMergeIntoTotal() {
+        LogHistogram histogram = new LogHistogram();
+        long[] merged = new long[LogHistogram.BUCKETS];
+        for (int interval = 0; interval < 3; interval++) {
+            for (int i = 0; i < 10; i++) {
+                histogram.record(i * (interval + 1));
+            }
+            long[] counts = histogram.resetInterval();
+            assertEquals(10, LogHistogram.count(counts));
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] += counts[i];
+            }
+        }
+        assertEquals(0, LogHistogram.count(histogram.resetInterval()));
+        assertArrayEquals(merged, histogram.getTotal());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LogHistogram histogram = new LogHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long[] counts = histogram.getTotal();
+        assertEquals(40000, LogHistogram.count(counts));
+        assertEquals(4, counts[0]);
+        assertEquals(4, counts[1]);
+        assertEquals(8, counts[2]);
+        assertArrayEquals(counts, histogram.resetInterval());
+    }
+}
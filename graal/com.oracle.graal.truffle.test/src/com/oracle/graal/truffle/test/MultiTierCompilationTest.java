@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.graal.truffle.debug.AbstractDebugCompilationListener;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
+import com.oracle.truffle.api.frame.FrameSlotTypeException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.LoopNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RepeatingNode;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests the transition of call targets from the first tier to the second tier with
+ * {@link TruffleCompilerOptions#TruffleMultiTier}.
+ */
+public class MultiTierCompilationTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static final class CompilationCounter extends AbstractDebugCompilationListener {
+
+        private final OptimizedCallTarget target;
+        volatile int compilations;
+
+        CompilationCounter(OptimizedCallTarget target) {
+            this.target = target;
+        }
+
+        @Override
+        public void notifyCompilationSuccess(OptimizedCallTarget compiledTarget, TruffleInlining inliningDecision, StructuredGraph graph, CompilationResult result) {
+            if (compiledTarget == target) {
+                compilations++;
+            }
+        }
+    }
+
+    private static final class CountDownNode extends Node implements RepeatingNode {
+
+        private final FrameSlot counter;
+
+        CountDownNode(FrameSlot counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public boolean executeRepeating(VirtualFrame frame) {
+            try {
+                int value = frame.getInt(counter);
+                frame.setInt(counter, value - 1);
+                return value > 0;
+            } catch (FrameSlotTypeException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Runs a loop with as many iterations as given by the first argument.
+     */
+    private static final class LoopRootNode extends RootNode {
+
+        private final FrameSlot counter;
+        @Child private LoopNode loop;
+
+        LoopRootNode() {
+            super(MockLanguage.class, null, new FrameDescriptor());
+            this.counter = getFrameDescriptor().addFrameSlot("counter", FrameSlotKind.Int);
+            this.loop = Truffle.getRuntime().createLoopNode(new CountDownNode(counter));
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            frame.setInt(counter, (int) frame.getArguments()[0]);
+            loop.executeLoop(frame);
+            return null;
+        }
+    }
+
+    private static void assertCompiled(OptimizedCallTarget target) {
+        try {
+            runtime.waitForCompilation(target, 10000);
+        } catch (ExecutionException | TimeoutException e) {
+            fail("timeout");
+        }
+        assertTrue(target.isValid());
+    }
+
+    private static int getFirstTierThreshold() {
+        int firstTierThreshold = TruffleCompilerOptions.TruffleFirstTierCompilationThreshold.getValue();
+        Assume.assumeTrue(firstTierThreshold >= TruffleCompilerOptions.TruffleMinInvokeThreshold.getValue());
+        Assume.assumeTrue(firstTierThreshold < TruffleCompilerOptions.TruffleCompilationThreshold.getValue());
+        Assume.assumeFalse(TruffleCompilerOptions.TruffleCompileImmediately.getValue());
+        return firstTierThreshold;
+    }
+
+    /*
+     * Test that calls of the first tier code are counted and lead to a second tier compilation,
+     * which does not profile anymore.
+     */
+    @Test
+    public void testSecondTierAfterCalls() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleMultiTier, true)) {
+            int firstTierThreshold = getFirstTierThreshold();
+            int threshold = TruffleCompilerOptions.TruffleCompilationThreshold.getValue();
+            OptimizedCallTarget target = (OptimizedCallTarget) runtime.createCallTarget(new LoopRootNode());
+            CompilationCounter counter = new CompilationCounter(target);
+            runtime.addCompilationListener(counter);
+            try {
+                for (int i = 0; i < firstTierThreshold; i++) {
+                    target.call(0);
+                }
+                assertCompiled(target);
+                assertEquals(1, counter.compilations);
+
+                for (int i = firstTierThreshold; i < threshold; i++) {
+                    target.call(0);
+                }
+                assertCompiled(target);
+                assertEquals(2, counter.compilations);
+
+                for (int i = 0; i < threshold; i++) {
+                    target.call(0);
+                }
+                assertTrue(target.isValid());
+                assertEquals(2, counter.compilations);
+            } finally {
+                runtime.removeCompilationListener(counter);
+            }
+        }
+    }
+
+    /*
+     * Test that loop iterations in the first tier code are counted and lead to a second tier
+     * compilation.
+     */
+    @Test
+    public void testSecondTierAfterLoopIterations() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleMultiTier, true)) {
+            int firstTierThreshold = getFirstTierThreshold();
+            int threshold = TruffleCompilerOptions.TruffleCompilationThreshold.getValue();
+            Assume.assumeTrue(threshold < TruffleCompilerOptions.TruffleOSRCompilationThreshold.getValue());
+            OptimizedCallTarget target = (OptimizedCallTarget) runtime.createCallTarget(new LoopRootNode());
+            CompilationCounter counter = new CompilationCounter(target);
+            runtime.addCompilationListener(counter);
+            try {
+                for (int i = 0; i < firstTierThreshold; i++) {
+                    target.call(0);
+                }
+                assertCompiled(target);
+                assertEquals(1, counter.compilations);
+
+                // a single call of the first tier code whose loop iterations exceed the threshold
+                target.call(threshold);
+                target.call(0);
+                assertCompiled(target);
+                assertEquals(2, counter.compilations);
+            } finally {
+                runtime.removeCompilationListener(counter);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.OptimizedAssumption;
+
+import jdk.vm.ci.code.InstalledCode;
+
+/**
+ * Tests the lock-free tracking of dependent code in {@link OptimizedAssumption}.
+ */
+public class OptimizedAssumptionTest {
+
+    private static final int THREADS = 4;
+    private static final int CODES_PER_THREAD = 1000;
+
+    private static final class TestCode extends InstalledCode {
+
+        final AtomicInteger invalidations = new AtomicInteger();
+        private volatile boolean valid = true;
+
+        TestCode() {
+            super("test");
+        }
+
+        @Override
+        public void invalidate() {
+            invalidations.incrementAndGet();
+            version++;
+            valid = false;
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+    }
+
+    private static List<TestCode> createCodes(int count) {
+        List<TestCode> codes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            codes.add(new TestCode());
+        }
+        return codes;
+    }
+
+    /**
+     * Runs one action per thread, starting all of them at the same time.
+     */
+    private static void runConcurrently(List<Runnable> actions) throws Throwable {
+        CyclicBarrier barrier = new CyclicBarrier(actions.size());
+        List<Thread> threads = new ArrayList<>();
+        Throwable[] failure = new Throwable[1];
+        for (Runnable action : actions) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    action.run();
+                } catch (Throwable t) {
+                    synchronized (failure) {
+                        failure[0] = t;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    @Test
+    public void testConcurrentRegistration() throws Throwable {
+        OptimizedAssumption assumption = new OptimizedAssumption("test");
+        List<TestCode> codes = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            List<TestCode> threadCodes = createCodes(CODES_PER_THREAD);
+            codes.addAll(threadCodes);
+            actions.add(() -> threadCodes.forEach(assumption::registerInstalledCode));
+        }
+        runConcurrently(actions);
+        assertTrue(assumption.isValid());
+
+        assumption.invalidate();
+        assertFalse(assumption.isValid());
+        for (TestCode code : codes) {
+            assertEquals(1, code.invalidations.get());
+        }
+    }
+
+    /**
+     * Code registered while the assumption is invalidated must be invalidated exactly once, either
+     * with the detached entries or because the registration sees the invalidated assumption.
+     */
+    @Test
+    public void testRegistrationDuringInvalidation() throws Throwable {
+        for (int round = 0; round < 20; round++) {
+            OptimizedAssumption assumption = new OptimizedAssumption("test");
+            List<TestCode> codes = new ArrayList<>();
+            List<Runnable> actions = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                List<TestCode> threadCodes = createCodes(CODES_PER_THREAD / 10);
+                codes.addAll(threadCodes);
+                actions.add(() -> threadCodes.forEach(assumption::registerInstalledCode));
+            }
+            actions.add(assumption::invalidate);
+            runConcurrently(actions);
+
+            assertFalse(assumption.isValid());
+            for (TestCode code : codes) {
+                assertEquals(1, code.invalidations.get());
+            }
+        }
+    }
+
+    /**
+     * When several threads invalidate an assumption at once, none of them may return while code
+     * depending on the assumption is still valid.
+     */
+    @Test
+    public void testConcurrentInvalidation() throws Throwable {
+        for (int round = 0; round < 20; round++) {
+            OptimizedAssumption assumption = new OptimizedAssumption("test");
+            List<TestCode> codes = createCodes(THREADS * CODES_PER_THREAD);
+            codes.forEach(assumption::registerInstalledCode);
+            List<Runnable> actions = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                actions.add(() -> {
+                    assumption.invalidate();
+                    assertFalse(assumption.isValid());
+                    for (TestCode code : codes) {
+                        assertFalse(code.isValid());
+                    }
+                });
+            }
+            runConcurrently(actions);
+            for (TestCode code : codes) {
+                assertEquals(1, code.invalidations.get());
+            }
+        }
+    }
+
+    /**
+     * Entries of code invalidated while the assumption stays valid are dropped, and the code is not
+     * invalidated again along with the assumption.
+     */
+    @Test
+    public void testDeadEntries() {
+        OptimizedAssumption assumption = new OptimizedAssumption("test");
+        List<TestCode> live = createCodes(10);
+        live.forEach(assumption::registerInstalledCode);
+        List<TestCode> dead = createCodes(100);
+        for (TestCode code : dead) {
+            assumption.registerInstalledCode(code);
+            code.invalidate();
+        }
+        assertTrue(assumption.isValid());
+
+        assumption.invalidate();
+        for (TestCode code : live) {
+            assertEquals(1, code.invalidations.get());
+        }
+        for (TestCode code : dead) {
+            assertEquals(1, code.invalidations.get());
+        }
+    }
+
+    @Test
+    public void testRegistrationAfterInvalidation() {
+        OptimizedAssumption assumption = new OptimizedAssumption("test");
+        assumption.invalidate();
+        TestCode code = new TestCode();
+        assumption.registerInstalledCode(code);
+        assertFalse(code.isValid());
+        assertEquals(1, code.invalidations.get());
+    }
+}
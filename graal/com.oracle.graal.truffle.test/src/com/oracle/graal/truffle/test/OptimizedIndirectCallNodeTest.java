@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.OptimizedDirectCallNode;
+import com.oracle.graal.truffle.OptimizedIndirectCallNode;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.nodes.RootNode;
+
+public class OptimizedIndirectCallNodeTest {
+
+    private static final class ConstantRootNode extends RootNode {
+
+        private final int value;
+
+        ConstantRootNode(int value) {
+            super(MockLanguage.class, null, null);
+            this.value = value;
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return value;
+        }
+    }
+
+    private static final class IndirectCallRootNode extends RootNode {
+
+        @Child IndirectCallNode callNode = Truffle.getRuntime().createIndirectCallNode();
+
+        IndirectCallRootNode() {
+            super(MockLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return callNode.call(frame, (CallTarget) frame.getArguments()[0], new Object[0]);
+        }
+    }
+
+    @Test
+    public void testInlineCache() {
+        int cacheSize = TruffleCompilerOptions.TruffleIndirectCallCacheSize.getValue();
+        List<CallTarget> targets = new ArrayList<>();
+        for (int i = 0; i <= cacheSize; i++) {
+            targets.add(Truffle.getRuntime().createCallTarget(new ConstantRootNode(i)));
+        }
+        IndirectCallRootNode rootNode = new IndirectCallRootNode();
+        CallTarget caller = Truffle.getRuntime().createCallTarget(rootNode);
+        OptimizedIndirectCallNode callNode = (OptimizedIndirectCallNode) rootNode.callNode;
+
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int i = 0; i < cacheSize; i++) {
+                assertEquals(i, caller.call(targets.get(i)));
+            }
+        }
+        assertEquals(cacheSize, NodeUtil.findAllNodeInstances(rootNode, OptimizedDirectCallNode.class).size());
+        assertFalse(callNode.isMegamorphic());
+
+        assertEquals(cacheSize, caller.call(targets.get(cacheSize)));
+        assertTrue(callNode.isMegamorphic());
+        assertEquals(0, NodeUtil.findAllNodeInstances(rootNode, OptimizedDirectCallNode.class).size());
+        for (int i = 0; i <= cacheSize; i++) {
+            assertEquals(i, caller.call(targets.get(i)));
+        }
+    }
+}
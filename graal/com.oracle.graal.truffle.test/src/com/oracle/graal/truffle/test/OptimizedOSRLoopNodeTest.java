@@ -30,6 +30,7 @@ import java.util.function.Function;
 import java.util.stream.IntStream;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.experimental.theories.DataPoint;
@@ -37,6 +38,8 @@ import org.junit.experimental.theories.Theories;
 import org.junit.experimental.theories.Theory;
 import org.junit.runner.RunWith;
 
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
 import com.oracle.graal.truffle.GraalTruffleRuntime;
 import com.oracle.graal.truffle.OptimizedCallTarget;
 import com.oracle.graal.truffle.OptimizedOSRLoopNode;
@@ -114,7 +117,20 @@ public class OptimizedOSRLoopNodeTest {
      */
     @Test
     public void testOSRFrameSlotChangeDuringOSR() {
-        OSRLoopFactory factory = CONFIGURED;
+        checkOSRFrameSlotChangeDuringOSR(CONFIGURED);
+    }
+
+    /*
+     * Test that frame slot changes are transferred back with frame slots inferred from the loop.
+     */
+    @Test
+    public void testOSRFrameSlotChangeDuringOSRInferredSlots() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleOSRInferFrameSlots, true)) {
+            checkOSRFrameSlotChangeDuringOSR(DEFAULT);
+        }
+    }
+
+    private static void checkOSRFrameSlotChangeDuringOSR(OSRLoopFactory factory) {
         TestRootNode rootNode = new TestRootNode(factory, new TestRepeatingNode() {
 
             @Override
@@ -206,6 +222,104 @@ public class OptimizedOSRLoopNodeTest {
         }
     }
 
+    /*
+     * Test that a loop reading the frame arguments sees the arguments of the enclosing frame in its
+     * OSR code.
+     */
+    @Test
+    public void testOSRReadsArguments() {
+        TestRootNode rootNode = new TestRootNode(DEFAULT, new TestRepeatingNode() {
+
+            @Override
+            public boolean executeRepeating(VirtualFrame frame) {
+                if (!(frame.getArguments()[0] instanceof Integer)) {
+                    CompilerDirectives.transferToInterpreter();
+                    throw new AssertionError("Loop frame does not have the arguments of the enclosing frame.");
+                }
+                return super.executeRepeating(frame);
+            }
+
+        });
+        executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+        assertCompiled(rootNode.getOSRTarget());
+        executeNoCallTarget(rootNode, 2);
+        assertCompiled(rootNode.getOSRTarget());
+        Assert.assertTrue(rootNode.wasRepeatingCalledCompiled());
+    }
+
+    /*
+     * Test that writes of a loop to frame slots it looks up dynamically are visible after its OSR
+     * code returns.
+     */
+    @Test
+    public void testOSRDynamicFrameSlots() {
+        TestRootNode rootNode = new TestRootNode(DEFAULT, new TestRepeatingNode() {
+
+            @Override
+            public boolean executeRepeating(VirtualFrame frame) {
+                FrameSlot iterations = findFrameSlot(frame.getFrameDescriptor(), "iterations");
+                try {
+                    frame.setInt(iterations, frame.getInt(iterations) + 1);
+                } catch (FrameSlotTypeException e) {
+                    CompilerDirectives.transferToInterpreter();
+                    throw new AssertionError(e);
+                }
+                return super.executeRepeating(frame);
+            }
+
+        }) {
+
+            @Override
+            public Object execute(VirtualFrame frame) {
+                FrameSlot iterations = findFrameSlot(getFrameDescriptor(), "iterations");
+                frame.setInt(iterations, 0);
+                Object result = super.execute(frame);
+                try {
+                    Assert.assertEquals((int) frame.getArguments()[0] + 1, frame.getInt(iterations));
+                } catch (FrameSlotTypeException e) {
+                    Assert.fail();
+                }
+                return result;
+            }
+
+        };
+        rootNode.getFrameDescriptor().addFrameSlot("iterations", FrameSlotKind.Int);
+
+        executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+        assertCompiled(rootNode.getOSRTarget());
+        executeNoCallTarget(rootNode, 2);
+        assertCompiled(rootNode.getOSRTarget());
+        Assert.assertTrue(rootNode.wasRepeatingCalledCompiled());
+    }
+
+    @TruffleBoundary
+    private static FrameSlot findFrameSlot(FrameDescriptor frameDescriptor, Object identifier) {
+        return frameDescriptor.findFrameSlot(identifier);
+    }
+
+    /*
+     * Test that a loop that repeatedly entered its OSR code is compiled again with a lower
+     * threshold after an invalidation.
+     */
+    @Test
+    public void testOSRThresholdBackoff() {
+        int backoffEntries = TruffleCompilerOptions.TruffleOSRBackoffEntries.getValue();
+        int loweredThreshold = Math.max(OSR_THRESHOLD / 2, TruffleCompilerOptions.TruffleOSRMinimumCompilationThreshold.getValue());
+        Assume.assumeTrue(backoffEntries > 0 && loweredThreshold < OSR_THRESHOLD);
+
+        TestRootNode rootNode = new TestRootNode(DEFAULT, new TestRepeatingNode());
+        executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+        assertCompiled(rootNode.getOSRTarget());
+        for (int i = 0; i < backoffEntries; i++) {
+            executeNoCallTarget(rootNode, 1);
+            assertCompiled(rootNode.getOSRTarget());
+        }
+
+        rootNode.getOSRTarget().invalidate();
+        executeNoCallTarget(rootNode, loweredThreshold + 1);
+        assertCompiled(rootNode.getOSRTarget());
+    }
+
     /*
      * Test behavior of OSR compile loops if the invalidate internally during loop execution. Also
      * test that it respects the invalidation reprofile count.
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.RecordedCompilations;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+
+/**
+ * Tests the keys and the file format of {@link RecordedCompilations}.
+ */
+public class RecordedCompilationsTest {
+
+    private static final GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+
+    private static final String CODE = "function a() {}\nfunction b() {}\n";
+
+    private static OptimizedCallTarget createTarget(SourceSection section) {
+        return (OptimizedCallTarget) runtime.createCallTarget(new RootNode(MockLanguage.class, section, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return 42;
+            }
+        });
+    }
+
+    private static OptimizedCallTarget createTarget(String name, int charIndex, int length) {
+        return createTarget(Source.fromText(CODE, name).createSection("test", charIndex, length));
+    }
+
+    @Test
+    public void testKeyStability() {
+        String key = RecordedCompilations.key(createTarget("test.js", 0, 15));
+        assertNotNull(key);
+        /* A key only depends on the source and the position, not on the call target instance. */
+        assertEquals(key, RecordedCompilations.key(createTarget("test.js", 0, 15)));
+        assertNotEquals(key, RecordedCompilations.key(createTarget("test.js", 16, 15)));
+        assertNotEquals(key, RecordedCompilations.key(createTarget("test.js", 0, 14)));
+        assertNotEquals(key, RecordedCompilations.key(createTarget("other.js", 0, 15)));
+        assertNull(RecordedCompilations.key(createTarget(null)));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        OptimizedCallTarget a = createTarget("test.js", 0, 15);
+        OptimizedCallTarget b = createTarget("test.js", 16, 15);
+        OptimizedCallTarget anonymous = createTarget(null);
+        RecordedCompilations recording = new RecordedCompilations();
+        for (OptimizedCallTarget target : Arrays.asList(a, anonymous, b, a)) {
+            target.call();
+            recording.notifyCompilationSuccess(target, new TruffleInlining(target, new DefaultInliningPolicy()), null, null);
+        }
+
+        Path file = Files.createTempFile("RecordedCompilationsTest", ".txt");
+        try {
+            recording.write(file);
+            assertEquals(Arrays.asList(RecordedCompilations.key(a), RecordedCompilations.key(b)), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+            Set<String> keys = RecordedCompilations.read(file);
+            assertEquals(2, keys.size());
+            assertTrue(keys.contains(RecordedCompilations.key(a)));
+            assertTrue(keys.contains(RecordedCompilations.key(b)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testReadInlinedTargets() throws IOException {
+        Path file = Files.createTempFile("RecordedCompilationsTest", ".txt");
+        try {
+            Files.write(file, Arrays.asList("test.js:0+15\ttest.js:16+15", "", "test.js:32+1"), StandardCharsets.UTF_8);
+            Set<String> keys = RecordedCompilations.read(file);
+            /* Inlined call targets are informational and not replayed unless recorded themselves. */
+            assertEquals(2, keys.size());
+            assertTrue(keys.contains("test.js:0+15"));
+            assertTrue(keys.contains("test.js:32+1"));
+            assertFalse(keys.contains("test.js:16+15"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSeparatorsInSourceName() throws IOException {
+        OptimizedCallTarget tab = createTarget("a\tb.js", 0, 15);
+        OptimizedCallTarget newline = createTarget("a\nb.js", 0, 15);
+        OptimizedCallTarget escaped = createTarget("a\\tb.js", 0, 15);
+        OptimizedCallTarget plain = createTarget("test.js", 0, 15);
+        Set<String> expected = new HashSet<>();
+        for (OptimizedCallTarget target : Arrays.asList(tab, newline, escaped)) {
+            String key = RecordedCompilations.key(target);
+            assertFalse(key, key.contains("\t") || key.contains("\n") || key.contains("\r"));
+            expected.add(key);
+        }
+        /* Escaping must keep the keys of different names apart. */
+        assertEquals(3, expected.size());
+        expected.add(RecordedCompilations.key(plain));
+
+        RecordedCompilations recording = new RecordedCompilations();
+        for (OptimizedCallTarget target : Arrays.asList(tab, newline, escaped, plain)) {
+            target.call();
+            recording.notifyCompilationSuccess(target, new TruffleInlining(target, new DefaultInliningPolicy()), null, null);
+        }
+        Path file = Files.createTempFile("RecordedCompilationsTest", ".txt");
+        try {
+            recording.write(file);
+            assertEquals(4, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+            assertEquals(expected, RecordedCompilations.read(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -27,14 +27,25 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.junit.Test;
 
 import com.oracle.graal.api.test.Graal;
 import com.oracle.graal.runtime.RuntimeProvider;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleRuntime;
 import com.oracle.truffle.api.impl.DefaultTruffleRuntime;
+import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.impl.TVMCI;
+import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.object.LayoutFactory;
 
 public class TruffleRuntimeTest {
@@ -83,4 +94,24 @@ public class TruffleRuntimeTest {
         // Bootstrap class loader or JVMCI class loader
         assertTrue(layoutFactory.getClass().getClassLoader() == null || layoutFactory.getClass().getClassLoader() == runtime.getClass().getClassLoader());
     }
+
+    @Test
+    public void testGetCallTargets() {
+        GraalTruffleRuntime runtime = GraalTruffleRuntime.getRuntime();
+        long countBefore = runtime.getCallTargetCount();
+        List<RootCallTarget> targets = IntStream.range(0, 1000).parallel().mapToObj(i -> runtime.createCallTarget(new RootNode(MockLanguage.class, null, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return i;
+            }
+        })).collect(Collectors.toList());
+
+        Set<RootCallTarget> registered = Collections.newSetFromMap(new IdentityHashMap<>());
+        runtime.getCallTargets().forEach(registered::add);
+        assertTrue(registered.containsAll(targets));
+        assertTrue(runtime.getCallTargets().stream().count() >= targets.size());
+        // targets that were registered before may have been collected in the meantime
+        assertTrue(runtime.getCallTargetCount() >= targets.size());
+        assertTrue(runtime.getCallTargetCount() <= countBefore + targets.size());
+    }
 }
@@ -46,12 +46,21 @@ public abstract class AbstractCompilationProfile {
 
     abstract void reportCompilationFailure(Throwable t);
 
+    /**
+     * Reports a compilation that was aborted by a non-permanent bailout and may be retried.
+     */
+    abstract void reportCompilationBailout();
+
     abstract void reportLoopCount(int count);
 
     abstract void reportNodeReplaced();
 
     abstract void interpreterCall(OptimizedCallTarget callTarget);
 
+    abstract void firstTierCall(OptimizedCallTarget callTarget);
+
+    abstract boolean isFirstTierCompilation();
+
     abstract void reportInvalidated();
 
     public Map<String, Object> getDebugProperties() {
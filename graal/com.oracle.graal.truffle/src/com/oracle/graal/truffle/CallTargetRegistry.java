@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.oracle.truffle.api.RootCallTarget;
+
+/**
+ * The call targets created by a {@link GraalTruffleRuntime}, referenced weakly. The registry is
+ * split into stripes selected by the identity hash code of the call target, so that threads
+ * creating call targets concurrently rarely contend. Iteration does not lock and is weakly
+ * consistent: it reflects the call targets registered and not yet collected at some point during
+ * the iteration.
+ *
+ * The references of collected call targets are removed by a daemon thread that blocks on the
+ * reference queue, so that neither registration nor iteration pays for the cleanup.
+ */
+final class CallTargetRegistry {
+
+    private static final class Entry extends WeakReference<RootCallTarget> {
+
+        final int stripe;
+
+        Entry(RootCallTarget referent, int stripe, ReferenceQueue<? super RootCallTarget> queue) {
+            super(referent, queue);
+            this.stripe = stripe;
+        }
+    }
+
+    private final Set<Entry>[] stripes;
+    private final ReferenceQueue<RootCallTarget> collectedTargets = new ReferenceQueue<>();
+    private final LongAdder population = new LongAdder();
+    private final Collection<RootCallTarget> view = new View();
+
+    @SuppressWarnings("unchecked")
+    CallTargetRegistry() {
+        // twice the number of processors, rounded up to a power of two
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2;
+        stripes = new Set[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = ConcurrentHashMap.newKeySet();
+        }
+        Thread cleaner = new Thread(this::removeCollectedTargets, "TruffleCallTargetRegistryCleaner");
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+
+    void register(RootCallTarget target) {
+        int hash = System.identityHashCode(target);
+        int stripe = (hash ^ (hash >>> 16)) & (stripes.length - 1);
+        stripes[stripe].add(new Entry(target, stripe, collectedTargets));
+        population.increment();
+    }
+
+    /**
+     * Returns the number of registered call targets that were not yet found to be collected.
+     */
+    long getPopulation() {
+        return population.sum();
+    }
+
+    /**
+     * Returns an unmodifiable, weakly consistent view of the registered call targets.
+     */
+    Collection<RootCallTarget> getCallTargets() {
+        return view;
+    }
+
+    private void removeCollectedTargets() {
+        while (true) {
+            try {
+                Entry entry = (Entry) collectedTargets.remove();
+                if (stripes[entry.stripe].remove(entry)) {
+                    population.decrement();
+                }
+            } catch (InterruptedException e) {
+                // keep draining the queue
+            }
+        }
+    }
+
+    private final class View extends AbstractCollection<RootCallTarget> {
+
+        @Override
+        public Iterator<RootCallTarget> iterator() {
+            return new Iterator<RootCallTarget>() {
+
+                private int stripe = -1;
+                private Iterator<Entry> entries;
+                private RootCallTarget next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null) {
+                        if (entries == null || !entries.hasNext()) {
+                            if (++stripe == stripes.length) {
+                                return false;
+                            }
+                            entries = stripes[stripe].iterator();
+                        } else {
+                            next = entries.next().get();
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public RootCallTarget next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    RootCallTarget result = next;
+                    next = null;
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, getPopulation()));
+        }
+
+        /*
+         * The size is only an estimate, so the spliterator must not report it as exact.
+         */
+        @Override
+        public Spliterator<RootCallTarget> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+}
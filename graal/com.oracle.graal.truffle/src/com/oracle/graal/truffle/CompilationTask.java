@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationQueueMaxDelay;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationThreshold;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Truffle compilation waiting in the {@link GraalTruffleRuntime.BackgroundCompileQueue}.
+ *
+ * Tasks are ordered by a deadline. The deadline of a task is its enqueue time plus
+ * {@link TruffleCompilerOptions#TruffleCompilationQueueMaxDelay} divided by the hotness of the call
+ * target. Hot call targets therefore overtake lukewarm ones, but since the deadline never lies
+ * after the enqueue time plus the maximum delay, a task can only be overtaken by tasks that were
+ * queued less than the maximum delay after it.
+ */
+final class CompilationTask extends FutureTask<Void> implements Comparable<CompilationTask> {
+
+    private static final AtomicLong sequenceNumbers = new AtomicLong();
+
+    private final TargetReference target;
+    private final long sequenceNumber;
+    private final long enqueueTime;
+    private volatile long startTime;
+    private volatile long deadline;
+
+    private CompilationTask(GraalTruffleRuntime runtime, TargetReference target) {
+        super(new Runnable() {
+            @Override
+            public void run() {
+                OptimizedCallTarget callTarget = target.get();
+                if (callTarget != null) {
+                    runtime.doCompile(callTarget);
+                }
+            }
+        }, null);
+        this.target = target;
+        this.sequenceNumber = sequenceNumbers.incrementAndGet();
+        this.enqueueTime = System.nanoTime();
+        target.task = this;
+    }
+
+    static CompilationTask create(GraalTruffleRuntime runtime, OptimizedCallTarget callTarget, ReferenceQueue<? super OptimizedCallTarget> collectedTargets) {
+        CompilationTask task = new CompilationTask(runtime, new TargetReference(callTarget, collectedTargets));
+        task.deadline = task.computeDeadline(callTarget);
+        return task;
+    }
+
+    /**
+     * Returns the call target of this task or {@code null} if it has been garbage collected.
+     */
+    OptimizedCallTarget getCallTarget() {
+        return target.get();
+    }
+
+    /**
+     * Records that a compiler thread started executing this task.
+     *
+     * @return the time in nanoseconds that this task waited in the queue
+     */
+    long markStarted() {
+        startTime = System.nanoTime();
+        return startTime - enqueueTime;
+    }
+
+    /**
+     * Returns the time in nanoseconds that this task waited in the queue, or -1 if it has not
+     * started yet.
+     */
+    long getQueueTime() {
+        long start = startTime;
+        return start == 0 ? -1 : start - enqueueTime;
+    }
+
+    /**
+     * Recomputes the deadline of this task based on the current hotness of its call target. The
+     * deadline only ever moves to an earlier point in time. This method must only be called while
+     * the task is not contained in a priority queue.
+     *
+     * @return {@code true} if the deadline changed
+     */
+    boolean updateDeadline() {
+        OptimizedCallTarget callTarget = target.get();
+        if (callTarget == null) {
+            return false;
+        }
+        long newDeadline = computeDeadline(callTarget);
+        if (newDeadline < deadline) {
+            deadline = newDeadline;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the deadline of this task would move to an earlier point in time when
+     * calling {@link #updateDeadline()}.
+     */
+    boolean isDeadlineOutdated() {
+        OptimizedCallTarget callTarget = target.get();
+        return callTarget != null && computeDeadline(callTarget) < deadline;
+    }
+
+    private long computeDeadline(OptimizedCallTarget callTarget) {
+        long maxDelay = TimeUnit.MILLISECONDS.toNanos(TruffleCompilationQueueMaxDelay.getValue());
+        return enqueueTime + (long) (maxDelay / hotness(callTarget));
+    }
+
+    /**
+     * Computes the hotness of a call target as the number of compilation thresholds reached by its
+     * call and loop count plus the number of compilation thresholds per second the count currently
+     * rises by. The threshold is the lower of the global and the call target's threshold. The
+     * result is at least 1.
+     */
+    static double hotness(OptimizedCallTarget callTarget) {
+        AbstractCompilationProfile profile = callTarget.getCompilationProfile();
+        if (!(profile instanceof DefaultCompilationProfile)) {
+            return 1;
+        }
+        DefaultCompilationProfile defaultProfile = (DefaultCompilationProfile) profile;
+        /* Call targets with a lowered threshold, e.g., replayed compilations, are hotter. */
+        double threshold = Math.max(1, Math.min(TruffleCompilationThreshold.getValue(), defaultProfile.getCompilationCallAndLoopThreshold()));
+        double count = defaultProfile.getInterpreterCallAndLoopCount() / threshold;
+        double rate = defaultProfile.getCallAndLoopRate() / threshold;
+        return Math.max(1, count + rate);
+    }
+
+    @Override
+    public int compareTo(CompilationTask other) {
+        int result = Long.compare(deadline, other.deadline);
+        if (result == 0) {
+            result = Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+        return result;
+    }
+
+    /**
+     * Weak reference to the call target of a task. Registered with a reference queue so that tasks
+     * of collected call targets can be removed from the compile queue eagerly.
+     */
+    static final class TargetReference extends WeakReference<OptimizedCallTarget> {
+
+        private CompilationTask task;
+
+        TargetReference(OptimizedCallTarget referent, ReferenceQueue<? super OptimizedCallTarget> queue) {
+            super(referent, queue);
+        }
+
+        CompilationTask getTask() {
+            return task;
+        }
+    }
+}
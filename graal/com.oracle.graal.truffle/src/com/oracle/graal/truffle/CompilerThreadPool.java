@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import java.util.LongSummaryStatistics;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compiler threads of the {@link GraalTruffleRuntime.BackgroundCompileQueue}. The pool starts
+ * with at most {@code minimumThreads} threads and adds a thread whenever more tasks wait in the
+ * queue than there are threads, up to {@code maximumThreads}. Threads above the minimum terminate
+ * once they have been idle for the keep-alive time.
+ *
+ * A {@link ThreadPoolExecutor} only starts threads above its core pool size when its queue is
+ * full, which never happens for the unbounded priority queue. Instead, the pool starts an
+ * additional thread by raising the core pool size by one and immediately resetting it to the
+ * minimum, which makes the thread subject to the keep-alive time.
+ */
+final class CompilerThreadPool extends ThreadPoolExecutor {
+
+    private final int minimumThreads;
+
+    /** The time in nanoseconds between queuing and starting each compilation. */
+    private final LongSummaryStatistics queueLatency = new LongSummaryStatistics();
+
+    CompilerThreadPool(int minimumThreads, int maximumThreads, long keepAliveMillis, ThreadFactory threadFactory) {
+        /* The queue only ever contains CompilationTasks, which are ordered by priority. */
+        super(minimumThreads, maximumThreads, keepAliveMillis, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+        this.minimumThreads = minimumThreads;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command);
+        startThreadIfNeeded();
+    }
+
+    /**
+     * Puts a task that was {@linkplain #remove(Runnable) removed} from the queue back into it.
+     */
+    void requeue(CompilationTask task) {
+        getQueue().add(task);
+        startThreadIfNeeded();
+    }
+
+    private void startThreadIfNeeded() {
+        int threads = getPoolSize();
+        if (threads < getMaximumPoolSize() && getQueue().size() > threads) {
+            startThread();
+        }
+    }
+
+    private synchronized void startThread() {
+        if (isShutdown()) {
+            return;
+        }
+        int threads = getPoolSize();
+        if (threads < getMaximumPoolSize() && getQueue().size() > threads) {
+            setCorePoolSize(threads + 1);
+            setCorePoolSize(minimumThreads);
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof CompilationTask) {
+            long latency = ((CompilationTask) r).markStarted();
+            synchronized (queueLatency) {
+                queueLatency.accept(latency);
+            }
+        }
+    }
+
+    /**
+     * Runs a task that was {@linkplain #remove(Runnable) removed} from the queue on the current
+     * thread, which must be a thread of this pool. Like the pool's own threads, this calls
+     * {@link #afterExecute} after the task even if it completes abruptly.
+     */
+    void runInCurrentThread(CompilationTask task) {
+        beforeExecute(Thread.currentThread(), task);
+        Throwable thrown = null;
+        try {
+            task.run();
+        } catch (RuntimeException | Error e) {
+            thrown = e;
+            throw e;
+        } finally {
+            afterExecute(task, thrown);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the time in nanoseconds between queuing and starting the compilations
+     * started so far.
+     */
+    LongSummaryStatistics getQueueLatency() {
+        LongSummaryStatistics result = new LongSummaryStatistics();
+        synchronized (queueLatency) {
+            result.combine(queueLatency);
+        }
+        return result;
+    }
+}
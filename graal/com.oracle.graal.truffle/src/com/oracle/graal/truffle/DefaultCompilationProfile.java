@@ -24,9 +24,12 @@ package com.oracle.graal.truffle;
 
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleArgumentTypeSpeculation;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationThreshold;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleFirstTierCompilationThreshold;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInvalidationReprofileCount;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleMinInvokeThreshold;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleMultiTier;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleReplaceReprofileCount;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleReplayCompilationThreshold;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleReturnTypeSpeculation;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleTimeThreshold;
 
@@ -53,8 +56,11 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
     private int interpreterCallAndLoopCount;
     private int compilationCallThreshold;
     private int compilationCallAndLoopThreshold;
+    private int firstTierCallAndLoopThreshold;
 
     private long timestamp;
+    private int timestampCallAndLoopCount;
+    private int priorityUpdateCount;
 
     @CompilationFinal(dimensions = 1) private Class<?>[] profiledArgumentTypes;
     @CompilationFinal private Assumption profiledArgumentTypesAssumption;
@@ -62,11 +68,26 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
     @CompilationFinal private Assumption profiledReturnTypeAssumption;
     @CompilationFinal private Class<?> exceptionType;
 
+    /**
+     * Whether the call target is compiled with the first tier. Code of the first tier keeps
+     * counting calls and loop iterations until the call target is hot enough for a full
+     * compilation. The first tier code is invalidated and the field is cleared before the full
+     * compilation is submitted so that the full tier code does not profile.
+     */
+    @CompilationFinal private volatile boolean firstTier;
+
     private volatile boolean compilationFailed;
 
+    /**
+     * Whether the call target was compiled in a recorded previous run, see
+     * {@link RecordedCompilations}. Such call targets are compiled without deferral.
+     */
+    private boolean recordedCompilation;
+
     public DefaultCompilationProfile() {
         compilationCallThreshold = TruffleMinInvokeThreshold.getValue();
         compilationCallAndLoopThreshold = TruffleCompilationThreshold.getValue();
+        firstTierCallAndLoopThreshold = Math.min(TruffleFirstTierCompilationThreshold.getValue(), compilationCallAndLoopThreshold);
     }
 
     @Override
@@ -195,19 +216,28 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
         compilationFailed = true;
     }
 
+    @Override
+    void reportCompilationBailout() {
+        // do not resubmit the compilation on the next call
+        int reprofile = TruffleInvalidationReprofileCount.getValue();
+        ensureProfiling(0, reprofile);
+    }
+
     @Override
     void reportLoopCount(int count) {
         interpreterCallAndLoopCount += count;
 
         int callsMissing = compilationCallAndLoopThreshold - interpreterCallAndLoopCount;
         if (callsMissing <= getTimestampThreshold() && callsMissing + count > getTimestampThreshold()) {
-            timestamp = System.nanoTime();
+            takeTimestamp();
         }
     }
 
     @Override
     void reportInvalidated() {
         invalidationCount++;
+        firstTier = false;
+        recordedCompilation = false;
         int reprofile = TruffleInvalidationReprofileCount.getValue();
         ensureProfiling(reprofile, reprofile);
     }
@@ -226,17 +256,70 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
 
         int callsMissing = compilationCallAndLoopThreshold - interpreterCallAndLoopCount;
         if (callsMissing == getTimestampThreshold()) {
-            timestamp = System.nanoTime();
+            takeTimestamp();
         }
-        if (!callTarget.isCompiling() && !compilationFailed) {
+        boolean compiling = callTarget.isCompiling();
+        if (!compiling && !compilationFailed) {
             // check if call target is hot enough to get compiled, but took not too long to get hot
-            if ((intAndLoopCallCount >= compilationCallAndLoopThreshold && intCallCount >= compilationCallThreshold && !isDeferredCompile(callTarget)) ||
+            if ((intAndLoopCallCount >= compilationCallAndLoopThreshold && intCallCount >= compilationCallThreshold && (recordedCompilation || !isDeferredCompile(callTarget))) ||
                             TruffleCompilerOptions.TruffleCompileImmediately.getValue()) {
+                priorityUpdateCount = intAndLoopCallCount + getTimestampThreshold();
+                firstTier = false;
+                callTarget.compile();
+            } else if (TruffleMultiTier.getValue() && !firstTier && intAndLoopCallCount >= firstTierCallAndLoopThreshold && intCallCount >= compilationCallThreshold) {
+                priorityUpdateCount = intAndLoopCallCount + getTimestampThreshold();
+                firstTier = true;
                 callTarget.compile();
             }
+        } else if (compiling && intAndLoopCallCount >= priorityUpdateCount) {
+            // still waiting for compilation but got hotter in the meantime
+            priorityUpdateCount = intAndLoopCallCount + getTimestampThreshold();
+            callTarget.updateCompilationPriority();
         }
     }
 
+    @Override
+    void firstTierCall(OptimizedCallTarget callTarget) {
+        if (firstTier) {
+            int intAndLoopCallCount = ++interpreterCallAndLoopCount;
+            if (intAndLoopCallCount >= compilationCallAndLoopThreshold) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                secondTierCompile(callTarget);
+            }
+        }
+    }
+
+    private void secondTierCompile(OptimizedCallTarget callTarget) {
+        if (!callTarget.isCompiling() && !compilationFailed) {
+            firstTier = false;
+            callTarget.compile();
+        }
+    }
+
+    @Override
+    boolean isFirstTierCompilation() {
+        return firstTier;
+    }
+
+    /**
+     * Lowers the compilation thresholds to
+     * {@link TruffleCompilerOptions#TruffleReplayCompilationThreshold} because the call target was
+     * compiled in a recorded previous run.
+     */
+    void prioritizeRecordedCompilation() {
+        int threshold = Math.max(1, TruffleReplayCompilationThreshold.getValue());
+        compilationCallThreshold = Math.min(compilationCallThreshold, threshold);
+        compilationCallAndLoopThreshold = Math.min(compilationCallAndLoopThreshold, threshold);
+        firstTierCallAndLoopThreshold = Math.min(firstTierCallAndLoopThreshold, compilationCallAndLoopThreshold);
+        recordedCompilation = true;
+        takeTimestamp();
+    }
+
+    private void takeTimestamp() {
+        timestamp = System.nanoTime();
+        timestampCallAndLoopCount = interpreterCallAndLoopCount;
+    }
+
     private boolean isDeferredCompile(OptimizedCallTarget target) {
         long threshold = TruffleTimeThreshold.getValue();
 
@@ -264,6 +347,16 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
         return Math.max(TruffleCompilationThreshold.getValue() / 2, 1);
     }
 
+    /**
+     * Returns the classes of the arguments of the direct calls profiled so far. An element is
+     * {@code null} if the calls passed arguments of different classes or {@code null} at that
+     * position. Returns {@code null} if the argument types are not profiled.
+     */
+    Class<?>[] getProfiledArgumentTypes() {
+        CompilerAsserts.neverPartOfCompilation();
+        return profiledArgumentTypes;
+    }
+
     private void initializeProfiledArgumentTypes(Object[] args) {
         CompilerAsserts.neverPartOfCompilation();
         profiledArgumentTypesAssumption = Truffle.getRuntime().createAssumption("Profiled Argument Types");
@@ -303,6 +396,11 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
             this.compilationCallAndLoopThreshold += increaseCallAndLoopThreshold;
         }
 
+        int increaseFirstTierThreshold = callsAndLoop - (this.firstTierCallAndLoopThreshold - this.interpreterCallAndLoopCount);
+        if (increaseFirstTierThreshold > 0) {
+            this.firstTierCallAndLoopThreshold += increaseFirstTierThreshold;
+        }
+
         int increaseCallsThreshold = calls - (this.compilationCallThreshold - this.interpreterCallCount);
         if (increaseCallsThreshold > 0) {
             this.compilationCallThreshold += increaseCallsThreshold;
@@ -349,6 +447,22 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
         return timestamp;
     }
 
+    /**
+     * Returns the number of calls and loop iterations per second since the last timestamp was
+     * taken, or 0 if there is no timestamp.
+     */
+    public double getCallAndLoopRate() {
+        long time = timestamp;
+        if (time == 0) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - time;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (interpreterCallAndLoopCount - timestampCallAndLoopCount) * 1_000_000_000.0 / elapsed;
+    }
+
     public static AbstractCompilationProfile create() {
         return new DefaultCompilationProfile();
     }
@@ -30,8 +30,23 @@ import com.oracle.truffle.api.CompilerOptions;
 public class DefaultInliningPolicy implements TruffleInliningPolicy {
 
     private static final String REASON_RECURSION = "number of recursions > " + TruffleMaximumRecursiveInlining.getValue();
-    private static final String REASON_MAXIMUM_NODE_COUNT = "deepNodeCount * callSites  > " + TruffleInliningMaxCallerSize.getValue();
-    private static final String REASON_MAXIMUM_TOTAL_NODE_COUNT = "totalNodeCount > " + TruffleInliningMaxCallerSize.getValue();
+    private final int maxCallerSize;
+    private final String reasonMaximumNodeCount;
+    private final String reasonMaximumTotalNodeCount;
+
+    public DefaultInliningPolicy() {
+        this(TruffleInliningMaxCallerSize.getValue());
+    }
+
+    /**
+     * @param maxCallerSize the limit of the cumulative tree size of the caller, which replaces
+     *            {@link TruffleCompilerOptions#TruffleInliningMaxCallerSize}
+     */
+    public DefaultInliningPolicy(int maxCallerSize) {
+        this.maxCallerSize = maxCallerSize;
+        this.reasonMaximumNodeCount = "deepNodeCount * callSites  > " + maxCallerSize;
+        this.reasonMaximumTotalNodeCount = "totalNodeCount > " + maxCallerSize;
+    }
 
     @Override
     public double calculateScore(TruffleInliningProfile profile) {
@@ -45,14 +60,14 @@ public class DefaultInliningPolicy implements TruffleInliningPolicy {
             return false;
         }
 
-        int inliningMaxCallerSize = TruffleInliningMaxCallerSize.getValue();
+        int inliningMaxCallerSize = maxCallerSize;
 
         if (options instanceof GraalCompilerOptions) {
             inliningMaxCallerSize = Math.max(inliningMaxCallerSize, ((GraalCompilerOptions) options).getMinInliningMaxCallerSize());
         }
 
         if (currentNodeCount + profile.getDeepNodeCount() > inliningMaxCallerSize) {
-            profile.setFailedReason(REASON_MAXIMUM_TOTAL_NODE_COUNT);
+            profile.setFailedReason(reasonMaximumTotalNodeCount);
             return false;
         }
 
@@ -62,7 +77,7 @@ public class DefaultInliningPolicy implements TruffleInliningPolicy {
 
         int cappedCallSites = Math.min(Math.max(profile.getCallSites(), 1), 10);
         if (profile.getDeepNodeCount() * cappedCallSites > inliningMaxCallerSize) {
-            profile.setFailedReason(REASON_MAXIMUM_NODE_COUNT);
+            profile.setFailedReason(reasonMaximumNodeCount);
             return false;
         }
 
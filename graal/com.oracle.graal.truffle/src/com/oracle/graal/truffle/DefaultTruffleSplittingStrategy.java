@@ -22,18 +22,47 @@
  */
 package com.oracle.graal.truffle;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.oracle.truffle.api.nodes.DirectCallNode;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.nodes.NodeUtil.NodeCountFilter;
 
+/**
+ * Splits the call target of a call site if the call target is small and either contains at most
+ * one call or polymorphic nodes after the second call.
+ *
+ * Additionally, the call target is split if the call site always passes arguments of the same
+ * classes, but the argument type profile of the call target lost these classes because other call
+ * sites pass arguments of different classes. The split call target profiles the argument types of
+ * the call site separately, so that its compiled code can speculate on them. The number of such
+ * splits is limited for the whole runtime by
+ * {@link TruffleCompilerOptions#TruffleArgumentTypeSplittingBudget}. A call site stops profiling
+ * the argument types as soon as it is known whether its call target is split for them.
+ */
 public final class DefaultTruffleSplittingStrategy implements TruffleSplittingStrategy {
 
+    /**
+     * The number of calls after which the argument types of a call site are considered stable.
+     */
+    private static final int ARGUMENT_TYPE_SPLITTING_MIN_CALLS = 16;
+
+    private static final AtomicInteger argumentTypeSplits = new AtomicInteger();
+
     private final OptimizedDirectCallNode call;
 
+    /**
+     * The classes of the arguments passed by all calls of the call site so far, or {@code null} if
+     * the call site is not or no longer considered for splitting because of argument types.
+     */
+    private Class<?>[] argumentTypes;
+    private boolean profileArgumentTypes;
+
     public DefaultTruffleSplittingStrategy(OptimizedDirectCallNode call) {
         this.call = call;
+        this.profileArgumentTypes = TruffleCompilerOptions.TruffleArgumentTypeSplitting.getValue() && TruffleCompilerOptions.TruffleSplitting.getValue();
     }
 
     @Override
@@ -43,6 +72,89 @@ public final class DefaultTruffleSplittingStrategy implements TruffleSplittingSt
                 call.split();
             }
         }
+        if (profileArgumentTypes) {
+            profileArgumentTypes = profileArgumentTypes(arguments);
+        }
+    }
+
+    /**
+     * Profiles the argument types of a call and splits the call target if the argument types of
+     * this call site are monomorphic but those of the call target are not.
+     *
+     * @return {@code false} if the argument types no longer need to be profiled
+     */
+    private boolean profileArgumentTypes(Object[] arguments) {
+        if (!canSplit() || argumentTypeSplits.get() >= TruffleCompilerOptions.TruffleArgumentTypeSplittingBudget.getValue()) {
+            argumentTypes = null;
+            return false;
+        }
+        Class<?>[] types = argumentTypes;
+        if (types == null) {
+            types = new Class<?>[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                types[i] = arguments[i] == null ? null : arguments[i].getClass();
+            }
+            argumentTypes = types;
+        } else {
+            if (types.length != arguments.length) {
+                argumentTypes = null;
+                return false;
+            }
+            for (int i = 0; i < types.length; i++) {
+                Object argument = arguments[i];
+                if (types[i] != (argument == null ? null : argument.getClass())) {
+                    argumentTypes = null;
+                    return false;
+                }
+            }
+        }
+        if (call.getCallCount() >= ARGUMENT_TYPE_SPLITTING_MIN_CALLS && isArgumentTypeProfileMerged(types)) {
+            argumentTypes = null;
+            if (canSplitCallee() && reserveArgumentTypeSplit()) {
+                call.split();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes one split from the budget for argument type splits.
+     *
+     * @return {@code false} if the budget is exhausted
+     */
+    private static boolean reserveArgumentTypeSplit() {
+        int budget = TruffleCompilerOptions.TruffleArgumentTypeSplittingBudget.getValue();
+        while (true) {
+            int splits = argumentTypeSplits.get();
+            if (splits >= budget) {
+                return false;
+            }
+            if (argumentTypeSplits.compareAndSet(splits, splits + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Determines if the call target lost the class of an argument that this call site always
+     * passes.
+     */
+    private boolean isArgumentTypeProfileMerged(Class<?>[] types) {
+        AbstractCompilationProfile profile = call.getCallTarget().getCompilationProfile();
+        if (!(profile instanceof DefaultCompilationProfile)) {
+            return false;
+        }
+        Class<?>[] profiledTypes = ((DefaultCompilationProfile) profile).getProfiledArgumentTypes();
+        if (profiledTypes == null || profiledTypes.length != types.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != null && profiledTypes[i] == null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -66,7 +178,10 @@ public final class DefaultTruffleSplittingStrategy implements TruffleSplittingSt
         return true;
     }
 
-    private boolean shouldSplit() {
+    /**
+     * Determines if the call target can be split and is small and not recursive.
+     */
+    private boolean canSplitCallee() {
         if (!canSplit()) {
             return false;
         }
@@ -83,6 +198,13 @@ public final class DefaultTruffleSplittingStrategy implements TruffleSplittingSt
             // recursive call found
             return false;
         }
+        return true;
+    }
+
+    private boolean shouldSplit() {
+        if (!canSplitCallee()) {
+            return false;
+        }
 
         // max one child call and callCount > 2 and kind of small number of nodes
         if (isMaxSingleCall(call)) {
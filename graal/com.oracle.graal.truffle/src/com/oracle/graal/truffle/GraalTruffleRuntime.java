@@ -22,24 +22,28 @@
  */
 package com.oracle.graal.truffle;
 
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleBatchCompilation;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleBatchCompilationMaxSize;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationExceptionsAreThrown;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompileOnly;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleEnableInfopoints;
 
-import java.lang.ref.WeakReference;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.LongSummaryStatistics;
 import java.util.ServiceLoader;
-import java.util.WeakHashMap;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
@@ -52,8 +56,11 @@ import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.debug.TTY;
 import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.replacements.EncodedGraphCache;
+import com.oracle.graal.replacements.EncodedGraphStore;
 import com.oracle.graal.serviceprovider.GraalServices;
 import com.oracle.graal.truffle.debug.CompilationStatisticsListener;
+import com.oracle.graal.truffle.debug.CompilationTelemetryListener;
 import com.oracle.graal.truffle.debug.PrintCallTargetProfiling;
 import com.oracle.graal.truffle.debug.TraceCompilationASTListener;
 import com.oracle.graal.truffle.debug.TraceCompilationCallTreeListener;
@@ -98,26 +105,152 @@ import jdk.vm.ci.services.Services;
 
 public abstract class GraalTruffleRuntime implements TruffleRuntime {
 
-    private final Map<RootCallTarget, Void> callTargets = Collections.synchronizedMap(new WeakHashMap<RootCallTarget, Void>());
+    private final CallTargetRegistry callTargets = new CallTargetRegistry();
+
+    /** The keys of the call targets in the replayed compilation recording. */
+    private volatile Set<String> recordedCompilations = Collections.emptySet();
 
     protected abstract static class BackgroundCompileQueue implements CompilerThreadFactory.DebugConfigAccess {
-        private final ExecutorService compileQueue;
+        /** Bounds the number of call targets visited when looking for related tasks. */
+        private static final int MAX_REACHABLE_TARGETS = 1024;
+
+        private final CompilerThreadPool compileQueue;
+        private final ReferenceQueue<OptimizedCallTarget> collectedTargets = new ReferenceQueue<>();
 
         protected BackgroundCompileQueue() {
             CompilerThreadFactory factory = new CompilerThreadFactory("TruffleCompilerThread", this);
 
+            int minThreads;
+            int maxThreads;
             int selectedProcessors = TruffleCompilerOptions.TruffleCompilerThreads.getValue();
-            if (selectedProcessors == 0) {
-                // No manual selection made, check how many processors are available.
+            if (selectedProcessors > 0) {
+                minThreads = selectedProcessors;
+                maxThreads = selectedProcessors;
+            } else {
                 int availableProcessors = Runtime.getRuntime().availableProcessors();
-                if (availableProcessors >= 12) {
-                    selectedProcessors = 4;
-                } else if (availableProcessors >= 4) {
-                    selectedProcessors = 2;
+                minThreads = Math.max(0, TruffleCompilerOptions.TruffleMinCompilerThreads.getValue());
+                maxThreads = TruffleCompilerOptions.TruffleMaxCompilerThreads.getValue();
+                if (maxThreads <= 0) {
+                    maxThreads = defaultMaxThreads(availableProcessors);
+                }
+                int cpuShare = TruffleCompilerOptions.TruffleMaxCompilerThreadsCPUShare.getValue();
+                if (cpuShare > 0) {
+                    maxThreads = Math.min(maxThreads, Math.max(1, availableProcessors * cpuShare / 100));
+                }
+                maxThreads = Math.max(Math.max(1, minThreads), maxThreads);
+            }
+            compileQueue = new CompilerThreadPool(minThreads, maxThreads, TruffleCompilerOptions.TruffleCompilerThreadKeepAlive.getValue(), factory);
+        }
+
+        /**
+         * Selects the maximum number of compiler threads if none is specified: a quarter of the
+         * available processors, but at least 4 on machines with 12 or more processors and 2 on
+         * machines with 4 or more processors.
+         */
+        private static int defaultMaxThreads(int availableProcessors) {
+            int threads = 1;
+            if (availableProcessors >= 12) {
+                threads = 4;
+            } else if (availableProcessors >= 4) {
+                threads = 2;
+            }
+            return Math.max(threads, availableProcessors / 4);
+        }
+
+        CompilationTask submit(GraalTruffleRuntime runtime, OptimizedCallTarget optimizedCallTarget) {
+            removeCollectedTargets();
+            CompilationTask task = CompilationTask.create(runtime, optimizedCallTarget, collectedTargets);
+            compileQueue.execute(task);
+            return task;
+        }
+
+        /**
+         * Moves a waiting task forward in the queue if its call target got hotter since it was
+         * queued.
+         */
+        void updatePriority(CompilationTask task) {
+            removeCollectedTargets();
+            if (task.isDeadlineOutdated() && compileQueue.remove(task)) {
+                task.updateDeadline();
+                compileQueue.requeue(task);
+            }
+        }
+
+        /**
+         * Removes the waiting tasks of the call targets that a call target reaches through direct
+         * calls from the queue, at most {@code maxTasks} of them, ordered by their deadlines. The
+         * caller is responsible for {@linkplain #runInCurrentThread running} the returned tasks.
+         */
+        List<CompilationTask> removeReachableTasks(OptimizedCallTarget callTarget, int maxTasks) {
+            List<CompilationTask> tasks = new ArrayList<>();
+            Set<OptimizedCallTarget> visited = new HashSet<>();
+            Deque<OptimizedCallTarget> worklist = new ArrayDeque<>();
+            visited.add(callTarget);
+            worklist.add(callTarget);
+            while (!worklist.isEmpty() && tasks.size() < maxTasks && visited.size() < MAX_REACHABLE_TARGETS) {
+                OptimizedCallTarget current = worklist.poll();
+                current.getRootNode().accept(node -> {
+                    if (node instanceof OptimizedDirectCallNode) {
+                        OptimizedCallTarget callee = ((OptimizedDirectCallNode) node).getCurrentCallTarget();
+                        if (visited.add(callee)) {
+                            worklist.add(callee);
+                            Future<?> task = callee.getCompilationTask();
+                            if (task instanceof CompilationTask && tasks.size() < maxTasks && compileQueue.remove((CompilationTask) task)) {
+                                tasks.add((CompilationTask) task);
+                            }
+                        }
+                    }
+                    return true;
+                });
+            }
+            Collections.sort(tasks);
+            return tasks;
+        }
+
+        void runInCurrentThread(CompilationTask task) {
+            compileQueue.runInCurrentThread(task);
+        }
+
+        /**
+         * Removes a task from the queue without waiting for a compiler thread to dequeue it.
+         */
+        void remove(CompilationTask task) {
+            compileQueue.remove(task);
+        }
+
+        int getQueueSize() {
+            removeCollectedTargets();
+            return compileQueue.getQueue().size();
+        }
+
+        int getThreadCount() {
+            return compileQueue.getPoolSize();
+        }
+
+        int getLargestThreadCount() {
+            return compileQueue.getLargestPoolSize();
+        }
+
+        int getMaximumThreadCount() {
+            return compileQueue.getMaximumPoolSize();
+        }
+
+        LongSummaryStatistics getQueueLatency() {
+            return compileQueue.getQueueLatency();
+        }
+
+        /**
+         * Eagerly removes the tasks of call targets that were garbage collected while waiting for
+         * compilation, so that they do not occupy a compiler thread.
+         */
+        private void removeCollectedTargets() {
+            Reference<? extends OptimizedCallTarget> reference;
+            while ((reference = collectedTargets.poll()) != null) {
+                CompilationTask task = ((CompilationTask.TargetReference) reference).getTask();
+                if (compileQueue.remove(task)) {
+                    task.cancel(false);
                 }
             }
-            selectedProcessors = Math.max(1, selectedProcessors);
-            compileQueue = Executors.newFixedThreadPool(selectedProcessors, factory);
         }
     }
 
@@ -188,6 +321,8 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
         TraceSplittingListener.install(this);
         PrintCallTargetProfiling.install(this);
         CompilationStatisticsListener.install(this);
+        CompilationTelemetryListener.install(this);
+        RecordedCompilations.install(this);
         TraceCompilationASTListener.install(this);
         installShutdownHooks();
         compilationNotify.notifyStartup(this);
@@ -252,7 +387,7 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
 
     @Override
     public IndirectCallNode createIndirectCallNode() {
-        return new OptimizedIndirectCallNode();
+        return new OptimizedIndirectCallNode(this);
     }
 
     @Override
@@ -424,7 +559,7 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
         OptimizedCallTarget target = createOptimizedCallTarget(source, rootNode);
         rootNode.setCallTarget(target);
         tvmci.onLoad(target.getRootNode());
-        callTargets.put(target, null);
+        callTargets.register(target);
         return target;
     }
 
@@ -433,7 +568,15 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
     @SuppressWarnings("deprecation")
     @Override
     public Collection<RootCallTarget> getCallTargets() {
-        return Collections.unmodifiableSet(callTargets.keySet());
+        return callTargets.getCallTargets();
+    }
+
+    /**
+     * Returns the number of call targets created by this runtime that were not yet found to be
+     * garbage collected.
+     */
+    public long getCallTargetCount() {
+        return callTargets.getPopulation();
     }
 
     public void addCompilationListener(GraalTruffleCompilationListener listener) {
@@ -449,13 +592,33 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
         if (TruffleCompilerOptions.TruffleInstrumentBranches.getValue()) {
             InstrumentBranchesPhase.instrumentation.dumpAccessTable();
         }
+        saveGraphStore();
+    }
+
+    private void saveGraphStore() {
+        if (truffleCompiler == null) {
+            return;
+        }
+        EncodedGraphCache graphCache = truffleCompiler.getPartialEvaluator().getSharedGraphCache();
+        EncodedGraphStore graphStore = graphCache == null ? null : graphCache.getPersistentStore();
+        if (graphStore != null) {
+            try {
+                graphStore.save();
+            } catch (IOException e) {
+                log("Failed to save the partial evaluation graph cache file: " + e);
+            }
+        }
     }
 
     protected void doCompile(OptimizedCallTarget optimizedCallTarget) {
         int repeats = TruffleCompilerOptions.TruffleCompilationRepeats.getValue();
         if (repeats <= 1) {
             /* Normal compilation. */
-            doCompile0(optimizedCallTarget);
+            if (TruffleBatchCompilation.getValue()) {
+                doBatchCompile(optimizedCallTarget);
+            } else {
+                doCompile0(optimizedCallTarget);
+            }
 
         } else {
             /* Repeated compilation for compilation time benchmarking. */
@@ -466,6 +629,26 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
         }
     }
 
+    /**
+     * Compiles a call target and then, in the same {@linkplain PartialEvaluator.Batch batch}, the
+     * queued call targets that it reaches through direct calls. Callees that were inlined have
+     * already been dequeued by the compilation of the call target, so the batch consists of the
+     * callees that are compiled separately.
+     */
+    @SuppressWarnings("try")
+    private void doBatchCompile(OptimizedCallTarget optimizedCallTarget) {
+        try (PartialEvaluator.Batch batch = getTruffleCompiler().getPartialEvaluator().openBatch()) {
+            doCompile0(optimizedCallTarget);
+            if (batch != null) {
+                // compilations of a batch do not start batches of their own
+                BackgroundCompileQueue queue = getCompileQueue();
+                for (CompilationTask task : queue.removeReachableTasks(optimizedCallTarget, TruffleBatchCompilationMaxSize.getValue())) {
+                    queue.runInCurrentThread(task);
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("try")
     private void doCompile0(OptimizedCallTarget optimizedCallTarget) {
         try (Scope s = Debug.scope("Truffle", new TruffleDebugJavaMethod(optimizedCallTarget))) {
@@ -480,17 +663,48 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
     protected abstract BackgroundCompileQueue getCompileQueue();
 
     public Future<?> submitForCompilation(OptimizedCallTarget optimizedCallTarget) {
-        BackgroundCompileQueue l = getCompileQueue();
-        final WeakReference<OptimizedCallTarget> weakCallTarget = new WeakReference<>(optimizedCallTarget);
-        return l.compileQueue.submit(new Runnable() {
-            @Override
-            public void run() {
-                OptimizedCallTarget callTarget = weakCallTarget.get();
-                if (callTarget != null) {
-                    doCompile(callTarget);
-                }
-            }
-        });
+        return getCompileQueue().submit(this, optimizedCallTarget);
+    }
+
+    void setRecordedCompilations(Set<String> keys) {
+        this.recordedCompilations = keys;
+    }
+
+    /**
+     * Determines if a call target was compiled in the run whose compilations are replayed, see
+     * {@link RecordedCompilations}.
+     */
+    boolean isRecordedCompilation(OptimizedCallTarget target) {
+        Set<String> keys = recordedCompilations;
+        if (keys.isEmpty()) {
+            return false;
+        }
+        String key = RecordedCompilations.key(target);
+        return key != null && keys.contains(key);
+    }
+
+    /**
+     * Returns the time in nanoseconds that the current compilation of a call target waited in the
+     * compile queue before a compiler thread started it, or -1 if the call target is not being
+     * compiled in the background.
+     */
+    public long getCompilationQueueTime(OptimizedCallTarget optimizedCallTarget) {
+        Future<?> codeTask = optimizedCallTarget.getCompilationTask();
+        if (codeTask instanceof CompilationTask) {
+            return ((CompilationTask) codeTask).getQueueTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Notifies the compile queue that the hotness of a call target waiting for compilation has
+     * increased.
+     */
+    void updateCompilationPriority(OptimizedCallTarget optimizedCallTarget) {
+        Future<?> codeTask = optimizedCallTarget.getCompilationTask();
+        if (codeTask instanceof CompilationTask) {
+            getCompileQueue().updatePriority((CompilationTask) codeTask);
+        }
     }
 
     public void finishCompilation(OptimizedCallTarget optimizedCallTarget, Future<?> future, boolean mayBeAsynchronous) {
@@ -517,6 +731,9 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
             optimizedCallTarget.resetCompilationTask();
             boolean result = codeTask.cancel(true);
             if (result) {
+                if (codeTask instanceof CompilationTask) {
+                    getCompileQueue().remove((CompilationTask) codeTask);
+                }
                 optimizedCallTarget.resetCompilationTask();
                 getCompilationNotify().notifyCompilationDequeued(optimizedCallTarget, source, reason);
             }
@@ -542,12 +759,36 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
     }
 
     public int getCompilationQueueSize() {
-        ExecutorService executor = getCompileQueue().compileQueue;
-        if (executor instanceof ThreadPoolExecutor) {
-            return ((ThreadPoolExecutor) executor).getQueue().size();
-        } else {
-            return 0;
-        }
+        return getCompileQueue().getQueueSize();
+    }
+
+    /**
+     * Returns the number of currently running compiler threads.
+     */
+    public int getCompilerThreadCount() {
+        return getCompileQueue().getThreadCount();
+    }
+
+    /**
+     * Returns the largest number of compiler threads that have been running at the same time.
+     */
+    public int getLargestCompilerThreadCount() {
+        return getCompileQueue().getLargestThreadCount();
+    }
+
+    /**
+     * Returns the number of compiler threads up to which the compile queue starts threads.
+     */
+    public int getMaximumCompilerThreadCount() {
+        return getCompileQueue().getMaximumThreadCount();
+    }
+
+    /**
+     * Returns the time in nanoseconds between queuing and starting the compilations started so
+     * far.
+     */
+    public LongSummaryStatistics getCompilationQueueLatency() {
+        return getCompileQueue().getQueueLatency();
     }
 
     public boolean isCompiling(OptimizedCallTarget optimizedCallTarget) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.spi.NodeCostProvider;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.contract.NodeCostUtil;
+import com.oracle.graal.phases.tiers.PhaseContext;
+
+import jdk.vm.ci.code.BailoutException;
+
+/**
+ * Bails out of a Truffle compilation if the {@linkplain NodeCostUtil#computeGraphSize estimated
+ * code size} of its graph exceeds {@link TruffleCompilerOptions#TruffleMaximumGraphSize}. The
+ * {@link TruffleCompiler} checks the graph after partial evaluation and inserts this phase after
+ * each phase of the high tier, so that a pathological graph is discarded before it reaches the
+ * scheduling and register allocation of the mid and low tiers.
+ */
+final class GraphSizeBudgetPhase extends BasePhase<PhaseContext> {
+
+    /**
+     * Thrown if the graph of a compilation exceeds the maximum size.
+     */
+    static final class GraphTooBigBailoutException extends BailoutException {
+
+        private static final long serialVersionUID = 6305926745418204232L;
+
+        GraphTooBigBailoutException(String stage, int size, int maximumSize) {
+            super(true, "Graph too big after %s: estimated code size %d exceeds TruffleMaximumGraphSize %d", stage, size, maximumSize);
+        }
+    }
+
+    private final int maximumSize;
+    private final String stage;
+
+    /**
+     * @param previousPhase the name of the phase after which this phase checks the graph
+     */
+    GraphSizeBudgetPhase(int maximumSize, CharSequence previousPhase) {
+        this.maximumSize = maximumSize;
+        this.stage = previousPhase.toString();
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, PhaseContext context) {
+        check(graph, context.getNodeCostProvider(), maximumSize, stage);
+    }
+
+    @Override
+    public boolean checkContract() {
+        return false;
+    }
+
+    static void check(StructuredGraph graph, NodeCostProvider nodeCostProvider, int maximumSize, String stage) {
+        int size = NodeCostUtil.computeGraphSize(graph, nodeCostProvider);
+        if (size > maximumSize) {
+            throw new GraphTooBigBailoutException(stage, size, maximumSize);
+        }
+    }
+}
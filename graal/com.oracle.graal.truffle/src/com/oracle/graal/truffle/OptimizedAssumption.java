@@ -26,7 +26,11 @@ import static com.oracle.graal.truffle.TruffleCompilerOptions.TraceTruffleAssump
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TraceTruffleStackTraceLimit;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.stream.Collectors;
 
 import com.oracle.graal.debug.TTY;
@@ -37,15 +41,63 @@ import com.oracle.truffle.api.nodes.InvalidAssumptionException;
 
 import jdk.vm.ci.code.InstalledCode;
 
+/**
+ * An assumption that invalidates the installed code depending on it when it is invalidated.
+ *
+ * The dependent installed code is kept in a lock-free stack of weakly referenced entries. Entries
+ * are pushed with a compare-and-set on the head of the stack. When the number of entries exceeds
+ * twice the number of live entries found by the last compaction, the stack is compacted, dropping
+ * entries whose code has been garbage collected or invalidated in the meantime. Invalidation
+ * atomically replaces the head with a marker so that code registered concurrently either ends up
+ * in the detached stack or sees the marker and invalidates itself. Invalidation itself is
+ * serialized and only marks the assumption invalid once all dependent code has been invalidated,
+ * so no code relying on the assumption runs after {@link #invalidate()} returns.
+ */
 public final class OptimizedAssumption extends AbstractAssumption {
 
-    private static class Entry {
-        WeakReference<InstalledCode> installedCode;
-        long version;
-        Entry next;
+    private static final int MIN_COMPACTION_THRESHOLD = 16;
+
+    private static final class Entry {
+        final WeakReference<InstalledCode> installedCode;
+        final long version;
+        final Entry next;
+
+        Entry(WeakReference<InstalledCode> installedCode, long version, Entry next) {
+            this.installedCode = installedCode;
+            this.version = version;
+            this.next = next;
+        }
+
+        Entry(InstalledCode installedCode, Entry next) {
+            this(new WeakReference<>(installedCode), installedCode.getVersion(), next);
+        }
+
+        /**
+         * Returns the installed code of this entry if it is still alive and has not been
+         * invalidated since it was registered, otherwise {@code null}.
+         */
+        InstalledCode getLiveCode() {
+            InstalledCode code = installedCode.get();
+            return code != null && code.getVersion() == version ? code : null;
+        }
     }
 
-    private Entry first;
+    /**
+     * Marks the stack of an invalidated assumption.
+     */
+    private static final Entry INVALIDATED = new Entry(new WeakReference<>(null), 0, null);
+
+    private static final AtomicReferenceFieldUpdater<OptimizedAssumption, Entry> FIRST_UPDATER = AtomicReferenceFieldUpdater.newUpdater(OptimizedAssumption.class, Entry.class, "first");
+    private static final AtomicIntegerFieldUpdater<OptimizedAssumption> SIZE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(OptimizedAssumption.class, "size");
+
+    private volatile Entry first;
+
+    /**
+     * The number of entries in the stack, including the ones not yet found to be dead.
+     */
+    private volatile int size;
+
+    private volatile int compactionThreshold = MIN_COMPACTION_THRESHOLD;
 
     public OptimizedAssumption(String name) {
         super(name);
@@ -76,20 +128,19 @@ public final class OptimizedAssumption extends AbstractAssumption {
             return;
         }
 
+        Entry detached = FIRST_UPDATER.getAndSet(this, INVALIDATED);
         boolean invalidatedInstalledCode = false;
-        Entry e = first;
-        while (e != null) {
-            InstalledCode installedCode = e.installedCode.get();
-            if (installedCode != null && installedCode.getVersion() == e.version) {
-                invalidateWithReason(installedCode, "assumption invalidated");
+        for (Entry e = detached; e != null; e = e.next) {
+            InstalledCode installedCode = e.getLiveCode();
+            if (installedCode != null) {
+                invalidateWithReason(installedCode, this, "assumption invalidated");
                 invalidatedInstalledCode = true;
                 if (TraceTruffleAssumptions.getValue()) {
                     logInvalidatedInstalledCode(installedCode);
                 }
             }
-            e = e.next;
         }
-        first = null;
+        size = 0;
         isValid = false;
 
         if (TraceTruffleAssumptions.getValue()) {
@@ -99,25 +150,56 @@ public final class OptimizedAssumption extends AbstractAssumption {
         }
     }
 
-    public synchronized void registerInstalledCode(InstalledCode installedCode) {
-        if (isValid) {
-            Entry e = new Entry();
-            e.installedCode = new WeakReference<>(installedCode);
-            e.version = installedCode.getVersion();
-            e.next = first;
-            first = e;
-        } else {
-            invalidateWithReason(installedCode, "assumption already invalidated when installing code");
-            if (TraceTruffleAssumptions.getValue()) {
-                logInvalidatedInstalledCode(installedCode);
-                logStackTrace();
+    public void registerInstalledCode(InstalledCode installedCode) {
+        while (true) {
+            Entry head = first;
+            if (head == INVALIDATED) {
+                invalidateWithReason(installedCode, this, "assumption already invalidated when installing code");
+                if (TraceTruffleAssumptions.getValue()) {
+                    logInvalidatedInstalledCode(installedCode);
+                    logStackTrace();
+                }
+                return;
+            }
+            if (FIRST_UPDATER.compareAndSet(this, head, new Entry(installedCode, head))) {
+                break;
             }
         }
+        if (SIZE_UPDATER.incrementAndGet(this) > compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Removes the entries of collected or invalidated code. The compacted stack only replaces the
+     * current one if no other thread pushed an entry or invalidated the assumption in the
+     * meantime. Otherwise, compaction is simply retried on a later registration.
+     */
+    private void compact() {
+        Entry head = first;
+        if (head == INVALIDATED) {
+            return;
+        }
+        List<Entry> live = new ArrayList<>();
+        for (Entry e = head; e != null; e = e.next) {
+            if (e.getLiveCode() != null) {
+                live.add(e);
+            }
+        }
+        Entry compacted = null;
+        for (int i = live.size() - 1; i >= 0; i--) {
+            Entry e = live.get(i);
+            compacted = new Entry(e.installedCode, e.version, compacted);
+        }
+        if (FIRST_UPDATER.compareAndSet(this, head, compacted)) {
+            size = live.size();
+            compactionThreshold = Math.max(MIN_COMPACTION_THRESHOLD, live.size() * 2);
+        }
     }
 
-    private void invalidateWithReason(InstalledCode installedCode, String reason) {
+    private static void invalidateWithReason(InstalledCode installedCode, OptimizedAssumption source, String reason) {
         if (installedCode instanceof OptimizedCallTarget) {
-            ((OptimizedCallTarget) installedCode).invalidate(this, reason);
+            ((OptimizedCallTarget) installedCode).invalidate(source, reason);
         } else {
             installedCode.invalidate();
         }
@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Spliterators;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
@@ -100,6 +101,19 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
     private static final AtomicReferenceFieldUpdater<OptimizedCallTarget, Assumption> NODE_REWRITING_ASSUMPTION_UPDATER = AtomicReferenceFieldUpdater.newUpdater(OptimizedCallTarget.class,
                     Assumption.class, "nodeRewritingAssumption");
 
+    /** Incremented by every node rewrite, see {@link #getNodeRewriteGeneration()}. */
+    private volatile int nodeRewriteGeneration;
+    private static final AtomicIntegerFieldUpdater<OptimizedCallTarget> NODE_REWRITE_GENERATION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(OptimizedCallTarget.class, "nodeRewriteGeneration");
+
+    /**
+     * The inlining decisions of the last successful compilation, which the next compilation can
+     * reuse. Cleared when the next compilation takes them.
+     */
+    private volatile TruffleInlining previousInlining;
+
+    /** The number of compilations that exceeded {@code TruffleMaxCompilationMemory}. */
+    private volatile int memoryQuotaBailouts;
+
     public OptimizedCallTarget(OptimizedCallTarget sourceCallTarget, RootNode rootNode) {
         super(rootNode.toString());
         assert sourceCallTarget == null || sourceCallTarget.sourceCallTarget == null : "Cannot create a clone of a cloned CallTarget";
@@ -207,6 +221,7 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
     public final Object callRoot(Object[] originalArguments) {
         Object[] args = originalArguments;
         if (CompilerDirectives.inCompiledCode()) {
+            this.compilationProfile.firstTierCall(this);
             args = this.compilationProfile.injectArgumentProfile(originalArguments);
         }
         Object result = callProxy(createFrame(getRootNode().getFrameDescriptor(), args));
@@ -245,6 +260,9 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
                 } else {
                     this.compilationProfile = DefaultCompilationProfile.create();
                 }
+                if (runtime.isRecordedCompilation(this)) {
+                    ((DefaultCompilationProfile) compilationProfile).prioritizeRecordedCompilation();
+                }
             } else {
                 this.compilationProfile = VoidCompilationProfile.create();
             }
@@ -286,6 +304,10 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         return getCompilationTask() != null;
     }
 
+    final void updateCompilationPriority() {
+        runtime().updateCompilationPriority(this);
+    }
+
     @Override
     public void invalidate() {
         invalidate(null, null);
@@ -338,8 +360,9 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
              * Non permanent bailouts are expected cases. A non permanent bailout would be for
              * example class redefinition during code installation. As opposed to permanent
              * bailouts, non permanent bailouts will trigger recompilation and are not considered a
-             * failure state.
+             * failure state. The compilation is retried after a backoff.
              */
+            compilationProfile.reportCompilationBailout();
         } else {
             compilationProfile.reportCompilationFailure(t);
             if (TruffleCompilationExceptionsAreThrown.getValue()) {
@@ -448,6 +471,7 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         }
         /* Notify compiled method that have inlined this call target that the tree changed. */
         invalidateNodeRewritingAssumption();
+        NODE_REWRITE_GENERATION_UPDATER.incrementAndGet(this);
 
         AbstractCompilationProfile profile = this.compilationProfile;
         if (profile != null) {
@@ -490,6 +514,36 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         return visitor.nodeCount;
     }
 
+    /**
+     * Returns a number that changes whenever a node of this call target is replaced. Used to detect
+     * that information derived from the AST, such as inlining decisions, is outdated.
+     */
+    int getNodeRewriteGeneration() {
+        return nodeRewriteGeneration;
+    }
+
+    /**
+     * Returns the inlining decisions of the last successful compilation and clears them, so that
+     * they are not retained beyond the compilation that reuses them.
+     */
+    TruffleInlining takePreviousInlining() {
+        TruffleInlining result = previousInlining;
+        previousInlining = null;
+        return result;
+    }
+
+    void setPreviousInlining(TruffleInlining inlining) {
+        this.previousInlining = inlining;
+    }
+
+    int getMemoryQuotaBailouts() {
+        return memoryQuotaBailouts;
+    }
+
+    void reportMemoryQuotaBailout() {
+        memoryQuotaBailouts++;
+    }
+
     public Map<String, Object> getDebugProperties(TruffleInlining inlining) {
         Map<String, Object> properties = new LinkedHashMap<>();
         AbstractDebugCompilationListener.addASTSizeProperty(this, inlining, properties);
@@ -23,25 +23,118 @@
 package com.oracle.graal.truffle;
 
 import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
  * A call node with a constant {@link CallTarget} that can be optimized by Graal.
+ *
+ * The node caches up to {@link TruffleCompilerOptions#TruffleIndirectCallCacheSize} call targets
+ * in a polymorphic inline cache. Each cached call target is called through an
+ * {@link OptimizedDirectCallNode}, so compiled code checks the identity of the call target and
+ * calls the cached ones directly, and the calls are candidates for inlining like any other direct
+ * call. When a call target that does not fit into the cache or cannot be cached is called, the
+ * cache is discarded and all further calls are dispatched generically.
  */
 @NodeInfo
 public final class OptimizedIndirectCallNode extends IndirectCallNode implements MaterializedFrameNotify {
 
     @CompilationFinal private FrameAccess outsideFrameAccess = FrameAccess.NONE;
 
+    private final GraalTruffleRuntime runtime;
+
+    /** The most recently added entry of the inline cache, or {@code null} if it is empty. */
+    @Child private CachedCall cache;
+    @CompilationFinal private int cacheSize;
+    @CompilationFinal private boolean megamorphic;
+
+    public OptimizedIndirectCallNode(GraalTruffleRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    @ExplodeLoop
     @Override
     public Object call(VirtualFrame frame, CallTarget target, Object[] arguments) {
+        for (CachedCall entry = cache; entry != null; entry = entry.next) {
+            if (entry.callNode.getCallTarget() == target) {
+                return entry.callNode.call(frame, arguments);
+            }
+        }
+        if (!megamorphic) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            OptimizedDirectCallNode callNode = specialize(target);
+            if (callNode != null) {
+                return callNode.call(frame, arguments);
+            }
+        }
         return OptimizedDirectCallNode.callProxy(this, target, frame, arguments, false);
     }
 
+    /**
+     * Adds a call target to the inline cache and returns its call node, or returns {@code null} if
+     * the call target has to be called generically.
+     */
+    private OptimizedDirectCallNode specialize(CallTarget target) {
+        CompilerAsserts.neverPartOfCompilation();
+        OptimizedDirectCallNode[] result = new OptimizedDirectCallNode[1];
+        atomic(new Runnable() {
+            @Override
+            public void run() {
+                for (CachedCall entry = cache; entry != null; entry = entry.next) {
+                    if (entry.callNode.getCallTarget() == target) {
+                        result[0] = entry.callNode;
+                        return;
+                    }
+                }
+                if (megamorphic) {
+                    return;
+                }
+                // split call targets can only be called through the call node they were split for
+                boolean cacheable = target instanceof OptimizedCallTarget && ((OptimizedCallTarget) target).getSourceCallTarget() == null;
+                if (!cacheable || cacheSize >= TruffleCompilerOptions.TruffleIndirectCallCacheSize.getValue()) {
+                    megamorphic = true;
+                    for (CachedCall entry = cache; entry != null; entry = entry.next) {
+                        if (entry.callNode.getCallCount() >= 1) {
+                            entry.callNode.getCurrentCallTarget().decrementKnownCallSites();
+                        }
+                    }
+                    cache = null;
+                    reportCacheChange("Indirect call became megamorphic");
+                } else {
+                    OptimizedDirectCallNode callNode = new OptimizedDirectCallNode(runtime, (OptimizedCallTarget) target);
+                    cache = insert(new CachedCall(callNode, cache));
+                    cacheSize++;
+                    reportCacheChange("Indirect call target cached");
+                    result[0] = callNode;
+                }
+            }
+        });
+        return result[0];
+    }
+
+    private void reportCacheChange(CharSequence reason) {
+        if (getParent() != null) {
+            // dummy replace to invalidate compiled code that contains this node
+            replace(this, reason);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the inline cache was discarded because too many different call
+     * targets were called.
+     */
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
     @Override
     public FrameAccess getOutsideFrameAccess() {
         return outsideFrameAccess;
@@ -52,4 +145,19 @@ public final class OptimizedIndirectCallNode extends IndirectCallNode implements
         this.outsideFrameAccess = outsideFrameAccess;
     }
 
+    private static final class CachedCall extends Node {
+
+        @Child OptimizedDirectCallNode callNode;
+        @Child CachedCall next;
+
+        CachedCall(OptimizedDirectCallNode callNode, CachedCall next) {
+            this.callNode = callNode;
+            this.next = next;
+        }
+
+        @Override
+        public NodeCost getCost() {
+            return NodeCost.NONE;
+        }
+    }
 }
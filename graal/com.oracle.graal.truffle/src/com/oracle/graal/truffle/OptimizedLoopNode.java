@@ -23,18 +23,34 @@
 package com.oracle.graal.truffle;
 
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.LoopNode;
+import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.RepeatingNode;
+import com.oracle.truffle.api.nodes.RootNode;
 
 public final class OptimizedLoopNode extends LoopNode {
 
     @Child private RepeatingNode repeatingNode;
 
+    /**
+     * The call target of the loop, set by the first execution in the interpreter. Code compiled
+     * with the first tier keeps counting loop iterations for this call target.
+     */
+    @CompilationFinal private OptimizedCallTarget callTarget;
+
     public OptimizedLoopNode(RepeatingNode repeatingNode) {
         this.repeatingNode = repeatingNode;
     }
 
+    @Override
+    public Node copy() {
+        OptimizedLoopNode copy = (OptimizedLoopNode) super.copy();
+        copy.callTarget = null;
+        return copy;
+    }
+
     @Override
     public RepeatingNode getRepeatingNode() {
         return repeatingNode;
@@ -42,20 +58,46 @@ public final class OptimizedLoopNode extends LoopNode {
 
     @Override
     public void executeLoop(VirtualFrame frame) {
+        if (CompilerDirectives.inInterpreter() && callTarget == null) {
+            callTarget = findCallTarget(this);
+        }
+        boolean firstTier = isFirstTierCompilation(callTarget);
         int loopCount = 0;
         try {
             while (repeatingNode.executeRepeating(frame)) {
-                if (CompilerDirectives.inInterpreter()) {
+                if (CompilerDirectives.inInterpreter() || firstTier) {
                     loopCount++;
                 }
             }
         } finally {
             if (CompilerDirectives.inInterpreter()) {
                 reportLoopCount(this, loopCount);
+            } else if (firstTier) {
+                callTarget.onLoopCount(loopCount);
             }
         }
     }
 
+    /**
+     * Returns the call target of the root node of a node, or {@code null} if the node is not
+     * adopted by a root node with an optimized call target.
+     */
+    static OptimizedCallTarget findCallTarget(Node node) {
+        RootNode rootNode = node.getRootNode();
+        if (rootNode != null && rootNode.getCallTarget() instanceof OptimizedCallTarget) {
+            return (OptimizedCallTarget) rootNode.getCallTarget();
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the current code is compiled for a call target with the first tier and
+     * therefore counts loop iterations.
+     */
+    static boolean isFirstTierCompilation(OptimizedCallTarget callTarget) {
+        return CompilerDirectives.inCompiledCode() && callTarget != null && callTarget.getCompilationProfile().isFirstTierCompilation();
+    }
+
     static LoopNode create(RepeatingNode repeatingNode) {
         return new OptimizedLoopNode(repeatingNode);
     }
@@ -22,13 +22,17 @@
  */
 package com.oracle.graal.truffle;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Objects;
+import java.util.Set;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.ReplaceObserver;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
@@ -36,6 +40,7 @@ import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.LoopNode;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeClass;
 import com.oracle.truffle.api.nodes.RepeatingNode;
 import com.oracle.truffle.api.nodes.RootNode;
 
@@ -68,6 +73,18 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
      */
     private int baseLoopCount;
 
+    /**
+     * The call target of the loop, set by the first execution in the interpreter. Code compiled
+     * with the first tier keeps counting loop iterations for this call target.
+     */
+    @CompilationFinal private OptimizedCallTarget callTarget;
+
+    /**
+     * The number of times an execution of this loop entered its compiled OSR code. Lowers the
+     * threshold for later OSR compilations of this loop, see {@link #getBackoffThreshold()}.
+     */
+    private int osrEntries;
+
     private OptimizedOSRLoopNode(RepeatingNode repeatableNode) {
         Objects.requireNonNull(repeatableNode);
         this.repeatableNode = repeatableNode;
@@ -82,10 +99,28 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     protected abstract int getThreshold();
 
+    /**
+     * Returns the {@linkplain #getThreshold() threshold} lowered for loops that repeatedly entered
+     * their OSR code: the threshold is halved for every
+     * {@link TruffleCompilerOptions#TruffleOSRBackoffEntries} entries, but not below
+     * {@link TruffleCompilerOptions#TruffleOSRMinimumCompilationThreshold}.
+     */
+    private int getBackoffThreshold() {
+        int threshold = getThreshold();
+        int backoffEntries = TruffleCompilerOptions.TruffleOSRBackoffEntries.getValue();
+        if (backoffEntries <= 0 || osrEntries < backoffEntries) {
+            return threshold;
+        }
+        int minimumThreshold = Math.min(threshold, TruffleCompilerOptions.TruffleOSRMinimumCompilationThreshold.getValue());
+        return Math.max(minimumThreshold, threshold >> Math.min(osrEntries / backoffEntries, 31));
+    }
+
     @Override
     public final Node copy() {
         OptimizedOSRLoopNode copy = (OptimizedOSRLoopNode) super.copy();
         copy.compiledOSRLoop = null;
+        copy.osrEntries = 0;
+        copy.callTarget = null;
         return copy;
     }
 
@@ -97,6 +132,9 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
     @Override
     public void executeLoop(VirtualFrame frame) {
         if (CompilerDirectives.inInterpreter()) {
+            if (callTarget == null) {
+                callTarget = OptimizedLoopNode.findCallTarget(this);
+            }
             try {
                 boolean done = false;
                 while (!done) {
@@ -110,11 +148,22 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
                 baseLoopCount = 0;
             }
         } else {
-            while (repeatableNode.executeRepeating(frame)) {
-                if (CompilerDirectives.inInterpreter()) {
-                    // compiled method got invalidated. We might need OSR again.
-                    executeLoop(frame);
-                    return;
+            boolean firstTier = OptimizedLoopNode.isFirstTierCompilation(callTarget);
+            int iterations = 0;
+            try {
+                while (repeatableNode.executeRepeating(frame)) {
+                    if (CompilerDirectives.inInterpreter()) {
+                        // compiled method got invalidated. We might need OSR again.
+                        executeLoop(frame);
+                        return;
+                    }
+                    if (firstTier) {
+                        iterations++;
+                    }
+                }
+            } finally {
+                if (firstTier && CompilerDirectives.inCompiledCode()) {
+                    callTarget.onLoopCount(iterations);
                 }
             }
         }
@@ -122,7 +171,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     private boolean profilingLoop(VirtualFrame frame) {
         int iterations = 0;
-        int threshold = getThreshold();
+        int threshold = getBackoffThreshold();
         try {
             while (repeatableNode.executeRepeating(frame)) {
                 // the baseLoopCount might be updated from a child loop during an iteration.
@@ -171,6 +220,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
                 if (target == null) {
                     return false;
                 } else if (target.isValid()) {
+                    osrEntries++;
                     Object result = target.callDirect(frame);
                     if (result == Boolean.TRUE) {
                         // loop is done. No further repetitions necessary.
@@ -248,7 +298,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
             if (invalidationBackoff < 0) {
                 throw new IllegalArgumentException("Invalid OSR invalidation backoff.");
             }
-            baseLoopCount = Math.min(getThreshold() - invalidationBackoff, baseLoopCount);
+            baseLoopCount = Math.min(getBackoffThreshold() - invalidationBackoff, baseLoopCount);
             compiledOSRLoop = null;
             target.invalidate(source, reason);
         }
@@ -256,7 +306,10 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     /**
      * Creates the default loop node implementation with the default configuration. If OSR is
-     * disabled {@link OptimizedLoopNode} will be used instead.
+     * disabled {@link OptimizedLoopNode} will be used instead. If
+     * {@link TruffleCompilerOptions#TruffleOSRInferFrameSlots} is enabled, the frame slots
+     * virtualized in OSR compilations are {@linkplain #inferFrameSlots inferred} from the repeating
+     * node.
      */
     public static LoopNode create(RepeatingNode repeat) {
         // using static methods with LoopNode return type ensures
@@ -315,10 +368,31 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
      */
     private static final class OptimizedDefaultOSRLoopNode extends OptimizedOSRLoopNode {
 
+        private VirtualizingOSRRootNode previousRoot;
+
         OptimizedDefaultOSRLoopNode(RepeatingNode repeatableNode) {
             super(repeatableNode);
         }
 
+        @Override
+        protected OSRRootNode createRootNode(@SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor, Class<? extends VirtualFrame> clazz) {
+            FrameSlot[] frameSlots = null;
+            if (TruffleCompilerOptions.TruffleOSRInferFrameSlots.getValue() && !GraalTruffleRuntime.getRuntime().getFrameMaterializeCalled(frameDescriptor)) {
+                frameSlots = inferFrameSlots(getRepeatingNode(), frameDescriptor);
+            }
+            if (frameSlots == null) {
+                previousRoot = null;
+                return super.createRootNode(truffleLanguage, frameDescriptor, clazz);
+            }
+            if (previousRoot != null && previousRoot.hasFrameSlots(frameSlots)) {
+                // reuse the speculations of the previous compilation if the loop uses the same slots
+                previousRoot = new VirtualizingOSRRootNode(previousRoot, this, truffleLanguage, frameDescriptor, clazz);
+            } else {
+                previousRoot = new VirtualizingOSRRootNode(this, truffleLanguage, frameDescriptor, clazz, frameSlots, frameSlots);
+            }
+            return previousRoot;
+        }
+
         @Override
         protected int getInvalidationBackoff() {
             return TruffleCompilerOptions.TruffleInvalidationReprofileCount.getValue();
@@ -380,6 +454,54 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     }
 
+    /**
+     * Infers the frame slots accessed by a loop from the {@link FrameSlot} fields of the nodes in
+     * the repeating node's subtree. As reads and writes cannot be told apart, every slot found is
+     * treated as both read and written. Returns <code>null</code> if the slots cannot be inferred
+     * reliably, i.e. if a node refers to a frame, a frame descriptor or a slot of another frame
+     * descriptor and may therefore access frame slots that are not referenced by a field, or if a
+     * slot was never initialized.
+     * <p>
+     * Accesses to the frame arguments and to slots that are looked up dynamically or held by
+     * objects other than nodes cannot be detected, which is why inference is only enabled with
+     * {@link TruffleCompilerOptions#TruffleOSRInferFrameSlots}.
+     */
+    @SuppressWarnings("deprecation")
+    static FrameSlot[] inferFrameSlots(RepeatingNode repeatingNode, FrameDescriptor frameDescriptor) {
+        if (!(repeatingNode instanceof Node)) {
+            return null;
+        }
+        Set<FrameSlot> frameSlots = new LinkedHashSet<>();
+        boolean[] unknownAccesses = new boolean[1];
+        ((Node) repeatingNode).accept(node -> {
+            for (com.oracle.truffle.api.nodes.NodeFieldAccessor field : NodeClass.get(node).getFields()) {
+                Object value = field.loadValue(node);
+                if (value instanceof FrameSlot) {
+                    unknownAccesses[0] |= !addFrameSlot(frameSlots, (FrameSlot) value, frameDescriptor);
+                } else if (value instanceof FrameSlot[]) {
+                    for (FrameSlot slot : (FrameSlot[]) value) {
+                        unknownAccesses[0] |= slot != null && !addFrameSlot(frameSlots, slot, frameDescriptor);
+                    }
+                } else if (value instanceof Frame || value instanceof FrameDescriptor) {
+                    unknownAccesses[0] = true;
+                }
+            }
+            return !unknownAccesses[0];
+        });
+        if (unknownAccesses[0]) {
+            return null;
+        }
+        return frameSlots.toArray(new FrameSlot[frameSlots.size()]);
+    }
+
+    private static boolean addFrameSlot(Set<FrameSlot> frameSlots, FrameSlot slot, FrameDescriptor frameDescriptor) {
+        if (slot.getFrameDescriptor() != frameDescriptor || slot.getKind() == FrameSlotKind.Illegal) {
+            return false;
+        }
+        frameSlots.add(slot);
+        return true;
+    }
+
     public static class OSRRootNode extends RootNode {
 
         protected final Class<? extends VirtualFrame> clazz;
@@ -456,6 +578,10 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
             this.maxTagsLength = maxIndex + 1;
         }
 
+        boolean hasFrameSlots(FrameSlot[] frameSlots) {
+            return Arrays.equals(readFrameSlots, frameSlots) && Arrays.equals(writtenFrameSlots, frameSlots);
+        }
+
         private static int initializeFrameSlots(FrameSlot[] frameSlots, byte[] tags, int maxIndex) {
             int currentMaxIndex = maxIndex;
             for (int i = 0; i < frameSlots.length; i++) {
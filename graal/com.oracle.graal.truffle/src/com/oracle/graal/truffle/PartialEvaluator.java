@@ -27,6 +27,7 @@ import static com.oracle.graal.nodes.graphbuilderconf.InlineInvokePlugin.InlineI
 import static com.oracle.graal.truffle.TruffleCompilerOptions.PrintTruffleExpansionHistogram;
 
 import java.lang.invoke.MethodHandle;
+import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,9 +43,13 @@ import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.debug.Indent;
+import com.oracle.graal.java.BytecodeParser;
 import com.oracle.graal.java.ComputeLoopFrequenciesClosure;
 import com.oracle.graal.java.GraphBuilderPhase;
 import com.oracle.graal.nodes.ConstantNode;
+import com.oracle.graal.nodes.EncodedGraph;
+import com.oracle.graal.nodes.GraphDecoder;
+import com.oracle.graal.nodes.GraphEncoder;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
 import com.oracle.graal.nodes.ValueNode;
@@ -72,6 +77,8 @@ import com.oracle.graal.phases.tiers.HighTierContext;
 import com.oracle.graal.phases.tiers.PhaseContext;
 import com.oracle.graal.phases.util.Providers;
 import com.oracle.graal.replacements.CachingPEGraphDecoder;
+import com.oracle.graal.replacements.EncodedGraphCache;
+import com.oracle.graal.replacements.EncodedGraphStore;
 import com.oracle.graal.replacements.InlineDuringParsingPlugin;
 import com.oracle.graal.replacements.PEGraphDecoder;
 import com.oracle.graal.replacements.ReplacementsImpl;
@@ -113,6 +120,16 @@ public class PartialEvaluator {
     private final ResolvedJavaMethod callRootMethod;
     private final GraphBuilderConfiguration configForParsing;
     private final InvocationPlugins decodingInvocationPlugins;
+    /**
+     * Encoded graphs of parsed methods, shared by all partial evaluations. All graph decoders
+     * created by {@link #createGraphDecoder} parse with {@link #configForParsing}, which is
+     * therefore used as the key of the configuration in the cache.
+     */
+    private final EncodedGraphCache sharedGraphCache;
+    /**
+     * The batch of compilations open on the current thread, see {@link #openBatch()}.
+     */
+    private final ThreadLocal<Batch> batches = new ThreadLocal<>();
 
     public PartialEvaluator(Providers providers, GraphBuilderConfiguration configForRoot, SnippetReflectionProvider snippetReflection, Architecture architecture) {
         this.providers = providers;
@@ -131,6 +148,68 @@ public class PartialEvaluator {
 
         this.configForParsing = createGraphBuilderConfig(configForRoot, true);
         this.decodingInvocationPlugins = createDecodingInvocationPlugins(configForRoot.getPlugins());
+
+        int sharedGraphCacheSize = TruffleCompilerOptions.TrufflePEGraphCacheSize.getValue();
+        this.sharedGraphCache = sharedGraphCacheSize > 0 ? new EncodedGraphCache(sharedGraphCacheSize * 1024L * 1024L, createGraphStore(), configForParsing) : null;
+    }
+
+    /**
+     * Opens the file that keeps parsed graphs across VM restarts, if one is specified. Graphs in
+     * the file are only used if the VM, the architecture and the classes that produce and consume
+     * encoded graphs are unchanged.
+     */
+    private EncodedGraphStore createGraphStore() {
+        String fileName = TruffleCompilerOptions.TrufflePEGraphCacheFile.getValue();
+        if (fileName == null || fileName.isEmpty()) {
+            return null;
+        }
+        String fingerprint = EncodedGraphStore.computeFingerprint(architecture, getClass(), PartialEvaluator.class, GraphBuilderPhase.class, BytecodeParser.class, GraphEncoder.class,
+                        GraphDecoder.class, EncodedGraphStore.class);
+        return EncodedGraphStore.open(Paths.get(fileName), fingerprint, providers.getMetaAccess(), ClassLoader.getSystemClassLoader());
+    }
+
+    /**
+     * A batch of compilations that run on one thread one after another. The graph decoders of the
+     * partial evaluations in a batch share their caches of decoded graphs, so that methods already
+     * used by an earlier compilation of the batch are neither parsed again nor looked up in the
+     * {@linkplain #getSharedGraphCache() shared graph cache}.
+     */
+    public final class Batch implements AutoCloseable {
+
+        private final EnumMap<AllowAssumptions, Map<ResolvedJavaMethod, EncodedGraph>> graphCaches = new EnumMap<>(AllowAssumptions.class);
+
+        private Batch() {
+        }
+
+        Map<ResolvedJavaMethod, EncodedGraph> getGraphCache(AllowAssumptions allowAssumptions) {
+            return graphCaches.computeIfAbsent(allowAssumptions, k -> new HashMap<>());
+        }
+
+        @Override
+        public void close() {
+            batches.remove();
+        }
+    }
+
+    /**
+     * Opens a batch of compilations on the current thread that lasts until the returned batch is
+     * closed, or returns {@code null} if a batch is already open on the current thread.
+     */
+    public Batch openBatch() {
+        if (batches.get() != null) {
+            return null;
+        }
+        Batch batch = new Batch();
+        batches.set(batch);
+        return batch;
+    }
+
+    /**
+     * Returns the cache of parsed graphs shared by all partial evaluations, or {@code null} if
+     * sharing is disabled.
+     */
+    public EncodedGraphCache getSharedGraphCache() {
+        return sharedGraphCache;
     }
 
     public Providers getProviders() {
@@ -365,8 +444,10 @@ public class PartialEvaluator {
             plugins.appendInlineInvokePlugin(new InlineDuringParsingPlugin());
         }
 
-        return new CachingPEGraphDecoder(providers, newConfig, TruffleCompiler.Optimizations,
-                        AllowAssumptions.from(graph.getAssumptions() != null), architecture) {
+        AllowAssumptions allowAssumptions = AllowAssumptions.from(graph.getAssumptions() != null);
+        Batch batch = batches.get();
+        Map<ResolvedJavaMethod, EncodedGraph> graphCache = batch != null ? batch.getGraphCache(allowAssumptions) : new HashMap<>();
+        return new CachingPEGraphDecoder(providers, newConfig, TruffleCompiler.Optimizations, allowAssumptions, architecture, sharedGraphCache, configForParsing, graphCache) {
             @Override
             protected GraphBuilderPhase.Instance createGraphBuilderPhaseInstance(IntrinsicContext initialIntrinsicContext) {
                 return new GraphBuilderPhase.Instance(providers.getMetaAccess(), providers.getStampProvider(), providers.getConstantReflection(),
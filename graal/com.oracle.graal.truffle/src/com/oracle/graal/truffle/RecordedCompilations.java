@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationRecordFile;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationReplayFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.truffle.debug.AbstractDebugCompilationListener;
+import com.oracle.truffle.api.source.SourceSection;
+
+/**
+ * Records which call targets were compiled in a run and replays the recording in a later run to
+ * warm up faster.
+ *
+ * With {@link TruffleCompilerOptions#TruffleCompilationRecordFile}, the call targets are written
+ * to a file at exit in the order of their first successful compilation, one line per call target.
+ * The line starts with the key of the call target followed by the keys of the call targets inlined
+ * into it, separated by tabs. A key identifies the source section of the root node, so call
+ * targets without a source section are not recorded. Tabs and line breaks in source names are
+ * escaped so that they cannot break the format.
+ *
+ * With {@link TruffleCompilerOptions#TruffleCompilationReplayFile}, call targets whose key is in
+ * the recording use {@link TruffleCompilerOptions#TruffleReplayCompilationThreshold} instead of
+ * the normal compilation thresholds, are never deferred and are therefore queued for compilation
+ * shortly after their first execution. The recorded inlining decisions are informational: the
+ * inlining of a replayed call target is decided anew because its call tree may differ.
+ */
+public final class RecordedCompilations extends AbstractDebugCompilationListener {
+
+    private final Map<String, List<String>> compiled = new LinkedHashMap<>();
+
+    public RecordedCompilations() {
+    }
+
+    static void install(GraalTruffleRuntime runtime) {
+        if (TruffleCompilationRecordFile.getValue() != null) {
+            runtime.addCompilationListener(new RecordedCompilations());
+        }
+        String replayFile = TruffleCompilationReplayFile.getValue();
+        if (replayFile != null) {
+            try {
+                runtime.setRecordedCompilations(read(Paths.get(replayFile)));
+            } catch (IOException e) {
+                runtime.log("Failed to read the Truffle compilation recording " + replayFile + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Returns the key identifying a call target across runs, or {@code null} if its root node has
+     * no source section.
+     */
+    public static String key(OptimizedCallTarget target) {
+        SourceSection section = target.getRootNode().getSourceSection();
+        if (section == null || section.getSource() == null) {
+            return null;
+        }
+        return escape(section.getSource().getName()) + ":" + section.getCharIndex() + "+" + section.getCharLength();
+    }
+
+    /**
+     * Escapes the characters that separate the keys and lines of a recording. The position that
+     * follows the name cannot contain a {@code ':'}, so separators in names need no escaping.
+     */
+    private static String escape(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '\\':
+                    result.append("\\\\");
+                    break;
+                case '\t':
+                    result.append("\\t");
+                    break;
+                case '\n':
+                    result.append("\\n");
+                    break;
+                case '\r':
+                    result.append("\\r");
+                    break;
+                default:
+                    result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Reads the keys of the call targets recorded in a file.
+     */
+    public static Set<String> read(Path file) throws IOException {
+        Set<String> keys = new HashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int end = line.indexOf('\t');
+            String key = end < 0 ? line : line.substring(0, end);
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public void notifyCompilationSuccess(OptimizedCallTarget target, TruffleInlining inliningDecision, StructuredGraph graph, CompilationResult result) {
+        String key = key(target);
+        if (key == null) {
+            return;
+        }
+        List<String> inlined = new ArrayList<>();
+        for (TruffleInliningDecision decision : inliningDecision) {
+            collectInlined(decision, inlined);
+        }
+        synchronized (compiled) {
+            compiled.putIfAbsent(key, inlined);
+        }
+    }
+
+    private static void collectInlined(TruffleInliningDecision decision, List<String> inlined) {
+        if (decision.isInline()) {
+            String key = key(decision.getTarget());
+            if (key != null) {
+                inlined.add(key);
+            }
+            for (TruffleInliningDecision callee : decision) {
+                collectInlined(callee, inlined);
+            }
+        }
+    }
+
+    @Override
+    public void notifyShutdown(GraalTruffleRuntime runtime) {
+        String file = TruffleCompilationRecordFile.getValue();
+        try {
+            write(Paths.get(file));
+        } catch (IOException e) {
+            runtime.log("Failed to write the Truffle compilation recording " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Writes the call targets compiled so far in the format understood by {@link #read(Path)}.
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            synchronized (compiled) {
+                for (Map.Entry<String, List<String>> e : compiled.entrySet()) {
+                    out.write(e.getKey());
+                    for (String inlined : e.getValue()) {
+                        out.write('\t');
+                        out.write(inlined);
+                    }
+                    out.newLine();
+                }
+            }
+        }
+    }
+}
@@ -23,17 +23,26 @@
 package com.oracle.graal.truffle;
 
 import static com.oracle.graal.compiler.GraalCompiler.compileGraph;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleGraphSizeRetries;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleIncrementalInlining;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInliningMaxCallerSize;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleMaxCompilationMemory;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleMaximumGraphSize;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ListIterator;
 
 import com.oracle.graal.api.replacements.SnippetReflectionProvider;
 import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.common.CompilationMemoryQuota;
 import com.oracle.graal.compiler.common.spi.ConstantFieldProvider;
+import com.oracle.graal.compiler.phases.EconomyCompilerConfiguration;
 import com.oracle.graal.compiler.target.Backend;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
+import com.oracle.graal.debug.DebugCounter;
 import com.oracle.graal.debug.DebugEnvironment;
 import com.oracle.graal.debug.DebugMemUseTracker;
 import com.oracle.graal.debug.DebugTimer;
@@ -42,12 +51,18 @@ import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
 import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration;
 import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
+import com.oracle.graal.phases.BasePhase;
 import com.oracle.graal.phases.OptimisticOptimizations;
 import com.oracle.graal.phases.PhaseSuite;
 import com.oracle.graal.phases.tiers.HighTierContext;
+import com.oracle.graal.phases.tiers.CompilerConfiguration;
 import com.oracle.graal.phases.tiers.Suites;
+import com.oracle.graal.phases.tiers.SuitesCreator;
+import com.oracle.graal.phases.tiers.SuitesProvider;
 import com.oracle.graal.phases.util.Providers;
+import com.oracle.graal.truffle.GraphSizeBudgetPhase.GraphTooBigBailoutException;
 import com.oracle.graal.truffle.nodes.AssumptionValidAssumption;
+import com.oracle.truffle.api.CompilerOptions;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.nodes.SlowPathException;
 import com.oracle.truffle.api.nodes.UnexpectedResultException;
@@ -66,6 +81,8 @@ public abstract class TruffleCompiler {
     protected final Suites suites;
     protected final GraphBuilderConfiguration config;
     protected final LIRSuites lirSuites;
+    protected final Suites firstTierSuites;
+    protected final LIRSuites firstTierLirSuites;
     protected final PartialEvaluator partialEvaluator;
     protected final Backend backend;
     protected final SnippetReflectionProvider snippetReflection;
@@ -94,9 +111,21 @@ public abstract class TruffleCompiler {
         Providers backendProviders = backend.getProviders();
         ConstantFieldProvider constantFieldProvider = new TruffleConstantFieldProvider(backendProviders.getConstantFieldProvider(), backendProviders.getMetaAccess());
         this.providers = backendProviders.copyWith(constantFieldProvider);
-        this.suites = suites;
+        this.suites = withGraphSizeBudget(suites);
         this.lirSuites = lirSuites;
 
+        SuitesProvider suitesProvider = backend.getSuites();
+        if (TruffleCompilerOptions.TruffleMultiTier.getValue() && suitesProvider instanceof SuitesCreator) {
+            CompilerConfiguration economy = new EconomyCompilerConfiguration();
+            this.firstTierSuites = withGraphSizeBudget(((SuitesCreator) suitesProvider).createSuites(economy));
+            this.firstTierLirSuites = ((SuitesCreator) suitesProvider).createLIRSuites(economy);
+            this.firstTierSuites.setImmutable();
+            this.firstTierLirSuites.setImmutable();
+        } else {
+            this.firstTierSuites = suites;
+            this.firstTierLirSuites = lirSuites;
+        }
+
         ResolvedJavaType[] skippedExceptionTypes = getSkippedExceptionTypes(providers.getMetaAccess());
 
         boolean needSourcePositions = graalTruffleRuntime.enableInfopoints() || TruffleCompilerOptions.TruffleInstrumentBranches.getValue();
@@ -112,6 +141,24 @@ public abstract class TruffleCompiler {
         graalTruffleRuntime.reinstallStubs();
     }
 
+    /**
+     * Inserts a {@link GraphSizeBudgetPhase} after each phase of the high tier.
+     */
+    private static Suites withGraphSizeBudget(Suites original) {
+        int maximumGraphSize = TruffleMaximumGraphSize.getValue();
+        if (maximumGraphSize <= 0) {
+            return original;
+        }
+        Suites result = original.copy();
+        ListIterator<BasePhase<? super HighTierContext>> phases = result.getHighTier().phaseIterator();
+        while (phases.hasNext()) {
+            BasePhase<? super HighTierContext> phase = phases.next();
+            phases.add(new GraphSizeBudgetPhase(maximumGraphSize, phase.getName()));
+        }
+        result.setImmutable();
+        return result;
+    }
+
     public GraphBuilderConfiguration getGraphBuilderConfiguration() {
         return config;
     }
@@ -134,32 +181,95 @@ public abstract class TruffleCompiler {
     public static final DebugMemUseTracker CompilationMemUse = Debug.memUseTracker("TruffleCompilationMemUse");
     public static final DebugMemUseTracker CodeInstallationMemUse = Debug.memUseTracker("TruffleCodeInstallationMemUse");
 
+    private static final DebugCounter GraphSizeRetries = Debug.counter("TruffleGraphSizeRetries");
+    private static final DebugCounter GraphSizeBailouts = Debug.counter("TruffleGraphSizeBailouts");
+    private static final DebugCounter MemoryQuotaBailouts = Debug.counter("TruffleMemoryQuotaBailouts");
+
     @SuppressWarnings("try")
     public void compileMethod(final OptimizedCallTarget compilable) {
         StructuredGraph graph = null;
 
         compilationNotify.notifyCompilationStarted(compilable);
 
-        try {
-            TruffleInlining inliningDecision = new TruffleInlining(compilable, new DefaultInliningPolicy());
+        try (CompilationMemoryQuota quota = CompilationMemoryQuota.open(TruffleMaxCompilationMemory.getValue() * 1024L * 1024L)) {
+            boolean firstTier = compilable.getCompilationProfile().isFirstTierCompilation();
+            /*
+             * Halve the inlining budget for each previous compilation that exceeded the memory
+             * quota.
+             */
+            int maxCallerSize = TruffleInliningMaxCallerSize.getValue() >> Math.min(compilable.getMemoryQuotaBailouts(), 31);
+            boolean reducedInlining = maxCallerSize != TruffleInliningMaxCallerSize.getValue();
+            int retries = 0;
+            TruffleInlining inliningDecision;
+            while (true) {
+                if (firstTier) {
+                    inliningDecision = new TruffleInlining(compilable, new FirstTierInliningPolicy());
+                } else if (reducedInlining) {
+                    inliningDecision = new TruffleInlining(compilable, new DefaultInliningPolicy(maxCallerSize));
+                } else if (TruffleIncrementalInlining.getValue()) {
+                    inliningDecision = new TruffleInlining(compilable, new DefaultInliningPolicy(), compilable.takePreviousInlining());
+                } else {
+                    inliningDecision = new TruffleInlining(compilable, new DefaultInliningPolicy());
+                }
 
-            PhaseSuite<HighTierContext> graphBuilderSuite = createGraphBuilderSuite();
+                try (DebugCloseable a = PartialEvaluationTime.start(); DebugCloseable c = PartialEvaluationMemUse.start()) {
+                    graph = partialEvaluator.createGraph(compilable, inliningDecision, AllowAssumptions.YES);
+                }
 
-            try (DebugCloseable a = PartialEvaluationTime.start(); DebugCloseable c = PartialEvaluationMemUse.start()) {
-                graph = partialEvaluator.createGraph(compilable, inliningDecision, AllowAssumptions.YES);
-            }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
 
-            if (Thread.currentThread().isInterrupted()) {
-                return;
+                int maximumGraphSize = TruffleMaximumGraphSize.getValue();
+                if (maximumGraphSize <= 0) {
+                    break;
+                }
+                try {
+                    GraphSizeBudgetPhase.check(graph, providers.getNodeCostProvider(), maximumGraphSize, "partial evaluation");
+                    break;
+                } catch (GraphTooBigBailoutException e) {
+                    if (firstTier || retries >= TruffleGraphSizeRetries.getValue() || inliningDecision.getInlinedNodeCount() == 0) {
+                        GraphSizeBailouts.increment();
+                        throw e;
+                    }
+                    /* Retry with half the inlining budget. */
+                    GraphSizeRetries.increment();
+                    maxCallerSize /= 2;
+                    reducedInlining = true;
+                    retries++;
+                    Debug.log("%s: retrying with TruffleInliningMaxCallerSize %d", e.getMessage(), maxCallerSize);
+                }
             }
 
-            dequeueInlinedCallSites(inliningDecision);
-
+            /*
+             * Only the decision that passed the size check after partial evaluation is reported and
+             * compiled. A graph that grows beyond the budget in the high tier is not retried, since
+             * its Truffle tier has already been reported.
+             */
             compilationNotify.notifyCompilationTruffleTierFinished(compilable, inliningDecision, graph);
-            CompilationResult compilationResult = compileMethodHelper(graph, compilable.toString(), graphBuilderSuite, compilable);
+            PhaseSuite<HighTierContext> graphBuilderSuite = createGraphBuilderSuite();
+            CompilationResult compilationResult;
+            try {
+                if (firstTier) {
+                    compilationResult = compileMethodHelper(graph, compilable.toString(), graphBuilderSuite, compilable, firstTierSuites, firstTierLirSuites);
+                } else {
+                    compilationResult = compileMethodHelper(graph, compilable.toString(), graphBuilderSuite, compilable, suites, lirSuites);
+                }
+            } catch (GraphTooBigBailoutException e) {
+                GraphSizeBailouts.increment();
+                throw e;
+            }
             compilationNotify.notifyCompilationSuccess(compilable, inliningDecision, graph, compilationResult);
             dequeueInlinedCallSites(inliningDecision);
+            if (!firstTier && !reducedInlining && TruffleIncrementalInlining.getValue()) {
+                /* Only decisions made with the full budget are reused. */
+                compilable.setPreviousInlining(inliningDecision);
+            }
         } catch (Throwable t) {
+            if (t instanceof CompilationMemoryQuota.ExceededException) {
+                MemoryQuotaBailouts.increment();
+                compilable.reportMemoryQuotaBailout();
+            }
             compilationNotify.notifyCompilationFailed(compilable, graph, t);
             throw t;
         }
@@ -177,8 +287,33 @@ public abstract class TruffleCompiler {
         }
     }
 
-    @SuppressWarnings("try")
+    /**
+     * Inlining policy of first tier compilations: only the root call target is compiled, calls to
+     * other call targets are not inlined.
+     */
+    private static final class FirstTierInliningPolicy implements TruffleInliningPolicy {
+
+        private static final String REASON_FIRST_TIER = "first tier compilation";
+
+        @Override
+        public boolean isAllowed(TruffleInliningProfile profile, int currentNodeCount, CompilerOptions options) {
+            profile.setFailedReason(REASON_FIRST_TIER);
+            return false;
+        }
+
+        @Override
+        public double calculateScore(TruffleInliningProfile profile) {
+            return profile.getFrequency() / profile.getDeepNodeCount();
+        }
+    }
+
     public CompilationResult compileMethodHelper(StructuredGraph graph, String name, PhaseSuite<HighTierContext> graphBuilderSuite, InstalledCode predefinedInstalledCode) {
+        return compileMethodHelper(graph, name, graphBuilderSuite, predefinedInstalledCode, suites, lirSuites);
+    }
+
+    @SuppressWarnings("try")
+    public CompilationResult compileMethodHelper(StructuredGraph graph, String name, PhaseSuite<HighTierContext> graphBuilderSuite, InstalledCode predefinedInstalledCode, Suites compilationSuites,
+                    LIRSuites compilationLirSuites) {
         try (Scope s = Debug.scope("TruffleFinal")) {
             Debug.dump(Debug.BASIC_LOG_LEVEL, graph, "After TruffleTier");
         } catch (Throwable e) {
@@ -195,7 +330,8 @@ public abstract class TruffleCompiler {
             }
 
             CompilationResult compilationResult = new CompilationResult(name);
-            result = compileGraph(graph, graph.method(), providers, backend, graphBuilderSuite, Optimizations, graph.getProfilingInfo(), suites, lirSuites, compilationResult, factory);
+            result = compileGraph(graph, graph.method(), providers, backend, graphBuilderSuite, Optimizations, graph.getProfilingInfo(), compilationSuites, compilationLirSuites, compilationResult,
+                            factory);
         } catch (Throwable e) {
             throw Debug.handle(e);
         }
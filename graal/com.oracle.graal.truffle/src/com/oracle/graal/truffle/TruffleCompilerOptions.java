@@ -56,6 +56,12 @@ public class TruffleCompilerOptions {
     @Option(help = "Compile call target when call count exceeds this threshold", type = OptionType.User)
     public static final OptionValue<Integer> TruffleCompilationThreshold = new OptionValue<>(1000);
 
+    @Option(help = "Compile call targets with a fast first tier before compiling them with all optimizations", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleMultiTier = new OptionValue<>(false);
+
+    @Option(help = "Compile call target with the first tier when call count exceeds this threshold, if TruffleMultiTier is enabled", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleFirstTierCompilationThreshold = new OptionValue<>(100);
+
     @Option(help = "Defines the maximum timespan in milliseconds that is required for a call target to be queued for compilation.", type = OptionType.User)
     public static final OptionValue<Integer> TruffleTimeThreshold = new OptionValue<>(25000);
 
@@ -71,12 +77,27 @@ public class TruffleCompilerOptions {
     @Option(help = "Enable automatic inlining of call targets", type = OptionType.Debug)
     public static final OptionValue<Boolean> TruffleFunctionInlining = new OptionValue<>(true);
 
+    @Option(help = "Maximum number of call targets an indirect call node caches to call them directly, which allows inlining them (0 to disable)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleIndirectCallCacheSize = new OptionValue<>(4);
+
     @Option(help = "Stop inlining if caller's cumulative tree size would exceed this limit", type = OptionType.Expert)
     public static final OptionValue<Integer> TruffleInliningMaxCallerSize = new OptionValue<>(2250);
 
     @Option(help = "Maximum level of recursive inlining", type = OptionType.Expert)
     public static final OptionValue<Integer> TruffleMaximumRecursiveInlining = new OptionValue<>(4);
 
+    @Option(help = "Reuse the inlining decisions for unchanged call trees from the previous compilation of a call target", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleIncrementalInlining = new OptionValue<>(false);
+
+    @Option(help = "Bail out of a compilation if the estimated code size of its graph exceeds this limit after partial evaluation or a high tier phase (0 to disable)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleMaximumGraphSize = new OptionValue<>(300000);
+
+    @Option(help = "Number of times a compilation exceeding TruffleMaximumGraphSize after partial evaluation is retried with half the inlining budget before it bails out", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleGraphSizeRetries = new OptionValue<>(2);
+
+    @Option(help = "Maximum memory in MB that a single compilation may allocate before it bails out (0 for no limit). Later compilations of the call target inline less.", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleMaxCompilationMemory = new OptionValue<>(0);
+
     @Option(help = "Enable call target splitting", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleSplitting = new OptionValue<>(true);
 
@@ -86,15 +107,59 @@ public class TruffleCompilerOptions {
     @Option(help = "Number of loop iterations until on-stack-replacement compilation is triggered.", type = OptionType.Debug)
     public static final OptionValue<Integer> TruffleOSRCompilationThreshold = new OptionValue<>(100000);
 
+    @Option(help = "Infer the frame slots used by loops without explicitly configured frame slots and virtualize them in on-stack-replacement compilations. " +
+                    "Only valid for languages whose loops access the frame exclusively through FrameSlot fields of their nodes, never read the frame arguments " +
+                    "and initialize all slots they access before entering the loop.", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleOSRInferFrameSlots = new OptionValue<>(false);
+
+    @Option(help = "Number of entries into the on-stack-replacement code of a loop after which the threshold for its next on-stack-replacement compilation is halved (0 to disable).", type = OptionType.Debug)
+    public static final OptionValue<Integer> TruffleOSRBackoffEntries = new OptionValue<>(16);
+
+    @Option(help = "Lower bound for the on-stack-replacement compilation threshold of loops that repeatedly entered on-stack-replacement code.", type = OptionType.Debug)
+    public static final OptionValue<Integer> TruffleOSRMinimumCompilationThreshold = new OptionValue<>(1000);
+
     @Option(help = "Disable call target splitting if tree size exceeds this limit", type = OptionType.Debug)
     public static final OptionValue<Integer> TruffleSplittingMaxCalleeSize = new OptionValue<>(100);
 
+    @Option(help = "Split a call target for a call site that always passes arguments of the same types if other call sites pass different types", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleArgumentTypeSplitting = new OptionValue<>(true);
+
+    @Option(help = "Maximum number of call targets split because of argument types", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleArgumentTypeSplittingBudget = new OptionValue<>(1000);
+
+    @Option(help = "Maximum size in megabytes of the cache of parsed graphs shared by all partial evaluations (0 disables sharing)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TrufflePEGraphCacheSize = new OptionValue<>(32);
+
+    @Option(help = "File that keeps the graphs of the shared partial evaluation cache across VM restarts (requires TrufflePEGraphCacheSize > 0)", type = OptionType.Expert)
+    public static final OptionValue<String> TrufflePEGraphCacheFile = new OptionValue<>(null);
+
     @Option(help = "Enable asynchronous truffle compilation in background thread", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleBackgroundCompilation = new OptionValue<>(true);
 
     @Option(help = "Manually set the number of compiler threads", type = OptionType.Expert)
     public static final OptionValue<Integer> TruffleCompilerThreads = new OptionValue<>(0);
 
+    @Option(help = "Minimum number of compiler threads, which are kept alive while idle (ignored if TruffleCompilerThreads is set)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleMinCompilerThreads = new OptionValue<>(1);
+
+    @Option(help = "Maximum number of compiler threads started when compilations queue up, 0 selects a maximum based on the number of available processors (ignored if TruffleCompilerThreads is set)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleMaxCompilerThreads = new OptionValue<>(0);
+
+    @Option(help = "Maximum percentage of the available processors occupied by compiler threads, 0 for no limit (ignored if TruffleCompilerThreads is set)", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleMaxCompilerThreadsCPUShare = new OptionValue<>(0);
+
+    @Option(help = "Time in milliseconds after which idle compiler threads above TruffleMinCompilerThreads terminate", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleCompilerThreadKeepAlive = new OptionValue<>(10000);
+
+    @Option(help = "Maximum time in milliseconds a queued call target can be overtaken by hotter call targets", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleCompilationQueueMaxDelay = new OptionValue<>(1000);
+
+    @Option(help = "After compiling a call target, compile the queued call targets it reaches through direct calls on the same compiler thread, sharing the parsed graphs", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleBatchCompilation = new OptionValue<>(false);
+
+    @Option(help = "Maximum number of queued call targets compiled in a batch after the call target that reaches them", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleBatchCompilationMaxSize = new OptionValue<>(32);
+
     @Option(help = "Enable inlining across Truffle boundary", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleInlineAcrossTruffleBoundary = new OptionValue<>(false);
 
@@ -168,6 +233,24 @@ public class TruffleCompilerOptions {
     @Option(help = "Print additional more verbose Truffle compilation statistics at the end of a run.", type = OptionType.Debug)
     public static final OptionValue<Boolean> TruffleCompilationStatisticDetails = new OptionValue<>(false);
 
+    @Option(help = "Collect histograms of compilation queue time, partial evaluation time, graph size, code size and code installation time and publish them as a JMX MBean.", type = OptionType.User)
+    public static final OptionValue<Boolean> TruffleCompilationTelemetry = new OptionValue<>(true);
+
+    @Option(help = "Periodically append the compilation telemetry histograms to this file.", type = OptionType.User)
+    public static final OptionValue<String> TruffleCompilationTelemetryFile = new OptionValue<>(null);
+
+    @Option(help = "Interval in milliseconds at which the compilation telemetry is written to TruffleCompilationTelemetryFile.", type = OptionType.User)
+    public static final OptionValue<Integer> TruffleCompilationTelemetryInterval = new OptionValue<>(60000);
+
+    @Option(help = "Record the call targets compiled in this run to this file at exit, for replay with TruffleCompilationReplayFile.", type = OptionType.User)
+    public static final OptionValue<String> TruffleCompilationRecordFile = new OptionValue<>(null);
+
+    @Option(help = "Compile the call targets recorded in this file early, see TruffleCompilationRecordFile.", type = OptionType.User)
+    public static final OptionValue<String> TruffleCompilationReplayFile = new OptionValue<>(null);
+
+    @Option(help = "Compilation threshold of call targets recorded in TruffleCompilationReplayFile.", type = OptionType.User)
+    public static final OptionValue<Integer> TruffleReplayCompilationThreshold = new OptionValue<>(10);
+
     @Option(help = "Enable support for simple infopoints in truffle partial evaluations.", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleEnableInfopoints = new OptionValue<>(false);
 
@@ -25,8 +25,10 @@ package com.oracle.graal.truffle;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
@@ -39,32 +41,116 @@ import com.oracle.truffle.api.nodes.NodeVisitor;
 public class TruffleInlining implements Iterable<TruffleInliningDecision> {
 
     private final List<TruffleInliningDecision> callSites;
+    private final int exploredCallSiteCount;
+    private final int reusedCallSiteCount;
 
     protected TruffleInlining(List<TruffleInliningDecision> callSites) {
         this.callSites = callSites;
+        this.exploredCallSiteCount = 0;
+        this.reusedCallSiteCount = 0;
     }
 
     public TruffleInlining(OptimizedCallTarget sourceTarget, TruffleInliningPolicy policy) {
-        this(createDecisions(sourceTarget, policy, sourceTarget.getRootNode().getCompilerOptions()));
-
+        this(sourceTarget, policy, null);
     }
 
-    private static List<TruffleInliningDecision> createDecisions(OptimizedCallTarget sourceTarget, TruffleInliningPolicy policy, CompilerOptions options) {
+    /**
+     * Creates the inlining decisions for a call target, reusing the decisions of a previous
+     * exploration of the same call target for call sites whose call tree did not change since. A
+     * call tree is unchanged if the call node still calls the same call target, no call target in
+     * the tree was rewritten and the node count of the callers is the same. The profiles in reused
+     * call trees are the profiles of the previous exploration, except for the frequency of the
+     * root call site of the reused tree.
+     *
+     * @param previous the decisions of a previous exploration of {@code sourceTarget} with the same
+     *            kind of policy, or {@code null}
+     */
+    public TruffleInlining(OptimizedCallTarget sourceTarget, TruffleInliningPolicy policy, TruffleInlining previous) {
+        Exploration exploration = new Exploration(policy);
         int nodeCount = sourceTarget.getNonTrivialNodeCount();
-        List<TruffleInliningDecision> exploredCallSites = exploreCallSites(new ArrayList<>(Arrays.asList(sourceTarget)), nodeCount, policy);
-        return decideInlining(exploredCallSites, policy, nodeCount, options);
+        List<TruffleInliningDecision> exploredCallSites = exploration.exploreCallSites(new ArrayList<>(Arrays.asList(sourceTarget)), nodeCount, previous);
+        this.callSites = decideInlining(exploredCallSites, policy, nodeCount, sourceTarget.getRootNode().getCompilerOptions());
+        this.exploredCallSiteCount = exploration.exploredCount;
+        this.reusedCallSiteCount = exploration.reusedCount;
     }
 
-    private static List<TruffleInliningDecision> exploreCallSites(List<OptimizedCallTarget> stack, int callStackNodeCount, TruffleInliningPolicy policy) {
-        List<TruffleInliningDecision> exploredCallSites = new ArrayList<>();
-        OptimizedCallTarget parentTarget = stack.get(stack.size() - 1);
-        for (OptimizedDirectCallNode callNode : getCallNodes(parentTarget)) {
-            OptimizedCallTarget currentTarget = callNode.getCurrentCallTarget();
-            stack.add(currentTarget); // push
-            exploredCallSites.add(exploreCallSite(stack, callStackNodeCount, policy, callNode));
-            stack.remove(stack.size() - 1); // pop
+    /**
+     * The state of the exploration of the call tree of a call target.
+     */
+    private static final class Exploration {
+
+        private final TruffleInliningPolicy policy;
+        int exploredCount;
+        int reusedCount;
+
+        Exploration(TruffleInliningPolicy policy) {
+            this.policy = policy;
+        }
+
+        List<TruffleInliningDecision> exploreCallSites(List<OptimizedCallTarget> stack, int callStackNodeCount, TruffleInlining previous) {
+            List<TruffleInliningDecision> exploredCallSites = new ArrayList<>();
+            OptimizedCallTarget parentTarget = stack.get(stack.size() - 1);
+            Map<OptimizedDirectCallNode, TruffleInliningDecision> previousCallSites = null;
+            if (previous != null && !previous.getCallSites().isEmpty()) {
+                previousCallSites = new IdentityHashMap<>();
+                for (TruffleInliningDecision decision : previous) {
+                    previousCallSites.put(decision.getProfile().getCallNode(), decision);
+                }
+            }
+            for (OptimizedDirectCallNode callNode : getCallNodes(parentTarget)) {
+                OptimizedCallTarget currentTarget = callNode.getCurrentCallTarget();
+                TruffleInliningDecision previousCallSite = previousCallSites == null ? null : previousCallSites.get(callNode);
+                stack.add(currentTarget); // push
+                exploredCallSites.add(exploreCallSite(stack, callStackNodeCount, callNode, previousCallSite));
+                stack.remove(stack.size() - 1); // pop
+            }
+            return exploredCallSites;
+        }
+
+        private TruffleInliningDecision exploreCallSite(List<OptimizedCallTarget> callStack, int callStackNodeCount, OptimizedDirectCallNode callNode, TruffleInliningDecision previous) {
+            OptimizedCallTarget parentTarget = callStack.get(callStack.size() - 2);
+            OptimizedCallTarget currentTarget = callStack.get(callStack.size() - 1);
+
+            List<TruffleInliningDecision> childCallSites = Collections.emptyList();
+            double frequency = calculateFrequency(parentTarget, callNode);
+            int nodeCount = callNode.getCurrentCallTarget().getNonTrivialNodeCount();
+            int recursions = countRecursions(callStack);
+
+            if (previous != null && previous.isReusable(currentTarget, callStackNodeCount)) {
+                TruffleInliningProfile profile = new TruffleInliningProfile(callNode, nodeCount, previous.getProfile().getDeepNodeCount(), frequency, recursions);
+                profile.setScore(policy.calculateScore(profile));
+                TruffleInliningDecision decision = previous.copy(profile);
+                reusedCount += decision.countDecisions();
+                return decision;
+            }
+            exploredCount++;
+
+            int deepNodeCount = nodeCount;
+            if (callStack.size() < 15 && recursions <= TruffleCompilerOptions.TruffleMaximumRecursiveInlining.getValue()) {
+                /*
+                 * We make a preliminary optimistic inlining decision with best possible
+                 * characteristics to avoid the exploration of unnecessary paths in the inlining
+                 * tree.
+                 */
+                final CompilerOptions options = callNode.getRootNode().getCompilerOptions();
+                if (policy.isAllowed(new TruffleInliningProfile(callNode, nodeCount, nodeCount, frequency, recursions), callStackNodeCount, options)) {
+                    List<TruffleInliningDecision> exploredCallSites = exploreCallSites(callStack, callStackNodeCount + nodeCount, previous);
+                    childCallSites = decideInlining(exploredCallSites, policy, nodeCount, options);
+                    for (TruffleInliningDecision childCallSite : childCallSites) {
+                        if (childCallSite.isInline()) {
+                            deepNodeCount += childCallSite.getProfile().getDeepNodeCount();
+                        } else {
+                            /* we don't need those anymore. */
+                            childCallSite.getCallSites().clear();
+                        }
+                    }
+                }
+            }
+
+            TruffleInliningProfile profile = new TruffleInliningProfile(callNode, nodeCount, deepNodeCount, frequency, recursions);
+            profile.setScore(policy.calculateScore(profile));
+            return new TruffleInliningDecision(currentTarget, profile, childCallSites, callStackNodeCount);
         }
-        return exploredCallSites;
     }
 
     private static List<OptimizedDirectCallNode> getCallNodes(OptimizedCallTarget target) {
@@ -81,41 +167,6 @@ public class TruffleInlining implements Iterable<TruffleInliningDecision> {
         return callNodes;
     }
 
-    private static TruffleInliningDecision exploreCallSite(List<OptimizedCallTarget> callStack, int callStackNodeCount, TruffleInliningPolicy policy, OptimizedDirectCallNode callNode) {
-        OptimizedCallTarget parentTarget = callStack.get(callStack.size() - 2);
-        OptimizedCallTarget currentTarget = callStack.get(callStack.size() - 1);
-
-        List<TruffleInliningDecision> childCallSites = Collections.emptyList();
-        double frequency = calculateFrequency(parentTarget, callNode);
-        int nodeCount = callNode.getCurrentCallTarget().getNonTrivialNodeCount();
-
-        int recursions = countRecursions(callStack);
-        int deepNodeCount = nodeCount;
-        if (callStack.size() < 15 && recursions <= TruffleCompilerOptions.TruffleMaximumRecursiveInlining.getValue()) {
-            /*
-             * We make a preliminary optimistic inlining decision with best possible characteristics
-             * to avoid the exploration of unnecessary paths in the inlining tree.
-             */
-            final CompilerOptions options = callNode.getRootNode().getCompilerOptions();
-            if (policy.isAllowed(new TruffleInliningProfile(callNode, nodeCount, nodeCount, frequency, recursions), callStackNodeCount, options)) {
-                List<TruffleInliningDecision> exploredCallSites = exploreCallSites(callStack, callStackNodeCount + nodeCount, policy);
-                childCallSites = decideInlining(exploredCallSites, policy, nodeCount, options);
-                for (TruffleInliningDecision childCallSite : childCallSites) {
-                    if (childCallSite.isInline()) {
-                        deepNodeCount += childCallSite.getProfile().getDeepNodeCount();
-                    } else {
-                        /* we don't need those anymore. */
-                        childCallSite.getCallSites().clear();
-                    }
-                }
-            }
-        }
-
-        TruffleInliningProfile profile = new TruffleInliningProfile(callNode, nodeCount, deepNodeCount, frequency, recursions);
-        profile.setScore(policy.calculateScore(profile));
-        return new TruffleInliningDecision(currentTarget, profile, childCallSites);
-    }
-
     private static double calculateFrequency(OptimizedCallTarget target, OptimizedDirectCallNode ocn) {
         return (double) Math.max(1, ocn.getCallCount()) / (double) Math.max(1, ((DefaultCompilationProfile) target.getCompilationProfile()).getInterpreterCallCount());
     }
@@ -146,6 +197,22 @@ public class TruffleInlining implements Iterable<TruffleInliningDecision> {
         return callSites;
     }
 
+    /**
+     * Returns the number of call sites whose inlining decision was computed by exploring the call
+     * tree.
+     */
+    public int getExploredCallSiteCount() {
+        return exploredCallSiteCount;
+    }
+
+    /**
+     * Returns the number of call sites whose inlining decision was reused from a previous
+     * exploration.
+     */
+    public int getReusedCallSiteCount() {
+        return reusedCallSiteCount;
+    }
+
     public int getInlinedNodeCount() {
         return getCallSites().stream().filter(callSite -> callSite.isInline()).mapToInt(callSite -> callSite.getProfile().getDeepNodeCount()).sum();
     }
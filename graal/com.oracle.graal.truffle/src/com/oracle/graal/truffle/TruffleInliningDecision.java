@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.truffle;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,10 +32,31 @@ public final class TruffleInliningDecision extends TruffleInlining implements Co
     private final TruffleInliningProfile profile;
     private boolean inline;
 
+    /**
+     * The {@linkplain OptimizedCallTarget#getNodeRewriteGeneration() node rewrite generation} of
+     * {@link #target} when this decision was made.
+     */
+    private final int targetGeneration;
+
+    /**
+     * The node count of the callers of the call site when this decision was made, or -1 if unknown.
+     */
+    private final int callStackNodeCount;
+
     public TruffleInliningDecision(OptimizedCallTarget target, TruffleInliningProfile profile, List<TruffleInliningDecision> children) {
+        this(target, profile, children, -1);
+    }
+
+    TruffleInliningDecision(OptimizedCallTarget target, TruffleInliningProfile profile, List<TruffleInliningDecision> children, int callStackNodeCount) {
+        this(target, profile, children, target.getNodeRewriteGeneration(), callStackNodeCount);
+    }
+
+    private TruffleInliningDecision(OptimizedCallTarget target, TruffleInliningProfile profile, List<TruffleInliningDecision> children, int targetGeneration, int callStackNodeCount) {
         super(children);
         this.target = target;
         this.profile = profile;
+        this.targetGeneration = targetGeneration;
+        this.callStackNodeCount = callStackNodeCount;
     }
 
     public OptimizedCallTarget getTarget() {
@@ -53,6 +75,52 @@ public final class TruffleInliningDecision extends TruffleInlining implements Co
         return profile;
     }
 
+    /**
+     * Determines if this decision and the decisions for the call sites of its call tree can be
+     * reused for a call site calling {@code currentTarget}. Only decisions to inline can be reused,
+     * since the call sites of call targets that are not inlined are discarded.
+     */
+    boolean isReusable(OptimizedCallTarget currentTarget, int currentCallStackNodeCount) {
+        return inline && target == currentTarget && callStackNodeCount != -1 && callStackNodeCount == currentCallStackNodeCount && isUnchanged();
+    }
+
+    private boolean isUnchanged() {
+        if (target.getNodeRewriteGeneration() != targetGeneration) {
+            return false;
+        }
+        for (TruffleInliningDecision callSite : getCallSites()) {
+            if (!callSite.isUnchanged()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies this decision and the decisions of its call tree. The copy is not inlined until the
+     * inlining of the copied call site is decided again.
+     */
+    TruffleInliningDecision copy(TruffleInliningProfile newProfile) {
+        List<TruffleInliningDecision> callSites = new ArrayList<>(getCallSites().size());
+        for (TruffleInliningDecision callSite : getCallSites()) {
+            TruffleInliningDecision callSiteCopy = callSite.copy(callSite.getProfile().copy());
+            callSiteCopy.inline = callSite.inline;
+            callSites.add(callSiteCopy);
+        }
+        return new TruffleInliningDecision(target, newProfile, callSites, targetGeneration, callStackNodeCount);
+    }
+
+    /**
+     * Returns the number of decisions in the call tree of this decision, including this decision.
+     */
+    int countDecisions() {
+        int count = 1;
+        for (TruffleInliningDecision callSite : getCallSites()) {
+            count += callSite.countDecisions();
+        }
+        return count;
+    }
+
     @Override
     public int compareTo(TruffleInliningDecision o) {
         return Double.compare(o.getProfile().getScore(), getProfile().getScore());
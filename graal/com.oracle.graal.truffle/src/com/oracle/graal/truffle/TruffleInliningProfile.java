@@ -97,6 +97,14 @@ public class TruffleInliningProfile {
         return deepNodeCount;
     }
 
+    TruffleInliningProfile copy() {
+        TruffleInliningProfile copy = new TruffleInliningProfile(callNode, nodeCount, deepNodeCount, frequency, recursions);
+        copy.failedReason = failedReason;
+        copy.queryIndex = queryIndex;
+        copy.score = score;
+        return copy;
+    }
+
     public Map<String, Object> getDebugProperties() {
         Map<String, Object> properties = new LinkedHashMap<>();
         properties.put("ASTSize", String.format("%5d/%5d", nodeCount, deepNodeCount));
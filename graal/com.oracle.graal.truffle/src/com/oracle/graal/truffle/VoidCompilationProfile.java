@@ -47,6 +47,15 @@ public class VoidCompilationProfile extends AbstractCompilationProfile {
     void interpreterCall(OptimizedCallTarget callTarget) {
     }
 
+    @Override
+    void firstTierCall(OptimizedCallTarget callTarget) {
+    }
+
+    @Override
+    boolean isFirstTierCompilation() {
+        return false;
+    }
+
     @Override
     public <E extends Throwable> E profileExceptionType(E ex) {
         return ex;
@@ -70,6 +79,10 @@ public class VoidCompilationProfile extends AbstractCompilationProfile {
     public void reportCompilationFailure(Throwable t) {
     }
 
+    @Override
+    void reportCompilationBailout() {
+    }
+
     @Override
     void reportLoopCount(int count) {
     }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.debug;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.TruffleInlining;
+
+/**
+ * Records histograms of the compile queue time, partial evaluation time, graph size after partial
+ * evaluation, code size and code installation time of all Truffle compilations. Unlike the
+ * {@link CompilationStatisticsListener}, which prints at shutdown, this listener is meant to be
+ * always on: recording a compilation costs a few atomic increments. The histograms are published
+ * as the MBean {@value #OBJECT_NAME} and, if {@link TruffleCompilerOptions#TruffleCompilationTelemetryFile}
+ * is set, appended to a file every {@link TruffleCompilerOptions#TruffleCompilationTelemetryInterval}
+ * milliseconds, where each report covers the compilations since the previous one.
+ */
+public final class CompilationTelemetryListener extends AbstractDebugCompilationListener implements CompilationTelemetryListenerMBean {
+
+    public static final String OBJECT_NAME = "com.oracle.graal.truffle:type=CompilationTelemetry";
+
+    private static final String[] METRICS = {"QueueTime", "PartialEvaluationTime", "GraphSize", "CodeSize", "CodeInstallationTime", "CompilationTime"};
+    private static final String[] UNITS = {"us", "us", "nodes", "bytes", "us", "us"};
+
+    private static final int QUEUE_TIME = 0;
+    private static final int PARTIAL_EVALUATION_TIME = 1;
+    private static final int GRAPH_SIZE = 2;
+    private static final int CODE_SIZE = 3;
+    private static final int CODE_INSTALLATION_TIME = 4;
+    private static final int COMPILATION_TIME = 5;
+
+    private final GraalTruffleRuntime runtime;
+    private final LogHistogram[] histograms = new LogHistogram[METRICS.length];
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicBoolean registered = new AtomicBoolean();
+    private final ThreadLocal<CompilationLocal> compilationLocal = new ThreadLocal<>();
+
+    private CompilationTelemetryListener(GraalTruffleRuntime runtime) {
+        this.runtime = runtime;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LogHistogram();
+        }
+    }
+
+    public static void install(GraalTruffleRuntime runtime) {
+        if (TruffleCompilerOptions.TruffleCompilationTelemetry.getValue() || TruffleCompilerOptions.TruffleCompilationTelemetryFile.getValue() != null) {
+            CompilationTelemetryListener listener = new CompilationTelemetryListener(runtime);
+            runtime.addCompilationListener(listener);
+            String file = TruffleCompilerOptions.TruffleCompilationTelemetryFile.getValue();
+            if (file != null) {
+                long interval = Math.max(1, TruffleCompilerOptions.TruffleCompilationTelemetryInterval.getValue());
+                Timer timer = new Timer("TruffleCompilationTelemetry", true);
+                timer.scheduleAtFixedRate(new TimerTask() {
+                    @Override
+                    public void run() {
+                        listener.writeReport(file);
+                    }
+                }, interval, interval);
+            }
+        }
+    }
+
+    @Override
+    public void notifyCompilationStarted(OptimizedCallTarget target) {
+        if (!registered.get() && registered.compareAndSet(false, true)) {
+            /* Registered lazily so that the platform MBean server is not created at startup. */
+            register();
+        }
+        compilations.incrementAndGet();
+        CompilationLocal local = new CompilationLocal();
+        local.compilationStarted = System.nanoTime();
+        compilationLocal.set(local);
+        long queueTime = runtime.getCompilationQueueTime(target);
+        if (queueTime >= 0) {
+            histograms[QUEUE_TIME].record(queueTime / 1000);
+        }
+    }
+
+    @Override
+    public void notifyCompilationTruffleTierFinished(OptimizedCallTarget target, TruffleInlining inliningDecision, StructuredGraph graph) {
+        CompilationLocal local = compilationLocal.get();
+        if (local == null) {
+            /* Not started through compileMethod, e.g., by a test. */
+            return;
+        }
+        local.truffleTierFinished = System.nanoTime();
+        histograms[PARTIAL_EVALUATION_TIME].record((local.truffleTierFinished - local.compilationStarted) / 1000);
+        histograms[GRAPH_SIZE].record(graph.getNodeCount());
+    }
+
+    @Override
+    public void notifyCompilationGraalTierFinished(OptimizedCallTarget target, StructuredGraph graph) {
+        CompilationLocal local = compilationLocal.get();
+        if (local != null) {
+            local.graalTierFinished = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void notifyCompilationSuccess(OptimizedCallTarget target, TruffleInlining inliningDecision, StructuredGraph graph, CompilationResult result) {
+        long compilationDone = System.nanoTime();
+        CompilationLocal local = compilationLocal.get();
+        if (local == null) {
+            return;
+        }
+        histograms[CODE_SIZE].record(result.getTargetCodeSize());
+        histograms[CODE_INSTALLATION_TIME].record((compilationDone - local.graalTierFinished) / 1000);
+        histograms[COMPILATION_TIME].record((compilationDone - local.compilationStarted) / 1000);
+        compilationLocal.set(null);
+    }
+
+    @Override
+    public void notifyCompilationFailed(OptimizedCallTarget target, StructuredGraph graph, Throwable t) {
+        failures.incrementAndGet();
+        compilationLocal.set(null);
+    }
+
+    @Override
+    public void notifyShutdown(GraalTruffleRuntime rt) {
+        String file = TruffleCompilerOptions.TruffleCompilationTelemetryFile.getValue();
+        if (file != null) {
+            writeReport(file);
+        }
+    }
+
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            runtime.log("Failed to register the Truffle compilation telemetry MBean: " + e);
+        }
+    }
+
+    /**
+     * Appends the histograms of the compilations since the previous report to a file.
+     */
+    private synchronized void writeReport(String file) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("# %s compilations=%d failures=%d%n", Instant.now(), compilations.get(), failures.get()));
+        for (int i = 0; i < METRICS.length; i++) {
+            report.append(String.format("%-22s %-6s %s%n", METRICS[i], UNITS[i], LogHistogram.format(histograms[i].resetInterval())));
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            out.print(report);
+        } catch (IOException e) {
+            runtime.log("Failed to write the Truffle compilation telemetry to " + file + ": " + e);
+        }
+    }
+
+    private LogHistogram histogram(String metric) {
+        int index = Arrays.asList(METRICS).indexOf(metric);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown metric " + metric + ", expected one of " + Arrays.toString(METRICS));
+        }
+        return histograms[index];
+    }
+
+    @Override
+    public long getCompilations() {
+        return compilations.get();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String[] getMetrics() {
+        return METRICS.clone();
+    }
+
+    @Override
+    public long[] getHistogram(String metric) {
+        return histogram(metric).getTotal();
+    }
+
+    @Override
+    public long getPercentile(String metric, double percentile) {
+        return LogHistogram.percentile(histogram(metric).getTotal(), percentile);
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("compilations=%d failures=%d%n", compilations.get(), failures.get()));
+        for (int i = 0; i < METRICS.length; i++) {
+            report.append(String.format("%-22s %-6s %s%n", METRICS[i], UNITS[i], LogHistogram.format(histograms[i].getTotal())));
+        }
+        return report.toString();
+    }
+
+    private static final class CompilationLocal {
+
+        private long compilationStarted;
+        private long truffleTierFinished;
+        private long graalTierFinished;
+    }
+}
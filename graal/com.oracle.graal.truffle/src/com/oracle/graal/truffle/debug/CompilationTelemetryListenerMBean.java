@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.debug;
+
+/**
+ * Management interface of the {@link CompilationTelemetryListener}. Values of time metrics are in
+ * microseconds, graph sizes in nodes and code sizes in bytes.
+ */
+public interface CompilationTelemetryListenerMBean {
+
+    long getCompilations();
+
+    long getFailures();
+
+    /**
+     * Returns the names of the metrics that are recorded for each compilation.
+     */
+    String[] getMetrics();
+
+    /**
+     * Returns the number of values recorded for a metric per histogram bucket. Bucket {@code 0}
+     * counts the value {@code 0} and bucket {@code i > 0} the values in {@code [2^(i-1), 2^i)}.
+     */
+    long[] getHistogram(String metric);
+
+    /**
+     * Returns an upper bound of the given percentile of a metric, accurate up to a factor of two.
+     */
+    long getPercentile(String metric, double percentile);
+
+    /**
+     * Returns a human-readable summary of all metrics.
+     */
+    String getReport();
+}
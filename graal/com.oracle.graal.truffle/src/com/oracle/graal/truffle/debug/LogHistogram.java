@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.debug;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values with power-of-two bucket boundaries. Bucket
+ * {@code 0} counts the value {@code 0} and bucket {@code i > 0} counts the values in
+ * {@code [2^(i-1), 2^i)}, so percentiles are accurate up to a factor of two, which is sufficient
+ * for tuning thresholds while keeping recording to a single atomic increment.
+ *
+ * Besides the counts since creation, the histogram keeps the counts of the current interval, which
+ * are {@linkplain #resetInterval() reset} whenever an interval is reported.
+ */
+public final class LogHistogram {
+
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray total = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray interval = new AtomicLongArray(BUCKETS);
+
+    public void record(long value) {
+        int bucket = bucket(value);
+        total.incrementAndGet(bucket);
+        interval.incrementAndGet(bucket);
+    }
+
+    public static int bucket(long value) {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Returns the largest value counted by a bucket.
+     */
+    public static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    public long[] getTotal() {
+        return snapshot(total, false);
+    }
+
+    /**
+     * Returns the counts of the current interval and starts a new interval.
+     */
+    public long[] resetInterval() {
+        return snapshot(interval, true);
+    }
+
+    private static long[] snapshot(AtomicLongArray counts, boolean reset) {
+        long[] result = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            result[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+        }
+        return result;
+    }
+
+    public static long count(long[] counts) {
+        long result = 0;
+        for (long c : counts) {
+            result += c;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile of the values, or
+     * {@code 0} if no values were counted.
+     *
+     * @param percentile a number between {@code 0} and {@code 100}
+     */
+    public static long percentile(long[] counts, double percentile) {
+        long count = count(counts);
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > 0 && seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    public static String format(long[] counts) {
+        return String.format("count=%d, p50=%d, p90=%d, p99=%d, max=%d", count(counts), percentile(counts, 50), percentile(counts, 90), percentile(counts, 99), percentile(counts, 100));
+    }
+}
@@ -24,6 +24,8 @@ package com.oracle.graal.truffle.debug;
 
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TraceTruffleInlining;
 
+import java.util.Map;
+
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.truffle.GraalTruffleRuntime;
 import com.oracle.graal.truffle.OptimizedCallTarget;
@@ -50,7 +52,10 @@ public final class TraceInliningListener extends AbstractDebugCompilationListene
 
         log(0, "inline start", target.toString(), target.getDebugProperties(null));
         logInliningDecisionRecursive(target, inliningDecision, 1);
-        log(0, "inline done", target.toString(), target.getDebugProperties(inliningDecision));
+        Map<String, Object> properties = target.getDebugProperties(inliningDecision);
+        properties.put("explored", inliningDecision.getExploredCallSiteCount());
+        properties.put("reused", inliningDecision.getReusedCallSiteCount());
+        log(0, "inline done", target.toString(), properties);
     }
 
     private void logInliningDecisionRecursive(OptimizedCallTarget target, TruffleInlining inliningDecision, int depth) {
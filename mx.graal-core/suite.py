@@ -1111,6 +1111,7 @@ suite = {
       "dependencies" : [
         "mx:JMH",
         "truffle:TRUFFLE_API",
+        "com.oracle.graal.truffle",
       ],
       "checkstyle" : "com.oracle.graal.graph",
       "javaCompliance" : "1.8",